@@ -0,0 +1,60 @@
+package com.webdynamo.document_insight.benchmark;
+
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.boot.env.YamlPropertySourceLoader;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.MutablePropertySources;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+
+/**
+ * Small Spring context for benchmarks of Spring services: the application's own application.yaml
+ * with per-benchmark overrides on top, so @Value fields and @PostConstruct set a service up the way
+ * the application does. Register the beans under test, then refresh; close it in a @TearDown.
+ */
+public final class BenchmarkContext {
+
+    private BenchmarkContext() {
+    }
+
+    /**
+     * Unrefreshed context with the application configuration and the given property overrides
+     */
+    public static AnnotationConfigApplicationContext create(Map<String, Object> overrides) {
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+
+        MutablePropertySources propertySources = context.getEnvironment().getPropertySources();
+        propertySources.addFirst(new MapPropertySource("benchmark", overrides));
+        try {
+            new YamlPropertySourceLoader().load("application.yaml", new ClassPathResource("application.yaml"))
+                    .forEach(propertySources::addLast);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not load application.yaml", e);
+        }
+
+        // Converts "1m", "PT0.5S" and the like, as Spring Boot does for @Value
+        context.getBeanFactory().setConversionService(ApplicationConversionService.getSharedInstance());
+        return context;
+    }
+
+    /**
+     * Stand-in for a collaborator the measured code must not reach (the database, mainly):
+     * any call fails with the method it was, rather than as a NullPointerException further in
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T unavailable(Class<T> type) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) ->
+                switch (method.getName()) {
+                    case "toString" -> "unavailable " + type.getSimpleName();
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> throw new UnsupportedOperationException(
+                            type.getSimpleName() + "." + method.getName() + " is not available in benchmarks");
+                });
+    }
+}
@@ -0,0 +1,24 @@
+package com.webdynamo.document_insight.benchmark;
+
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+
+import java.util.List;
+
+/**
+ * Chat model answering every prompt at once with the same text and no token usage,
+ * so a benchmark measures the request path up to the LLM call
+ */
+final class CannedChatModel implements ChatModel {
+
+    private static final String ANSWER = "The invoice is payable within 30 days; either party may terminate "
+            + "the agreement with 90 days written notice.";
+
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        return new ChatResponse(List.of(new Generation(new AssistantMessage(ANSWER))));
+    }
+}
@@ -0,0 +1,55 @@
+package com.webdynamo.document_insight.benchmark;
+
+import com.webdynamo.document_insight.embedding.PreviousEmbeddingModel;
+import com.webdynamo.document_insight.repo.DocumentChunkRepository;
+import com.webdynamo.document_insight.repo.EmbeddingStateRepository;
+import com.webdynamo.document_insight.service.ActiveEmbeddingModelService;
+import com.webdynamo.document_insight.service.EmbeddingService;
+import com.webdynamo.document_insight.service.VectorSearchService;
+import io.micrometer.observation.ObservationRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.Map;
+
+import static com.webdynamo.document_insight.benchmark.SyntheticCorpus.searchResults;
+
+/**
+ * Vector search returning the same synthetic results for every query, for benchmarks of what
+ * RAGQueryService does with them. Overrides every search RAGQueryService makes; the database
+ * collaborators it still has to be given are stand-ins that fail if anything reaches them.
+ */
+final class CannedVectorSearchService extends VectorSearchService {
+
+    private final List<Map<String, Object>> results;
+
+    CannedVectorSearchService(int results, int chunkChars, EmbeddingService embeddingService,
+                              ObjectProvider<PreviousEmbeddingModel> previousEmbeddingModel,
+                              ObservationRegistry observationRegistry) {
+        super(new JdbcTemplate(), embeddingService,
+                new ActiveEmbeddingModelService(
+                        BenchmarkContext.unavailable(EmbeddingStateRepository.class),
+                        BenchmarkContext.unavailable(DocumentChunkRepository.class),
+                        embeddingService,
+                        previousEmbeddingModel),
+                BenchmarkContext.unavailable(DocumentChunkRepository.class),
+                observationRegistry);
+        this.results = searchResults(results, chunkChars);
+    }
+
+    @Override
+    public List<Map<String, Object>> searchSimilarChunks(String query, int limit) {
+        return results;
+    }
+
+    @Override
+    public List<Map<String, Object>> searchInDocument(Long documentId, String query, int limit) {
+        return results;
+    }
+
+    @Override
+    public List<Map<String, Object>> searchSimilarChunksForUser(String query, Long userId, int limit) {
+        return results;
+    }
+}
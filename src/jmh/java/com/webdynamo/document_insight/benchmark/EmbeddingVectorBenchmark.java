@@ -0,0 +1,72 @@
+package com.webdynamo.document_insight.benchmark;
+
+import com.webdynamo.document_insight.config.ExecutorConfig;
+import com.webdynamo.document_insight.service.EmbeddingService;
+import com.webdynamo.document_insight.service.MetricsService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Formatting an embedding as a pgvector literal, done once per chunk on ingestion and once
+ * per query. Dimensions of the local MiniLM model (384), nomic-embed-text (768) and larger models (1536).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EmbeddingVectorBenchmark {
+
+    @Param({"384", "768", "1536"})
+    private int dimension;
+
+    private AnnotationConfigApplicationContext context;
+    private EmbeddingService embeddingService;
+    private float[] embedding;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkContext.create(Map.of(
+                "application.embedding.dimension", dimension,
+                // Formatting does not go through the batcher, so no lane threads run alongside
+                "application.embedding.batch.enabled", false
+        ));
+        context.registerBean(MeterRegistry.class, SimpleMeterRegistry::new);
+        context.registerBean(MetricsService.class);
+        context.registerBean(ExecutorConfig.class);
+        context.registerBean(EmbeddingModel.class, () -> new SyntheticEmbeddingModel(dimension));
+        context.registerBean(EmbeddingService.class);
+        context.refresh();
+
+        embeddingService = context.getBean(EmbeddingService.class);
+        embedding = embeddingService.generateEmbedding("Payment is due within 30 days of the invoice date.");
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public String embeddingToVector() {
+        return embeddingService.embeddingToVector(embedding);
+    }
+}
@@ -0,0 +1,99 @@
+package com.webdynamo.document_insight.benchmark;
+
+import com.webdynamo.document_insight.model.Role;
+import com.webdynamo.document_insight.model.User;
+import com.webdynamo.document_insight.service.JwtService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token checks done by JwtAuthenticationFilter on every authenticated request:
+ * a full parse (signature and claims) with the verified-token cache off, and a cache hit.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtServiceBenchmark {
+
+    private static final String SECRET = "mySecretKeyThatIsAtLeast256BitsLongForHS256AlgorithmSecurityRequirement";
+
+    private AnnotationConfigApplicationContext uncachedContext;
+    private AnnotationConfigApplicationContext cachedContext;
+    private JwtService uncached;
+    private JwtService cached;
+    private User user;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        SyntheticCorpus.silence(JwtService.class);
+
+        uncachedContext = jwtContext("0s");
+        cachedContext = jwtContext("10m");
+        uncached = uncachedContext.getBean(JwtService.class);
+        cached = cachedContext.getBean(JwtService.class);
+
+        user = new User();
+        user.setId(42L);
+        user.setEmail("alice@example.com");
+        user.setName("Alice");
+        user.setRole(Role.USER);
+
+        // Same key in both services, so the token is valid for either
+        token = uncached.generateToken(user);
+        cached.verify(token);
+    }
+
+    @Benchmark
+    public Optional<JwtService.VerifiedToken> parseAndVerify() {
+        return uncached.verify(token);
+    }
+
+    @Benchmark
+    public Optional<JwtService.VerifiedToken> verifyCached() {
+        return cached.verify(token);
+    }
+
+    @Benchmark
+    public boolean isTokenValid() {
+        return uncached.isTokenValid(token, user);
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return uncached.generateToken(user);
+    }
+
+    @TearDown
+    public void tearDown() {
+        uncachedContext.close();
+        cachedContext.close();
+    }
+
+    private static AnnotationConfigApplicationContext jwtContext(String cacheTtl) {
+        AnnotationConfigApplicationContext context = BenchmarkContext.create(Map.of(
+                "jwt.secret", SECRET,
+                "jwt.cache.ttl", cacheTtl
+        ));
+        context.registerBean(JwtService.class);
+        context.refresh();
+        return context;
+    }
+}
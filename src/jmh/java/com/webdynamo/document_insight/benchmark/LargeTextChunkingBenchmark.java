@@ -0,0 +1,106 @@
+package com.webdynamo.document_insight.benchmark;
+
+import com.webdynamo.document_insight.service.TextChunkingService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Chunking a 50 MB text: the previous substring-and-trim chunker against offset spans,
+ * with and without materializing the chunk Strings. Allocation per operation shows
+ * with JMH's gc profiler (-prof gc).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class LargeTextChunkingBenchmark {
+
+    // Same constants as TextChunkingService
+    private static final int CHUNK_SIZE = 2000;
+    private static final int CHUNK_OVERLAP = 200;
+
+    @Param({"50000000"})
+    private int chars;
+
+    private TextChunkingService chunkingService;
+    private String text;
+
+    @Setup
+    public void setUp() {
+        SyntheticCorpus.silence(TextChunkingService.class);
+
+        chunkingService = new TextChunkingService();
+        text = SyntheticCorpus.text(chars);
+    }
+
+    /**
+     * Baseline: the chunker before offset spans (substring and trim per window,
+     * lastIndexOf scanning back from the window end)
+     */
+    @Benchmark
+    public List<String> substringTrim() {
+        List<String> chunks = new ArrayList<>();
+        int start = 0;
+        while (start < text.length()) {
+            int end = Math.min(start + CHUNK_SIZE, text.length());
+            if (end < text.length()) {
+                int lastPeriod = text.lastIndexOf(". ", end);
+                if (lastPeriod > start + CHUNK_SIZE / 2) {
+                    end = lastPeriod + 1;
+                }
+            }
+            String chunk = text.substring(start, end).trim();
+            if (!chunk.isEmpty()) {
+                chunks.add(chunk);
+            }
+            if (end >= text.length()) {
+                break;
+            }
+            start = end - CHUNK_OVERLAP;
+        }
+        return chunks;
+    }
+
+    /**
+     * Offsets only, as consumers that read chunks through views see it
+     */
+    @Benchmark
+    public List<TextChunkingService.ChunkSpan> chunkSpans() {
+        return chunkingService.chunkSpans(text);
+    }
+
+    /**
+     * Offsets, read through CharSequence views without copying
+     */
+    @Benchmark
+    public void chunkSpanViews(Blackhole blackhole) {
+        for (TextChunkingService.ChunkSpan span : chunkingService.chunkSpans(text)) {
+            CharSequence view = span.view(text);
+            blackhole.consume(view.charAt(view.length() - 1));
+        }
+    }
+
+    /**
+     * Offsets materialized once per chunk, as ingestion does before embedding and storing
+     */
+    @Benchmark
+    public List<String> chunkText() {
+        return chunkingService.chunkText(text);
+    }
+}
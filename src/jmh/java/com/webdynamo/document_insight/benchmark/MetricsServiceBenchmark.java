@@ -0,0 +1,90 @@
+package com.webdynamo.document_insight.benchmark;
+
+import com.webdynamo.document_insight.service.MetricsService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.prometheusmetrics.PrometheusConfig;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-call cost of recording a metric: looking the meter up in the registry on every call
+ * (how MetricsService used to work) against the pre-registered handles it keeps now.
+ * Runs with 4 threads, as the rate limit filters record from every request thread.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class MetricsServiceBenchmark {
+
+    private static final String ENDPOINT = "/api/documents/ask";
+
+    private MeterRegistry meterRegistry;
+    private MetricsService metricsService;
+
+    @Setup
+    public void setUp() {
+        // Violations are also logged; measure the metric alone
+        SyntheticCorpus.silence(MetricsService.class);
+
+        meterRegistry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        metricsService = new MetricsService(meterRegistry);
+        metricsService.init();
+
+        // Register the lookup meters up front so both sides measure the steady state
+        lookupRateLimitAllowed();
+        lookupRateLimitExceeded();
+    }
+
+    @Benchmark
+    public void lookupRateLimitAllowed() {
+        meterRegistry.counter("rate_limit.requests",
+                "status", "allowed",
+                "authenticated", "true"
+        ).increment();
+    }
+
+    @Benchmark
+    public void preRegisteredRateLimitAllowed() {
+        metricsService.recordRateLimitAllowed(true);
+    }
+
+    @Benchmark
+    public void lookupRateLimitExceeded() {
+        meterRegistry.counter("rate_limit.violations",
+                "authenticated", "true",
+                "endpoint", ENDPOINT
+        ).increment();
+    }
+
+    @Benchmark
+    public void cachedRateLimitExceeded() {
+        metricsService.recordRateLimitExceeded(true, ENDPOINT);
+    }
+
+    @Benchmark
+    public void lookupChunk() {
+        meterRegistry.counter("ingestion.chunks", "type", "application/pdf").increment();
+        meterRegistry.summary("ingestion.chunk_size_chars", "type", "application/pdf").record(1800);
+    }
+
+    @Benchmark
+    public void cachedChunk() {
+        metricsService.recordChunk("application/pdf", 1800);
+    }
+}
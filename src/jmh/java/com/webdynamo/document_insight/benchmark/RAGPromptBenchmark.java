@@ -0,0 +1,101 @@
+package com.webdynamo.document_insight.benchmark;
+
+import com.webdynamo.document_insight.config.ExecutorConfig;
+import com.webdynamo.document_insight.dto.RAGResponse;
+import com.webdynamo.document_insight.embedding.PreviousEmbeddingModel;
+import com.webdynamo.document_insight.service.AdaptiveConcurrencyLimiter;
+import com.webdynamo.document_insight.service.EmbeddingService;
+import com.webdynamo.document_insight.service.MetricsService;
+import com.webdynamo.document_insight.service.RAGQueryService;
+import com.webdynamo.document_insight.service.RateLimitService;
+import com.webdynamo.document_insight.service.VectorSearchService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building the LLM prompt from retrieved chunks (the "context" stage of a RAG request), measured
+ * through RAGQueryService's public API. Search returns canned results and the chat model answers
+ * at once, so a query costs prompt assembly plus the fixed overhead of the call path
+ * (the chat client for answerQuestion, a direct model call for answerQuestionForUser).
+ * Chunks are 2000 characters, the size TextChunkingService produces.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RAGPromptBenchmark {
+
+    private static final String QUESTION = "What are the payment terms and the notice period for termination?";
+
+    @Param({"3", "7", "20"})
+    private int contextChunks;
+
+    private AnnotationConfigApplicationContext context;
+    private RAGQueryService ragQueryService;
+
+    @Setup
+    public void setUp() {
+        SyntheticCorpus.silence(RAGQueryService.class);
+
+        context = BenchmarkContext.create(Map.of(
+                // Searches are canned, no query is embedded
+                "application.embedding.batch.enabled", false
+        ));
+        context.registerBean(MeterRegistry.class, SimpleMeterRegistry::new);
+        context.registerBean(ObservationRegistry.class, () -> ObservationRegistry.NOOP);
+        context.registerBean(MetricsService.class);
+        context.registerBean(RateLimitService.class);
+        context.registerBean(AdaptiveConcurrencyLimiter.class);
+        context.registerBean(ExecutorConfig.class);
+        context.registerBean(EmbeddingModel.class, () -> new SyntheticEmbeddingModel(768));
+        context.registerBean(EmbeddingService.class);
+        context.registerBean(ChatModel.class, CannedChatModel::new);
+        context.registerBean(ChatClient.Builder.class, () -> ChatClient.builder(context.getBean(ChatModel.class)));
+        context.registerBean(VectorSearchService.class, () -> new CannedVectorSearchService(
+                contextChunks, 2000,
+                context.getBean(EmbeddingService.class),
+                context.getBeanProvider(PreviousEmbeddingModel.class),
+                context.getBean(ObservationRegistry.class)));
+        context.registerBean(RAGQueryService.class);
+        context.refresh();
+
+        ragQueryService = context.getBean(RAGQueryService.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public String answerQuestion() {
+        return ragQueryService.answerQuestion(QUESTION, contextChunks);
+    }
+
+    @Benchmark
+    public RAGResponse answerQuestionForUser() {
+        return ragQueryService.answerQuestionForUser(QUESTION, 42L, contextChunks);
+    }
+}
@@ -0,0 +1,60 @@
+package com.webdynamo.document_insight.benchmark;
+
+import com.webdynamo.document_insight.dto.RAGResponse;
+import com.webdynamo.document_insight.model.SourcesConverter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON conversion of message sources, done for every assistant message saved and loaded.
+ * 3 and 7 sources match the default context sizes of /ask and conversations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SourcesConverterBenchmark {
+
+    @Param({"3", "7", "20"})
+    private int sourceCount;
+
+    private SourcesConverter converter;
+    private List<RAGResponse.Source> sources;
+    private String json;
+
+    @Setup
+    public void setUp() {
+        converter = new SourcesConverter();
+        sources = SyntheticCorpus.sources(sourceCount);
+        json = converter.convertToDatabaseColumn(sources);
+    }
+
+    @Benchmark
+    public String toDatabaseColumn() {
+        return converter.convertToDatabaseColumn(sources);
+    }
+
+    @Benchmark
+    public List<RAGResponse.Source> toEntityAttribute() {
+        return converter.convertToEntityAttribute(json);
+    }
+
+    @Benchmark
+    public List<RAGResponse.Source> roundTrip() {
+        return converter.convertToEntityAttribute(converter.convertToDatabaseColumn(sources));
+    }
+}
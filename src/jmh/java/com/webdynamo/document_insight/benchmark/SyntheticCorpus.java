@@ -0,0 +1,137 @@
+package com.webdynamo.document_insight.benchmark;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.webdynamo.document_insight.dto.RAGResponse;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Deterministic test data for the benchmarks, shaped like what the application handles:
+ * prose with sentences and paragraphs as extracted from PDFs and DOCX files, embeddings in
+ * the range models produce, and search results as returned by VectorSearchService.
+ * Fixed seeds keep every run (and every release) measuring the same input.
+ */
+public final class SyntheticCorpus {
+
+    private static final long SEED = 42L;
+
+    // Common words drawn far more often than rare ones, roughly like natural text
+    private static final String[] COMMON = {
+            "the", "of", "and", "to", "in", "a", "is", "that", "for", "it", "as", "with", "be", "on",
+            "by", "this", "are", "or", "from", "at", "which", "an", "not", "have", "has", "was"
+    };
+
+    private static final String[] DOMAIN = {
+            "agreement", "contract", "payment", "invoice", "delivery", "supplier", "customer", "service",
+            "quarter", "revenue", "policy", "employee", "schedule", "liability", "termination", "notice",
+            "section", "clause", "period", "amount", "report", "analysis", "system", "performance",
+            "requirements", "document", "obligations", "confidential", "information", "provided",
+            "according", "including", "following", "applicable", "reasonable", "respective", "written",
+            "approval", "compliance", "procedure", "budget", "forecast", "project", "milestone", "risk"
+    };
+
+    private SyntheticCorpus() {
+    }
+
+    /**
+     * Prose of exactly the given length: sentences of 8-30 words, paragraphs of 3-8 sentences
+     * separated by blank lines, with the occasional numbered heading
+     */
+    public static String text(int chars) {
+        Random random = new Random(SEED);
+        StringBuilder text = new StringBuilder(chars + 256);
+        int section = 1;
+
+        while (text.length() < chars) {
+            if (random.nextInt(6) == 0) {
+                text.append(section++).append(". ").append(capitalize(domainWord(random)))
+                        .append(' ').append(domainWord(random)).append("\n\n");
+            }
+
+            int sentences = 3 + random.nextInt(6);
+            for (int s = 0; s < sentences; s++) {
+                appendSentence(text, random);
+                text.append(s < sentences - 1 ? " " : "\n\n");
+            }
+        }
+
+        text.setLength(chars);
+        return text.toString();
+    }
+
+    /**
+     * Embedding of the given dimension with values in [-1, 1), like a normalised model output
+     */
+    public static float[] embedding(int dimension) {
+        Random random = new Random(SEED);
+        float[] embedding = new float[dimension];
+        for (int i = 0; i < dimension; i++) {
+            embedding[i] = random.nextFloat() * 2 - 1;
+        }
+        return embedding;
+    }
+
+    /**
+     * Search results as VectorSearchService returns them (chunk content of about chunkChars)
+     */
+    public static List<Map<String, Object>> searchResults(int count, int chunkChars) {
+        String corpus = text(count * chunkChars);
+        List<Map<String, Object>> results = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++) {
+            Map<String, Object> row = new HashMap<>();
+            row.put("id", 1000L + i);
+            row.put("document_id", 10L + i % 3);
+            row.put("chunk_index", i);
+            row.put("content", corpus.substring(i * chunkChars, (i + 1) * chunkChars));
+            row.put("filename", "quarterly-report-" + (i % 3) + ".pdf");
+            row.put("similarity", 0.9 - i * 0.02);
+            results.add(row);
+        }
+        return results;
+    }
+
+    /**
+     * Sources as stored with an assistant message
+     */
+    public static List<RAGResponse.Source> sources(int count) {
+        List<RAGResponse.Source> sources = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            sources.add(new RAGResponse.Source("quarterly-report-" + i + ".pdf", 0.9 - i * 0.02, 10L + i));
+        }
+        return sources;
+    }
+
+    /**
+     * Turn a logger off, so benchmarks measure the code and not log output
+     */
+    public static void silence(Class<?> type) {
+        ((Logger) LoggerFactory.getLogger(type)).setLevel(Level.OFF);
+    }
+
+    private static void appendSentence(StringBuilder text, Random random) {
+        int words = 8 + random.nextInt(23);
+        for (int w = 0; w < words; w++) {
+            String word = random.nextInt(3) == 0 ? domainWord(random) : COMMON[random.nextInt(COMMON.length)];
+            text.append(w == 0 ? capitalize(word) : word);
+            if (w < words - 1) {
+                text.append(random.nextInt(12) == 0 ? ", " : " ");
+            }
+        }
+        text.append('.');
+    }
+
+    private static String domainWord(Random random) {
+        return DOMAIN[random.nextInt(DOMAIN.length)];
+    }
+
+    private static String capitalize(String word) {
+        return Character.toUpperCase(word.charAt(0)) + word.substring(1);
+    }
+}
@@ -0,0 +1,42 @@
+package com.webdynamo.document_insight.benchmark;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Embedding model answering every text with the same synthetic vector, for benchmarks of code
+ * around the model rather than of the model itself
+ */
+final class SyntheticEmbeddingModel implements EmbeddingModel {
+
+    private final float[] embedding;
+
+    SyntheticEmbeddingModel(int dimension) {
+        this.embedding = SyntheticCorpus.embedding(dimension);
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        List<Embedding> embeddings = new ArrayList<>(request.getInstructions().size());
+        for (int i = 0; i < request.getInstructions().size(); i++) {
+            embeddings.add(new Embedding(embedding.clone(), i));
+        }
+        return new EmbeddingResponse(embeddings);
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        return embedding.clone();
+    }
+
+    @Override
+    public int dimensions() {
+        return embedding.length;
+    }
+}
@@ -0,0 +1,49 @@
+package com.webdynamo.document_insight.benchmark;
+
+import com.webdynamo.document_insight.service.TextChunkingService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Chunking across document sizes: a page or two, a long report, and a large manual
+ * (10 KB, 100 KB and 1 MB of extracted text).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TextChunkingBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    private int chars;
+
+    private TextChunkingService chunkingService;
+    private String text;
+
+    @Setup
+    public void setUp() {
+        SyntheticCorpus.silence(TextChunkingService.class);
+
+        chunkingService = new TextChunkingService();
+        text = SyntheticCorpus.text(chars);
+    }
+
+    @Benchmark
+    public List<String> chunkText() {
+        return chunkingService.chunkText(text);
+    }
+}
@@ -0,0 +1,94 @@
+package com.webdynamo.document_insight.loadtest;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Embedding model for load tests: no network and no model weights, the same text always
+ * gives the same vector. Words are hashed into the configured dimension (feature hashing)
+ * and the vector is normalised, so texts sharing words are close in cosine distance and
+ * vector search still returns meaningful neighbours.
+ */
+public class HashingEmbeddingModel implements EmbeddingModel {
+
+    private final int dimension;
+
+    public HashingEmbeddingModel(int dimension) {
+        if (dimension <= 0) {
+            throw new IllegalArgumentException("Embedding dimension must be positive: " + dimension);
+        }
+        this.dimension = dimension;
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        List<String> texts = request.getInstructions();
+        List<Embedding> embeddings = new ArrayList<>(texts.size());
+        for (int i = 0; i < texts.size(); i++) {
+            embeddings.add(new Embedding(embed(texts.get(i)), i));
+        }
+        return new EmbeddingResponse(embeddings);
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        return embed(document.getText());
+    }
+
+    @Override
+    public float[] embed(String text) {
+        float[] vector = new float[dimension];
+
+        for (String word : text.toLowerCase(Locale.ROOT).split("\\W+")) {
+            if (word.isEmpty()) {
+                continue;
+            }
+            int hash = mix(word.hashCode());
+            // One bit of the hash picks the sign, so unrelated words cancel out instead of piling up
+            vector[Math.floorMod(hash, dimension)] += (hash & 0x8000_0000) == 0 ? 1f : -1f;
+        }
+
+        return normalize(vector);
+    }
+
+    @Override
+    public int dimensions() {
+        return dimension;
+    }
+
+    private static float[] normalize(float[] vector) {
+        double sumOfSquares = 0;
+        for (float value : vector) {
+            sumOfSquares += value * value;
+        }
+
+        if (sumOfSquares == 0) {
+            // Text without words: a fixed unit vector, as pgvector cannot compare zero vectors
+            vector[0] = 1f;
+            return vector;
+        }
+
+        float norm = (float) Math.sqrt(sumOfSquares);
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] /= norm;
+        }
+        return vector;
+    }
+
+    // Spread String.hashCode bits (murmur3 finaliser), similar words otherwise share buckets
+    private static int mix(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        hash ^= hash >>> 16;
+        return hash;
+    }
+}
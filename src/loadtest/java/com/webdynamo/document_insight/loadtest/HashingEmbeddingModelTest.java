@@ -0,0 +1,72 @@
+package com.webdynamo.document_insight.loadtest;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.embedding.EmbeddingOptionsBuilder;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HashingEmbeddingModelTest {
+
+    private HashingEmbeddingModel embeddingModel;
+
+    @BeforeEach
+    void setUp() {
+        embeddingModel = new HashingEmbeddingModel(384);
+    }
+
+    @Test
+    @DisplayName("Should return the same unit vector of the configured dimension for the same text")
+    void embed_SameText_ShouldBeDeterministic() {
+        // --- ACT ---
+        float[] first = embeddingModel.embed("Payment is due within 30 days of the invoice.");
+        float[] second = new HashingEmbeddingModel(384).embed("Payment is due within 30 days of the invoice.");
+
+        // --- ASSERT ---
+        assertEquals(384, first.length);
+        assertArrayEquals(first, second);
+        assertEquals(1.0, dot(first, first), 1e-5);
+        assertEquals(384, embeddingModel.dimensions());
+    }
+
+    @Test
+    @DisplayName("Should place texts sharing words closer than unrelated texts")
+    void embed_SharedWords_ShouldBeCloser() {
+        // --- ARRANGE ---
+        float[] question = embeddingModel.embed("When is the invoice payment due?");
+        float[] related = embeddingModel.embed("The invoice payment is due within 30 days.");
+        float[] unrelated = embeddingModel.embed("Employees may work remotely on Fridays.");
+
+        // --- ACT & ASSERT ---
+        assertTrue(dot(question, related) > dot(question, unrelated));
+    }
+
+    @Test
+    @DisplayName("Should embed every text of a batch request in order, and text without words as a unit vector")
+    void call_Batch_ShouldEmbedEachText() {
+        // --- ARRANGE ---
+        EmbeddingRequest request = new EmbeddingRequest(List.of("first chunk", "..."),
+                EmbeddingOptionsBuilder.builder().build());
+
+        // --- ACT ---
+        EmbeddingResponse response = embeddingModel.call(request);
+
+        // --- ASSERT ---
+        assertEquals(2, response.getResults().size());
+        assertArrayEquals(embeddingModel.embed("first chunk"), response.getResults().get(0).getOutput());
+        assertEquals(1.0, dot(response.getResults().get(1).getOutput(), response.getResults().get(1).getOutput()), 1e-5);
+    }
+
+    private static double dot(float[] a, float[] b) {
+        double sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,58 @@
+package com.webdynamo.document_insight.loadtest;
+
+import java.time.Duration;
+import java.util.random.RandomGenerator;
+
+/**
+ * Shape of the simulated model latency around a configured mean
+ */
+public enum LatencyDistribution {
+
+    // Always the mean
+    FIXED {
+        @Override
+        double factor(double jitter, RandomGenerator random) {
+            return 1.0;
+        }
+    },
+
+    // Evenly spread within mean ± jitter × mean
+    UNIFORM {
+        @Override
+        double factor(double jitter, RandomGenerator random) {
+            return 1.0 + jitter * (2 * random.nextDouble() - 1);
+        }
+    },
+
+    // Memoryless waits, like requests queueing at a busy backend (jitter is not used)
+    EXPONENTIAL {
+        @Override
+        double factor(double jitter, RandomGenerator random) {
+            return random.nextExponential();
+        }
+    },
+
+    // Mostly near the mean with a long tail, the usual shape of LLM latency (jitter is sigma)
+    LOGNORMAL {
+        @Override
+        double factor(double jitter, RandomGenerator random) {
+            // Shifted by -sigma²/2 so the mean stays at the configured value
+            return Math.exp(jitter * random.nextGaussian() - jitter * jitter / 2);
+        }
+    };
+
+    /**
+     * Draw one latency
+     *
+     * @param mean   Mean latency
+     * @param jitter Spread, relative to the mean
+     */
+    public Duration sample(Duration mean, double jitter, RandomGenerator random) {
+        if (mean.isZero()) {
+            return Duration.ZERO;
+        }
+        return Duration.ofNanos((long) Math.max(0, mean.toNanos() * factor(jitter, random)));
+    }
+
+    abstract double factor(double jitter, RandomGenerator random);
+}
@@ -0,0 +1,407 @@
+package com.webdynamo.document_insight.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * End-to-end load driver: registers users, uploads a seed document for each, then runs a
+ * weighted mix of upload, search, ask and conversation flows at a fixed request rate and
+ * reports latency percentiles per endpoint.
+ *
+ * Open loop: flows start on schedule whether or not earlier ones have finished, and latency
+ * is measured from the scheduled start, so a slow server shows up as latency instead of
+ * quietly lowering the request rate.
+ *
+ * Meant to run against the application started with the loadtest Spring profile:
+ *   mvn -Ploadtest test-compile exec:exec -Dloadtest.args="--rps=20 --duration=PT2M"
+ * With --clients=N the driver runs closed loop instead: N clients each start their next flow
+ * as soon as the previous one ends (no rate), to compare how many concurrent requests a
+ * configuration holds up under.
+ *
+ * Options (defaults in brackets): --base-url [http://localhost:8080], --rps [10], --clients [0],
+ * --duration [PT1M], --warmup [PT10S], --users [5], --mix [upload=1,search=4,ask=3,conversation=2],
+ * --output [target/loadtest-result.json]
+ */
+public class LoadDriver {
+
+    private static final String PASSWORD = "load-test-password";
+
+    private static final String[] QUESTIONS = {
+            "What are the payment terms in the agreement?",
+            "When does the notice period for termination start?",
+            "Which obligations does the supplier have?",
+            "Summarise the revenue forecast for the next quarter.",
+            "What does the policy say about confidential information?",
+            "Which milestones are planned for the project?"
+    };
+
+    private static final String[] WORDS = {
+            "agreement", "payment", "invoice", "delivery", "supplier", "customer", "service", "quarter",
+            "revenue", "policy", "termination", "notice", "clause", "period", "report", "budget",
+            "forecast", "project", "milestone", "risk", "the", "of", "and", "to", "in", "is", "for"
+    };
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(10))
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .build();
+    private final ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+    private final Options options;
+    private final Map<String, EndpointStats> stats = new ConcurrentHashMap<>();
+    private final AtomicLong uploads = new AtomicLong();
+    private final AtomicBoolean recording = new AtomicBoolean();
+
+    private LoadDriver(Options options) {
+        this.options = options;
+    }
+
+    public static void main(String[] args) throws Exception {
+        new LoadDriver(Options.parse(args)).run();
+    }
+
+    private void run() throws Exception {
+        List<String> tokens = new ArrayList<>();
+        for (int i = 0; i < options.users(); i++) {
+            String token = register();
+            upload(token);
+            tokens.add(token);
+        }
+        System.out.printf("Registered %d users with a seed document each%n", tokens.size());
+
+        if (options.clients() > 0) {
+            runClosedLoop(tokens);
+        } else {
+            runOpenLoop(tokens);
+        }
+
+        report();
+    }
+
+    /**
+     * Start flows at the target rate, however long earlier flows take
+     */
+    private void runOpenLoop(List<String> tokens) throws InterruptedException {
+        long periodNanos = TimeUnit.SECONDS.toNanos(1) / options.rps();
+        long totalFlows = (options.warmup().toNanos() + options.duration().toNanos()) / periodNanos;
+        long warmupFlows = options.warmup().toNanos() / periodNanos;
+        long start = System.nanoTime();
+        AtomicLong scheduled = new AtomicLong();
+
+        try (ExecutorService flows = Executors.newVirtualThreadPerTaskExecutor()) {
+            ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor();
+            ticker.scheduleAtFixedRate(() -> {
+                long n = scheduled.getAndIncrement();
+                if (n >= totalFlows) {
+                    ticker.shutdown();
+                    return;
+                }
+                if (n == warmupFlows) {
+                    startRecording();
+                }
+                long intendedStart = start + n * periodNanos;
+                String token = tokens.get((int) (n % tokens.size()));
+                String flow = options.pickFlow(ThreadLocalRandom.current());
+                flows.submit(() -> runFlow(flow, token, intendedStart));
+            }, 0, periodNanos, TimeUnit.NANOSECONDS);
+
+            ticker.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Keep a fixed number of clients busy, each starting its next flow when the last one ends.
+     * Measures how many concurrent requests the server holds up under, e.g. platform
+     * against virtual threads; latency here does not include time a client was not sending.
+     */
+    private void runClosedLoop(List<String> tokens) {
+        long start = System.nanoTime();
+        long recordFrom = start + options.warmup().toNanos();
+        long end = recordFrom + options.duration().toNanos();
+
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < options.clients(); i++) {
+                String token = tokens.get(i % tokens.size());
+                clients.submit(() -> {
+                    long now;
+                    while ((now = System.nanoTime()) < end) {
+                        if (!recording.get() && now >= recordFrom) {
+                            startRecording();
+                        }
+                        runFlow(options.pickFlow(ThreadLocalRandom.current()), token, now);
+                    }
+                });
+            }
+        }
+    }
+
+    private void startRecording() {
+        if (recording.compareAndSet(false, true)) {
+            System.out.println("Warm-up done, recording");
+        }
+    }
+
+    private void runFlow(String flow, String token, long intendedStart) {
+        try {
+            switch (flow) {
+                case "upload" -> timed("upload", intendedStart, () -> upload(token));
+                case "search" -> timed("search", intendedStart, () -> get(token,
+                        "/api/documents/search?query=" + encode(question()) + "&limit=5"));
+                case "ask" -> timed("ask", intendedStart, () -> get(token,
+                        "/api/documents/ask?question=" + encode(question()) + "&contextChunks=3"));
+                case "conversation" -> {
+                    HttpResponse<String> created = timed("conversation.create", intendedStart,
+                            () -> postJson(token, "/api/documents/conversations", questionBody()));
+                    if (created != null && created.statusCode() == 200) {
+                        long id = objectMapper.readTree(created.body()).path("id").asLong();
+                        timed("conversation.message", System.nanoTime(), () -> postJson(token,
+                                "/api/documents/conversations/" + id + "/messages", questionBody()));
+                    }
+                }
+                default -> throw new IllegalArgumentException("Unknown flow: " + flow);
+            }
+        } catch (IOException e) {
+            System.err.println("Flow " + flow + " failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Send one request and record its latency from the scheduled start
+     * Returns null if the request failed without a response
+     */
+    private HttpResponse<String> timed(String endpoint, long intendedStart, HttpCall call) {
+        HttpResponse<String> response = null;
+        try {
+            response = call.send();
+        } catch (IOException e) {
+            // Counted as an error below
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (recording.get()) {
+            stats.computeIfAbsent(endpoint, key -> new EndpointStats())
+                    .record(System.nanoTime() - intendedStart, response != null ? response.statusCode() : 0);
+        }
+        return response;
+    }
+
+    private String register() throws IOException, InterruptedException {
+        String email = "loadtest-" + UUID.randomUUID() + "@example.com";
+        HttpResponse<String> response = postJson(null, "/api/auth/register",
+                objectMapper.writeValueAsString(Map.of("email", email, "password", PASSWORD)));
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Registration failed with " + response.statusCode() + ": " + response.body());
+        }
+        return objectMapper.readTree(response.body()).path("access_token").asText();
+    }
+
+    private HttpResponse<String> upload(String token) throws IOException, InterruptedException {
+        String filename = "loadtest-" + uploads.incrementAndGet() + ".txt";
+        HttpRequest request = authorized(token, "/api/documents/upload/stream?filename=" + encode(filename))
+                .header("Content-Type", "text/plain")
+                .POST(HttpRequest.BodyPublishers.ofString(document(20_000)))
+                .build();
+        return httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpResponse<String> get(String token, String path) throws IOException, InterruptedException {
+        return httpClient.send(authorized(token, path).GET().build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpResponse<String> postJson(String token, String path, String json)
+            throws IOException, InterruptedException {
+        HttpRequest request = authorized(token, path)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+        return httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpRequest.Builder authorized(String token, String path) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(options.baseUrl() + path))
+                .timeout(Duration.ofMinutes(2));
+        return token != null ? builder.header("Authorization", "Bearer " + token) : builder;
+    }
+
+    private String questionBody() throws IOException {
+        return objectMapper.writeValueAsString(Map.of("question", question()));
+    }
+
+    private static String question() {
+        return QUESTIONS[ThreadLocalRandom.current().nextInt(QUESTIONS.length)];
+    }
+
+    /**
+     * Plain text document of about the given size, in sentences so chunking finds boundaries
+     */
+    private static String document(int chars) {
+        Random random = ThreadLocalRandom.current();
+        StringBuilder text = new StringBuilder(chars + 200);
+        while (text.length() < chars) {
+            int words = 8 + random.nextInt(20);
+            for (int w = 0; w < words; w++) {
+                text.append(WORDS[random.nextInt(WORDS.length)]).append(w < words - 1 ? " " : ". ");
+            }
+        }
+        return text.toString();
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    private void report() throws IOException {
+        double seconds = options.duration().toMillis() / 1000.0;
+        Map<String, Object> results = new LinkedHashMap<>();
+
+        System.out.printf("%n%-22s %8s %8s %8s %10s %10s %10s %10s%n",
+                "endpoint", "count", "errors", "rps", "p50 ms", "p99 ms", "p999 ms", "max ms");
+        stats.entrySet().stream().sorted(Map.Entry.comparingByKey()).forEach(entry -> {
+            EndpointStats.Summary summary = entry.getValue().summarize(seconds);
+            results.put(entry.getKey(), summary);
+            System.out.printf("%-22s %8d %8d %8.1f %10.1f %10.1f %10.1f %10.1f%n",
+                    entry.getKey(), summary.count(), summary.errors(), summary.rps(),
+                    summary.p50Ms(), summary.p99Ms(), summary.p999Ms(), summary.maxMs());
+        });
+
+        Path output = Path.of(options.output());
+        Files.createDirectories(output.toAbsolutePath().getParent());
+        objectMapper.writeValue(output.toFile(), Map.of(
+                "mode", options.clients() > 0 ? "closed" : "open",
+                "rps", options.rps(),
+                "clients", options.clients(),
+                "durationSeconds", seconds,
+                "mix", options.mix(),
+                "endpoints", results
+        ));
+        System.out.println("\nResults written to " + output);
+    }
+
+    @FunctionalInterface
+    private interface HttpCall {
+        HttpResponse<String> send() throws IOException, InterruptedException;
+    }
+
+    /**
+     * Latencies and status codes of one endpoint
+     */
+    private static class EndpointStats {
+
+        private final ConcurrentLinkedQueue<Long> latencies = new ConcurrentLinkedQueue<>();
+        private final Map<Integer, AtomicLong> statuses = new ConcurrentHashMap<>();
+
+        void record(long latencyNanos, int status) {
+            latencies.add(latencyNanos);
+            statuses.computeIfAbsent(status, key -> new AtomicLong()).incrementAndGet();
+        }
+
+        Summary summarize(double seconds) {
+            long[] sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+            long errors = statuses.entrySet().stream()
+                    .filter(entry -> entry.getKey() < 200 || entry.getKey() >= 400)
+                    .mapToLong(entry -> entry.getValue().get())
+                    .sum();
+            Map<String, Long> byStatus = new LinkedHashMap<>();
+            statuses.forEach((status, count) -> byStatus.put(status == 0 ? "no_response" : status.toString(), count.get()));
+
+            return new Summary(sorted.length, errors, sorted.length / seconds,
+                    percentile(sorted, 0.50), percentile(sorted, 0.99), percentile(sorted, 0.999),
+                    sorted.length == 0 ? 0 : sorted[sorted.length - 1] / 1e6, byStatus);
+        }
+
+        private static double percentile(long[] sorted, double p) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(p * sorted.length) - 1;
+            return sorted[Math.clamp(index, 0, sorted.length - 1)] / 1e6;
+        }
+
+        record Summary(long count, long errors, double rps, double p50Ms, double p99Ms, double p999Ms,
+                       double maxMs, Map<String, Long> statuses) {
+        }
+    }
+
+    /**
+     * Command line options
+     */
+    private record Options(String baseUrl, int rps, int clients, Duration duration, Duration warmup, int users,
+                           Map<String, Integer> mix, String output) {
+
+        static Options parse(String[] args) {
+            Map<String, String> values = new LinkedHashMap<>();
+            for (String arg : args) {
+                if (arg.isBlank()) {
+                    continue;
+                }
+                if (!arg.startsWith("--") || !arg.contains("=")) {
+                    throw new IllegalArgumentException("Expected --name=value, got: " + arg);
+                }
+                values.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            }
+
+            Map<String, Integer> mix = new LinkedHashMap<>();
+            Arrays.stream(values.getOrDefault("mix", "upload=1,search=4,ask=3,conversation=2").split(","))
+                    .map(part -> part.split("="))
+                    .forEach(part -> mix.put(part[0].trim(), Integer.parseInt(part[1].trim())));
+
+            Options options = new Options(
+                    values.getOrDefault("base-url", "http://localhost:8080"),
+                    Integer.parseInt(values.getOrDefault("rps", "10")),
+                    Integer.parseInt(values.getOrDefault("clients", "0")),
+                    Duration.parse(values.getOrDefault("duration", "PT1M")),
+                    Duration.parse(values.getOrDefault("warmup", "PT10S")),
+                    Integer.parseInt(values.getOrDefault("users", "5")),
+                    mix,
+                    values.getOrDefault("output", "target/loadtest-result.json")
+            );
+            if (options.rps() <= 0 || options.users() <= 0 || options.clients() < 0) {
+                throw new IllegalArgumentException("--rps and --users must be positive, --clients not negative");
+            }
+            return options;
+        }
+
+        /**
+         * Pick a flow with probability proportional to its weight in the mix
+         */
+        String pickFlow(Random random) {
+            int total = mix.values().stream().mapToInt(Integer::intValue).sum();
+            int pick = random.nextInt(total);
+            for (Map.Entry<String, Integer> entry : mix.entrySet()) {
+                pick -= entry.getValue();
+                if (pick < 0) {
+                    return entry.getKey();
+                }
+            }
+            throw new IllegalStateException("Empty flow mix");
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.webdynamo.document_insight.loadtest;
+
+import com.webdynamo.document_insight.DocumentInsightApplication;
+import org.springframework.boot.SpringApplication;
+
+/**
+ * The application with stub AI models (loadtest profile), for the load driver to run against:
+ *   mvn -Ploadtest spring-boot:test-run
+ */
+public class LoadTestApplication {
+
+    public static void main(String[] args) {
+        SpringApplication.from(DocumentInsightApplication::main)
+                .withAdditionalProfiles("loadtest")
+                .run(args);
+    }
+}
@@ -0,0 +1,40 @@
+package com.webdynamo.document_insight.loadtest;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import java.time.Duration;
+
+/**
+ * Stub AI models for the loadtest profile (application-loadtest.yaml excludes the real ones),
+ * so the application can be load tested without Ollama, Groq or an ONNX model.
+ * Only on the classpath of LoadTestApplication, never in the packaged application.
+ */
+@Configuration
+@Profile("loadtest")
+@Slf4j
+public class LoadTestModelConfig {
+
+    @Bean
+    public EmbeddingModel embeddingModel(@Value("${application.embedding.dimension}") int dimension) {
+        log.warn("Load test profile: deterministic hashing embeddings ({} dimensions), not a real model", dimension);
+        return new HashingEmbeddingModel(dimension);
+    }
+
+    @Bean
+    public ChatModel chatModel(
+            @Value("${loadtest.chat.first-token-latency:500ms}") Duration firstTokenLatency,
+            @Value("${loadtest.chat.token-latency:20ms}") Duration tokenLatency,
+            @Value("${loadtest.chat.jitter:0.3}") double jitter,
+            @Value("${loadtest.chat.distribution:lognormal}") LatencyDistribution distribution,
+            @Value("${loadtest.chat.answer-tokens:150}") int answerTokens) {
+        log.warn("Load test profile: canned chat answers of {} tokens, first token after {} and every {} ({}, jitter {})",
+                answerTokens, firstTokenLatency, tokenLatency, distribution, jitter);
+        return new StubChatModel(firstTokenLatency, tokenLatency, jitter, distribution, answerTokens);
+    }
+}
@@ -0,0 +1,92 @@
+package com.webdynamo.document_insight.loadtest;
+
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.model.StreamingChatModel;
+import org.springframework.ai.chat.prompt.Prompt;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Chat model for load tests: answers every prompt with the same canned tokens after a
+ * simulated delay, so our own request path can be measured without an LLM behind it.
+ * Blocking calls wait for the whole answer; streams emit token by token, with the first
+ * token after firstTokenLatency and each further token after tokenLatency.
+ * Reports no token usage, so rate limiting falls back to its estimate from text length.
+ */
+public class StubChatModel implements ChatModel, StreamingChatModel {
+
+    private static final String[] WORDS = {
+            "Based", "on", "the", "provided", "context,", "the", "document", "describes", "the", "payment",
+            "terms,", "the", "notice", "period", "and", "the", "obligations", "of", "each", "party."
+    };
+
+    private final Duration firstTokenLatency;
+    private final Duration tokenLatency;
+    private final double jitter;
+    private final LatencyDistribution distribution;
+    private final List<String> tokens;
+    private final String answer;
+
+    /**
+     * @param firstTokenLatency Mean time until the first token (prompt processing)
+     * @param tokenLatency      Mean time between further tokens
+     * @param jitter            Spread of each delay, relative to its mean
+     * @param distribution      Shape of the delays
+     * @param answerTokens      Tokens in every answer
+     */
+    public StubChatModel(Duration firstTokenLatency, Duration tokenLatency, double jitter,
+                         LatencyDistribution distribution, int answerTokens) {
+        this.firstTokenLatency = firstTokenLatency;
+        this.tokenLatency = tokenLatency;
+        this.jitter = jitter;
+        this.distribution = distribution;
+
+        List<String> canned = new ArrayList<>(answerTokens);
+        for (int i = 0; i < Math.max(1, answerTokens); i++) {
+            String word = WORDS[i % WORDS.length];
+            canned.add(i == 0 ? word : " " + word);
+        }
+        this.tokens = List.copyOf(canned);
+        this.answer = String.join("", tokens);
+    }
+
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        long delayNanos = delay(firstTokenLatency).toNanos();
+        for (int i = 1; i < tokens.size(); i++) {
+            delayNanos += delay(tokenLatency).toNanos();
+        }
+
+        try {
+            Thread.sleep(Duration.ofNanos(delayNanos));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while generating answer", e);
+        }
+
+        return response(answer);
+    }
+
+    @Override
+    public Flux<ChatResponse> stream(Prompt prompt) {
+        return Flux.range(0, tokens.size())
+                .concatMap(i -> Mono.just(response(tokens.get(i)))
+                        .delayElement(delay(i == 0 ? firstTokenLatency : tokenLatency)));
+    }
+
+    private Duration delay(Duration mean) {
+        return distribution.sample(mean, jitter, ThreadLocalRandom.current());
+    }
+
+    private static ChatResponse response(String content) {
+        return new ChatResponse(List.of(new Generation(new AssistantMessage(content))));
+    }
+}
@@ -0,0 +1,66 @@
+package com.webdynamo.document_insight.config;
+
+import com.webdynamo.document_insight.storage.BlobStore;
+import com.webdynamo.document_insight.storage.FileSystemBlobStore;
+import com.webdynamo.document_insight.storage.S3BlobStore;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.StringUtils;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3ClientBuilder;
+
+import java.net.URI;
+import java.nio.file.Paths;
+
+/**
+ * Selects the blob store behind FileStorageService (application.file-storage.backend)
+ */
+@Configuration
+public class BlobStoreConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "application.file-storage.backend", havingValue = "filesystem", matchIfMissing = true)
+    public BlobStore fileSystemBlobStore(FileStorageConfig fileStorageConfig) {
+        return new FileSystemBlobStore(Paths.get(fileStorageConfig.getUploadDir()));
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "application.file-storage.backend", havingValue = "s3")
+    public BlobStore s3BlobStore(S3Client s3Client, FileStorageConfig fileStorageConfig) {
+        FileStorageConfig.S3 s3 = fileStorageConfig.getS3();
+        if (!StringUtils.hasText(s3.getBucket())) {
+            throw new IllegalStateException("application.file-storage.s3.bucket is required for the s3 backend");
+        }
+        return new S3BlobStore(s3Client, s3.getBucket(), s3.getKeyPrefix(), s3.getPartSize().toBytes());
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "application.file-storage.backend", havingValue = "s3")
+    public S3Client s3Client(FileStorageConfig fileStorageConfig) {
+        FileStorageConfig.S3 s3 = fileStorageConfig.getS3();
+
+        S3ClientBuilder builder = S3Client.builder()
+                .region(Region.of(s3.getRegion()))
+                .credentialsProvider(credentialsProvider(s3))
+                .forcePathStyle(s3.isPathStyleAccess());
+
+        if (StringUtils.hasText(s3.getEndpoint())) {
+            builder.endpointOverride(URI.create(s3.getEndpoint()));
+        }
+        return builder.build();
+    }
+
+    private AwsCredentialsProvider credentialsProvider(FileStorageConfig.S3 s3) {
+        if (StringUtils.hasText(s3.getAccessKey())) {
+            return StaticCredentialsProvider.create(
+                    AwsBasicCredentials.create(s3.getAccessKey(), s3.getSecretKey()));
+        }
+        return DefaultCredentialsProvider.create();
+    }
+}
@@ -0,0 +1,72 @@
+package com.webdynamo.document_insight.config;
+
+import io.github.bucket4j.distributed.ExpirationAfterWriteStrategy;
+import io.github.bucket4j.distributed.jdbc.PrimaryKeyMapper;
+import io.github.bucket4j.distributed.proxy.ProxyManager;
+import io.github.bucket4j.postgresql.Bucket4jPostgreSQL;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Cluster-wide rate limiting (rate-limit.mode=postgres).
+ * Bucket state lives in the rate_limit_buckets table (V4 migration) so every
+ * replica draws from the same buckets and limits survive restarts.
+ * Rows are locked with PostgreSQL advisory locks while a bucket is updated.
+ */
+@Configuration
+@ConditionalOnProperty(name = "rate-limit.mode", havingValue = "postgres")
+@RequiredArgsConstructor
+@Slf4j
+public class DistributedRateLimitConfig {
+
+    // Expired rows removed per statement
+    private static final int CLEANUP_BATCH_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // Rows of buckets that have refilled completely are kept this much longer before they expire
+    @Value("${rate-limit.distributed.keep-after-refill:PT1M}")
+    private Duration keepAfterRefill;
+
+    @Bean
+    public ProxyManager<String> rateLimitProxyManager(DataSource dataSource) {
+        return Bucket4jPostgreSQL.advisoryLockBasedBuilder(dataSource)
+                .table("rate_limit_buckets")
+                .idColumn("id")
+                .stateColumn("state")
+                .expiresAtColumn("expires_at")
+                .primaryKeyMapper(PrimaryKeyMapper.STRING)
+                .expirationAfterWrite(ExpirationAfterWriteStrategy.basedOnTimeForRefillingBucketUpToMax(keepAfterRefill))
+                .build();
+    }
+
+    /**
+     * Remove rows of buckets that have been full for a while (expires_at is epoch millis).
+     * A removed bucket is recreated full on its next use, which is the state it was in anyway.
+     */
+    @Scheduled(fixedDelayString = "${rate-limit.distributed.cleanup-interval:PT5M}")
+    public void removeExpiredBuckets() {
+        int removed = 0;
+        int batch;
+        do {
+            batch = jdbcTemplate.update(
+                    "DELETE FROM rate_limit_buckets WHERE id IN " +
+                            "(SELECT id FROM rate_limit_buckets WHERE expires_at < ? LIMIT ?)",
+                    System.currentTimeMillis(), CLEANUP_BATCH_SIZE);
+            removed += batch;
+        } while (batch == CLEANUP_BATCH_SIZE);
+
+        if (removed > 0) {
+            log.debug("Removed {} expired rate limit buckets", removed);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.webdynamo.document_insight.config;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Executors for blocking work the application starts itself, following the thread mode
+ * of the servlet container (spring.threads.virtual.enabled, which also switches Tomcat,
+ * the MVC async executor used by streamed answers, and the scheduler).
+ *
+ * Not registered as Executor beans, so Spring Boot still creates its applicationTaskExecutor.
+ */
+@Component
+@Slf4j
+public class ExecutorConfig {
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    // Chunk embeddings in flight across all ingestions when batching is off (each waits on a blocking model call)
+    @Value("${application.ingestion.embedding-concurrency:16}")
+    private int embeddingConcurrency;
+
+    private ExecutorService embeddingExecutor;
+
+    @PostConstruct
+    public void init() {
+        // A fixed number of workers bounds the load on the model in both modes;
+        // virtual workers just don't hold a platform thread while they wait
+        ThreadFactory threadFactory = virtualThreads
+                ? Thread.ofVirtual().name("embed-", 0).factory()
+                : Thread.ofPlatform().name("embed-", 0).daemon(true).factory();
+        embeddingExecutor = Executors.newFixedThreadPool(embeddingConcurrency, threadFactory);
+
+        log.info("Blocking work runs on {} threads (embedding concurrency {})",
+                virtualThreads ? "virtual" : "platform", embeddingConcurrency);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        embeddingExecutor.shutdownNow();
+    }
+
+    /**
+     * Executor for embedding the chunks of a document during ingestion (batching off)
+     */
+    public Executor embeddingExecutor() {
+        return embeddingExecutor;
+    }
+
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+}
@@ -3,10 +3,79 @@ package com.webdynamo.document_insight.config;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
 
 @Configuration
 @ConfigurationProperties(prefix = "application.file-storage")
 @Data
 public class FileStorageConfig {
+    // Local directory: the blob store for the filesystem backend, staging area for every backend
     private String uploadDir;
+
+    // Where stored files live
+    private Backend backend = Backend.FILESYSTEM;
+
+    private S3 s3 = new S3();
+
+    // Limit for multipart uploads (also drives spring.servlet.multipart limits)
+    private DataSize maxFileSize = DataSize.ofMegabytes(10);
+
+    // Limit for the raw streaming upload endpoint (large documents)
+    private DataSize maxStreamFileSize = DataSize.ofMegabytes(100);
+
+    // Total bytes a single user may store (0 = unlimited)
+    private DataSize userQuota = DataSize.ofGigabytes(1);
+
+    // How new uploads are laid out on disk
+    private Layout layout = Layout.FLAT;
+
+    // Move existing flat files into the content-addressed layout on startup
+    private boolean migrateOnStartup = false;
+
+    private Gc gc = new Gc();
+
+    public enum Backend {
+        FILESYSTEM,         // files under uploadDir, one disk per node
+        S3                  // shared S3-compatible bucket (AWS S3, MinIO, ...)
+    }
+
+    public enum Layout {
+        FLAT,               // uploads/UUID_originalName
+        CONTENT_ADDRESSED   // uploads/ab/cd/abcd...(sha256), shared by identical files
+    }
+
+    @Data
+    public static class Gc {
+        // How often unreferenced blobs are collected
+        private Duration interval = Duration.ofHours(1);
+
+        // Blobs (and staging files) younger than this are never collected,
+        // so an upload that is still being committed keeps its file
+        private Duration gracePeriod = Duration.ofHours(1);
+    }
+
+    @Data
+    public static class S3 {
+        private String bucket;
+
+        private String region = "us-east-1";
+
+        // Custom endpoint for S3-compatible stores such as MinIO (empty = AWS)
+        private String endpoint;
+
+        // Static credentials; when empty the default AWS credential chain is used
+        private String accessKey;
+        private String secretKey;
+
+        // Path-style URLs (endpoint/bucket/key), needed by most S3-compatible stores
+        private boolean pathStyleAccess = false;
+
+        // Prefix prepended to every object key
+        private String keyPrefix = "";
+
+        // Files larger than this are uploaded in parts of this size (S3 minimum is 5MB)
+        private DataSize partSize = DataSize.ofMegabytes(8);
+    }
 }
@@ -1,5 +1,7 @@
 package com.webdynamo.document_insight.config;
 
+import com.webdynamo.document_insight.model.User;
+import com.webdynamo.document_insight.service.CachedUserDetailsService;
 import com.webdynamo.document_insight.service.JwtService;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
@@ -11,12 +13,12 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.Optional;
 
 /**
  * JWT Authentication Filter
@@ -29,7 +31,7 @@ import java.io.IOException;
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtService jwtService;
-    private final UserDetailsService userDetailsService;
+    private final CachedUserDetailsService userDetailsService;
 
     /**
      * Filter method executed once per request
@@ -55,31 +57,43 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             // 3. Extract JWT token (remove "Bearer " prefix)
             final String jwt = authHeader.substring(7);
 
-            // 4. Extract email from token
-            final String userEmail = jwtService.extractEmail(jwt);
+            // 4. Verify signature and expiry, parsing the token once (cached briefly)
+            final Optional<JwtService.VerifiedToken> verified = jwtService.verify(jwt);
 
-            // 5. Check if email exists and user is not already authenticated
-            if (userEmail != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+            // 5. Check if token is valid and user is not already authenticated
+            if (verified.isPresent() && verified.get().email() != null
+                    && SecurityContextHolder.getContext().getAuthentication() == null) {
 
-                // 6. Load user details from database
-                UserDetails userDetails = userDetailsService.loadUserByUsername(userEmail);
+                final String userEmail = verified.get().email();
 
-                // 7. Validate token
-                if (jwtService.isTokenValid(jwt, userDetails)) {
+                // 6. Principal from the token's claims; older tokens fall back to a (cached) user lookup
+                Optional<User> principal = jwtService.principalFrom(verified.get());
+                UserDetails userDetails = principal
+                        .map(UserDetails.class::cast)
+                        .orElseGet(() -> userDetailsService.loadUserByUsername(userEmail));
 
-                    // 8. Create authentication token
+                // 7. Claims are only trusted while the account is unchanged since the token was issued
+                boolean current = principal.map(userDetailsService::isCurrent).orElse(true);
+                if (!current) {
+                    log.debug("Token for {} was issued before the account changed", userEmail);
+                }
+
+                // 8. Token subject must still match the account
+                if (current && userEmail.equals(userDetails.getUsername())) {
+
+                    // 9. Create authentication token
                     UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
                             userDetails,
                             null,  // No credentials (password) needed after validation
                             userDetails.getAuthorities()
                     );
 
-                    // 9. Set additional details
+                    // 10. Set additional details
                     authToken.setDetails(
                             new WebAuthenticationDetailsSource().buildDetails(request)
                     );
 
-                    // 10. Set authentication in SecurityContext
+                    // 11. Set authentication in SecurityContext
                     SecurityContextHolder.getContext().setAuthentication(authToken);
 
                     log.debug("User authenticated: {}", userEmail);
@@ -90,7 +104,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             log.error("Cannot set user authentication: {}", e.getMessage());
         }
 
-        // 11. Continue to next filter
+        // 12. Continue to next filter
         filterChain.doFilter(request, response);
     }
 }
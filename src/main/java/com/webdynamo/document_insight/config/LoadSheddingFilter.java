@@ -0,0 +1,146 @@
+package com.webdynamo.document_insight.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.webdynamo.document_insight.dto.ErrorResponse;
+import com.webdynamo.document_insight.service.AdaptiveConcurrencyLimiter;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+@Component
+@Order(5)  // After RAG rate limit (Order 4), so only requests within quota take a slot
+@RequiredArgsConstructor
+@Slf4j
+public class LoadSheddingFilter extends OncePerRequestFilter {
+
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private final ObjectMapper objectMapper;
+
+    @Value("${rag.concurrency.retry-after:PT2S}")
+    private Duration retryAfter;
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        String path = request.getRequestURI();
+
+        // Same RAG endpoints as the RAG rate limit (streamed answers included)
+        return !(path.contains("/ask")
+                || (path.contains("/conversations") && request.getMethod().equals("POST")));
+    }
+
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain
+    ) throws ServletException, IOException {
+
+        if (!concurrencyLimiter.tryAcquire()) {
+            log.warn("Shedding RAG request {} (limit {} reached)", request.getRequestURI(), concurrencyLimiter.getLimit());
+            sendOverloadedError(response, request.getRequestURI());
+            return;
+        }
+
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            filterChain.doFilter(request, response);
+            failed = isFailed(request, response);
+        } finally {
+            if (request.isAsyncStarted()) {
+                // Streamed answers hold their slot until the response completes
+                request.getAsyncContext().addListener(new ReleasingListener(start));
+            } else {
+                concurrencyLimiter.release(System.nanoTime() - start, failed);
+            }
+        }
+    }
+
+    /**
+     * Whether a request failed in a way that counts against the limit: a server error, or a
+     * failure reported by the RAG service (controllers answer those with 400 as well)
+     */
+    private static boolean isFailed(HttpServletRequest request, HttpServletResponse response) {
+        return (response != null && response.getStatus() >= 500)
+                || (request != null && request.getAttribute(AdaptiveConcurrencyLimiter.FAILED_ATTRIBUTE) != null);
+    }
+
+    /**
+     * Send 503 response telling the client to back off
+     */
+    private void sendOverloadedError(HttpServletResponse response, String path) throws IOException {
+        long retryAfterSeconds = Math.max(1, retryAfter.toSeconds());
+        ErrorResponse errorResponse = new ErrorResponse(
+                LocalDateTime.now(),
+                503,
+                "Service Unavailable",
+                String.format("The assistant is busy. Please retry in %d seconds.", retryAfterSeconds),
+                path,
+                retryAfterSeconds
+        );
+
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader("Retry-After", String.valueOf(retryAfterSeconds));
+
+        response.getWriter().write(objectMapper.writeValueAsString(errorResponse));
+    }
+
+    /**
+     * Releases the slot of an asynchronous request exactly once, whichever way it ends
+     */
+    private class ReleasingListener implements AsyncListener {
+
+        private final long start;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        ReleasingListener(long start) {
+            this.start = start;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            release(isFailed((HttpServletRequest) event.getSuppliedRequest(),
+                    (HttpServletResponse) event.getSuppliedResponse()));
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            release(true);
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            release(true);
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // Re-register for the next async cycle
+            event.getAsyncContext().addListener(this);
+        }
+
+        private void release(boolean failed) {
+            if (released.compareAndSet(false, true)) {
+                concurrencyLimiter.release(System.nanoTime() - start, failed);
+            }
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.webdynamo.document_insight.config;
+
+import com.webdynamo.document_insight.service.ModelWarmupService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Health of the model warm-up (health component "modelWarmup").
+ * OUT_OF_SERVICE until the warm-up has finished, so the readiness group,
+ * which includes it, only lets traffic in once the model is usable.
+ */
+@Component
+@RequiredArgsConstructor
+public class ModelWarmupHealthIndicator implements HealthIndicator {
+
+    private final ModelWarmupService modelWarmupService;
+
+    @Override
+    public Health health() {
+        return switch (modelWarmupService.getState()) {
+            case READY -> Health.up()
+                    .withDetail("timeToReadyMs", modelWarmupService.getTimeToReady().toMillis())
+                    .build();
+            case DISABLED -> Health.up()
+                    .withDetail("warmup", "disabled")
+                    .build();
+            case WARMING -> {
+                Health.Builder health = Health.outOfService();
+                if (modelWarmupService.getLastError() != null) {
+                    health.withDetail("lastError", modelWarmupService.getLastError());
+                }
+                yield health.build();
+            }
+        };
+    }
+}
@@ -0,0 +1,57 @@
+package com.webdynamo.document_insight.config;
+
+import com.webdynamo.document_insight.embedding.OnnxModelCache;
+import com.webdynamo.document_insight.embedding.PooledOnnxEmbeddingModel;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Local ONNX embeddings on a session pool (application.embedding.backend=onnx, used in prod
+ * instead of Spring AI's single shared TransformersEmbeddingModel).
+ * With pool-size and intra-op-threads left at 0 they are derived from the available cores:
+ * a few threads per session, and as many sessions as fit.
+ */
+@Configuration
+@ConditionalOnProperty(name = "application.embedding.backend", havingValue = "onnx")
+@Slf4j
+public class OnnxEmbeddingConfig {
+
+    // Threads per session when derived from the core count
+    private static final int DEFAULT_INTRA_OP_THREADS = 4;
+
+    @Bean(destroyMethod = "close")
+    public PooledOnnxEmbeddingModel embeddingModel(
+            @Value("${application.embedding.onnx.model-uri}") String modelUri,
+            @Value("${application.embedding.onnx.tokenizer-uri}") String tokenizerUri,
+            @Value("${application.embedding.onnx.cache-dir:model-cache}") Path cacheDir,
+            @Value("${application.embedding.onnx.pool-size:0}") int poolSize,
+            @Value("${application.embedding.onnx.intra-op-threads:0}") int intraOpThreads,
+            @Value("${application.embedding.onnx.inter-op-threads:1}") int interOpThreads,
+            @Value("${application.embedding.onnx.checkout-timeout:PT30S}") Duration checkoutTimeout,
+            @Value("${application.embedding.onnx.output-name:last_hidden_state}") String outputName,
+            MeterRegistry meterRegistry) {
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        int threads = intraOpThreads > 0 ? intraOpThreads : Math.min(DEFAULT_INTRA_OP_THREADS, cores);
+        int sessions = poolSize > 0 ? poolSize : Math.max(1, cores / threads);
+        if (sessions * threads > cores) {
+            log.warn("ONNX pool uses {} sessions x {} threads on {} cores; sessions will compete for CPU",
+                    sessions, threads, cores);
+        }
+
+        OnnxModelCache cache = new OnnxModelCache(cacheDir);
+        return new PooledOnnxEmbeddingModel(
+                cache.resolve(modelUri),
+                cache.resolve(tokenizerUri),
+                new PooledOnnxEmbeddingModel.Settings(sessions, threads, interOpThreads, checkoutTimeout, outputName),
+                meterRegistry
+        );
+    }
+}
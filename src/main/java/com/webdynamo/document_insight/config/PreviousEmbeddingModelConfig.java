@@ -0,0 +1,75 @@
+package com.webdynamo.document_insight.config;
+
+import com.webdynamo.document_insight.embedding.OnnxModelCache;
+import com.webdynamo.document_insight.embedding.PooledOnnxEmbeddingModel;
+import com.webdynamo.document_insight.embedding.PreviousEmbeddingModel;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.ollama.OllamaEmbeddingModel;
+import org.springframework.ai.ollama.api.OllamaApi;
+import org.springframework.ai.ollama.api.OllamaOptions;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * The model search keeps using while chunks are re-embedded after a model change
+ * (application.embedding.previous.model-id set to the model being replaced).
+ * It only embeds queries, so the ONNX backend gets a single small session.
+ */
+@Configuration
+@ConditionalOnExpression("!'${application.embedding.previous.model-id:}'.isEmpty()")
+@Slf4j
+public class PreviousEmbeddingModelConfig {
+
+    private EmbeddingModel model;
+
+    @Bean
+    public PreviousEmbeddingModel previousEmbeddingModel(
+            @Value("${application.embedding.previous.model-id}") String modelId,
+            @Value("${application.embedding.previous.dimension}") int dimension,
+            @Value("${application.embedding.previous.backend:ollama}") String backend,
+            @Value("${application.embedding.previous.onnx.model-uri:}") String onnxModelUri,
+            @Value("${application.embedding.previous.onnx.tokenizer-uri:}") String onnxTokenizerUri,
+            @Value("${application.embedding.previous.onnx.output-name:last_hidden_state}") String onnxOutputName,
+            @Value("${application.embedding.onnx.cache-dir:model-cache}") Path cacheDir,
+            @Value("${application.embedding.previous.ollama.base-url:http://localhost:11434}") String ollamaBaseUrl,
+            @Value("${application.embedding.previous.ollama.model:${application.embedding.previous.model-id}}") String ollamaModel) {
+
+        model = switch (backend) {
+            case "onnx" -> {
+                OnnxModelCache cache = new OnnxModelCache(cacheDir);
+                // Own registry: the configured model already owns the embedding.onnx.* meters
+                yield new PooledOnnxEmbeddingModel(
+                        cache.resolve(onnxModelUri),
+                        cache.resolve(onnxTokenizerUri),
+                        new PooledOnnxEmbeddingModel.Settings(1, 2, 1, Duration.ofSeconds(30), onnxOutputName),
+                        new SimpleMeterRegistry()
+                );
+            }
+            case "ollama" -> OllamaEmbeddingModel.builder()
+                    .ollamaApi(new OllamaApi(ollamaBaseUrl))
+                    .defaultOptions(OllamaOptions.builder().model(ollamaModel).build())
+                    .build();
+            default -> throw new IllegalStateException(
+                    "Unknown application.embedding.previous.backend '" + backend + "', expected onnx or ollama");
+        };
+
+        log.info("Previous embedding model {} ({} dimensions, {}) kept for search until the cut-over",
+                modelId, dimension, backend);
+        return new PreviousEmbeddingModel(modelId, dimension, model);
+    }
+
+    @PreDestroy
+    public void close() {
+        if (model instanceof PooledOnnxEmbeddingModel pooled) {
+            pooled.close();
+        }
+    }
+}
@@ -8,6 +8,7 @@ import com.webdynamo.document_insight.service.MetricsService;
 import com.webdynamo.document_insight.service.RateLimitService;
 import com.webdynamo.document_insight.util.RequestUtils;
 import io.github.bucket4j.Bucket;
+import io.github.bucket4j.ConsumptionProbe;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -24,6 +25,7 @@ import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
 import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
 
 @Component
 @Order(4)  // After JWT (Order 3), before general rate limit (Order 5)
@@ -31,6 +33,15 @@ import java.time.LocalDateTime;
 @Slf4j
 public class RAGRateLimitFilter extends OncePerRequestFilter {
 
+    // Chunks retrieved when the request does not say (QuestionRequest default)
+    private static final int DEFAULT_CONTEXT_CHUNKS = 3;
+
+    // Conversation turns always retrieve this many chunks (see DocumentController)
+    private static final int CONVERSATION_CONTEXT_CHUNKS = 7;
+
+    // Streamed answers always retrieve this many chunks (see RAGQueryService.generateAnswerStream)
+    private static final int STREAM_CONTEXT_CHUNKS = 7;
+
     private final RateLimitService rateLimitService;
     private final MetricsService metricsService;
     private final ObjectMapper objectMapper;
@@ -67,22 +78,76 @@ public class RAGRateLimitFilter extends OncePerRequestFilter {
         
         if (user != null) {
             identifier = "User-" + user.getId();
-            bucket = rateLimitService.getRAGBucket(user.getId().toString());
+            bucket = rateLimitService.getRAGBucket(user.getId());
         } else {
             String ipAddress = RequestUtils.getClientIP(request);
             identifier = "IP-" + ipAddress;
             bucket = rateLimitService.getUnauthenticatedRAGBucket(ipAddress);
         }
 
-        // Try to consume 1 token
-        if (bucket.tryConsume(1)) {
-            filterChain.doFilter(request, response);
+        // Reserve the estimated cost of the request, settled once the model reports its usage
+        boolean isAuthenticated = user != null;
+        long reserved = rateLimitService.estimateRagCost(
+                contextChunks(request, path), questionLength(request), isAuthenticated);
+
+        ConsumptionProbe probe = bucket.tryConsumeAndReturnRemaining(reserved);
+        if (probe.isConsumed()) {
+            try {
+                filterChain.doFilter(request, response);
+            } finally {
+                // A streamed answer is still being generated and reports no usage: the estimate stays charged.
+                // Otherwise no reported usage means the model was never called (no matching chunks,
+                // a rejected request or a failure before the call), so the reservation is refunded
+                if (!request.isAsyncStarted()) {
+                    Object used = request.getAttribute(RateLimitService.RAG_TOKEN_USAGE_ATTRIBUTE);
+                    long actual = used instanceof Long tokens ? tokens : 0;
+                    rateLimitService.reconcileRagCost(bucket, reserved, actual, isAuthenticated);
+                }
+            }
         } else {
             // Rate limited
-            log.warn("[{}] RAG rate limit exceeded for: {}", identifier);
-            metricsService.recordRateLimitExceeded(user != null, path);
-            long retryAfter = rateLimitService.getRetryAfterSeconds(BucketType.RAG, user != null);
-            sendRateLimitError(response, retryAfter);        }
+            log.warn("[{}] RAG rate limit exceeded (cost {} tokens)", identifier, reserved);
+            metricsService.recordRateLimitExceeded(isAuthenticated, path);
+            long retryAfter = Math.max(
+                    rateLimitService.getRetryAfterSeconds(BucketType.RAG, isAuthenticated),
+                    TimeUnit.NANOSECONDS.toSeconds(probe.getNanosToWaitForRefill()));
+            sendRateLimitError(response, retryAfter);
+        }
+    }
+
+    /**
+     * Number of chunks the request will retrieve into the prompt
+     */
+    private int contextChunks(HttpServletRequest request, String path) {
+        if (path.contains("/conversations")) {
+            return CONVERSATION_CONTEXT_CHUNKS;
+        }
+        if (path.endsWith("/ask/stream")) {
+            return STREAM_CONTEXT_CHUNKS;
+        }
+
+        String contextChunks = request.getParameter("contextChunks");
+        if (contextChunks == null) {
+            return DEFAULT_CONTEXT_CHUNKS;
+        }
+        try {
+            // Out of range values are rejected by validation later, so only clamp for the estimate
+            return Math.clamp(Integer.parseInt(contextChunks.trim()), 1, 10);
+        } catch (NumberFormatException e) {
+            return DEFAULT_CONTEXT_CHUNKS;
+        }
+    }
+
+    /**
+     * Length of the question: the query parameter, or the JSON body size for conversation turns
+     * (the body is not read here so the controller can still consume it)
+     */
+    private long questionLength(HttpServletRequest request) {
+        String question = request.getParameter("question");
+        if (question != null) {
+            return question.length();
+        }
+        return Math.max(0, request.getContentLengthLong());
     }
 
     /**
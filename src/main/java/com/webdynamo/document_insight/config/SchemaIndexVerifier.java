@@ -0,0 +1,63 @@
+package com.webdynamo.document_insight.config;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Startup check that the indexes the hot query paths depend on exist.
+ * Without them listings, ownership checks and similarity search silently
+ * degrade to sequential scans, so a missing index fails startup instead.
+ */
+@Component
+@ConditionalOnProperty(name = "application.schema.verify-indexes", havingValue = "true", matchIfMissing = true)
+@RequiredArgsConstructor
+@Slf4j
+public class SchemaIndexVerifier implements ApplicationRunner {
+
+    // Created by db/migration/postgresql/V1_1 to V5
+    static final List<String> EXPECTED_INDEXES = List.of(
+            "idx_document_chunks_document_id",
+            "idx_documents_user_id",
+            "idx_documents_file_path",
+            "idx_documents_deleted_at",
+            "idx_conversation_user_updated",
+            "idx_conversation_messages_conversation_created",
+            "idx_document_chunks_embedding_hnsw",
+            "idx_rate_limit_buckets_expires_at"
+    );
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        String database = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                connection.getMetaData().getDatabaseProductName());
+        if (!"PostgreSQL".equals(database)) {
+            log.info("Skipping index verification on {}", database);
+            return;
+        }
+
+        Set<String> existing = new HashSet<>(jdbcTemplate.queryForList(
+                "SELECT indexname FROM pg_indexes WHERE schemaname = current_schema()", String.class));
+
+        List<String> missing = EXPECTED_INDEXES.stream()
+                .filter(index -> !existing.contains(index))
+                .toList();
+
+        if (!missing.isEmpty()) {
+            throw new IllegalStateException("Missing database indexes: " + missing
+                    + ". Run the Flyway migrations or set application.schema.verify-indexes=false");
+        }
+        log.info("All {} expected database indexes are present", EXPECTED_INDEXES.size());
+    }
+}
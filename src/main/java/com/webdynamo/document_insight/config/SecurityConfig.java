@@ -1,6 +1,7 @@
 package com.webdynamo.document_insight.config;
 
 import com.webdynamo.document_insight.repo.UserRepository;
+import jakarta.servlet.DispatcherType;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
@@ -93,6 +94,12 @@ public class SecurityConfig {
                                 "/error"
                         ).permitAll()
 
+                        // Completion of streamed answers; the request itself was already authorized
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
+
+                        // Maintenance endpoints
+                        .requestMatchers("/api/admin/**").hasRole("ADMIN")
+
                         // Protected endpoints
                         .anyRequest().authenticated()
                 )
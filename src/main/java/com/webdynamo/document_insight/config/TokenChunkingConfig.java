@@ -0,0 +1,31 @@
+package com.webdynamo.document_insight.config;
+
+import com.webdynamo.document_insight.embedding.HuggingFaceTextTokenizer;
+import com.webdynamo.document_insight.embedding.OnnxModelCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+
+/**
+ * Tokenizer for chunking by tokens (application.chunking.mode=tokens).
+ * It should be the tokenizer of the embedding model, so chunks of max-tokens tokens
+ * fit the model's input exactly; it is fetched through the same model cache.
+ */
+@Configuration
+@ConditionalOnProperty(name = "application.chunking.mode", havingValue = "tokens")
+public class TokenChunkingConfig {
+
+    @Bean(destroyMethod = "close")
+    public HuggingFaceTextTokenizer textTokenizer(
+            @Value("${application.chunking.tokenizer-uri:}") String tokenizerUri,
+            @Value("${application.embedding.onnx.cache-dir:model-cache}") Path cacheDir) {
+        if (tokenizerUri.isBlank()) {
+            throw new IllegalStateException("application.chunking.tokenizer-uri is required for application.chunking.mode=tokens "
+                    + "(it defaults to application.embedding.onnx.tokenizer-uri)");
+        }
+        return new HuggingFaceTextTokenizer(new OnnxModelCache(cacheDir).resolve(tokenizerUri));
+    }
+}
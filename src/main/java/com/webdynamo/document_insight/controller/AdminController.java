@@ -0,0 +1,45 @@
+package com.webdynamo.document_insight.controller;
+
+import com.webdynamo.document_insight.model.EmbeddingReindexJob;
+import com.webdynamo.document_insight.service.EmbeddingReindexService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/admin")
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "Admin", description = "Maintenance endpoints (ADMIN role only)")
+public class AdminController {
+
+    private final EmbeddingReindexService embeddingReindexService;
+
+    /**
+     * Start re-embedding chunks produced by another model than the configured one
+     */
+    @Operation(
+            summary = "Re-embed chunks of a previous model",
+            description = "Starts (or resumes) the background job; returns the running job if one is in progress"
+    )
+    @PostMapping("/embeddings/reindex")
+    public ResponseEntity<EmbeddingReindexJob> startReindex() {
+        log.info("Re-embedding requested");
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(embeddingReindexService.start());
+    }
+
+    /**
+     * Progress of the latest re-embedding run
+     */
+    @Operation(summary = "Re-embedding progress")
+    @GetMapping("/embeddings/reindex")
+    public ResponseEntity<EmbeddingReindexJob> getReindexStatus() {
+        return embeddingReindexService.latestJob()
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+}
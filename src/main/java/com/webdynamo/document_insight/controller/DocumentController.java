@@ -4,6 +4,7 @@ import com.webdynamo.document_insight.dto.*;
 import com.webdynamo.document_insight.dto.ConversationDTO;
 import com.webdynamo.document_insight.dto.MessageDTO;
 import com.webdynamo.document_insight.exception.DocumentNotFoundException;
+import com.webdynamo.document_insight.exception.UploadLimitExceededException;
 import com.webdynamo.document_insight.model.Conversation;
 import com.webdynamo.document_insight.model.Document;
 import com.webdynamo.document_insight.model.DocumentChunk;
@@ -14,18 +15,23 @@ import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.InputStreamResource;
 import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import reactor.core.publisher.Flux;
 
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -86,6 +92,11 @@ public class DocumentController {
 
             return ResponseEntity.ok(response);
 
+        } catch (UploadLimitExceededException e) {
+            log.warn("Upload rejected: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(
+                    new UploadResponse(null, file.getOriginalFilename(), "Upload failed: " + e.getMessage(), 0L, null)
+            );
         } catch (RuntimeException e) {
             log.error("Upload failed", e);
             return ResponseEntity.badRequest().body(
@@ -94,6 +105,65 @@ public class DocumentController {
         }
     }
 
+    /**
+     * Upload a large document as a raw request body, streamed straight to storage
+     */
+    @Operation(
+            summary = "Stream-upload a document",
+            description = "Upload a PDF, DOCX, or TXT file as the raw request body. The Content-Type header " +
+                    "must be the document type. The body is streamed to storage and never buffered in memory."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Document uploaded successfully"),
+            @ApiResponse(responseCode = "400", description = "Invalid file"),
+            @ApiResponse(responseCode = "413", description = "File too large or storage quota exceeded"),
+            @ApiResponse(responseCode = "500", description = "Server error")
+    })
+    @PostMapping("/upload/stream")
+    public ResponseEntity<UploadResponse> uploadDocumentStream(
+            @RequestParam("filename") String filename,
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+            HttpServletRequest request,
+            @AuthenticationPrincipal User user) throws IOException {
+
+        // Drop parameters such as charset, we only care about the document type
+        String documentType = contentType.getType() + "/" + contentType.getSubtype();
+        log.info("Streaming upload request received: {} ({})", filename, documentType);
+
+        try {
+            Document document = documentService.uploadAndProcessStream(
+                    request.getInputStream(),
+                    filename,
+                    documentType,
+                    request.getContentLengthLong(),
+                    user.getId()
+            );
+
+            Long chunkCount = documentChunkService.getChunkCount(document.getId());
+
+            UploadResponse response = new UploadResponse(
+                    document.getId(),
+                    document.getFilename(),
+                    "File uploaded and processed successfully. " + chunkCount + " chunks created.",
+                    document.getFileSize(),
+                    document.getContentType()
+            );
+
+            return ResponseEntity.ok(response);
+
+        } catch (UploadLimitExceededException e) {
+            log.warn("Streaming upload rejected: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(
+                    new UploadResponse(null, filename, "Upload failed: " + e.getMessage(), 0L, null)
+            );
+        } catch (RuntimeException e) {
+            log.error("Streaming upload failed", e);
+            return ResponseEntity.badRequest().body(
+                    new UploadResponse(null, filename, "Upload failed: " + e.getMessage(), 0L, null)
+            );
+        }
+    }
+
     /**
      * Ask a question across all documents (RAG)
      */
@@ -346,6 +416,29 @@ public class DocumentController {
         }
     }
 
+    /**
+     * Ask a question about a specific document, streaming the answer as server-sent events (RAG)
+     */
+    @GetMapping(value = "/{id}/ask/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<Flux<String>> askQuestionInDocumentStream(
+            @PathVariable Long id,
+            @RequestParam("question") String question,
+            @AuthenticationPrincipal User user
+    ) {
+
+        log.info("Streaming RAG Query in document {}: {} by user: {}", id, question, user.getId());
+
+        // Check ownership
+        Document document = documentService.getDocumentById(id)
+                .orElseThrow(() -> new DocumentNotFoundException(id));
+
+        if (!document.getUserId().equals(user.getId())) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+
+        return ResponseEntity.ok(ragQueryService.generateAnswerStream(question, id, user));
+    }
+
     /**
      * Paginated search
      */
@@ -383,6 +476,7 @@ public class DocumentController {
     @GetMapping("/{id}/content")
     public ResponseEntity<Resource> getDocumentContent(
             @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.RANGE, required = false) String rangeHeader,
             @AuthenticationPrincipal User user
     ) {
         log.info("Fetching content for document: {} by user: {}", id, user.getId());
@@ -402,6 +496,21 @@ public class DocumentController {
             // Get file as Resource (handles all security checks)
             Resource resource = documentService.getDocumentAsResource(id);
 
+            // Single byte range (PDF viewers seeking through large files): only that range is read from storage
+            List<HttpRange> ranges = rangeHeader == null ? List.of() : HttpRange.parseRanges(rangeHeader);
+            if (ranges.size() == 1) {
+                long fileSize = resource.contentLength();
+                long start = ranges.get(0).getRangeStart(fileSize);
+                long end = ranges.get(0).getRangeEnd(fileSize);
+
+                return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT)
+                        .contentType(MediaType.parseMediaType(document.getContentType()))
+                        .header(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + fileSize)
+                        .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                        .contentLength(end - start + 1)
+                        .body(new InputStreamResource(documentService.openDocumentRange(id, start, end - start + 1)));
+            }
+
             // Return file with correct content type and inline disposition for preview
             return ResponseEntity.ok()
                     .contentType(MediaType.parseMediaType(document.getContentType()))
@@ -412,6 +521,9 @@ public class DocumentController {
         } catch (DocumentNotFoundException e) {
             log.error("Document not found: {}", id);
             return ResponseEntity.notFound().build();
+        } catch (IllegalArgumentException e) {
+            log.warn("Unsatisfiable range '{}' for document {}", rangeHeader, id);
+            return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE).build();
         } catch (Exception e) {
             log.error("Error serving document content", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -24,7 +24,7 @@ public class UserController {
     @GetMapping("/me")
     public ResponseEntity<User> getCurrentUser(@AuthenticationPrincipal User user) {
         log.info("Fetching profile for user: {}", user.getId());
-        return ResponseEntity.ok(user);
+        return ResponseEntity.ok(authenticationService.getUserProfile(user.getId()));
     }
 
     /**
@@ -0,0 +1,151 @@
+package com.webdynamo.document_insight.embedding;
+
+import ai.djl.huggingface.tokenizers.Encoding;
+import ai.djl.huggingface.tokenizers.HuggingFaceTokenizer;
+import ai.djl.huggingface.tokenizers.jni.CharSpan;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * TextTokenizer backed by a HuggingFace tokenizer.json, e.g. the one of the embedding model.
+ *
+ * Long texts are tokenized incrementally: they are cut at whitespace into segments of a few
+ * thousand characters, the segments are encoded in batches, and the token offsets are shifted
+ * back into the text. Memory stays proportional to the segment batch, not the document, and no
+ * text is tokenized twice. Whitespace is a pre-tokenization boundary of WordPiece and BPE
+ * tokenizers, so cutting there gives the same tokens as encoding the whole text.
+ */
+public class HuggingFaceTextTokenizer implements TextTokenizer, AutoCloseable {
+
+    // Segment length before moving back to the previous whitespace
+    private static final int SEGMENT_CHARS = 4096;
+
+    // Segments encoded per native call
+    private static final int SEGMENTS_PER_BATCH = 64;
+
+    private final HuggingFaceTokenizer tokenizer;
+
+    public HuggingFaceTextTokenizer(Path tokenizerPath) {
+        try (InputStream tokenizerJson = Files.newInputStream(tokenizerPath)) {
+            // Count content tokens only, and never cut them off at the model's max length
+            this.tokenizer = HuggingFaceTokenizer.newInstance(tokenizerJson, Map.of(
+                    "addSpecialTokens", "false",
+                    "truncation", "false",
+                    "padding", "false"
+            ));
+        } catch (IOException e) {
+            throw new RuntimeException("Could not load tokenizer from " + tokenizerPath, e);
+        }
+    }
+
+    @Override
+    public TokenSpans tokenize(String text) {
+        IntList starts = new IntList(text.length() / 4 + 16);
+        IntList ends = new IntList(text.length() / 4 + 16);
+
+        List<Integer> offsets = new ArrayList<>(SEGMENTS_PER_BATCH);
+        List<String> segments = new ArrayList<>(SEGMENTS_PER_BATCH);
+        int position = 0;
+        while (position < text.length()) {
+            int end = segmentEnd(text, position);
+            offsets.add(position);
+            segments.add(text.substring(position, end));
+            position = end;
+
+            if (segments.size() == SEGMENTS_PER_BATCH || position == text.length()) {
+                encode(segments, offsets, starts, ends);
+                segments.clear();
+                offsets.clear();
+            }
+        }
+        return new TokenSpans(starts.toArray(), ends.toArray());
+    }
+
+    @Override
+    public int countTokens(String text) {
+        if (text.length() <= SEGMENT_CHARS) {
+            return tokenizer.encode(text).getIds().length;
+        }
+        return tokenize(text).size();
+    }
+
+    @Override
+    public void close() {
+        tokenizer.close();
+    }
+
+    private void encode(List<String> segments, List<Integer> offsets, IntList starts, IntList ends) {
+        Encoding[] encodings = tokenizer.batchEncode(segments.toArray(String[]::new));
+        for (int i = 0; i < encodings.length; i++) {
+            String segment = segments.get(i);
+            int offset = offsets.get(i);
+
+            // Offsets are in code points; only text outside the BMP needs converting to UTF-16 indexes
+            int[] charIndex = segment.length() == segment.codePointCount(0, segment.length())
+                    ? null : codePointToCharIndex(segment);
+
+            for (CharSpan span : encodings[i].getCharTokenSpans()) {
+                if (span == null) {
+                    continue;
+                }
+                starts.add(offset + (charIndex == null ? span.getStart() : charIndex[span.getStart()]));
+                ends.add(offset + (charIndex == null ? span.getEnd() : charIndex[span.getEnd()]));
+            }
+        }
+    }
+
+    // End of the segment starting at start: the last whitespace before the segment limit
+    private static int segmentEnd(String text, int start) {
+        int limit = start + SEGMENT_CHARS;
+        if (limit >= text.length()) {
+            return text.length();
+        }
+        for (int i = limit; i > start + SEGMENT_CHARS / 2; i--) {
+            if (Character.isWhitespace(text.charAt(i))) {
+                return i;
+            }
+        }
+        // No whitespace (e.g. CJK text): cut anywhere, but not inside a surrogate pair
+        return Character.isLowSurrogate(text.charAt(limit)) ? limit - 1 : limit;
+    }
+
+    private static int[] codePointToCharIndex(String segment) {
+        int[] index = new int[segment.codePointCount(0, segment.length()) + 1];
+        int codePoint = 0;
+        for (int i = 0; i < segment.length(); i += Character.charCount(segment.codePointAt(i))) {
+            index[codePoint++] = i;
+        }
+        index[codePoint] = segment.length();
+        return index;
+    }
+
+    /**
+     * Growable int array, to keep offsets of large documents unboxed
+     */
+    private static final class IntList {
+        private int[] values;
+        private int size;
+
+        private IntList(int capacity) {
+            values = new int[capacity];
+        }
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, values.length * 2);
+            }
+            values[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.webdynamo.document_insight.embedding;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+
+/**
+ * Local copies of model files, downloaded once and reused on every later startup.
+ * Each URI gets its own directory (named after a hash of the URI), so changing the
+ * configured model never picks up a stale file.
+ */
+@Slf4j
+public class OnnxModelCache {
+
+    // Longest wait for a connection, and for each read of a download (a slow but moving download is fine)
+    private static final Duration DEFAULT_CONNECT_TIMEOUT = Duration.ofSeconds(30);
+    private static final Duration DEFAULT_READ_TIMEOUT = Duration.ofMinutes(1);
+
+    private final Path cacheDir;
+    private final Duration connectTimeout;
+    private final Duration readTimeout;
+
+    public OnnxModelCache(Path cacheDir) {
+        this(cacheDir, DEFAULT_CONNECT_TIMEOUT, DEFAULT_READ_TIMEOUT);
+    }
+
+    public OnnxModelCache(Path cacheDir, Duration connectTimeout, Duration readTimeout) {
+        this.cacheDir = cacheDir.toAbsolutePath().normalize();
+        this.connectTimeout = connectTimeout;
+        this.readTimeout = readTimeout;
+    }
+
+    /**
+     * Local path of a model file, downloading it first if it is not cached yet.
+     * Plain paths and file: URIs are used in place.
+     *
+     * @param uri Where the file comes from (https, file or a local path)
+     */
+    public Path resolve(String uri) {
+        URI parsed = URI.create(uri);
+        if (parsed.getScheme() == null) {
+            return Path.of(uri);
+        }
+        if ("file".equals(parsed.getScheme())) {
+            return Path.of(parsed);
+        }
+
+        String path = parsed.getPath();
+        String fileName = path.substring(path.lastIndexOf('/') + 1);
+        Path target = cacheDir.resolve(sha256(uri).substring(0, 16)).resolve(fileName);
+        if (Files.isRegularFile(target)) {
+            log.info("Using cached model file: {}", target);
+            return target;
+        }
+
+        try {
+            Files.createDirectories(target.getParent());
+            log.info("Downloading {} to {} (once)", uri, target);
+
+            // Download next to the target and move it into place, so an interrupted download is never used
+            Path partial = Files.createTempFile(target.getParent(), fileName, ".part");
+            URLConnection connection = parsed.toURL().openConnection();
+            connection.setConnectTimeout((int) connectTimeout.toMillis());
+            connection.setReadTimeout((int) readTimeout.toMillis());
+            try (InputStream in = connection.getInputStream()) {
+                Files.copy(in, partial, StandardCopyOption.REPLACE_EXISTING);
+                Files.move(partial, target, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(partial);
+            }
+            return target;
+        } catch (IOException e) {
+            throw new RuntimeException("Could not download model file " + uri, e);
+        }
+    }
+
+    private static String sha256(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package com.webdynamo.document_insight.embedding;
+
+import ai.djl.huggingface.tokenizers.Encoding;
+import ai.djl.huggingface.tokenizers.HuggingFaceTokenizer;
+import ai.onnxruntime.OnnxTensor;
+import ai.onnxruntime.OnnxValue;
+import ai.onnxruntime.OrtEnvironment;
+import ai.onnxruntime.OrtException;
+import ai.onnxruntime.OrtSession;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sentence-transformer embeddings on a pool of ONNX runtime sessions.
+ * Each call checks a session out for the whole batch, so concurrent batches run on separate
+ * sessions, each with its own fixed number of intra-op threads, instead of contending on
+ * one shared model. Pool size × threads per session is meant to match the cores available.
+ *
+ * Produces the same vectors as Spring AI's TransformersEmbeddingModel (mean pooling of the
+ * last hidden state over the attention mask), so existing embeddings stay comparable.
+ */
+@Slf4j
+public class PooledOnnxEmbeddingModel implements EmbeddingModel, AutoCloseable {
+
+    private static final String INPUT_IDS = "input_ids";
+    private static final String ATTENTION_MASK = "attention_mask";
+    private static final String TOKEN_TYPE_IDS = "token_type_ids";
+
+    /**
+     * Pool and threading settings
+     *
+     * @param poolSize         Sessions in the pool (batches embedded at the same time)
+     * @param intraOpThreads   Threads one session uses inside an operator
+     * @param interOpThreads   Threads one session uses to run independent operators in parallel
+     * @param checkoutTimeout  Longest a batch waits for a free session
+     * @param outputName       Model output holding the token embeddings
+     */
+    public record Settings(int poolSize, int intraOpThreads, int interOpThreads, Duration checkoutTimeout,
+                           String outputName) {
+    }
+
+    private final OrtEnvironment environment;
+    private final HuggingFaceTokenizer tokenizer;
+    private final List<OrtSession> sessions = new ArrayList<>();
+    private final SessionPool<OrtSession> pool;
+    private final boolean usesTokenTypeIds;
+    private final Settings settings;
+    private final int dimensions;
+
+    public PooledOnnxEmbeddingModel(Path modelPath, Path tokenizerPath, Settings settings, MeterRegistry meterRegistry) {
+        this.settings = settings;
+        this.environment = OrtEnvironment.getEnvironment();
+
+        try (InputStream tokenizerJson = Files.newInputStream(tokenizerPath)) {
+            this.tokenizer = HuggingFaceTokenizer.newInstance(tokenizerJson, Map.of());
+
+            for (int i = 0; i < settings.poolSize(); i++) {
+                OrtSession session = environment.createSession(modelPath.toString(), sessionOptions(settings));
+                sessions.add(session);
+            }
+            this.usesTokenTypeIds = sessions.get(0).getInputNames().contains(TOKEN_TYPE_IDS);
+        } catch (IOException | OrtException e) {
+            close();
+            throw new RuntimeException("Could not load ONNX embedding model from " + modelPath, e);
+        }
+
+        this.pool = new SessionPool<>(sessions, settings.checkoutTimeout(), meterRegistry);
+
+        this.dimensions = embed("dimension probe").length;
+        log.info("ONNX embedding model loaded: {} sessions x {} intra-op / {} inter-op threads, {} dimensions",
+                settings.poolSize(), settings.intraOpThreads(), settings.interOpThreads(), dimensions);
+    }
+
+    /**
+     * Number of batches that can be embedded at the same time
+     */
+    public int getPoolSize() {
+        return settings.poolSize();
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        List<float[]> vectors = embedBatch(request.getInstructions());
+
+        List<Embedding> embeddings = new ArrayList<>(vectors.size());
+        for (int i = 0; i < vectors.size(); i++) {
+            embeddings.add(new Embedding(vectors.get(i), i));
+        }
+        return new EmbeddingResponse(embeddings);
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        return embed(document.getText());
+    }
+
+    @Override
+    public float[] embed(String text) {
+        return embedBatch(List.of(text)).get(0);
+    }
+
+    @Override
+    public int dimensions() {
+        return dimensions;
+    }
+
+    @Override
+    public void close() {
+        sessions.forEach(session -> {
+            try {
+                session.close();
+            } catch (OrtException e) {
+                log.warn("Could not close ONNX session", e);
+            }
+        });
+        if (tokenizer != null) {
+            tokenizer.close();
+        }
+    }
+
+    private List<float[]> embedBatch(List<String> texts) {
+        if (texts.isEmpty()) {
+            return List.of();
+        }
+
+        Encoding[] encodings = tokenizer.batchEncode(texts.toArray(String[]::new));
+
+        // Pad to the longest text of the batch; padding is masked out of the pooling
+        int length = 0;
+        for (Encoding encoding : encodings) {
+            length = Math.max(length, encoding.getIds().length);
+        }
+        long[][] inputIds = new long[texts.size()][length];
+        long[][] attentionMask = new long[texts.size()][length];
+        long[][] tokenTypeIds = new long[texts.size()][length];
+        for (int i = 0; i < encodings.length; i++) {
+            long[] ids = encodings[i].getIds();
+            System.arraycopy(ids, 0, inputIds[i], 0, ids.length);
+            System.arraycopy(encodings[i].getAttentionMask(), 0, attentionMask[i], 0, ids.length);
+            System.arraycopy(encodings[i].getTypeIds(), 0, tokenTypeIds[i], 0, ids.length);
+        }
+
+        OrtSession session = pool.checkout();
+        Map<String, OnnxTensor> inputs = new HashMap<>();
+        try {
+            inputs.put(INPUT_IDS, OnnxTensor.createTensor(environment, inputIds));
+            inputs.put(ATTENTION_MASK, OnnxTensor.createTensor(environment, attentionMask));
+            if (usesTokenTypeIds) {
+                inputs.put(TOKEN_TYPE_IDS, OnnxTensor.createTensor(environment, tokenTypeIds));
+            }
+
+            try (OrtSession.Result result = session.run(inputs)) {
+                OnnxValue output = result.get(settings.outputName())
+                        .orElseThrow(() -> new IllegalStateException("Model has no output " + settings.outputName()));
+                return meanPooling((float[][][]) output.getValue(), attentionMask);
+            }
+        } catch (OrtException e) {
+            throw new RuntimeException("ONNX embedding failed", e);
+        } finally {
+            inputs.values().forEach(OnnxTensor::close);
+            pool.release(session);
+        }
+    }
+
+    /**
+     * Average the token embeddings of each text, counting only real (unmasked) tokens
+     */
+    static List<float[]> meanPooling(float[][][] tokenEmbeddings, long[][] attentionMask) {
+        List<float[]> vectors = new ArrayList<>(tokenEmbeddings.length);
+        for (int i = 0; i < tokenEmbeddings.length; i++) {
+            float[] sum = new float[tokenEmbeddings[i][0].length];
+            long tokens = 0;
+            for (int t = 0; t < tokenEmbeddings[i].length; t++) {
+                if (attentionMask[i][t] == 0) {
+                    continue;
+                }
+                tokens++;
+                float[] token = tokenEmbeddings[i][t];
+                for (int d = 0; d < sum.length; d++) {
+                    sum[d] += token[d];
+                }
+            }
+            float divisor = Math.max(tokens, 1e-9f);
+            for (int d = 0; d < sum.length; d++) {
+                sum[d] /= divisor;
+            }
+            vectors.add(sum);
+        }
+        return vectors;
+    }
+
+    private static OrtSession.SessionOptions sessionOptions(Settings settings) throws OrtException {
+        OrtSession.SessionOptions options = new OrtSession.SessionOptions();
+        options.setIntraOpNumThreads(settings.intraOpThreads());
+        options.setInterOpNumThreads(settings.interOpThreads());
+        options.setOptimizationLevel(OrtSession.SessionOptions.OptLevel.ALL_OPT);
+        return options;
+    }
+}
@@ -0,0 +1,17 @@
+package com.webdynamo.document_insight.embedding;
+
+import org.springframework.ai.embedding.EmbeddingModel;
+
+/**
+ * The model the stored vectors were embedded with before a model change
+ * (application.embedding.previous). Queries are embedded with it while the chunks are being
+ * re-embedded with the configured model, until the re-embedding run switches search over.
+ *
+ * Deliberately not an EmbeddingModel bean itself, so it never stands in for the configured model.
+ *
+ * @param modelId   Model id stored with its vectors
+ * @param dimension Dimension of its vectors
+ * @param model     The model
+ */
+public record PreviousEmbeddingModel(String modelId, int dimension, EmbeddingModel model) {
+}
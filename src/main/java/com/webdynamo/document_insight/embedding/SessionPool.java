@@ -0,0 +1,84 @@
+package com.webdynamo.document_insight.embedding;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fixed set of ONNX sessions, checked out for one batch at a time.
+ * A checkout waits up to the checkout timeout for a free session; every session
+ * checked out must be released again.
+ *
+ * @param <S> Session type
+ */
+class SessionPool<S> {
+
+    private final List<S> sessions;
+    private final BlockingQueue<S> available;
+    private final Duration checkoutTimeout;
+
+    private final Timer checkoutTimer;
+    private final Counter checkoutTimeouts;
+
+    SessionPool(List<S> sessions, Duration checkoutTimeout, MeterRegistry meterRegistry) {
+        this.sessions = List.copyOf(sessions);
+        this.available = new ArrayBlockingQueue<>(Math.max(1, sessions.size()), false, sessions);
+        this.checkoutTimeout = checkoutTimeout;
+
+        this.checkoutTimer = Timer.builder("embedding.onnx.checkout")
+                .description("Time a batch waited for a free ONNX session")
+                .register(meterRegistry);
+        this.checkoutTimeouts = Counter.builder("embedding.onnx.checkout.timeouts")
+                .description("Batches that found no free ONNX session within the checkout timeout")
+                .register(meterRegistry);
+        Gauge.builder("embedding.onnx.sessions.in_use", this, SessionPool::inUse)
+                .description("ONNX sessions currently embedding a batch")
+                .register(meterRegistry);
+        Gauge.builder("embedding.onnx.sessions", this.sessions, List::size)
+                .description("ONNX sessions in the pool")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Take a free session, waiting up to the checkout timeout
+     *
+     * @throws RuntimeException if no session became free in time
+     */
+    S checkout() {
+        long start = System.nanoTime();
+        try {
+            S session = available.poll(checkoutTimeout.toNanos(), TimeUnit.NANOSECONDS);
+            if (session == null) {
+                checkoutTimeouts.increment();
+                throw new RuntimeException("No ONNX session free within " + checkoutTimeout);
+            }
+            return session;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for an ONNX session", e);
+        } finally {
+            checkoutTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Return a checked out session to the pool
+     */
+    void release(S session) {
+        available.add(session);
+    }
+
+    /**
+     * Sessions currently checked out
+     */
+    int inUse() {
+        return sessions.size() - available.size();
+    }
+}
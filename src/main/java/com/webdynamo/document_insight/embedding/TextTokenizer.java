@@ -0,0 +1,40 @@
+package com.webdynamo.document_insight.embedding;
+
+/**
+ * Tokenizer used to measure and cut text in tokens of the embedding model.
+ */
+public interface TextTokenizer {
+
+    /**
+     * Character offsets of the tokens of a text, in order
+     *
+     * @param starts Index of the first character of each token
+     * @param ends   Index after the last character of each token
+     */
+    record TokenSpans(int[] starts, int[] ends) {
+
+        public int size() {
+            return starts.length;
+        }
+
+        public int start(int token) {
+            return starts[token];
+        }
+
+        public int end(int token) {
+            return ends[token];
+        }
+    }
+
+    /**
+     * Split a text into tokens (without special tokens such as [CLS] and [SEP])
+     */
+    TokenSpans tokenize(String text);
+
+    /**
+     * Number of tokens in a text (without special tokens)
+     */
+    default int countTokens(String text) {
+        return tokenize(text).size();
+    }
+}
@@ -0,0 +1,13 @@
+package com.webdynamo.document_insight.exception;
+
+public class UploadLimitExceededException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public UploadLimitExceededException(String message) {
+        super(message);
+    }
+
+    public UploadLimitExceededException(long limitBytes) {
+        super("Upload exceeds the maximum allowed size of " + limitBytes + " bytes");
+    }
+}
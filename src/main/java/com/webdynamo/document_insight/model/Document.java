@@ -30,12 +30,18 @@ public class Document {
     @Column(name = "file_size")
     private Long fileSize;
 
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;  // SHA-256 hex of the stored file
+
     @Column(name = "uploaded_at", nullable = false)
     private LocalDateTime uploadedAt;
 
     @Column(name = "user_id")
     private Long userId;
 
+    @Column(name = "deleted_at")
+    private LocalDateTime deletedAt;  // Tombstone: hidden everywhere, purged in the background
+
     @PrePersist
     protected void onCreate() {
         uploadedAt = LocalDateTime.now();
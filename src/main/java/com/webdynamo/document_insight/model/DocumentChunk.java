@@ -30,6 +30,21 @@ public class DocumentChunk {
     @Column(columnDefinition = "TEXT", length = 50000)
     private String embedding;  // Temporary: improve this later
 
+    @Column(name = "embedding_model")
+    private String embeddingModel;  // Model that produced the embedding (application.embedding.model-id)
+
+    @Column(name = "embedding_dimension")
+    private Integer embeddingDimension;
+
+    @Column(name = "next_embedding", columnDefinition = "TEXT")
+    private String nextEmbedding;  // Vector of the model being migrated to, while search still uses embedding
+
+    @Column(name = "next_embedding_model")
+    private String nextEmbeddingModel;
+
+    @Column(name = "next_embedding_dimension")
+    private Integer nextEmbeddingDimension;
+
     @Column(name = "token_count")
     private Integer tokenCount;
 }
@@ -0,0 +1,70 @@
+package com.webdynamo.document_insight.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * One run of re-embedding chunks produced by a previous embedding model.
+ * Documents are processed in id order, so a failed or interrupted run resumes after lastDocumentId.
+ * A run is worked on by one instance at a time (owner), which claims it again on every batch.
+ */
+@Entity
+@Table(name = "embedding_reindex_jobs")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EmbeddingReindexJob {
+
+    public enum Status {
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "target_model", nullable = false)
+    private String targetModel;
+
+    @Column(name = "target_dimension", nullable = false)
+    private Integer targetDimension;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Status status;
+
+    @Column(name = "last_document_id", nullable = false)
+    private Long lastDocumentId;
+
+    @Column(name = "documents_done", nullable = false)
+    private Long documentsDone;
+
+    @Column(name = "chunks_done", nullable = false)
+    private Long chunksDone;
+
+    @Column(name = "chunks_total", nullable = false)
+    private Long chunksTotal;  // Chunks on another model when the run started
+
+    @Column(columnDefinition = "TEXT")
+    private String error;
+
+    private String owner;  // Instance working on the run
+
+    @Column(name = "heartbeat_at")
+    private LocalDateTime heartbeatAt;  // Last progress of the owner; a stale run is taken over
+
+    @Column(name = "started_at", nullable = false)
+    private LocalDateTime startedAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+}
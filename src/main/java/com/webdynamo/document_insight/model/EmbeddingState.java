@@ -0,0 +1,34 @@
+package com.webdynamo.document_insight.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * The embedding model whose vectors search compares (a single row, id 1).
+ * It only changes when a re-embedding run switches to a new model.
+ */
+@Entity
+@Table(name = "embedding_state")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EmbeddingState {
+
+    public static final int ID = 1;
+
+    @Id
+    private Integer id;
+
+    @Column(name = "active_model", nullable = false)
+    private String activeModel;
+
+    @Column(name = "active_dimension", nullable = false)
+    private Integer activeDimension;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
@@ -39,6 +39,10 @@ public class User implements UserDetails {
     @Column(name = "created_at")
     private LocalDateTime createdAt;
 
+    // Bumped when the email, role or account status changes; revokes tokens issued before
+    @Column(name = "token_version", nullable = false)
+    private int tokenVersion;
+
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
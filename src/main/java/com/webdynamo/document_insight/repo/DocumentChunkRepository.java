@@ -2,9 +2,11 @@ package com.webdynamo.document_insight.repo;
 
 import com.webdynamo.document_insight.model.DocumentChunk;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 
@@ -17,8 +19,69 @@ public interface DocumentChunkRepository extends JpaRepository<DocumentChunk, Lo
     // Count how many chunks a document has
     Long countByDocumentId(Long documentId);
 
-    // Delete all chunks when a document is deleted
-    void deleteByDocumentId(Long documentId);
+    // Delete all chunks when a document is deleted, as one set-based statement
+    // (the derived version would load and delete every chunk entity one by one)
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM DocumentChunk c WHERE c.document.id = :documentId")
+    int deleteByDocumentId(@Param("documentId") Long documentId);
+
+    // Delete up to batchSize chunks of a document (background purge keeps each transaction short)
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM document_chunks WHERE id IN " +
+            "(SELECT id FROM document_chunks WHERE document_id = :documentId LIMIT :batchSize)",
+            nativeQuery = true)
+    int deleteBatchByDocumentId(@Param("documentId") Long documentId, @Param("batchSize") int batchSize);
+
+    // Next documents (by id) with chunks that have no vector of the given model yet, for re-embedding
+    @Query(value = "SELECT DISTINCT dc.document_id FROM document_chunks dc " +
+            "JOIN documents d ON d.id = dc.document_id " +
+            "WHERE dc.document_id > :afterId AND d.deleted_at IS NULL " +
+            "AND dc.embedding_model IS DISTINCT FROM :model " +
+            "AND dc.next_embedding_model IS DISTINCT FROM :model " +
+            "ORDER BY dc.document_id LIMIT :limit",
+            nativeQuery = true)
+    List<Long> findDocumentIdsToReembed(@Param("afterId") Long afterId, @Param("model") String model, @Param("limit") int limit);
+
+    // Chunks that have no vector of the given model yet
+    @Query(value = "SELECT COUNT(*) FROM document_chunks dc " +
+            "JOIN documents d ON d.id = dc.document_id " +
+            "WHERE d.deleted_at IS NULL AND dc.embedding_model IS DISTINCT FROM :model " +
+            "AND dc.next_embedding_model IS DISTINCT FROM :model",
+            nativeQuery = true)
+    long countChunksToReembed(@Param("model") String model);
+
+    // Replace the embedding of a chunk (a chunk deleted meanwhile is simply not updated)
+    @Modifying
+    @Query("UPDATE DocumentChunk c SET c.embedding = :embedding, c.embeddingModel = :model, " +
+            "c.embeddingDimension = :dimension WHERE c.id = :id")
+    int updateEmbedding(@Param("id") Long id, @Param("embedding") String embedding,
+                        @Param("model") String model, @Param("dimension") Integer dimension);
+
+    // Store the vector of the model being migrated to next to the active one
+    @Modifying
+    @Query("UPDATE DocumentChunk c SET c.nextEmbedding = :embedding, c.nextEmbeddingModel = :model, " +
+            "c.nextEmbeddingDimension = :dimension WHERE c.id = :id")
+    int updateNextEmbedding(@Param("id") Long id, @Param("embedding") String embedding,
+                            @Param("model") String model, @Param("dimension") Integer dimension);
+
+    // Make the staged vectors of a model the active ones, dropping the vectors they replace
+    @Modifying
+    @Query(value = "UPDATE document_chunks SET embedding = next_embedding, " +
+            "embedding_model = next_embedding_model, embedding_dimension = next_embedding_dimension, " +
+            "next_embedding = NULL, next_embedding_model = NULL, next_embedding_dimension = NULL " +
+            "WHERE next_embedding_model = :model",
+            nativeQuery = true)
+    int promoteNextEmbeddings(@Param("model") String model);
+
+    // Drop staged vectors of other models (left over from an abandoned migration)
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE document_chunks SET next_embedding = NULL, next_embedding_model = NULL, " +
+            "next_embedding_dimension = NULL WHERE next_embedding_model <> :model",
+            nativeQuery = true)
+    int clearNextEmbeddingsExcept(@Param("model") String model);
 
     // Find chunks by document ID (simple version)
     List<DocumentChunk> findByDocumentId(Long documentId);
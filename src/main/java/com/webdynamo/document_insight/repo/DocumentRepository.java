@@ -1,10 +1,15 @@
 package com.webdynamo.document_insight.repo;
 
 import com.webdynamo.document_insight.model.Document;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -12,7 +17,25 @@ public interface DocumentRepository extends JpaRepository<Document, Long> {
 
     List<Document> findByUserId(Long userId);
 
+    // A user's documents, without the ones waiting to be purged
+    List<Document> findByUserIdAndDeletedAtIsNull(Long userId);
+
+    // Documents tombstoned before the cutoff, oldest first, for the background purge
+    List<Document> findByDeletedAtBeforeOrderByDeletedAtAsc(LocalDateTime cutoff, Pageable pageable);
+
     List<Document> findByContentType(String contentType);
 
     boolean existsByFilename(String filename);
+
+    // Total bytes stored by a user (for quota enforcement); tombstoned documents no longer count
+    @Query("SELECT COALESCE(SUM(d.fileSize), 0) FROM Document d WHERE d.userId = :userId AND d.deletedAt IS NULL")
+    long sumFileSizeByUserId(@Param("userId") Long userId);
+
+    // Which of the given stored files are still referenced by a document (blob reference count > 0)
+    @Query("SELECT DISTINCT d.filePath FROM Document d WHERE d.filePath IN :filePaths")
+    List<String> findReferencedFilePaths(@Param("filePaths") Collection<String> filePaths);
+
+    // Documents still stored in the flat layout (no shard directory in the path)
+    @Query("SELECT d FROM Document d WHERE d.filePath NOT LIKE '%/%' AND d.id > :afterId ORDER BY d.id")
+    List<Document> findFlatStoredAfter(@Param("afterId") Long afterId, Pageable pageable);
 }
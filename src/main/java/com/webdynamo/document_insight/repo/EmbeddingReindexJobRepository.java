@@ -0,0 +1,29 @@
+package com.webdynamo.document_insight.repo;
+
+import com.webdynamo.document_insight.model.EmbeddingReindexJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface EmbeddingReindexJobRepository extends JpaRepository<EmbeddingReindexJob, Long> {
+
+    // The latest run, to report on or resume
+    Optional<EmbeddingReindexJob> findFirstByOrderByIdDesc();
+
+    // Claim a running run for an instance: free, already its own, or its owner stopped reporting
+    // (returns 0 when another instance holds it). Also serves as the owner's heartbeat.
+    @Transactional
+    @Modifying
+    @Query("UPDATE EmbeddingReindexJob j SET j.owner = :owner, j.heartbeatAt = :now " +
+            "WHERE j.id = :id AND j.status = :status " +
+            "AND (j.owner IS NULL OR j.owner = :owner OR j.heartbeatAt IS NULL OR j.heartbeatAt < :staleBefore)")
+    int claim(@Param("id") Long id, @Param("owner") String owner, @Param("now") LocalDateTime now,
+              @Param("staleBefore") LocalDateTime staleBefore, @Param("status") EmbeddingReindexJob.Status status);
+}
@@ -0,0 +1,24 @@
+package com.webdynamo.document_insight.repo;
+
+import com.webdynamo.document_insight.model.EmbeddingState;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface EmbeddingStateRepository extends JpaRepository<EmbeddingState, Integer> {
+
+    // Read the state and keep it from switching until the transaction ends (FOR SHARE)
+    @Lock(LockModeType.PESSIMISTIC_READ)
+    @Query("SELECT s FROM EmbeddingState s WHERE s.id = " + EmbeddingState.ID)
+    Optional<EmbeddingState> findForShare();
+
+    // Lock the state for a switch (FOR UPDATE); waits for transactions holding it FOR SHARE
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM EmbeddingState s WHERE s.id = " + EmbeddingState.ID)
+    Optional<EmbeddingState> findForUpdate();
+}
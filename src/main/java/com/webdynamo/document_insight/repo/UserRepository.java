@@ -1,7 +1,11 @@
 package com.webdynamo.document_insight.repo;
 
 import com.webdynamo.document_insight.model.User;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
@@ -26,4 +30,25 @@ public interface UserRepository extends JpaRepository<User, Long> {
      * @return true if email exists, false otherwise
      */
     boolean existsByEmail(String email);
+
+    /**
+     * Find a user and lock their row until the transaction ends (FOR UPDATE)
+     * Used to check and use up the storage quota one upload at a time
+     *
+     * @param id User ID
+     * @return Optional containing user if found, empty otherwise
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT u FROM User u WHERE u.id = :id")
+    Optional<User> findForUpdate(@Param("id") Long id);
+
+    /**
+     * Current token version of a user, without loading the whole row
+     * Used to reject tokens issued before the account changed
+     *
+     * @param id User ID
+     * @return Optional containing the version if the user exists, empty otherwise
+     */
+    @Query("SELECT u.tokenVersion FROM User u WHERE u.id = :id")
+    Optional<Integer> findTokenVersionById(@Param("id") Long id);
 }
@@ -0,0 +1,173 @@
+package com.webdynamo.document_insight.service;
+
+import com.webdynamo.document_insight.embedding.PreviousEmbeddingModel;
+import com.webdynamo.document_insight.model.EmbeddingState;
+import com.webdynamo.document_insight.repo.DocumentChunkRepository;
+import com.webdynamo.document_insight.repo.EmbeddingStateRepository;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Which embedding model search uses (the active model, kept in embedding_state).
+ *
+ * After a model change the active model stays the previous one while a re-embedding run
+ * writes vectors of the configured model next to the stored ones. Queries are embedded with
+ * the previous model meanwhile (application.embedding.previous), and the run switches the
+ * active model and the vectors over in one transaction once every chunk has a new vector.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ActiveEmbeddingModelService {
+
+    // Texts per call to the previous model while ingesting
+    private static final int PREVIOUS_MODEL_BATCH_SIZE = 64;
+
+    /**
+     * An embedding model and the dimension of its vectors
+     */
+    public record ActiveModel(String modelId, int dimension) {
+    }
+
+    private final EmbeddingStateRepository embeddingStateRepository;
+    private final DocumentChunkRepository documentChunkRepository;
+    private final EmbeddingService embeddingService;
+    private final ObjectProvider<PreviousEmbeddingModel> previousEmbeddingModel;
+
+    @Value("${application.embedding.dimension:768}")
+    private int embeddingDimension;
+
+    private volatile boolean warnedUnsearchable;
+
+    /**
+     * The model this instance embeds with (application.embedding.model-id)
+     */
+    public ActiveModel getConfiguredModel() {
+        return new ActiveModel(embeddingService.getModelId(), embeddingDimension);
+    }
+
+    /**
+     * The model whose vectors search compares
+     */
+    public ActiveModel getActiveModel() {
+        return embeddingStateRepository.findById(EmbeddingState.ID)
+                .map(ActiveEmbeddingModelService::toModel)
+                .orElseGet(this::getConfiguredModel);
+    }
+
+    /**
+     * The active model, read under a share lock so it cannot switch before the calling
+     * transaction commits (chunks written in it are then visible to the switch)
+     */
+    public ActiveModel lockActiveModel() {
+        return embeddingStateRepository.findForShare()
+                .map(ActiveEmbeddingModelService::toModel)
+                .orElseGet(this::getConfiguredModel);
+    }
+
+    /**
+     * The model to search with: the active one, if this instance can embed queries with it
+     */
+    public ActiveModel getSearchModel() {
+        ActiveModel active = getActiveModel();
+        ActiveModel configured = getConfiguredModel();
+        if (active.equals(configured) || isPrevious(active)) {
+            return active;
+        }
+
+        if (!warnedUnsearchable) {
+            warnedUnsearchable = true;
+            log.warn("Active embedding model {} is neither configured nor set as application.embedding.previous; "
+                    + "searching {} vectors until a re-embedding run switches over", active.modelId(), configured.modelId());
+        }
+        return configured;
+    }
+
+    /**
+     * Whether chunks are being moved from the given active model to the configured one,
+     * so new chunks need vectors of both
+     */
+    public boolean isMigrating(ActiveModel active) {
+        return !active.equals(getConfiguredModel()) && isPrevious(active);
+    }
+
+    /**
+     * Embed a query with the given model (the configured or the previous one)
+     */
+    public float[] embedQuery(String query, ActiveModel model) {
+        if (model.equals(getConfiguredModel())) {
+            return embeddingService.generateEmbedding(query);
+        }
+        return previousModel().model().embed(query);
+    }
+
+    /**
+     * Embed texts with the previous model
+     */
+    public List<float[]> embedWithPrevious(List<String> texts) {
+        PreviousEmbeddingModel previous = previousModel();
+        List<float[]> embeddings = new ArrayList<>(texts.size());
+        for (int from = 0; from < texts.size(); from += PREVIOUS_MODEL_BATCH_SIZE) {
+            int to = Math.min(texts.size(), from + PREVIOUS_MODEL_BATCH_SIZE);
+            embeddings.addAll(previous.model().embed(texts.subList(from, to)));
+        }
+        return embeddings;
+    }
+
+    /**
+     * Make the target model active, together with its staged vectors, once every chunk has one.
+     * Waits for uploads holding the share lock, so none of their chunks is missed.
+     *
+     * @return false if chunks without a vector of the target model are left
+     */
+    @Transactional
+    public boolean cutOver(ActiveModel target) {
+        EmbeddingState state = embeddingStateRepository.findForUpdate().orElseGet(() -> {
+            EmbeddingState created = new EmbeddingState();
+            created.setId(EmbeddingState.ID);
+            return created;
+        });
+
+        long missing = documentChunkRepository.countChunksToReembed(target.modelId());
+        if (missing > 0) {
+            log.info("Not switching to {} yet: {} chunks have no vector of it", target.modelId(), missing);
+            return false;
+        }
+
+        int promoted = documentChunkRepository.promoteNextEmbeddings(target.modelId());
+        state.setActiveModel(target.modelId());
+        state.setActiveDimension(target.dimension());
+        state.setUpdatedAt(LocalDateTime.now());
+        embeddingStateRepository.save(state);
+
+        log.info("Search switched to embedding model {} ({} chunks moved over)", target.modelId(), promoted);
+        return true;
+    }
+
+    private boolean isPrevious(ActiveModel model) {
+        PreviousEmbeddingModel previous = previousEmbeddingModel.getIfAvailable();
+        return previous != null
+                && previous.modelId().equals(model.modelId())
+                && previous.dimension() == model.dimension();
+    }
+
+    private PreviousEmbeddingModel previousModel() {
+        PreviousEmbeddingModel previous = previousEmbeddingModel.getIfAvailable();
+        if (previous == null) {
+            throw new IllegalStateException("No previous embedding model configured (application.embedding.previous)");
+        }
+        return previous;
+    }
+
+    private static ActiveModel toModel(EmbeddingState state) {
+        return new ActiveModel(state.getActiveModel(), state.getActiveDimension());
+    }
+}
@@ -0,0 +1,147 @@
+package com.webdynamo.document_insight.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * Limits how many RAG requests run at once, adapting the limit to observed latency (AIMD).
+ * Every request that completes quickly while the limit is in use raises the limit by 1/limit
+ * (about +1 per round of requests); a slow or failed request cuts it by the backoff ratio.
+ * The limit therefore settles just below the point where the LLM backend starts queueing,
+ * and requests above it are shed instead of making everyone slower.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AdaptiveConcurrencyLimiter {
+
+    // Request attribute marking a RAG request that failed upstream, read by LoadSheddingFilter
+    public static final String FAILED_ATTRIBUTE = AdaptiveConcurrencyLimiter.class.getName() + ".failed";
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${rag.concurrency.initial-limit:20}")
+    private int initialLimit;
+
+    @Value("${rag.concurrency.min-limit:2}")
+    private int minLimit;
+
+    @Value("${rag.concurrency.max-limit:200}")
+    private int maxLimit;
+
+    // Requests slower than this count as a sign of overload
+    @Value("${rag.concurrency.latency-threshold:PT15S}")
+    private Duration latencyThreshold;
+
+    @Value("${rag.concurrency.backoff-ratio:0.9}")
+    private double backoffRatio;
+
+    // Current limit as double bits, so it can grow by fractions without a lock
+    private final AtomicLong limitBits = new AtomicLong();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private Counter shedCounter;
+
+    @PostConstruct
+    public void init() {
+        limitBits.set(Double.doubleToLongBits(Math.clamp(initialLimit, minLimit, maxLimit)));
+
+        Gauge.builder("rag.concurrency.limit", this, AdaptiveConcurrencyLimiter::getLimit)
+                .description("Current adaptive limit of concurrent RAG requests")
+                .register(meterRegistry);
+        Gauge.builder("rag.concurrency.in_flight", inFlight, AtomicInteger::get)
+                .description("RAG requests currently running")
+                .register(meterRegistry);
+        shedCounter = Counter.builder("rag.concurrency.shed")
+                .description("RAG requests rejected because the concurrency limit was reached")
+                .register(meterRegistry);
+
+        log.info("RAG concurrency limit starts at {} (min {}, max {})", getLimit(), minLimit, maxLimit);
+    }
+
+    /**
+     * Try to start a request
+     * Returns true if it may run (call {@link #release} when it finishes), false if it is shed
+     */
+    public boolean tryAcquire() {
+        int limit = getLimit();
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                shedCounter.increment();
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Finish a request and adjust the limit from its outcome
+     *
+     * @param latencyNanos How long the request took
+     * @param failed       Whether it failed in a way that points at an overloaded backend
+     */
+    public void release(long latencyNanos, boolean failed) {
+        // In-flight count including this request, to tell whether the limit was actually in use
+        int concurrent = inFlight.getAndDecrement();
+
+        if (failed || latencyNanos > latencyThreshold.toNanos()) {
+            updateLimit(limit -> Math.max(minLimit, limit * backoffRatio));
+        } else if (concurrent * 2 >= getLimit()) {
+            // Only grow while at least half the limit is used, so an idle period does not inflate it
+            updateLimit(limit -> Math.min(maxLimit, limit + 1.0 / limit));
+        }
+    }
+
+    /**
+     * Mark the current request as failed (e.g. the model call threw or timed out), so its release
+     * backs off the limit whatever status the controller answers with. Outside a web request this does nothing.
+     */
+    public void reportFailure() {
+        reportFailure(RequestContextHolder.getRequestAttributes());
+    }
+
+    /**
+     * Mark a request as failed from another thread, e.g. when a streamed answer errors.
+     * Takes the request's attributes captured on the request thread.
+     */
+    public void reportFailure(RequestAttributes attributes) {
+        if (attributes instanceof ServletRequestAttributes servletAttributes) {
+            // On the request itself: the attributes object is inactive once the handler returned
+            servletAttributes.getRequest().setAttribute(FAILED_ATTRIBUTE, Boolean.TRUE);
+        }
+    }
+
+    /**
+     * Current number of concurrent requests allowed
+     */
+    public int getLimit() {
+        return (int) Double.longBitsToDouble(limitBits.get());
+    }
+
+    /**
+     * Number of requests currently running
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    private void updateLimit(DoubleUnaryOperator update) {
+        limitBits.updateAndGet(bits -> Double.doubleToLongBits(update.applyAsDouble(Double.longBitsToDouble(bits))));
+    }
+}
@@ -22,6 +22,7 @@ public class AuthenticationService {
     private final PasswordEncoder passwordEncoder;
     private final JwtService jwtService;
     private final AuthenticationManager authenticationManager;
+    private final CachedUserDetailsService cachedUserDetailsService;
 
     /**
      * Register a new user
@@ -143,6 +144,19 @@ public class AuthenticationService {
         );
     }
 
+    /**
+     * Get the stored profile of a user
+     * (the request principal is built from token claims and may be older)
+     *
+     * @param userId User ID
+     * @return User
+     * @throws RuntimeException if user not found
+     */
+    public User getUserProfile(Long userId) {
+        return userRepository.findById(userId)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+    }
+
     /**
      * Update user profile (name and email)
      *
@@ -158,6 +172,7 @@ public class AuthenticationService {
         // Find user
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new RuntimeException("User not found"));
+        String previousEmail = user.getEmail();
 
         // Check if email changed and if new email is available
         if (!user.getEmail().equals(newEmail)) {
@@ -167,6 +182,8 @@ public class AuthenticationService {
             }
             log.info("Updating email from {} to {}", user.getEmail(), newEmail);
             user.setEmail(newEmail);
+            // Tokens issued for the old email stop authenticating
+            user.setTokenVersion(user.getTokenVersion() + 1);
         }
 
         // Update name if provided
@@ -178,6 +195,11 @@ public class AuthenticationService {
         User updatedUser = userRepository.save(user);
         log.info("Profile updated successfully for user: {}", userId);
 
+        // Don't serve the old profile from the user cache
+        cachedUserDetailsService.evict(previousEmail);
+        cachedUserDetailsService.evict(updatedUser.getEmail());
+        cachedUserDetailsService.evictTokenVersion(userId);
+
         return updatedUser;
     }
 
@@ -0,0 +1,127 @@
+package com.webdynamo.document_insight.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.webdynamo.document_insight.model.User;
+import com.webdynamo.document_insight.repo.UserRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Bounded, TTL-based cache in front of the database UserDetailsService.
+ * Used by JwtAuthenticationFilter for tokens that carry no principal claims
+ * (or when stateless principals are turned off), so an authenticated request
+ * does not cost a users query every time.
+ * Also caches each user's token version, which principals built from token
+ * claims are checked against, so a changed account revokes those tokens.
+ * AuthenticationService evicts entries when a profile changes; other instances
+ * pick the change up within the TTL.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CachedUserDetailsService {
+
+    private final UserDetailsService userDetailsService;
+    private final UserRepository userRepository;
+
+    // How long a loaded user is reused (0 disables the cache)
+    @Value("${jwt.user-cache.ttl:PT5M}")
+    private Duration ttl;
+
+    @Value("${jwt.user-cache.max-size:10000}")
+    private long maxSize;
+
+    private Cache<String, UserDetails> users;
+
+    // Token versions by user id
+    private Cache<Long, Integer> tokenVersions;
+
+    @PostConstruct
+    public void init() {
+        if (!ttl.isZero()) {
+            users = Caffeine.newBuilder()
+                    .maximumSize(maxSize)
+                    .expireAfterWrite(ttl)
+                    .build();
+            tokenVersions = Caffeine.newBuilder()
+                    .maximumSize(maxSize)
+                    .expireAfterWrite(ttl)
+                    .build();
+        }
+    }
+
+    /**
+     * Load a user by email, from the cache when possible
+     *
+     * @param email User's email
+     * @return User details
+     */
+    public UserDetails loadUserByUsername(String email) {
+        if (users == null) {
+            return userDetailsService.loadUserByUsername(email);
+        }
+        // Not users.get(email, loader): the loader would run the query inside the cache's map lock,
+        // pinning a virtual thread to its carrier for the whole database round trip
+        UserDetails cached = users.getIfPresent(email);
+        if (cached != null) {
+            return cached;
+        }
+        UserDetails loaded = userDetailsService.loadUserByUsername(email);
+        users.put(email, loaded);
+        return loaded;
+    }
+
+    /**
+     * Whether a principal built from token claims was issued at the account's current
+     * token version (false if the account has changed or no longer exists)
+     *
+     * @param principal User built from token claims
+     * @return true if the token's claims are still current
+     */
+    public boolean isCurrent(User principal) {
+        Integer current = tokenVersions == null ? null : tokenVersions.getIfPresent(principal.getId());
+        if (current == null) {
+            Optional<Integer> loaded = userRepository.findTokenVersionById(principal.getId());
+            if (loaded.isEmpty()) {
+                return false;
+            }
+            current = loaded.get();
+            if (tokenVersions != null) {
+                tokenVersions.put(principal.getId(), current);
+            }
+        }
+        return current == principal.getTokenVersion();
+    }
+
+    /**
+     * Drop a user's cached token version, e.g. after it was bumped
+     *
+     * @param userId User ID
+     */
+    public void evictTokenVersion(Long userId) {
+        if (tokenVersions != null && userId != null) {
+            tokenVersions.invalidate(userId);
+        }
+    }
+
+    /**
+     * Drop a cached user, e.g. after their profile changed
+     *
+     * @param email User's email
+     */
+    public void evict(String email) {
+        if (users != null && email != null) {
+            users.invalidate(email);
+            log.debug("Evicted cached user: {}", email);
+        }
+    }
+}
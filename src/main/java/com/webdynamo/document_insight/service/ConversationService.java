@@ -6,8 +6,11 @@ import com.webdynamo.document_insight.model.ConversationMessage;
 import com.webdynamo.document_insight.model.User;
 import com.webdynamo.document_insight.repo.ConversationMessageRepository;
 import com.webdynamo.document_insight.repo.ConversationRepository;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
@@ -23,11 +26,20 @@ public class ConversationService {
 
     private final ConversationRepository conversationRepository;
     private final ConversationMessageRepository conversationMessageRepository;
+    private final ObservationRegistry observationRegistry;
+
+    // Tag of the persist stage timer
+    @Value("${application.ai.provider:ollama}")
+    private String provider;
 
     /**
      * Create new conversation with first message
      */
     public Conversation createConversation(User user, String question, String answer, List<RAGResponse.Source> sources) {
+        return persistStage().observe(() -> doCreateConversation(user, question, answer, sources));
+    }
+
+    private Conversation doCreateConversation(User user, String question, String answer, List<RAGResponse.Source> sources) {
         Conversation conversation = new Conversation();
         conversation.setUser(user);
         conversation.setTitle(generateTitle(question));
@@ -62,6 +74,10 @@ public class ConversationService {
      * Add message to existing conversation
      */
     public void addMessage(Long conversationId, User user, String question, String answer, List<RAGResponse.Source> sources) {
+        persistStage().observe(() -> doAddMessage(conversationId, user, question, answer, sources));
+    }
+
+    private void doAddMessage(Long conversationId, User user, String question, String answer, List<RAGResponse.Source> sources) {
         Conversation conversation = conversationRepository
                 .findByIdAndUserId(conversationId, user.getId())
                 .orElseThrow(() -> new RuntimeException("Conversation not found"));
@@ -147,4 +163,11 @@ public class ConversationService {
                 : question;
         return title;
     }
+
+    /**
+     * Saving a conversation turn is the last stage of a RAG conversation request
+     */
+    private Observation persistStage() {
+        return RagObservations.stage(observationRegistry, RagObservations.STAGE_PERSIST, provider, RagObservations.MODE_SYNC);
+    }
 }
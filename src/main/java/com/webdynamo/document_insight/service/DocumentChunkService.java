@@ -2,12 +2,14 @@ package com.webdynamo.document_insight.service;
 
 import com.webdynamo.document_insight.model.DocumentChunk;
 import com.webdynamo.document_insight.repo.DocumentChunkRepository;
+import com.webdynamo.document_insight.service.ActiveEmbeddingModelService.ActiveModel;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.function.Function;
 
 @Service
 @RequiredArgsConstructor
@@ -15,7 +17,7 @@ import java.util.List;
 public class DocumentChunkService {
 
     private final DocumentChunkRepository documentChunkRepository;
-
+    private final ActiveEmbeddingModelService activeEmbeddingModelService;
 
     /**
      * Get all chunks for a document, ordered by their position
@@ -42,6 +44,20 @@ public class DocumentChunkService {
         log.debug("Document {} has {} chunks", documentId, count);
         return count;    }
 
+    /**
+     * Save the chunks of a new document in one transaction.
+     * The active model is read under a share lock held until commit, so a cut-over
+     * waits for these chunks and sees them.
+     *
+     * @param chunksForModel Builds the chunks for the locked active model
+     * @return The saved chunks
+     */
+    @Transactional
+    public List<DocumentChunk> saveChunks(Function<ActiveModel, List<DocumentChunk>> chunksForModel) {
+        List<DocumentChunk> chunks = chunksForModel.apply(activeEmbeddingModelService.lockActiveModel());
+        return documentChunkRepository.saveAll(chunks);
+    }
+
     /**
      * Delete all chunks associated with a document
      * This is typically called when deleting a document
@@ -51,11 +67,61 @@ public class DocumentChunkService {
     @Transactional
     public void deleteAllChunksForDocument(Long documentId) {
         log.info("Deleting all chunks for document: {}", documentId);
-        Long count = documentChunkRepository.countByDocumentId(documentId);
-        documentChunkRepository.deleteByDocumentId(documentId);
+        int count = documentChunkRepository.deleteByDocumentId(documentId);
         log.info("Deleted {} chunks for document: {}", count, documentId);
     }
 
+    /**
+     * Delete the chunks of a document in batches, each in its own short transaction
+     *
+     * @param documentId The document ID
+     * @param batchSize  Maximum chunks deleted per statement
+     * @return Number of chunks deleted
+     */
+    public long deleteChunksInBatches(Long documentId, int batchSize) {
+        long total = 0;
+        int deleted;
+        do {
+            deleted = documentChunkRepository.deleteBatchByDocumentId(documentId, batchSize);
+            total += deleted;
+        } while (deleted == batchSize);
+
+        log.debug("Purged {} chunks for document: {}", total, documentId);
+        return total;
+    }
+
+    /**
+     * Replace the embeddings of chunks together, in one transaction
+     * (used to move a whole document to a new embedding model at once)
+     *
+     * @param chunkIds   Chunks to update
+     * @param embeddings New embeddings in pgvector format, in the order of chunkIds
+     * @param model      Model that produced them
+     * @param dimension  Their dimension
+     */
+    @Transactional
+    public void replaceEmbeddings(List<Long> chunkIds, List<String> embeddings, String model, int dimension) {
+        for (int i = 0; i < chunkIds.size(); i++) {
+            documentChunkRepository.updateEmbedding(chunkIds.get(i), embeddings.get(i), model, dimension);
+        }
+    }
+
+    /**
+     * Store vectors of the model being migrated to next to the active ones, in one transaction;
+     * search keeps using the active vectors until the cut-over
+     *
+     * @param chunkIds   Chunks to update
+     * @param embeddings New embeddings in pgvector format, in the order of chunkIds
+     * @param model      Model that produced them
+     * @param dimension  Their dimension
+     */
+    @Transactional
+    public void stageEmbeddings(List<Long> chunkIds, List<String> embeddings, String model, int dimension) {
+        for (int i = 0; i < chunkIds.size(); i++) {
+            documentChunkRepository.updateNextEmbedding(chunkIds.get(i), embeddings.get(i), model, dimension);
+        }
+    }
+
     /**
      * Get chunks that have embeddings (ready for search)
      *
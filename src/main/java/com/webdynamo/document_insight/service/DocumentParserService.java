@@ -3,96 +3,437 @@ package com.webdynamo.document_insight.service;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.io.RandomAccessInputStream;
+import org.apache.pdfbox.io.RandomAccessRead;
+import org.apache.pdfbox.io.RandomAccessReadBufferedFile;
+import org.apache.pdfbox.io.RandomAccessReadView;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.text.PDFTextStripper;
+import org.apache.poi.xwpf.usermodel.IBodyElement;
 import org.apache.poi.xwpf.usermodel.XWPFDocument;
 import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.apache.poi.xwpf.usermodel.XWPFStyle;
+import org.apache.poi.xwpf.usermodel.XWPFTable;
+import org.apache.poi.xwpf.usermodel.XWPFTableCell;
+import org.apache.poi.xwpf.usermodel.XWPFTableRow;
 import org.springframework.stereotype.Service;
 
-import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.nio.file.Files;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class DocumentParserService {
 
+    // Markdown-style structure in plain text files
+    private static final Pattern TEXT_HEADING = Pattern.compile("^(#{1,6})\\s+(.*\\S)");
+    private static final Pattern TEXT_LIST_ITEM = Pattern.compile("^\\s*([-*+•]|\\d{1,3}[.)])\\s+\\S");
+    private static final Pattern TEXT_TABLE_SEPARATOR = Pattern.compile("^\\|[\\s:|-]*\\|?$");
+
+    /**
+     * Kinds of structural blocks in a parsed document
+     */
+    public enum BlockType {
+        HEADING,
+        PARAGRAPH,
+        LIST_ITEM,
+        TABLE_ROW,
+        PAGE_BREAK
+    }
+
+    /**
+     * A structural block of the extracted text
+     *
+     * @param start Index of the first character in the text
+     * @param end   Index after the last character (equal to start for page breaks)
+     * @param level Heading level (0 for a document title, 1 for top-level headings), 0 otherwise
+     */
+    public record Block(BlockType type, int start, int end, int level) {
+    }
+
     /**
-     * Parse document and extract text based on file type
+     * Extracted text, page count (0 when the format has no reliable page count)
+     * and the structural blocks of the text, in order
+     */
+    public record ParsedDocument(String text, int pages, List<Block> blocks) {
+
+        public ParsedDocument(String text, int pages) {
+            this(text, pages, List.of());
+        }
+    }
+
+    /**
+     * Parse a local file and extract text based on file type
      */
     public String parseDocument(Path filePath, String contentType) {
         log.info("Parsing document: {} with type: {}", filePath.getFileName(), contentType);
 
+        try (RandomAccessRead source = new RandomAccessReadBufferedFile(filePath.toFile())) {
+            return parseDocument(source, contentType);
+        } catch (IOException e) {
+            log.error("Error parsing document: {}", filePath, e);
+            throw new RuntimeException("Failed to parse document", e);
+        }
+    }
+
+    /**
+     * Parse a document from random access content (a local file or a stored blob,
+     * see FileStorageService.openRandomAccess) and extract text based on file type.
+     * The source is not closed by this method.
+     */
+    public String parseDocument(RandomAccessRead source, String contentType) {
+        return parse(source, contentType).text();
+    }
+
+    /**
+     * Parse a document like {@link #parseDocument(RandomAccessRead, String)},
+     * also returning its page count for ingestion metrics
+     */
+    public ParsedDocument parse(RandomAccessRead source, String contentType) {
         try {
-            String text = switch (contentType) {
-                case "application/pdf" -> parsePdf(filePath);
-                case "application/vnd.openxmlformats-officedocument.wordprocessingml.document" -> parseDocx(filePath);
-                case "text/plain" -> parseTextFile(filePath);
+            ParsedDocument parsed = switch (contentType) {
+                case "application/pdf" -> parsePdf(source);
+                case "application/vnd.openxmlformats-officedocument.wordprocessingml.document" -> parseDocx(source);
+                case "text/plain" -> parseTextFile(source);
                 default -> throw new RuntimeException("Unsupported file type: " + contentType);
             };
 
-            log.info("Extracted {} characters from document", text.length());
-            return text;
+            log.info("Extracted {} characters ({} blocks) from document", parsed.text().length(), parsed.blocks().size());
+            return parsed;
 
         } catch (IOException e) {
-            log.error("Error parsing document: {}", filePath, e);
+            log.error("Error parsing document with type: {}", contentType, e);
             throw new RuntimeException("Failed to parse document", e);
         }
     }
 
     /**
-     * Parse PDF file using Apache PDFBox
+     * Parse PDF file using Apache PDFBox.
+     * PDFs carry no reliable structure, so blocks are the paragraphs PDFBox detects and page breaks.
      */
-    private String parsePdf(Path filePath) throws IOException {
-        log.debug("Parsing PDF: {}", filePath);
+    private ParsedDocument parsePdf(RandomAccessRead source) throws IOException {
+        log.debug("Parsing PDF ({} bytes)", source.length());
 
-        try (PDDocument document = Loader.loadPDF(filePath.toFile())) {
-            PDFTextStripper stripper = new PDFTextStripper();
-            String text = stripper.getText(document).trim();
+        // Closing the PDDocument closes its source, which the caller owns (a view won't do:
+        // PDFBox reads streams through views of the source, and views can't be viewed again)
+        PDDocument document = Loader.loadPDF(new UnclosedRandomAccessRead(source));
+        try {
+            StringWriter output = new StringWriter();
+            BlockTextStripper stripper = new BlockTextStripper(output);
+            stripper.writeText(document, output);
+
+            // Trim the text like before, keeping the block offsets in step (trim() drops chars <= ' ')
+            String raw = output.toString();
+            String text = raw.trim();
+            int lead = 0;
+            while (lead < raw.length() && raw.charAt(lead) <= ' ') {
+                lead++;
+            }
+            List<Block> blocks = new ArrayList<>(stripper.blocks.size());
+            for (Block block : stripper.blocks) {
+                int start = Math.clamp(block.start() - lead, 0, text.length());
+                int end = Math.clamp(block.end() - lead, 0, text.length());
+                if (end > start || block.type() == BlockType.PAGE_BREAK) {
+                    blocks.add(new Block(block.type(), start, end, block.level()));
+                }
+            }
 
             log.debug("PDF parsed: {} pages, {} characters",
                     document.getNumberOfPages(), text.length());
 
-            return text;
+            return new ParsedDocument(text, document.getNumberOfPages(), blocks);
+        } finally {
+            document.close();
         }
     }
 
     /**
-     * Parse DOCX file using Apache POI
+     * Parse DOCX file using Apache POI.
+     * Headings come from the paragraph styles (Title, Heading 1-9), list items from numbering,
+     * and tables are kept as one line per row with the cells separated by " | ".
      */
-    private String parseDocx(Path filePath) throws IOException {
-        log.debug("Parsing DOCX: {}", filePath);
+    private ParsedDocument parseDocx(RandomAccessRead source) throws IOException {
+        log.debug("Parsing DOCX ({} bytes)", source.length());
 
-        try (FileInputStream fis = new FileInputStream(filePath.toFile());
-             XWPFDocument document = new XWPFDocument(fis)) {
+        try (XWPFDocument document = new XWPFDocument(new RandomAccessInputStream(source))) {
 
-            StringBuilder text = new StringBuilder();
-            List<XWPFParagraph> paragraphs = document.getParagraphs();
+            BlockText text = new BlockText();
+            List<IBodyElement> elements = document.getBodyElements();
 
-            for (XWPFParagraph paragraph : paragraphs) {
-                text.append(paragraph.getText()).append("\n");
+            for (IBodyElement element : elements) {
+                if (element instanceof XWPFParagraph paragraph) {
+                    if (paragraph.isPageBreak()) {
+                        text.pageBreak();
+                    }
+                    int headingLevel = headingLevel(document, paragraph);
+                    if (headingLevel >= 0) {
+                        text.add(BlockType.HEADING, paragraph.getText(), headingLevel);
+                    } else if (paragraph.getNumID() != null) {
+                        text.add(BlockType.LIST_ITEM, paragraph.getText(), 0);
+                    } else {
+                        text.add(BlockType.PARAGRAPH, paragraph.getText(), 0);
+                    }
+                } else if (element instanceof XWPFTable table) {
+                    for (XWPFTableRow row : table.getRows()) {
+                        text.add(BlockType.TABLE_ROW, row.getTableCells().stream()
+                                .map(XWPFTableCell::getText)
+                                .map(String::strip)
+                                .collect(Collectors.joining(" | ")), 0);
+                    }
+                }
             }
 
-            log.debug("DOCX parsed: {} paragraphs, {} characters",
-                    paragraphs.size(), text.length());
+            log.debug("DOCX parsed: {} body elements, {} characters",
+                    elements.size(), text.length());
+
+            // Page count as last saved by the editor (DOCX has no layout of its own)
+            return text.toParsedDocument(document.getProperties().getExtendedProperties().getPages());
+        }
+    }
+
+    /**
+     * Heading level of a paragraph from its style: 0 for Title, n for Heading n, -1 if not a heading
+     */
+    private static int headingLevel(XWPFDocument document, XWPFParagraph paragraph) {
+        String styleId = paragraph.getStyleID();
+        if (styleId == null) {
+            return -1;
+        }
+        // Style ids are localized or custom in some documents; the style name is more reliable
+        XWPFStyle style = document.getStyles() != null ? document.getStyles().getStyle(styleId) : null;
+        String name = (style != null && style.getName() != null ? style.getName() : styleId)
+                .toLowerCase(Locale.ROOT).replace(" ", "");
 
-            return text.toString();
+        if (name.equals("title")) {
+            return 0;
+        }
+        if (name.startsWith("heading")) {
+            try {
+                return Math.max(1, Integer.parseInt(name.substring("heading".length())));
+            } catch (NumberFormatException e) {
+                return 1;
+            }
         }
+        return -1;
     }
 
     /**
-     * Parse plain text file
+     * Parse plain text file.
+     * Blocks follow Markdown conventions: "#" headings, "-", "*" or "1." list items, "|" table rows,
+     * paragraphs separated by blank lines, and form feeds as page breaks.
      */
-    private String parseTextFile(Path filePath) throws IOException {
-        log.debug("Parsing text file: {}", filePath);
+    private ParsedDocument parseTextFile(RandomAccessRead source) throws IOException {
+        log.debug("Parsing text file ({} bytes)", source.length());
 
-        String text = Files.readString(filePath);
+        InputStream in = new RandomAccessInputStream(source);
+        String text = new String(in.readAllBytes(), StandardCharsets.UTF_8);
 
         log.debug("Text file parsed: {} characters", text.length());
-        return text;
+        return new ParsedDocument(text, 0, textBlocks(text));
+    }
+
+    /**
+     * Structural blocks of plain text, as offsets into the unchanged text
+     */
+    static List<Block> textBlocks(String text) {
+        List<Block> blocks = new ArrayList<>();
+        int paragraphStart = -1;
+        int paragraphEnd = -1;
+
+        int lineStart = 0;
+        while (lineStart < text.length()) {
+            int newline = text.indexOf('\n', lineStart);
+            int next = newline < 0 ? text.length() : newline + 1;
+            int lineEnd = newline < 0 ? text.length() : newline;
+            if (lineEnd > lineStart && text.charAt(lineEnd - 1) == '\r') {
+                lineEnd--;
+            }
+
+            if (text.charAt(lineStart) == '\f') {
+                addParagraph(blocks, paragraphStart, paragraphEnd);
+                paragraphStart = -1;
+                blocks.add(new Block(BlockType.PAGE_BREAK, lineStart, lineStart, 0));
+                lineStart++;
+                if (lineStart >= lineEnd) {
+                    lineStart = next;
+                    continue;
+                }
+            }
+
+            String line = text.substring(lineStart, lineEnd);
+            Matcher heading = TEXT_HEADING.matcher(line);
+            BlockType type = null;
+            int start = lineStart;
+            int level = 0;
+            if (line.isBlank()) {
+                type = BlockType.PARAGRAPH;
+            } else if (heading.find()) {
+                type = BlockType.HEADING;
+                start = lineStart + heading.start(2);
+                level = heading.group(1).length();
+            } else if (TEXT_LIST_ITEM.matcher(line).find()) {
+                type = BlockType.LIST_ITEM;
+            } else if (line.startsWith("|")) {
+                type = TEXT_TABLE_SEPARATOR.matcher(line).matches() ? BlockType.PARAGRAPH : BlockType.TABLE_ROW;
+            }
+
+            if (type == null) {
+                // Continuation of the current paragraph
+                if (paragraphStart < 0) {
+                    paragraphStart = lineStart;
+                }
+                paragraphEnd = lineEnd;
+            } else {
+                // Any other line ends the paragraph; blank lines and table separators add no block
+                addParagraph(blocks, paragraphStart, paragraphEnd);
+                paragraphStart = -1;
+                if (type != BlockType.PARAGRAPH) {
+                    blocks.add(new Block(type, start, lineEnd, level));
+                }
+            }
+            lineStart = next;
+        }
+        addParagraph(blocks, paragraphStart, paragraphEnd);
+        return blocks;
+    }
+
+    private static void addParagraph(List<Block> blocks, int start, int end) {
+        if (start >= 0) {
+            blocks.add(new Block(BlockType.PARAGRAPH, start, end, 0));
+        }
+    }
+
+    /**
+     * Text built block by block, one block per line
+     */
+    private static final class BlockText {
+        private final StringBuilder text = new StringBuilder();
+        private final List<Block> blocks = new ArrayList<>();
+
+        void add(BlockType type, String content, int level) {
+            int start = text.length();
+            text.append(content);
+            if (!content.isBlank()) {
+                blocks.add(new Block(type, start, text.length(), level));
+            }
+            text.append('\n');
+        }
+
+        void pageBreak() {
+            blocks.add(new Block(BlockType.PAGE_BREAK, text.length(), text.length(), 0));
+        }
+
+        int length() {
+            return text.length();
+        }
+
+        ParsedDocument toParsedDocument(int pages) {
+            return new ParsedDocument(text.toString(), pages, blocks);
+        }
+    }
+
+    /**
+     * Source handed to PDFBox that leaves the underlying source open when closed
+     */
+    private static final class UnclosedRandomAccessRead implements RandomAccessRead {
+        private final RandomAccessRead source;
+        private boolean closed;
+
+        private UnclosedRandomAccessRead(RandomAccessRead source) {
+            this.source = source;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return source.read();
+        }
+
+        @Override
+        public int read(byte[] b, int offset, int length) throws IOException {
+            return source.read(b, offset, length);
+        }
+
+        @Override
+        public long getPosition() throws IOException {
+            return source.getPosition();
+        }
+
+        @Override
+        public void seek(long position) throws IOException {
+            source.seek(position);
+        }
+
+        @Override
+        public long length() throws IOException {
+            return source.length();
+        }
+
+        @Override
+        public boolean isClosed() {
+            return closed || source.isClosed();
+        }
+
+        @Override
+        public boolean isEOF() throws IOException {
+            return source.isEOF();
+        }
+
+        @Override
+        public RandomAccessReadView createView(long startPosition, long streamLength) throws IOException {
+            return source.createView(startPosition, streamLength);
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
+    /**
+     * PDFTextStripper that records the paragraphs and page breaks it writes
+     */
+    private static final class BlockTextStripper extends PDFTextStripper {
+        private final StringWriter writer;
+        private final List<Block> blocks = new ArrayList<>();
+        private int paragraphStart = -1;
+
+        private BlockTextStripper(StringWriter writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        protected void writePageStart() throws IOException {
+            if (getCurrentPageNo() > 1) {
+                int position = writer.getBuffer().length();
+                blocks.add(new Block(BlockType.PAGE_BREAK, position, position, 0));
+            }
+            super.writePageStart();
+        }
+
+        @Override
+        protected void writeParagraphStart() throws IOException {
+            super.writeParagraphStart();
+            paragraphStart = writer.getBuffer().length();
+        }
+
+        @Override
+        protected void writeParagraphEnd() throws IOException {
+            // Only close a paragraph that was opened, not the empty one PDFBox opens to close it
+            if (paragraphStart >= 0) {
+                blocks.add(new Block(BlockType.PARAGRAPH, paragraphStart, writer.getBuffer().length(), 0));
+                paragraphStart = -1;
+            }
+            super.writeParagraphEnd();
+        }
     }
 }
@@ -0,0 +1,76 @@
+package com.webdynamo.document_insight.service;
+
+import com.webdynamo.document_insight.model.Document;
+import com.webdynamo.document_insight.repo.DocumentRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Background purge of tombstoned documents (application.documents.async-delete).
+ * Documents are kept for the retention window after they are tombstoned, then their
+ * chunks are deleted in batches, each in its own transaction, then the file and the
+ * document row. A purge interrupted by a restart simply resumes on the next run.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DocumentPurgeService {
+
+    // Documents purged per run
+    private static final int DOCUMENTS_PER_RUN = 20;
+
+    private final DocumentRepository documentRepository;
+    private final DocumentChunkService documentChunkService;
+    private final FileStorageService fileStorageService;
+
+    @Value("${application.documents.purge.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${application.documents.purge.retention:0s}")
+    private Duration retention;
+
+    /**
+     * Purge tombstoned documents
+     *
+     * @return Number of documents purged
+     */
+    @Scheduled(
+            initialDelayString = "${application.documents.purge.interval:PT1M}",
+            fixedDelayString = "${application.documents.purge.interval:PT1M}"
+    )
+    public int purgeDeletedDocuments() {
+        List<Document> tombstoned = documentRepository.findByDeletedAtBeforeOrderByDeletedAtAsc(
+                LocalDateTime.now().minus(retention), PageRequest.of(0, DOCUMENTS_PER_RUN));
+        if (tombstoned.isEmpty()) {
+            return 0;
+        }
+
+        int purged = 0;
+        for (Document document : tombstoned) {
+            try {
+                long chunks = documentChunkService.deleteChunksInBatches(document.getId(), batchSize);
+
+                // Content-addressed blobs are left to the garbage collector
+                if (document.getFilePath() != null) {
+                    fileStorageService.deleteFile(document.getFilePath());
+                }
+
+                documentRepository.delete(document);
+                purged++;
+                log.info("Purged document {} ({} chunks)", document.getId(), chunks);
+
+            } catch (RuntimeException e) {
+                log.error("Failed to purge document {}, will retry on the next run", document.getId(), e);
+            }
+        }
+        return purged;
+    }
+}
@@ -0,0 +1,69 @@
+package com.webdynamo.document_insight.service;
+
+import com.webdynamo.document_insight.exception.UploadLimitExceededException;
+import com.webdynamo.document_insight.model.Document;
+import com.webdynamo.document_insight.repo.DocumentRepository;
+import com.webdynamo.document_insight.repo.UserRepository;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+/**
+ * Per-user storage quota (application.file-storage.user-quota).
+ * Uploads are streamed with an unlocked cap first; the stored document is then admitted in
+ * one short transaction that holds the user's row lock, so concurrent uploads of the same
+ * user are serialised only for the check and the insert.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DocumentQuotaService {
+
+    private final DocumentRepository documentRepository;
+    private final UserRepository userRepository;
+    private final FileStorageService fileStorageService;
+
+    /**
+     * Bytes the user may still store, read without locking (only used to cap streaming)
+     *
+     * @param userId The user ID
+     * @return Remaining bytes, or Long.MAX_VALUE when no quota is configured
+     */
+    public long remainingQuota(Long userId) {
+        long quota = fileStorageService.getUserQuota();
+        if (quota <= 0) {
+            return Long.MAX_VALUE;
+        }
+
+        long remaining = quota - documentRepository.sumFileSizeByUserId(userId);
+        if (remaining <= 0) {
+            throw new UploadLimitExceededException("Storage quota exceeded for user: " + userId);
+        }
+        return remaining;
+    }
+
+    /**
+     * Insert a stored document if it still fits the user's quota.
+     * The user's row is locked until commit, so the sum includes every upload admitted before.
+     *
+     * @param document Document for a file already in storage
+     * @return The saved document
+     * @throws UploadLimitExceededException if the document no longer fits; the caller deletes the file
+     */
+    @Transactional
+    public Document saveWithinQuota(Document document) {
+        long quota = fileStorageService.getUserQuota();
+        if (quota > 0) {
+            Long userId = document.getUserId();
+            userRepository.findForUpdate(userId);
+            long used = documentRepository.sumFileSizeByUserId(userId);
+            if (used + document.getFileSize() > quota) {
+                log.warn("Rejecting upload of {} ({} bytes): user {} has {} of {} bytes stored",
+                        document.getFilename(), document.getFileSize(), userId, used, quota);
+                throw new UploadLimitExceededException("Storage quota exceeded for user: " + userId);
+            }
+        }
+        return documentRepository.save(document);
+    }
+}
@@ -3,42 +3,66 @@ package com.webdynamo.document_insight.service;
 import com.webdynamo.document_insight.exception.DocumentNotFoundException;
 import com.webdynamo.document_insight.model.Document;
 import com.webdynamo.document_insight.model.DocumentChunk;
-import com.webdynamo.document_insight.repo.DocumentChunkRepository;
 import com.webdynamo.document_insight.repo.DocumentRepository;
+import com.webdynamo.document_insight.service.ActiveEmbeddingModelService.ActiveModel;
+import com.webdynamo.document_insight.service.DocumentParserService.ParsedDocument;
+import com.webdynamo.document_insight.service.FileStorageService.StoredFile;
+import com.webdynamo.document_insight.service.TextChunkingService.Chunk;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.pdfbox.io.RandomAccessRead;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.net.MalformedURLException;
-import java.nio.file.Files;
-import java.nio.file.Path;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class DocumentService {
 
+    // Ingestion stages, timed as ingestion.stage and used as the stage tag of ingestion.failures
+    private static final String STAGE_VALIDATE = "validate";
+    private static final String STAGE_STORE = "store";
+    private static final String STAGE_PARSE = "parse";
+    private static final String STAGE_CHUNK = "chunk";
+    private static final String STAGE_EMBED = "embed";
+    private static final String STAGE_PERSIST = "persist";
+
     private final DocumentRepository documentRepository;
+    private final DocumentQuotaService documentQuotaService;
     private final DocumentChunkService documentChunkService;
     private final FileStorageService fileStorageService;
     private final DocumentParserService documentParserService;
     private final TextChunkingService textChunkingService;
-    private final DocumentChunkRepository documentChunkRepository;
     private final EmbeddingService embeddingService;
+    private final ActiveEmbeddingModelService activeEmbeddingModelService;
+    private final MetricsService metricsService;
+    private final ObservationRegistry observationRegistry;
+
+    // Tombstone deleted documents and leave chunks and files to DocumentPurgeService
+    @Value("${application.documents.async-delete:false}")
+    private boolean asyncDelete;
 
     /**
      * Get all documents for a specific user
      */
     public List<Document> getUserDocuments(Long userId) {
         log.debug("Fetching documents for user: {}", userId);
-        return documentRepository.findByUserId(userId);
+        return documentRepository.findByUserIdAndDeletedAtIsNull(userId);
     }
 
     /**
@@ -46,11 +70,14 @@ public class DocumentService {
      */
     public Optional<Document> getDocumentById(Long id) {
         log.debug("Fetching document with id: {}", id);
-        return documentRepository.findById(id);
+        return documentRepository.findById(id)
+                .filter(existing -> existing.getDeletedAt() == null);
     }
 
     /**
-     * Delete a document and all its chunks
+     * Delete a document and all its chunks.
+     * With async-delete the document is only tombstoned here: it disappears from
+     * listings and search immediately and DocumentPurgeService removes the rest.
      */
     @Transactional
     public void deleteDocument(Long id) {
@@ -58,9 +85,17 @@ public class DocumentService {
 
         // Check if document exists
         Document document = documentRepository.findById(id)
+                .filter(existing -> existing.getDeletedAt() == null)
                 .orElseThrow(() -> new DocumentNotFoundException(id));
 
-        // Delete all chunks first
+        if (asyncDelete) {
+            document.setDeletedAt(LocalDateTime.now());
+            documentRepository.save(document);
+            log.info("Document tombstoned, purge scheduled: {}", id);
+            return;
+        }
+
+        // Delete all chunks first (single DELETE statement)
         documentChunkService.deleteAllChunksForDocument(id);
 
         // Delete physical file
@@ -77,7 +112,7 @@ public class DocumentService {
      * Get total document count for a user
      */
     public long getUserDocumentCount(Long userId) {
-        return documentRepository.findByUserId(userId).size();
+        return documentRepository.findByUserIdAndDeletedAtIsNull(userId).size();
     }
 
     /**
@@ -94,33 +129,24 @@ public class DocumentService {
     /**
      * Upload and save a new document
      */
-    @Transactional
     public Document uploadDocument(MultipartFile file, Long userId) {
         log.info("Uploading document: {} for user: {}", file.getOriginalFilename(), userId);
 
         // Validate file type
-        if (!fileStorageService.isValidFileType(file.getContentType())) {
-            throw new RuntimeException("Unsupported file type: " + file.getContentType());
-        }
-
-        // Validate file size (additional check beyond Spring's limit)
-        if (file.getSize() > 10 * 1024 * 1024) { // 10MB
-            throw new RuntimeException("File size exceeds maximum limit of 10MB");
-        }
+        validateFileType(file.getContentType());
 
-        // Store file
-        String storedFilename = fileStorageService.storeFile(file);
-
-        // Create document entity
-        Document document = new Document();
-        document.setFilename(file.getOriginalFilename());
-        document.setContentType(file.getContentType());
-        document.setFilePath(storedFilename);  // Store the unique filename
-        document.setFileSize(file.getSize());
-        document.setUserId(userId);
+        // Store file (size limit and quota are enforced while streaming to disk)
+        StoredFile storedFile = storeMultipartWithinQuota(file, userId);
 
-        // Save to database
-        Document saved = documentRepository.save(document);
+        // Save to database, checking the quota again against the stored size
+        Document saved;
+        try {
+            saved = documentQuotaService.saveWithinQuota(
+                    newDocument(storedFile, file.getOriginalFilename(), file.getContentType(), userId));
+        } catch (RuntimeException e) {
+            fileStorageService.deleteFile(storedFile.filename());
+            throw e;
+        }
 
         log.info("Document uploaded successfully with id: {}", saved.getId());
         return saved;
@@ -129,61 +155,240 @@ public class DocumentService {
     /**
      * Upload document with full processing: parse and chunk
      */
-    @Transactional
     public Document uploadAndProcessDocument(MultipartFile file, Long userId) {
         log.info("Uploading and processing document: {} for user: {}", file.getOriginalFilename(), userId);
 
         // Validate file type
-        if (!fileStorageService.isValidFileType(file.getContentType())) {
-            throw new RuntimeException("Unsupported file type: " + file.getContentType());
+        validateFileType(file.getContentType());
+
+        metricsService.recordIngestionStarted();
+        try {
+            // Store file
+            StoredFile storedFile = storeMultipartWithinQuota(file, userId);
+
+            return processStoredDocument(storedFile, file.getOriginalFilename(), file.getContentType(), userId);
+        } finally {
+            metricsService.recordIngestionFinished();
         }
+    }
+
+    /**
+     * Upload document from a raw request body with full processing.
+     * The body is streamed straight to storage, so large documents are never held in memory.
+     */
+    public Document uploadAndProcessStream(
+            InputStream content,
+            String originalFilename,
+            String contentType,
+            long declaredLength,
+            Long userId
+    ) {
+        log.info("Streaming upload of document: {} ({} bytes declared) for user: {}",
+                originalFilename, declaredLength, userId);
 
-        // Store file
-        String storedFilename = fileStorageService.storeFile(file);
-        Path filePath = fileStorageService.getFilePath(storedFilename);
+        // Validate file type
+        validateFileType(contentType);
 
-        // Create document entity
-        Document document = new Document();
-        document.setFilename(file.getOriginalFilename());
-        document.setContentType(file.getContentType());
-        document.setFilePath(storedFilename);
-        document.setFileSize(file.getSize());
-        document.setUserId(userId);
+        metricsService.recordIngestionStarted();
+        try {
+            // Store file
+            StoredFile storedFile = storeWithinQuota(
+                    content, originalFilename, contentType, declaredLength, fileStorageService.getMaxStreamFileSize(), userId);
 
-        // Save document first to get ID
-        Document savedDocument = documentRepository.save(document);
-        log.info("Document saved with id: {}", savedDocument.getId());
+            return processStoredDocument(storedFile, originalFilename, contentType, userId);
+        } finally {
+            metricsService.recordIngestionFinished();
+        }
+    }
+
+    /**
+     * Embed chunks concurrently, keeping their order.
+     * All chunks are queued in the ingestion lane under the uploading user, so they are
+     * batched into few model calls and share the lane fairly with other users' uploads.
+     */
+    private List<float[]> embedChunks(List<String> chunks, Long userId) {
+        String tenant = String.valueOf(userId);
+        List<CompletableFuture<float[]>> embeddings = chunks.stream()
+                .map(chunkContent -> embeddingService
+                        .generateEmbeddingAsync(chunkContent, EmbeddingService.Priority.INGESTION, tenant))
+                .toList();
 
-        // Parse document to extract text
-        String text = documentParserService.parseDocument(filePath, file.getContentType());
-        log.info("Extracted {} characters from document", text.length());
+        try {
+            return embeddings.stream().map(CompletableFuture::join).toList();
+        } catch (CompletionException e) {
+            // Don't embed the rest of a document that is going to be discarded
+            embeddings.forEach(embedding -> embedding.cancel(false));
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
 
-        // Chunk the text
-        List<String> chunks = textChunkingService.chunkText(text);
+    /**
+     * Parse, chunk and embed a file that is already in storage.
+     * Only the quota check with the document insert and the chunk insert run in (short)
+     * transactions; parsing and embedding hold no locks. Each stage is timed, and a failure
+     * is counted against the stage it happened in.
+     */
+    private Document processStoredDocument(StoredFile storedFile, String originalFilename, String contentType, Long userId) {
+        String stage = STAGE_PERSIST;
+        Document savedDocument = null;
+        try {
+            // Save document first to get ID (the quota is checked again against the stored size)
+            Document document = newDocument(storedFile, originalFilename, contentType, userId);
+            savedDocument = ingestionStage(STAGE_PERSIST, contentType, () -> documentQuotaService.saveWithinQuota(document));
+            log.info("Document saved with id: {}", savedDocument.getId());
+
+            // Parse document to extract text (streamed from the blob store)
+            stage = STAGE_PARSE;
+            ParsedDocument parsed = ingestionStage(STAGE_PARSE, contentType,
+                    () -> parseStoredFile(storedFile.filename(), contentType));
+            String text = parsed.text();
+            metricsService.recordDocumentParsed(contentType, parsed.pages(), text.length());
+            log.info("Extracted {} characters from document", text.length());
+
+            // Chunk the text
+            stage = STAGE_CHUNK;
+            List<Chunk> chunks = ingestionStage(STAGE_CHUNK, contentType, () -> textChunkingService.chunkDocument(parsed));
+            List<String> chunkTexts = chunks.stream().map(Chunk::text).toList();
+
+            // Generate embeddings
+            stage = STAGE_EMBED;
+            log.info("Generating embeddings for {} chunks", chunks.size());
+            List<float[]> embeddings = ingestionStage(STAGE_EMBED, contentType, () -> embedChunks(chunkTexts, userId));
+            metricsService.recordEmbeddings(contentType, embeddings.size());
+
+            // While search still uses the previous model, new chunks get vectors of both
+            ActiveModel active = activeEmbeddingModelService.getActiveModel();
+            List<float[]> previousEmbeddings = activeEmbeddingModelService.isMigrating(active)
+                    ? ingestionStage(STAGE_EMBED, contentType, () -> activeEmbeddingModelService.embedWithPrevious(chunkTexts))
+                    : null;
+
+            // Save chunks with their embeddings
+            stage = STAGE_PERSIST;
+            Document owner = savedDocument;
+            ingestionStage(STAGE_PERSIST, contentType, () -> documentChunkService.saveChunks(locked -> {
+                boolean keepPrevious = previousEmbeddings != null && locked.equals(active);
+                List<DocumentChunk> documentChunks = new ArrayList<>(chunks.size());
+
+                for (int i = 0; i < chunks.size(); i++) {
+                    DocumentChunk chunk = new DocumentChunk();
+                    chunk.setDocument(owner);
+                    chunk.setChunkIndex(i);
+                    chunk.setContent(chunkTexts.get(i));
+                    chunk.setTokenCount(chunks.get(i).tokenCount());
+                    if (keepPrevious) {
+                        // Searched now; the configured model's vector takes over at the cut-over
+                        chunk.setEmbedding(embeddingService.embeddingToVector(previousEmbeddings.get(i)));
+                        chunk.setEmbeddingModel(locked.modelId());
+                        chunk.setEmbeddingDimension(locked.dimension());
+                        chunk.setNextEmbedding(embeddingService.embeddingToVector(embeddings.get(i)));
+                        chunk.setNextEmbeddingModel(embeddingService.getModelId());
+                        chunk.setNextEmbeddingDimension(embeddings.get(i).length);
+                    } else {
+                        chunk.setEmbedding(embeddingService.embeddingToVector(embeddings.get(i)));
+                        chunk.setEmbeddingModel(embeddingService.getModelId());
+                        chunk.setEmbeddingDimension(embeddings.get(i).length);
+                    }
+                    documentChunks.add(chunk);
+                }
+                return documentChunks;
+            }));
+            chunkTexts.forEach(chunkContent -> metricsService.recordChunk(contentType, chunkContent.length()));
+            log.info("All chunks embedded and saved successfully");
+            return savedDocument;
+
+        } catch (RuntimeException e) {
+            metricsService.recordIngestionFailure(contentType, stage, e);
+
+            // The document row is already committed (its chunks are not), so remove it with the file
+            if (savedDocument != null) {
+                try {
+                    documentRepository.delete(savedDocument);
+                } catch (RuntimeException cleanup) {
+                    e.addSuppressed(cleanup);
+                }
+            }
+            fileStorageService.deleteFile(storedFile.filename());
+            throw e;
+        }
+    }
 
-        // Generate embeddings and save chunks
-        log.info("Generating embeddings for {} chunks", chunks.size());
-        for (int i = 0; i < chunks.size(); i++) {
-            String chunkContent = chunks.get(i);
+    /**
+     * Document entity for a file already in storage
+     */
+    private static Document newDocument(StoredFile storedFile, String originalFilename, String contentType, Long userId) {
+        Document document = new Document();
+        document.setFilename(originalFilename);
+        document.setContentType(contentType);
+        document.setFilePath(storedFile.filename());  // Store the unique filename
+        document.setFileSize(storedFile.size());
+        document.setContentHash(storedFile.sha256());
+        document.setUserId(userId);
+        return document;
+    }
 
-            // Generate embedding for this chunk
-            float[] embedding = embeddingService.generateEmbedding(chunkContent);
-            String vectorString = embeddingService.embeddingToVector(embedding);
+    /**
+     * Reject unsupported content types (counted as validation failures)
+     */
+    private void validateFileType(String contentType) {
+        if (!fileStorageService.isValidFileType(contentType)) {
+            RuntimeException e = new RuntimeException("Unsupported file type: " + contentType);
+            // Client supplied types are not used as tags, to keep the series bounded
+            metricsService.recordIngestionFailure("unsupported", STAGE_VALIDATE, e);
+            throw e;
+        }
+    }
 
-            // Create and save chunk with embedding
-            DocumentChunk chunk = new DocumentChunk();
-            chunk.setDocument(savedDocument);
-            chunk.setChunkIndex(i);
-            chunk.setContent(chunkContent);
-            chunk.setTokenCount(textChunkingService.estimateTokenCount(chunkContent));
-            chunk.setEmbedding(vectorString);  // ✅ Now storing the embedding!
+    /**
+     * Time one ingestion stage (ingestion_stage_seconds, and a span when tracing is enabled)
+     */
+    private <T> T ingestionStage(String stage, String contentType, Supplier<T> work) {
+        return Observation.createNotStarted("ingestion.stage", observationRegistry)
+                .lowCardinalityKeyValue("stage", stage)
+                .lowCardinalityKeyValue("type", contentType)
+                .observe(work);
+    }
 
-            documentChunkRepository.save(chunk);
+    /**
+     * Stream a multipart upload to storage within the multipart size limit and user quota
+     */
+    private StoredFile storeMultipartWithinQuota(MultipartFile file, Long userId) {
+        try (InputStream inputStream = file.getInputStream()) {
+            return storeWithinQuota(inputStream, file.getOriginalFilename(), file.getContentType(),
+                    file.getSize(), fileStorageService.getMaxFileSize(), userId);
+        } catch (IOException e) {
+            log.error("Failed to read uploaded file: {}", file.getOriginalFilename(), e);
+            throw new RuntimeException("Failed to read uploaded file: " + file.getOriginalFilename(), e);
+        }
+    }
 
-            log.debug("Saved chunk {} with embedding dimension: {}", i, embedding.length);
+    /**
+     * Stream content to storage, capping it at the smaller of the size limit and the user's remaining quota.
+     * Runs outside any transaction: concurrent uploads may each pass this unlocked cap, and
+     * DocumentQuotaService.saveWithinQuota checks the quota again, under the user's row lock, before
+     * the document is inserted.
+     */
+    private StoredFile storeWithinQuota(
+            InputStream content,
+            String originalFilename,
+            String contentType,
+            long declaredLength,
+            long maxFileSize,
+            Long userId
+    ) {
+        try {
+            long limit = Math.min(maxFileSize, documentQuotaService.remainingQuota(userId));
+            StoredFile storedFile = ingestionStage(STAGE_STORE, contentType,
+                    () -> fileStorageService.store(content, originalFilename, declaredLength, limit));
+            metricsService.recordDocumentUpload(contentType, storedFile.size());
+            return storedFile;
+
+        } catch (RuntimeException e) {
+            metricsService.recordIngestionFailure(contentType, STAGE_STORE, e);
+            throw e;
         }
-        log.info("All chunks embedded and saved successfully");
-        return savedDocument;
     }
 
     /**
@@ -194,34 +399,30 @@ public class DocumentService {
 
         // Get document metadata
         Document document = documentRepository.findById(documentId)
+                .filter(existing -> existing.getDeletedAt() == null)
                 .orElseThrow(() -> new DocumentNotFoundException(documentId));
 
-        try {
-            // Get file path
-            Path filePath = fileStorageService.getFilePath(document.getFilePath());
-
-            // Security check: ensure file exists and is readable
-            if (!Files.exists(filePath) || !Files.isReadable(filePath)) {
-                throw new RuntimeException("File not accessible: " + document.getFilename());
-            }
+        // Security check: ensure file exists
+        if (!fileStorageService.exists(document.getFilePath())) {
+            throw new RuntimeException("File not accessible: " + document.getFilename());
+        }
 
-            // Load file as Resource
-            Resource resource = new UrlResource(filePath.toUri());
+        // Load file as Resource (streams from the blob store)
+        Resource resource = fileStorageService.loadAsResource(document.getFilePath());
 
-            if (!resource.exists() || !resource.isReadable()) {
-                throw new RuntimeException("Could not read file: " + document.getFilename());
-            }
+        log.info("Document resource loaded successfully: {}", document.getFilename());
+        return resource;
+    }
 
-            log.info("Document resource loaded successfully: {}", document.getFilename());
-            return resource;
+    /**
+     * Open a byte range of a document file (HTTP Range requests)
+     */
+    public InputStream openDocumentRange(Long documentId, long offset, long length) {
+        Document document = documentRepository.findById(documentId)
+                .filter(existing -> existing.getDeletedAt() == null)
+                .orElseThrow(() -> new DocumentNotFoundException(documentId));
 
-        } catch (MalformedURLException e) {
-            log.error("Error loading document as resource: {}", documentId, e);
-            throw new RuntimeException("Error loading document: " + e.getMessage(), e);
-        } catch (IOException e) {
-            log.error("Error checking file accessibility: {}", documentId, e);
-            throw new RuntimeException("Error accessing file: " + e.getMessage(), e);
-        }
+        return fileStorageService.openRange(document.getFilePath(), offset, length);
     }
 
     /**
@@ -232,14 +433,12 @@ public class DocumentService {
 
         // Get document metadata
         Document document = documentRepository.findById(documentId)
+                .filter(existing -> existing.getDeletedAt() == null)
                 .orElseThrow(() -> new DocumentNotFoundException(documentId));
 
         try {
-            // Get file path
-            Path filePath = fileStorageService.getFilePath(document.getFilePath());
-
             // Use DocumentParserService to extract text
-            String text = documentParserService.parseDocument(filePath, document.getContentType());
+            String text = parseStoredFile(document.getFilePath(), document.getContentType()).text();
 
             log.info("Preview generated: {} characters extracted from document {}", 
                     text.length(), documentId);
@@ -251,4 +450,15 @@ public class DocumentService {
             throw new RuntimeException("Failed to generate preview: " + e.getMessage(), e);
         }
     }
+
+    /**
+     * Parse a stored file without copying it to local disk first
+     */
+    private ParsedDocument parseStoredFile(String storedFilename, String contentType) {
+        try (RandomAccessRead source = fileStorageService.openRandomAccess(storedFilename)) {
+            return documentParserService.parse(source, contentType);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read stored file: " + storedFilename, e);
+        }
+    }
 }
@@ -0,0 +1,372 @@
+package com.webdynamo.document_insight.service;
+
+import com.webdynamo.document_insight.service.EmbeddingService.Priority;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingOptionsBuilder;
+import org.springframework.ai.embedding.EmbeddingRequest;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Coalesces concurrent embedding requests into batched model calls and schedules them by priority.
+ * A dispatcher takes requests from one lane per priority class: a batch is sent once it is full or
+ * its oldest request has waited the lane's max wait. Up to maxConcurrentBatches model calls run at
+ * a time (one per ONNX session, or one for a remote model); while all are busy, new requests queue
+ * up, so batches grow with load and stay small (and fast) when traffic is light.
+ *
+ * Lanes are served in priority order (interactive, ingestion, reindex), so a query waits for at
+ * most the batches already running. After a batch of the highest waiting lane, an overdue lower
+ * lane runs next, so constant query traffic cannot starve uploads, nor uploads a reindex.
+ *
+ * Within a lane each tenant (user) has its own queue, and batches are filled by weighted round
+ * robin over the tenants, so one user's large upload cannot hold back another's.
+ */
+@Slf4j
+final class EmbeddingBatcher {
+
+    /**
+     * Batching limits of one lane
+     *
+     * @param maxBatchSize Most requests in one model call
+     * @param maxWait      Longest a request waits for others to join its batch
+     */
+    record LaneSettings(int maxBatchSize, Duration maxWait) {
+    }
+
+    private record Pending(String text, CompletableFuture<float[]> result, long enqueuedAt) {
+    }
+
+    // Requests taken off a lane, with the enqueue time of the oldest for the batch metrics
+    private record Batch(Priority priority, List<Pending> requests, long oldestEnqueuedAt) {
+    }
+
+    private final EmbeddingModel embeddingModel;
+    private final MetricsService metricsService;
+    private final Map<Priority, Lane> lanes = new EnumMap<>(Priority.class);
+
+    // Share of each tenant within a lane, relative to the default of 1
+    private final Map<String, Integer> tenantWeights;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final Thread dispatcher;
+
+    // Model calls in flight, and the threads running them
+    private final Semaphore batchSlots;
+    private final ExecutorService batchRunner;
+
+    private Priority lastPriority;
+    private boolean running = true;
+
+    EmbeddingBatcher(EmbeddingModel embeddingModel, MetricsService metricsService,
+                     Map<Priority, LaneSettings> settings, int maxConcurrentBatches,
+                     Map<String, Integer> tenantWeights) {
+        this.embeddingModel = embeddingModel;
+        this.metricsService = metricsService;
+        this.tenantWeights = Map.copyOf(tenantWeights);
+        for (Priority priority : Priority.values()) {
+            if (!settings.containsKey(priority)) {
+                throw new IllegalArgumentException("No batch settings for lane " + priority);
+            }
+            Lane lane = new Lane(settings.get(priority));
+            lanes.put(priority, lane);
+            metricsService.registerEmbeddingQueue(priority.tag(), lane.depth);
+        }
+
+        this.batchSlots = new Semaphore(maxConcurrentBatches);
+        this.batchRunner = Executors.newFixedThreadPool(maxConcurrentBatches,
+                Thread.ofPlatform().name("embedding-batch-", 0).daemon(true).factory());
+        this.dispatcher = Thread.ofPlatform().name("embedding-batcher").daemon(true).start(this::dispatch);
+    }
+
+    /**
+     * Queue a text for embedding
+     *
+     * @param tenant Whose request this is; requests of one tenant share its turns in the lane
+     * @return Completes with the embedding once the batch containing the text has run
+     */
+    CompletableFuture<float[]> submit(String text, Priority priority, String tenant) {
+        Pending pending = new Pending(text, new CompletableFuture<>(), System.nanoTime());
+
+        lock.lock();
+        try {
+            if (!running) {
+                throw new IllegalStateException("Embedding batcher is stopped");
+            }
+            lanes.get(priority).add(tenant, tenantWeights.getOrDefault(tenant, 1), pending);
+            changed.signal();
+        } finally {
+            lock.unlock();
+        }
+        return pending.result();
+    }
+
+    /**
+     * Stop the dispatcher; queued requests fail
+     */
+    void stop() {
+        lock.lock();
+        try {
+            running = false;
+            changed.signal();
+        } finally {
+            lock.unlock();
+        }
+        dispatcher.interrupt();
+        batchRunner.shutdown();
+    }
+
+    private void dispatch() {
+        try {
+            while (true) {
+                // Only form the next batch once a model call can take it, so requests keep joining meanwhile
+                batchSlots.acquire();
+                Batch batch = nextBatch();
+                if (batch == null) {
+                    batchSlots.release();
+                    break;
+                }
+                try {
+                    recordBatch(batch);
+                    batchRunner.execute(() -> {
+                        try {
+                            run(batch.requests());
+                        } finally {
+                            batchSlots.release();
+                        }
+                    });
+                } catch (Throwable e) {
+                    // Fail this batch only and keep dispatching
+                    fail(batch.requests(), e);
+                    batchSlots.release();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            failQueued();
+        }
+    }
+
+    /**
+     * Wait for the next batch to be due and take it off its lane (null once stopped)
+     */
+    private Batch nextBatch() throws InterruptedException {
+        lock.lock();
+        try {
+            while (running) {
+                Priority priority = nextLane();
+                if (priority == null) {
+                    changed.await();
+                    continue;
+                }
+
+                Lane lane = lanes.get(priority);
+                long waitLeft = waitLeft(priority);
+                if (lane.size() < lane.settings.maxBatchSize() && waitLeft > 0) {
+                    // Woken early by every new request, e.g. an interactive one overtaking this lane
+                    changed.awaitNanos(waitLeft);
+                    continue;
+                }
+
+                long oldestEnqueuedAt = lane.oldestEnqueuedAt();
+                List<Pending> batch = lane.take();
+                if (batch.isEmpty()) {
+                    // Everything taken had been cancelled
+                    continue;
+                }
+                lastPriority = priority;
+                return new Batch(priority, batch, oldestEnqueuedAt);
+            }
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Lane to serve next: the highest waiting one, unless it just ran and a lower lane is overdue
+     */
+    private Priority nextLane() {
+        Priority highest = null;
+        for (Priority priority : Priority.values()) {
+            if (lanes.get(priority).size() == 0) {
+                continue;
+            }
+            if (highest == null) {
+                highest = priority;
+                if (lastPriority != highest) {
+                    return highest;
+                }
+            } else if (waitLeft(priority) <= 0) {
+                return priority;
+            }
+        }
+        return highest;
+    }
+
+    // Nanos until the oldest request of a non-empty lane has waited its max wait
+    private long waitLeft(Priority priority) {
+        Lane lane = lanes.get(priority);
+        return lane.oldestEnqueuedAt() + lane.settings.maxWait().toNanos() - System.nanoTime();
+    }
+
+    private void recordBatch(Batch batch) {
+        long now = System.nanoTime();
+        String lane = batch.priority().tag();
+        metricsService.recordEmbeddingBatch(lane, batch.requests().size(), now - batch.oldestEnqueuedAt());
+        for (Pending pending : batch.requests()) {
+            metricsService.recordEmbeddingQueueWait(lane, now - pending.enqueuedAt());
+        }
+    }
+
+    private void run(List<Pending> batch) {
+        try {
+            List<String> texts = batch.stream().map(Pending::text).toList();
+            List<Embedding> results = embeddingModel
+                    .call(new EmbeddingRequest(texts, EmbeddingOptionsBuilder.builder().build()))
+                    .getResults();
+
+            if (results.size() != batch.size()) {
+                throw new IllegalStateException(
+                        "Embedding model returned " + results.size() + " embeddings for " + batch.size() + " texts");
+            }
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).result().complete(results.get(i).getOutput());
+            }
+        } catch (Throwable e) {
+            // Errors too (e.g. OutOfMemoryError in a native model), or the callers would wait forever
+            fail(batch, e);
+        }
+    }
+
+    private void fail(List<Pending> batch, Throwable cause) {
+        log.error("Embedding batch of {} texts failed", batch.size(), cause);
+        batch.forEach(pending -> pending.result().completeExceptionally(cause));
+    }
+
+    private void failQueued() {
+        IllegalStateException stopped = new IllegalStateException("Embedding batcher is stopped");
+        lock.lock();
+        try {
+            running = false;
+            lanes.values().forEach(lane -> lane.failAll(stopped));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Requests of one tenant in a lane
+     */
+    private static final class TenantQueue {
+        private final String tenant;
+        private final int weight;
+        private final ArrayDeque<Pending> requests = new ArrayDeque<>();
+        // Requests left in the current turn
+        private int credit;
+
+        private TenantQueue(String tenant, int weight) {
+            this.tenant = tenant;
+            this.weight = Math.max(1, weight);
+        }
+    }
+
+    /**
+     * Queued requests of one priority class, one FIFO queue per tenant.
+     * Batches are filled by deficit round robin: on its turn a tenant adds up to its
+     * weight in requests, then goes to the back. Only accessed under the batcher lock.
+     */
+    private static final class Lane {
+        private final LaneSettings settings;
+        private final Map<String, TenantQueue> tenants = new HashMap<>();
+        private final ArrayDeque<TenantQueue> turns = new ArrayDeque<>();
+        // Queued requests, also read by the queue depth gauge
+        private final AtomicInteger depth = new AtomicInteger();
+
+        private Lane(LaneSettings settings) {
+            this.settings = settings;
+        }
+
+        int size() {
+            return depth.get();
+        }
+
+        void add(String tenant, int weight, Pending pending) {
+            TenantQueue queue = tenants.get(tenant);
+            if (queue == null) {
+                queue = new TenantQueue(tenant, weight);
+                tenants.put(tenant, queue);
+                turns.addLast(queue);
+            }
+            queue.requests.addLast(pending);
+            depth.incrementAndGet();
+        }
+
+        // Enqueue time of the oldest request of a non-empty lane (the oldest at the head of a tenant queue)
+        long oldestEnqueuedAt() {
+            long oldest = turns.peekFirst().requests.peekFirst().enqueuedAt();
+            for (TenantQueue queue : turns) {
+                long enqueuedAt = queue.requests.peekFirst().enqueuedAt();
+                if (enqueuedAt - oldest < 0) {
+                    oldest = enqueuedAt;
+                }
+            }
+            return oldest;
+        }
+
+        /**
+         * Next batch of the lane; requests cancelled by their caller are dropped
+         */
+        List<Pending> take() {
+            List<Pending> batch = new ArrayList<>(Math.min(size(), settings.maxBatchSize()));
+            int taken = 0;
+            while (batch.size() < settings.maxBatchSize() && !turns.isEmpty()) {
+                TenantQueue queue = turns.peekFirst();
+                if (queue.credit == 0) {
+                    queue.credit = queue.weight;
+                }
+                while (queue.credit > 0 && !queue.requests.isEmpty() && batch.size() < settings.maxBatchSize()) {
+                    Pending pending = queue.requests.pollFirst();
+                    taken++;
+                    if (!pending.result().isDone()) {
+                        batch.add(pending);
+                        queue.credit--;
+                    }
+                }
+
+                if (queue.requests.isEmpty()) {
+                    turns.pollFirst();
+                    tenants.remove(queue.tenant);
+                } else if (queue.credit == 0) {
+                    turns.addLast(turns.pollFirst());
+                }
+                // Otherwise the batch is full and the tenant keeps the rest of its turn
+            }
+            depth.addAndGet(-taken);
+            return batch;
+        }
+
+        void failAll(Exception cause) {
+            turns.forEach(queue -> queue.requests.forEach(pending -> pending.result().completeExceptionally(cause)));
+            turns.clear();
+            tenants.clear();
+            depth.set(0);
+        }
+    }
+}
@@ -0,0 +1,337 @@
+package com.webdynamo.document_insight.service;
+
+import com.webdynamo.document_insight.model.Document;
+import com.webdynamo.document_insight.model.DocumentChunk;
+import com.webdynamo.document_insight.model.EmbeddingReindexJob;
+import com.webdynamo.document_insight.repo.DocumentChunkRepository;
+import com.webdynamo.document_insight.repo.DocumentRepository;
+import com.webdynamo.document_insight.repo.EmbeddingReindexJobRepository;
+import com.webdynamo.document_insight.service.ActiveEmbeddingModelService.ActiveModel;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Re-embeds chunks produced by another model than the configured one
+ * (application.embedding.model-id), e.g. after moving from nomic-embed-text to all-MiniLM-L6-v2.
+ *
+ * While search uses the previous model (the active model, see ActiveEmbeddingModelService), the
+ * new vectors are written next to the stored ones and search keeps working on the old vectors.
+ * Once every chunk has a new vector, the active model and the vectors are switched in one
+ * transaction, which drops the old vectors. Without a previous model to embed queries with,
+ * chunks are switched in place, a whole document per transaction.
+ *
+ * Documents are processed in id order, a few per batch with a pause in between, and their chunks
+ * are embedded in the lowest-priority (reindex) lane, so uploads and queries go first.
+ * Progress is saved after every batch; a failed run, or one cut short by a restart, resumes
+ * after the last finished document. One instance works on a run at a time: it claims the run
+ * before every document, and other instances take the run over once its claim goes stale.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class EmbeddingReindexService {
+
+    private final EmbeddingReindexJobRepository jobRepository;
+    private final DocumentChunkRepository documentChunkRepository;
+    private final DocumentRepository documentRepository;
+    private final DocumentChunkService documentChunkService;
+    private final EmbeddingService embeddingService;
+    private final ActiveEmbeddingModelService activeEmbeddingModelService;
+
+    // Owner recorded on the runs this instance works on (pid@host)
+    private final String instanceId = ManagementFactory.getRuntimeMXBean().getName();
+
+    @Value("${application.embedding.reindex.documents-per-batch:10}")
+    private int documentsPerBatch;
+
+    @Value("${application.embedding.reindex.batch-delay:PT1S}")
+    private Duration batchDelay;
+
+    // A run whose owner made no progress for this long is taken over by another instance
+    @Value("${application.embedding.reindex.claim-timeout:PT5M}")
+    private Duration claimTimeout;
+
+    private Thread worker;
+
+    /**
+     * Resume a run that was cut short by a restart, unless another instance is working on it
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeInterrupted() {
+        resumeUnclaimed();
+    }
+
+    /**
+     * Take over a run whose owner stopped (crashed, or shut down before resuming elsewhere)
+     */
+    @Scheduled(fixedDelayString = "${application.embedding.reindex.claim-check-interval:PT1M}",
+            initialDelayString = "${application.embedding.reindex.claim-check-interval:PT1M}")
+    public void takeOverStale() {
+        resumeUnclaimed();
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (worker != null) {
+            worker.interrupt();
+        }
+    }
+
+    /**
+     * Start re-embedding chunks of other models, or resume the latest run if it failed.
+     * Returns the running job if one is already in progress, here or on another instance.
+     */
+    public synchronized EmbeddingReindexJob start() {
+        Optional<EmbeddingReindexJob> latest = jobRepository.findFirstByOrderByIdDesc();
+        if (isRunning() && latest.isPresent()) {
+            return latest.get();
+        }
+
+        ActiveModel target = activeEmbeddingModelService.getConfiguredModel();
+        if (latest.isPresent() && latest.get().getStatus() == EmbeddingReindexJob.Status.RUNNING) {
+            EmbeddingReindexJob running = latest.get();
+            if (!claim(running)) {
+                // Another instance is working on it
+                return running;
+            }
+            if (running.getTargetModel().equals(target.modelId())) {
+                log.info("Resuming re-embedding run {} after document {}", running.getId(), running.getLastDocumentId());
+                startWorker(running);
+                return running;
+            }
+            running.setStatus(EmbeddingReindexJob.Status.FAILED);
+            running.setError("Superseded by a run for " + target.modelId());
+            running.setUpdatedAt(LocalDateTime.now());
+            jobRepository.save(running);
+        }
+
+        EmbeddingReindexJob job = latest
+                .filter(previous -> previous.getStatus() != EmbeddingReindexJob.Status.COMPLETED)
+                .filter(previous -> previous.getTargetModel().equals(target.modelId()))
+                .orElseGet(() -> newJob(target));
+
+        job.setStatus(EmbeddingReindexJob.Status.RUNNING);
+        job.setError(null);
+        job.setOwner(instanceId);
+        job.setHeartbeatAt(LocalDateTime.now());
+        job.setUpdatedAt(job.getHeartbeatAt());
+        try {
+            job = jobRepository.save(job);
+        } catch (DataIntegrityViolationException e) {
+            // Another instance started a run at the same time (one RUNNING run at most)
+            return jobRepository.findFirstByOrderByIdDesc().orElseThrow(() -> e);
+        }
+
+        log.info("Re-embedding {} chunks with {} (run {}, from document {})",
+                job.getChunksTotal(), target.modelId(), job.getId(), job.getLastDocumentId());
+        startWorker(job);
+        return job;
+    }
+
+    /**
+     * The latest run, if any
+     */
+    public Optional<EmbeddingReindexJob> latestJob() {
+        return jobRepository.findFirstByOrderByIdDesc();
+    }
+
+    public synchronized boolean isRunning() {
+        return worker != null && worker.isAlive();
+    }
+
+    private synchronized void resumeUnclaimed() {
+        if (isRunning()) {
+            return;
+        }
+        jobRepository.findFirstByOrderByIdDesc()
+                .filter(job -> job.getStatus() == EmbeddingReindexJob.Status.RUNNING)
+                .filter(this::claim)
+                .ifPresent(job -> {
+                    log.info("Resuming re-embedding run {} after document {}", job.getId(), job.getLastDocumentId());
+                    startWorker(job);
+                });
+    }
+
+    /**
+     * Claim a running job for this instance, or renew the claim
+     *
+     * @return false if another instance holds it
+     */
+    private boolean claim(EmbeddingReindexJob job) {
+        LocalDateTime now = LocalDateTime.now();
+        if (jobRepository.claim(job.getId(), instanceId, now, now.minus(claimTimeout),
+                EmbeddingReindexJob.Status.RUNNING) == 0) {
+            return false;
+        }
+        job.setOwner(instanceId);
+        job.setHeartbeatAt(now);
+        return true;
+    }
+
+    private EmbeddingReindexJob newJob(ActiveModel target) {
+        EmbeddingReindexJob job = new EmbeddingReindexJob();
+        job.setTargetModel(target.modelId());
+        job.setTargetDimension(target.dimension());
+        job.setLastDocumentId(0L);
+        job.setDocumentsDone(0L);
+        job.setChunksDone(0L);
+        job.setChunksTotal(documentChunkRepository.countChunksToReembed(target.modelId()));
+        job.setStartedAt(LocalDateTime.now());
+        return job;
+    }
+
+    private synchronized void startWorker(EmbeddingReindexJob job) {
+        worker = Thread.ofPlatform().name("embedding-reindex").daemon(true).start(() -> run(job));
+    }
+
+    /**
+     * Re-embed batch after batch until every chunk has a vector of the target model,
+     * then switch search over to it
+     */
+    void run(EmbeddingReindexJob job) {
+        try {
+            ActiveModel target = new ActiveModel(job.getTargetModel(), job.getTargetDimension());
+            ActiveModel active = activeEmbeddingModelService.getActiveModel();
+            boolean staged = activeEmbeddingModelService.isMigrating(active);
+            if (staged) {
+                documentChunkRepository.clearNextEmbeddingsExcept(target.modelId());
+                log.info("Re-embedding run {} stages {} vectors; search stays on {} until the cut-over",
+                        job.getId(), target.modelId(), active.modelId());
+            } else if (!active.equals(target)) {
+                log.warn("No previous embedding model to search {} with meanwhile; re-embedding in place",
+                        active.modelId());
+            }
+
+            while (true) {
+                if (!reembedRemaining(job, staged)) {
+                    return;
+                }
+                if (active.equals(target) || activeEmbeddingModelService.cutOver(target)) {
+                    break;
+                }
+                // Chunks written meanwhile (e.g. by instances still on the previous model): another pass
+                job.setLastDocumentId(0L);
+                Thread.sleep(batchDelay);
+            }
+
+            job.setStatus(EmbeddingReindexJob.Status.COMPLETED);
+            job.setFinishedAt(LocalDateTime.now());
+            job.setUpdatedAt(job.getFinishedAt());
+            jobRepository.save(job);
+            log.info("Re-embedding run {} finished: {} documents, {} chunks",
+                    job.getId(), job.getDocumentsDone(), job.getChunksDone());
+
+        } catch (InterruptedException e) {
+            // Shutting down; the job stays RUNNING and is resumed once its claim goes stale
+            Thread.currentThread().interrupt();
+            log.info("Re-embedding run {} paused after document {}", job.getId(), job.getLastDocumentId());
+
+        } catch (RuntimeException e) {
+            if (Thread.currentThread().isInterrupted()) {
+                // The batcher stopped under the job during shutdown
+                log.info("Re-embedding run {} paused after document {}", job.getId(), job.getLastDocumentId());
+                return;
+            }
+            log.error("Re-embedding run {} failed after document {}", job.getId(), job.getLastDocumentId(), e);
+            job.setStatus(EmbeddingReindexJob.Status.FAILED);
+            job.setError(e.getMessage());
+            job.setUpdatedAt(LocalDateTime.now());
+            jobRepository.save(job);
+        }
+    }
+
+    /**
+     * One pass over the documents after lastDocumentId that lack vectors of the target model
+     *
+     * @return false if another instance took the run over
+     */
+    private boolean reembedRemaining(EmbeddingReindexJob job, boolean staged) throws InterruptedException {
+        while (true) {
+            List<Long> documentIds = documentChunkRepository.findDocumentIdsToReembed(
+                    job.getLastDocumentId(), job.getTargetModel(), documentsPerBatch);
+            if (documentIds.isEmpty()) {
+                return true;
+            }
+
+            for (Long documentId : documentIds) {
+                if (!claim(job)) {
+                    log.warn("Re-embedding run {} was taken over by another instance; stopping here", job.getId());
+                    return false;
+                }
+                job.setChunksDone(job.getChunksDone() + reembedDocument(documentId, job, staged));
+                job.setDocumentsDone(job.getDocumentsDone() + 1);
+                job.setLastDocumentId(documentId);
+            }
+            job.setUpdatedAt(LocalDateTime.now());
+            jobRepository.save(job);
+
+            Thread.sleep(batchDelay);
+        }
+    }
+
+    /**
+     * Re-embed all chunks of a document and write them together: next to the active vectors
+     * when staged, otherwise in their place
+     *
+     * @return Number of chunks re-embedded
+     */
+    private int reembedDocument(Long documentId, EmbeddingReindexJob job, boolean staged) {
+        Optional<Document> document = documentRepository.findById(documentId);
+        if (document.isEmpty() || document.get().getDeletedAt() != null) {
+            return 0;
+        }
+
+        List<DocumentChunk> chunks = documentChunkRepository.findByDocumentIdOrderByChunkIndexAsc(documentId);
+        String tenant = String.valueOf(document.get().getUserId());
+        List<CompletableFuture<float[]>> embeddings = chunks.stream()
+                .map(chunk -> embeddingService.generateEmbeddingAsync(
+                        chunk.getContent(), EmbeddingService.Priority.REINDEX, tenant))
+                .toList();
+
+        List<float[]> vectors;
+        try {
+            vectors = embeddings.stream().map(CompletableFuture::join).toList();
+        } catch (CompletionException e) {
+            embeddings.forEach(embedding -> embedding.cancel(false));
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+
+        List<String> vectorLiterals = new ArrayList<>(vectors.size());
+        for (float[] vector : vectors) {
+            if (vector.length != job.getTargetDimension()) {
+                throw new IllegalStateException("Model " + job.getTargetModel() + " returned " + vector.length
+                        + " dimensions, expected " + job.getTargetDimension());
+            }
+            vectorLiterals.add(embeddingService.embeddingToVector(vector));
+        }
+
+        List<Long> chunkIds = chunks.stream().map(DocumentChunk::getId).toList();
+        if (staged) {
+            documentChunkService.stageEmbeddings(chunkIds, vectorLiterals, job.getTargetModel(), job.getTargetDimension());
+        } else {
+            documentChunkService.replaceEmbeddings(chunkIds, vectorLiterals, job.getTargetModel(), job.getTargetDimension());
+        }
+
+        log.debug("Re-embedded {} chunks of document {}", chunks.size(), documentId);
+        return chunks.size();
+    }
+}
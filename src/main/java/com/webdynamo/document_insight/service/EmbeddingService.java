@@ -1,14 +1,26 @@
 package com.webdynamo.document_insight.service;
 
+import com.webdynamo.document_insight.config.ExecutorConfig;
+import com.webdynamo.document_insight.embedding.PooledOnnxEmbeddingModel;
+import com.webdynamo.document_insight.service.EmbeddingBatcher.LaneSettings;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.embedding.EmbeddingModel;
 import org.springframework.ai.embedding.EmbeddingRequest;
 import org.springframework.ai.embedding.EmbeddingResponse;
 import org.springframework.ai.embedding.EmbeddingOptionsBuilder;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.stream.Collectors;
 
 @Service
@@ -16,14 +28,120 @@ import java.util.stream.Collectors;
 @Slf4j
 public class EmbeddingService {
 
+    // Tenant of requests not made on behalf of a particular user
+    public static final String DEFAULT_TENANT = "default";
+
     private final EmbeddingModel embeddingModel;
+    private final MetricsService metricsService;
+    private final ExecutorConfig executorConfig;
+
+    /**
+     * Priority class (lane) of an embedding request in the batcher, highest first
+     */
+    public enum Priority {
+        // A user is waiting for the result (search and RAG queries)
+        INTERACTIVE,
+        // Document chunks during ingestion
+        INGESTION,
+        // Re-embedding stored chunks in the background
+        REINDEX;
+
+        String tag() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    // Stored with every embedding; vectors of other models are not searched
+    @Value("${application.embedding.model-id:nomic-embed-text}")
+    private String modelId;
+
+    // Coalesce concurrent single-text requests into batched model calls
+    @Value("${application.embedding.batch.enabled:true}")
+    private boolean batchingEnabled;
+
+    @Value("${application.embedding.batch.interactive.max-size:16}")
+    private int interactiveMaxBatchSize;
+
+    @Value("${application.embedding.batch.interactive.max-wait:PT0.002S}")
+    private Duration interactiveMaxWait;
+
+    @Value("${application.embedding.batch.ingestion.max-size:64}")
+    private int ingestionMaxBatchSize;
+
+    @Value("${application.embedding.batch.ingestion.max-wait:PT0.02S}")
+    private Duration ingestionMaxWait;
+
+    @Value("${application.embedding.batch.reindex.max-size:64}")
+    private int reindexMaxBatchSize;
+
+    @Value("${application.embedding.batch.reindex.max-wait:PT1S}")
+    private Duration reindexMaxWait;
+
+    // Turns per round of particular users within a lane, as userId=weight pairs (default weight 1)
+    @Value("${application.embedding.batch.tenant-weights:}")
+    private String tenantWeights;
+
+    // Model calls in flight at once (0: one per ONNX session, otherwise 1)
+    @Value("${application.embedding.batch.max-concurrent:0}")
+    private int maxConcurrentBatches;
+
+    private EmbeddingBatcher batcher;
+
+    @PostConstruct
+    public void init() {
+        if (batchingEnabled) {
+            int concurrentBatches = maxConcurrentBatches > 0 ? maxConcurrentBatches
+                    : embeddingModel instanceof PooledOnnxEmbeddingModel pooled ? pooled.getPoolSize() : 1;
+
+            batcher = new EmbeddingBatcher(embeddingModel, metricsService, Map.of(
+                    Priority.INTERACTIVE, new LaneSettings(interactiveMaxBatchSize, interactiveMaxWait),
+                    Priority.INGESTION, new LaneSettings(ingestionMaxBatchSize, ingestionMaxWait),
+                    Priority.REINDEX, new LaneSettings(reindexMaxBatchSize, reindexMaxWait)
+            ), concurrentBatches, parseTenantWeights(tenantWeights));
+            log.info("Embedding batching on: interactive up to {} texts / {}, ingestion up to {} texts / {}, "
+                            + "reindex up to {} texts / {}, {} at a time",
+                    interactiveMaxBatchSize, interactiveMaxWait, ingestionMaxBatchSize, ingestionMaxWait,
+                    reindexMaxBatchSize, reindexMaxWait, concurrentBatches);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (batcher != null) {
+            batcher.stop();
+        }
+    }
 
     /**
-     * Generate embedding for a single text
+     * Id of the model embeddings are generated with (application.embedding.model-id)
+     */
+    public String getModelId() {
+        return modelId;
+    }
+
+    /**
+     * Generate embedding for a single text (interactive lane)
      */
     public float[] generateEmbedding(String text) {
+        return generateEmbedding(text, Priority.INTERACTIVE);
+    }
+
+    /**
+     * Generate embedding for a single text.
+     * With batching on, the text joins a batch with concurrent requests of the same lane.
+     */
+    public float[] generateEmbedding(String text, Priority priority) {
         log.debug("Generating embedding for text of length: {}", text.length());
 
+        if (batcher != null) {
+            try {
+                return batcher.submit(text, priority, DEFAULT_TENANT).join();
+            } catch (CompletionException e) {
+                log.error("Error generating embedding for text", e.getCause());
+                throw new RuntimeException("Failed to generate embedding", e.getCause());
+            }
+        }
+
         try {
             // Create embedding request
             EmbeddingRequest request = new EmbeddingRequest(List.of(text), EmbeddingOptionsBuilder.builder().build());
@@ -43,6 +161,20 @@ public class EmbeddingService {
         }
     }
 
+    /**
+     * Generate embedding for a single text without holding a thread while it waits.
+     * With batching on, the text is queued under its tenant, which shares the lane fairly
+     * with other tenants; otherwise it runs on the embedding executor.
+     *
+     * @param tenant Who the embedding is for (usually the user id)
+     */
+    public CompletableFuture<float[]> generateEmbeddingAsync(String text, Priority priority, String tenant) {
+        if (batcher != null) {
+            return batcher.submit(text, priority, tenant);
+        }
+        return CompletableFuture.supplyAsync(() -> generateEmbedding(text, priority), executorConfig.embeddingExecutor());
+    }
+
     /**
      * Generate embeddings for multiple texts (batch processing)
      */
@@ -86,6 +218,24 @@ public class EmbeddingService {
         return sb.toString();
     }
 
+    /**
+     * Parse userId=weight pairs, e.g. "42=4,7=2"
+     */
+    static Map<String, Integer> parseTenantWeights(String value) {
+        Map<String, Integer> weights = new HashMap<>();
+        for (String pair : value.split(",")) {
+            if (pair.isBlank()) {
+                continue;
+            }
+            String[] parts = pair.split("=");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Invalid tenant weight '" + pair + "', expected userId=weight");
+            }
+            weights.put(parts[0].trim(), Integer.parseInt(parts[1].trim()));
+        }
+        return weights;
+    }
+
     /**
      * Convert float[] to List<Float> if needed
      */
@@ -1,39 +1,76 @@
 package com.webdynamo.document_insight.service;
 
 import com.webdynamo.document_insight.config.FileStorageConfig;
+import com.webdynamo.document_insight.exception.UploadLimitExceededException;
+import com.webdynamo.document_insight.storage.BlobRandomAccessRead;
+import com.webdynamo.document_insight.storage.BlobResource;
+import com.webdynamo.document_insight.storage.BlobStore;
 import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.pdfbox.io.RandomAccessRead;
+import org.apache.pdfbox.io.RandomAccessReadBufferedFile;
+import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.regex.Pattern;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class FileStorageService {
 
+    // Size of the copy buffer used while streaming uploads to disk
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // Local sub-directory where uploads are written before they are handed to the blob store
+    private static final String STAGING_DIR = ".staging";
+
+    // Stored name of a content-addressed blob: two levels of hex shards, then the full SHA-256
+    private static final Pattern CONTENT_ADDRESSED_NAME =
+            Pattern.compile("[0-9a-f]{2}/[0-9a-f]{2}/[0-9a-f]{64}");
+
     private final FileStorageConfig fileStorageConfig;
-    private Path fileStorageLocation;
+    private final BlobStore blobStore;
+    private Path stagingLocation;
+
+    /**
+     * Result of a streamed upload: stored name, exact byte count and SHA-256 of the content
+     */
+    public record StoredFile(String filename, long size, String sha256) {
+    }
 
     /**
-     * Initialize storage directory on application startup
+     * Initialize the local staging directory on application startup
      */
     @PostConstruct
     public void init() {
-        this.fileStorageLocation = Paths.get(fileStorageConfig.getUploadDir())
-                .toAbsolutePath().normalize();
+        this.stagingLocation = Paths.get(fileStorageConfig.getUploadDir())
+                .toAbsolutePath().normalize()
+                .resolve(STAGING_DIR);
 
         try {
-            Files.createDirectories(this.fileStorageLocation);
-            log.info("File storage initialized at: {}", this.fileStorageLocation);
+            Files.createDirectories(this.stagingLocation);
+            log.info("Upload staging initialized at: {}", this.stagingLocation);
         } catch (IOException e) {
             log.error("Could not create upload directory!", e);
             throw new RuntimeException("Could not create upload directory!", e);
@@ -44,39 +81,126 @@ public class FileStorageService {
      * Store a file and return the stored filename
      */
     public String storeFile(MultipartFile file) {
-        // Get original filename
-        String originalFilename = StringUtils.cleanPath(file.getOriginalFilename());
+        try (InputStream inputStream = file.getInputStream()) {
+            return store(inputStream, file.getOriginalFilename(), file.getSize(), getMaxFileSize()).filename();
+        } catch (IOException e) {
+            log.error("Failed to read uploaded file: {}", file.getOriginalFilename(), e);
+            throw new RuntimeException("Failed to store file: " + file.getOriginalFilename(), e);
+        }
+    }
+
+    /**
+     * Stream content to storage without buffering it in memory.
+     * The bytes are hashed and counted while they are copied into a staging file,
+     * the upload is aborted as soon as it exceeds maxBytes, and the finished file is
+     * handed to the blob store in one piece so readers never see a partial upload.
+     *
+     * @param inputStream    Content to store (closed once fully read)
+     * @param originalFilename Client supplied filename
+     * @param declaredLength Content-Length announced by the client, or -1 if unknown
+     * @param maxBytes       Maximum number of bytes accepted
+     * @return Stored filename, size and SHA-256 hex digest
+     */
+    public StoredFile store(InputStream inputStream, String originalFilename, long declaredLength, long maxBytes) {
+        String cleanFilename = cleanFilename(originalFilename);
 
+        // Reject early when the client already told us the upload is too large
+        if (declaredLength > maxBytes) {
+            throw new UploadLimitExceededException(maxBytes);
+        }
+
+        Path stagedFile = null;
         try {
-            // Validate filename
-            if (originalFilename.contains("..")) {
-                throw new RuntimeException("Invalid file path: " + originalFilename);
+            stagedFile = Files.createTempFile(this.stagingLocation, "upload-", ".part");
+
+            MessageDigest digest = newSha256Digest();
+            long written = 0;
+
+            try (ReadableByteChannel source = Channels.newChannel(new DigestInputStream(inputStream, digest));
+                 FileChannel target = FileChannel.open(stagedFile, StandardOpenOption.WRITE)) {
+
+                ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+                while (source.read(buffer) != -1) {
+                    buffer.flip();
+                    written += buffer.remaining();
+                    if (written > maxBytes) {
+                        throw new UploadLimitExceededException(maxBytes);
+                    }
+                    while (buffer.hasRemaining()) {
+                        target.write(buffer);
+                    }
+                    buffer.clear();
+                }
+            }
+
+            String sha256 = HexFormat.of().formatHex(digest.digest());
+
+            if (isContentAddressedLayout()) {
+                String blobName = publishBlob(stagedFile, sha256);
+                stagedFile = null;
+                return new StoredFile(blobName, written, sha256);
             }
 
             // Generate unique filename to avoid conflicts
-            String fileExtension = getFileExtension(originalFilename);
-            String uniqueFilename = UUID.randomUUID().toString() + "_" + originalFilename;
+            String uniqueFilename = UUID.randomUUID() + "_" + cleanFilename;
+            blobStore.put(uniqueFilename, stagedFile);
+            stagedFile = null;
+
+            log.info("File stored successfully: {} ({} bytes, sha256={})", uniqueFilename, written, sha256);
+            return new StoredFile(uniqueFilename, written, sha256);
+
+        } catch (IOException e) {
+            log.error("Failed to store file: {}", cleanFilename, e);
+            throw new RuntimeException("Failed to store file: " + cleanFilename, e);
+        } finally {
+            deleteStagedFile(stagedFile);
+        }
+    }
 
-            // Copy file to storage location
-            Path targetLocation = this.fileStorageLocation.resolve(uniqueFilename);
-            Files.copy(file.getInputStream(), targetLocation, StandardCopyOption.REPLACE_EXISTING);
+    /**
+     * Move an existing flat-layout file into the content-addressed layout.
+     * Used by the storage migration; the caller updates the document afterwards.
+     *
+     * @param filename Flat stored filename
+     * @return New stored name, size and SHA-256 of the file
+     */
+    public StoredFile migrateToContentAddressed(String filename) {
+        try {
+            MessageDigest digest = newSha256Digest();
+            long size;
+            try (InputStream in = new DigestInputStream(blobStore.open(filename), digest)) {
+                size = in.transferTo(OutputStream.nullOutputStream());
+            }
+            String sha256 = HexFormat.of().formatHex(digest.digest());
+            String blobName = blobName(sha256);
 
-            log.info("File stored successfully: {}", uniqueFilename);
-            return uniqueFilename;
+            if (blobStore.exists(blobName)) {
+                blobStore.delete(filename);
+                blobStore.touch(blobName);
+            } else {
+                blobStore.move(filename, blobName);
+            }
+            return new StoredFile(blobName, size, sha256);
 
         } catch (IOException e) {
-            log.error("Failed to store file: {}", originalFilename, e);
-            throw new RuntimeException("Failed to store file: " + originalFilename, e);
+            log.error("Failed to migrate file: {}", filename, e);
+            throw new RuntimeException("Failed to migrate file: " + filename, e);
         }
     }
 
     /**
-     * Delete a file from storage
+     * Delete a file from storage.
+     * Content-addressed blobs can be shared by several documents, so they are left
+     * for the garbage collector, which removes them once nothing references them.
      */
     public void deleteFile(String filename) {
+        if (isContentAddressedName(filename)) {
+            log.debug("Blob {} left for garbage collection", filename);
+            return;
+        }
+
         try {
-            Path filePath = this.fileStorageLocation.resolve(filename).normalize();
-            Files.deleteIfExists(filePath);
+            blobStore.delete(filename);
             log.info("File deleted: {}", filename);
         } catch (IOException e) {
             log.error("Failed to delete file: {}", filename, e);
@@ -84,10 +208,94 @@ public class FileStorageService {
     }
 
     /**
-     * Get the full path to a stored file
+     * Whether a stored file exists
+     */
+    public boolean exists(String filename) {
+        try {
+            return blobStore.exists(filename);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to check file: " + filename, e);
+        }
+    }
+
+    /**
+     * Stream a stored file as a resource (e.g. for downloads)
+     */
+    public Resource loadAsResource(String filename) {
+        try {
+            return new BlobResource(blobStore, filename, blobStore.size(filename));
+        } catch (IOException e) {
+            throw new RuntimeException("File not found: " + filename, e);
+        }
+    }
+
+    /**
+     * Open a byte range of a stored file
+     */
+    public InputStream openRange(String filename, long offset, long length) {
+        try {
+            return blobStore.openRange(filename, offset, length);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read file: " + filename, e);
+        }
+    }
+
+    /**
+     * Open a stored file for parsing. Local files are read directly,
+     * remote blobs are fetched in blocks with ranged reads as the parser needs them.
+     */
+    public RandomAccessRead openRandomAccess(String filename) {
+        try {
+            Optional<Path> localPath = blobStore.localPath(filename);
+            if (localPath.isPresent()) {
+                return new RandomAccessReadBufferedFile(localPath.get().toFile());
+            }
+            return new BlobRandomAccessRead(blobStore, filename);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to open file: " + filename, e);
+        }
+    }
+
+    /**
+     * Directory holding in-progress uploads
+     */
+    public Path getStagingRoot() {
+        return this.stagingLocation;
+    }
+
+    /**
+     * Whether new uploads are stored by content hash
+     */
+    public boolean isContentAddressedLayout() {
+        return fileStorageConfig.getLayout() == FileStorageConfig.Layout.CONTENT_ADDRESSED;
+    }
+
+    /**
+     * Whether a stored filename points at a content-addressed blob
+     */
+    public boolean isContentAddressedName(String filename) {
+        return filename != null && CONTENT_ADDRESSED_NAME.matcher(filename).matches();
+    }
+
+    /**
+     * Maximum size in bytes of a multipart upload
+     */
+    public long getMaxFileSize() {
+        return fileStorageConfig.getMaxFileSize().toBytes();
+    }
+
+    /**
+     * Maximum size in bytes of a streamed upload
      */
-    public Path getFilePath(String filename) {
-        return this.fileStorageLocation.resolve(filename).normalize();
+    public long getMaxStreamFileSize() {
+        return fileStorageConfig.getMaxStreamFileSize().toBytes();
+    }
+
+    /**
+     * Storage quota per user in bytes (0 = unlimited)
+     */
+    public long getUserQuota() {
+        return fileStorageConfig.getUserQuota().toBytes();
     }
 
     /**
@@ -102,12 +310,65 @@ public class FileStorageService {
     }
 
     /**
-     * Get file extension from filename
+     * Clean and validate a client supplied filename
+     */
+    private String cleanFilename(String originalFilename) {
+        if (originalFilename == null || originalFilename.isBlank()) {
+            throw new RuntimeException("Filename is required");
+        }
+
+        String cleanFilename = StringUtils.cleanPath(originalFilename);
+        if (cleanFilename.contains("..") || cleanFilename.contains("/")) {
+            throw new RuntimeException("Invalid file path: " + originalFilename);
+        }
+        return cleanFilename;
+    }
+
+    /**
+     * Hand a fully written file to the blob store at its content-addressed key (ab/cd/abcd...).
+     * If identical content is already stored the new copy is dropped and the
+     * existing blob's timestamp is refreshed so the garbage collector's grace
+     * period covers the document that is about to reference it.
+     *
+     * @return Stored name of the blob
+     */
+    private String publishBlob(Path file, String sha256) throws IOException {
+        String blobName = blobName(sha256);
+
+        if (blobStore.exists(blobName)) {
+            Files.delete(file);
+            blobStore.touch(blobName);
+            log.info("Deduplicated upload onto existing blob: {}", blobName);
+        } else {
+            blobStore.put(blobName, file);
+            log.info("Blob stored successfully: {}", blobName);
+        }
+        return blobName;
+    }
+
+    private String blobName(String sha256) {
+        return sha256.substring(0, 2) + "/" + sha256.substring(2, 4) + "/" + sha256;
+    }
+
+    /**
+     * Remove a leftover staging file after a failed or aborted upload
      */
-    private String getFileExtension(String filename) {
-        if (filename == null || !filename.contains(".")) {
-            return "";
+    private void deleteStagedFile(Path stagedFile) {
+        if (stagedFile == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(stagedFile);
+        } catch (IOException e) {
+            log.warn("Could not delete staging file: {}", stagedFile, e);
+        }
+    }
+
+    private MessageDigest newSha256Digest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
         }
-        return filename.substring(filename.lastIndexOf("."));
     }
 }
@@ -1,18 +1,32 @@
 package com.webdynamo.document_insight.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.webdynamo.document_insight.model.Role;
+import com.webdynamo.document_insight.model.User;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
 import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HexFormat;
 import java.util.Map;
+import java.util.Optional;
 import java.util.function.Function;
 
 @Service
@@ -28,6 +42,90 @@ public class JwtService {
     @Value("${jwt.refresh-expiration}")
     private long refreshExpiration;
 
+    // Access token claims that describe the principal, so requests need no user lookup
+    static final String CLAIM_USER_ID = "uid";
+    static final String CLAIM_ROLE = "role";
+    static final String CLAIM_NAME = "name";
+    static final String CLAIM_VERSION = "ver";
+
+    // Build the authenticated principal from token claims instead of the database
+    @Value("${jwt.stateless-principal:true}")
+    private boolean statelessPrincipal;
+
+    // How long a verified token is remembered (0 disables the cache)
+    @Value("${jwt.cache.ttl:PT1M}")
+    private Duration verifiedTokenTtl;
+
+    @Value("${jwt.cache.max-size:10000}")
+    private long verifiedTokenCacheSize;
+
+    // Built once: decoding the secret and building the parser on every request is pure overhead
+    private SecretKey signingKey;
+    private JwtParser jwtParser;
+
+    // Verified tokens keyed by SHA-256 of the token, so repeat requests skip signature checks and JSON parsing
+    private Cache<String, VerifiedToken> verifiedTokens;
+
+    /**
+     * A token whose signature and expiry have been checked, parsed once
+     *
+     * @param email     Subject (user's email)
+     * @param expiresAt Expiration time
+     * @param claims    All claims of the token (immutable)
+     */
+    public record VerifiedToken(String email, Instant expiresAt, Claims claims) {
+
+        public boolean isExpired() {
+            return !expiresAt.isAfter(Instant.now());
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        this.signingKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET_KEY));
+        this.jwtParser = Jwts.parser().verifyWith(signingKey).build();
+
+        if (!verifiedTokenTtl.isZero()) {
+            this.verifiedTokens = Caffeine.newBuilder()
+                    .maximumSize(verifiedTokenCacheSize)
+                    .expireAfterWrite(verifiedTokenTtl)
+                    .build();
+        }
+    }
+
+    /**
+     * Verify a token and parse it once.
+     * Signature and expiry are checked; the result is cached for a short time.
+     *
+     * @param token JWT token string
+     * @return The verified token, or empty if it is invalid or expired
+     */
+    public Optional<VerifiedToken> verify(String token) {
+        String cacheKey = null;
+        if (verifiedTokens != null) {
+            cacheKey = sha256(token);
+            VerifiedToken cached = verifiedTokens.getIfPresent(cacheKey);
+            if (cached != null) {
+                if (!cached.isExpired()) {
+                    return Optional.of(cached);
+                }
+                verifiedTokens.invalidate(cacheKey);
+                return Optional.empty();
+            }
+        }
+
+        try {
+            VerifiedToken verified = parse(token);
+            if (verifiedTokens != null) {
+                verifiedTokens.put(cacheKey, verified);
+            }
+            return Optional.of(verified);
+        } catch (JwtException | IllegalArgumentException e) {
+            log.debug("Rejected token: {}", e.getMessage());
+            return Optional.empty();
+        }
+    }
+
     /**
      * Extract email (username) from JWT token
      *
@@ -35,7 +133,8 @@ public class JwtService {
      * @return User's email address
      */
     public String extractEmail(String token) {
-        return extractClaim(token, Claims::getSubject);
+        return verify(token).map(VerifiedToken::email)
+                .orElseThrow(() -> new JwtException("Invalid or expired token"));
     }
 
     /**
@@ -46,7 +145,8 @@ public class JwtService {
      * @return The extracted claim value
      */
     public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = extractAllClaims(token);
+        final Claims claims = verify(token).map(VerifiedToken::claims)
+                .orElseThrow(() -> new JwtException("Invalid or expired token"));
         return claimsResolver.apply(claims);
     }
 
@@ -57,7 +157,47 @@ public class JwtService {
      * @return JWT access token
      */
     public String generateToken(UserDetails userDetails) {
-        return generateToken(new HashMap<>(), userDetails);
+        Map<String, Object> claims = new HashMap<>();
+        if (userDetails instanceof User user) {
+            claims.put(CLAIM_USER_ID, user.getId());
+            claims.put(CLAIM_ROLE, user.getRole().name());
+            claims.put(CLAIM_VERSION, user.getTokenVersion());
+            if (user.getName() != null) {
+                claims.put(CLAIM_NAME, user.getName());
+            }
+        }
+        return generateToken(claims, userDetails);
+    }
+
+    /**
+     * Build the authenticated user from an access token's claims, without the database.
+     * Empty for tokens issued without principal claims (e.g. refresh tokens, or
+     * tokens from before the claims were added) or when stateless principals are off.
+     * The caller still has to check the token version against the account.
+     *
+     * @param token Verified token
+     * @return Principal with id, email, name, role and token version
+     */
+    public Optional<User> principalFrom(VerifiedToken token) {
+        if (!statelessPrincipal) {
+            return Optional.empty();
+        }
+
+        Claims claims = token.claims();
+        Object userId = claims.get(CLAIM_USER_ID);
+        String role = claims.get(CLAIM_ROLE, String.class);
+        Object version = claims.get(CLAIM_VERSION);
+        if (!(userId instanceof Number) || role == null || !(version instanceof Number)) {
+            return Optional.empty();
+        }
+
+        User user = new User();
+        user.setId(((Number) userId).longValue());
+        user.setEmail(token.email());
+        user.setName(claims.get(CLAIM_NAME, String.class));
+        user.setRole(Role.valueOf(role));
+        user.setTokenVersion(((Number) version).intValue());
+        return Optional.of(user);
     }
 
     /**
@@ -102,7 +242,7 @@ public class JwtService {
                 .subject(userDetails.getUsername())
                 .issuedAt(new Date(currentTime))
                 .expiration(new Date(currentTime + expiration))
-                .signWith(getSignInKey(), Jwts.SIG.HS256)
+                .signWith(signingKey, Jwts.SIG.HS256)
                 .compact();
     }
 
@@ -114,60 +254,34 @@ public class JwtService {
      * @return true if token is valid, false otherwise
      */
     public boolean isTokenValid(String token, UserDetails userDetails) {
-        final String email = extractEmail(token);
-        boolean isValid = (email.equals(userDetails.getUsername())) && !isTokenExpired(token);
+        Optional<VerifiedToken> verified = verify(token);
+        boolean isValid = verified.isPresent() && verified.get().email().equals(userDetails.getUsername());
 
         if (!isValid) {
-            log.warn("Invalid token for user: {}", email);
+            log.warn("Invalid token for user: {}", userDetails.getUsername());
         }
 
         return isValid;
     }
 
     /**
-     * Check if token is expired
-     *
-     * @param token JWT token
-     * @return true if expired, false otherwise
-     */
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
-    }
-
-    /**
-     * Extract expiration date from token
+     * Verify signature and expiry and read the claims (the parser rejects expired tokens)
      *
      * @param token JWT token
-     * @return Expiration date
+     * @return Parsed token
      */
-    private Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+    private VerifiedToken parse(String token) {
+        Claims claims = jwtParser.parseSignedClaims(token).getPayload();
+        return new VerifiedToken(claims.getSubject(), claims.getExpiration().toInstant(), claims);
     }
 
-    /**
-     * Extract all claims from JWT token
-     *
-     * @param token JWT token
-     * @return Claims object containing all token claims
-     */
-    private Claims extractAllClaims(String token) {
-        return Jwts
-                .parser()
-                .verifyWith(getSignInKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
-    }
-
-    /**
-     * Get signing key from secret
-     * Returns SecretKey for HMAC SHA-256
-     *
-     * @return Secret key for signing/verifying JWT
-     */
-    private SecretKey getSignInKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(SECRET_KEY);
-        return Keys.hmacShaKeyFor(keyBytes);  // Returns SecretKey (more specific than Key)
+    private String sha256(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
     }
 
 }
@@ -1,35 +1,113 @@
 package com.webdynamo.document_insight.service;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Application metrics.
+ * Meters are registered once and kept as handles, so recording is a plain increment
+ * with no tag array or registry lookup (rate limit checks run on every request).
+ * Meters with a dynamic tag are cached per tag value in bounded maps.
+ */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class MetricsService {
 
+    // Distinct rate-limited endpoints tracked before further ones are grouped as "other"
+    // (URIs contain ids, so they are not a bounded set)
+    static final int MAX_ENDPOINTS = 256;
+
+    static final String OTHER_ENDPOINT = "other";
+
     private final MeterRegistry meterRegistry;
 
+    // Documents currently being stored, parsed, chunked and embedded
+    private final AtomicInteger ingestionsInFlight = new AtomicInteger();
+
+    private Counter rateLimitAllowedAuthenticated;
+    private Counter rateLimitAllowedAnonymous;
+    private Counter ragQueries;
+    private DistributionSummary ragContextChunks;
+
+    // Rate limit violations per endpoint, for authenticated and anonymous requests
+    private final Map<String, Counter> violationsAuthenticated = new ConcurrentHashMap<>();
+    private final Map<String, Counter> violationsAnonymous = new ConcurrentHashMap<>();
+
+    // Upload and ingestion meters per content type
+    private final Map<String, DocumentMeters> documentMeters = new ConcurrentHashMap<>();
+
+    // Embedding batch meters per batcher lane
+    private final Map<String, EmbeddingBatchMeters> embeddingBatchMeters = new ConcurrentHashMap<>();
+
+    /**
+     * Meters of one embedding batcher lane
+     */
+    private record EmbeddingBatchMeters(DistributionSummary size, Timer waitTime, Timer queueWait) {
+    }
+
+    /**
+     * Meters tagged with one content type
+     */
+    private record DocumentMeters(
+            Counter uploaded,
+            DistributionSummary sizeBytes,
+            Counter pages,
+            Counter characters,
+            Counter chunks,
+            DistributionSummary chunkSize,
+            Counter embeddings
+    ) {
+    }
+
+    @PostConstruct
+    public void init() {
+        Gauge.builder("ingestion.in_flight", ingestionsInFlight, AtomicInteger::get)
+                .description("Documents currently being ingested")
+                .register(meterRegistry);
+
+        rateLimitAllowedAuthenticated = rateLimitAllowedCounter(true);
+        rateLimitAllowedAnonymous = rateLimitAllowedCounter(false);
+        ragQueries = meterRegistry.counter("rag.queries");
+        ragContextChunks = meterRegistry.summary("rag.context_chunks");
+    }
+
     /**
      * Record rate limit allowed
      */
     public void recordRateLimitAllowed(boolean isAuthenticated) {
-        meterRegistry.counter("rate_limit.requests",
-                "status", "allowed",
-                "authenticated", String.valueOf(isAuthenticated)
-        ).increment();
+        (isAuthenticated ? rateLimitAllowedAuthenticated : rateLimitAllowedAnonymous).increment();
     }
 
     /**
      * Record rate limit exceeded
      */
     public void recordRateLimitExceeded(boolean isAuthenticated, String endpoint) {
-        meterRegistry.counter("rate_limit.violations",
-                "authenticated", String.valueOf(isAuthenticated),
-                "endpoint", endpoint
-        ).increment();
+        Map<String, Counter> violations = isAuthenticated ? violationsAuthenticated : violationsAnonymous;
+
+        Counter counter = violations.get(endpoint);
+        if (counter == null) {
+            String tag = violations.size() < MAX_ENDPOINTS ? endpoint : OTHER_ENDPOINT;
+            counter = violations.computeIfAbsent(tag, key -> meterRegistry.counter("rate_limit.violations",
+                    "authenticated", String.valueOf(isAuthenticated),
+                    "endpoint", key
+            ));
+        }
+        counter.increment();
 
         log.warn("Rate limit exceeded - authenticated: {}, endpoint: {}", isAuthenticated, endpoint);
     }
@@ -38,20 +116,167 @@ public class MetricsService {
      * Record document upload
      */
     public void recordDocumentUpload(String fileType, long sizeBytes) {
-        meterRegistry.counter("documents.uploaded",
-                "type", fileType
-        ).increment();
-
-        meterRegistry.summary("documents.size_bytes",
-                "type", fileType
-        ).record(sizeBytes);
+        DocumentMeters meters = documentMeters(fileType);
+        meters.uploaded().increment();
+        meters.sizeBytes().record(sizeBytes);
     }
 
     /**
      * Record RAG query
      */
     public void recordRagQuery(int contextChunks) {
-        meterRegistry.counter("rag.queries").increment();
-        meterRegistry.summary("rag.context_chunks").record(contextChunks);
+        ragQueries.increment();
+        ragContextChunks.record(contextChunks);
+    }
+
+    /**
+     * Record the start of a document ingestion
+     */
+    public void recordIngestionStarted() {
+        ingestionsInFlight.incrementAndGet();
+    }
+
+    /**
+     * Record the end of a document ingestion, successful or not
+     */
+    public void recordIngestionFinished() {
+        ingestionsInFlight.decrementAndGet();
+    }
+
+    /**
+     * Record pages and characters extracted from a document
+     */
+    public void recordDocumentParsed(String fileType, int pages, long characters) {
+        DocumentMeters meters = documentMeters(fileType);
+        if (pages > 0) {
+            meters.pages().increment(pages);
+        }
+        meters.characters().increment(characters);
+    }
+
+    /**
+     * Record one chunk produced from a document
+     */
+    public void recordChunk(String fileType, int characters) {
+        DocumentMeters meters = documentMeters(fileType);
+        meters.chunks().increment();
+        meters.chunkSize().record(characters);
+    }
+
+    /**
+     * Record embeddings generated for a document
+     */
+    public void recordEmbeddings(String fileType, int count) {
+        documentMeters(fileType).embeddings().increment(count);
+    }
+
+    /**
+     * Record an embedding batch sent to the model
+     *
+     * @param lane      Batcher lane (interactive or ingestion)
+     * @param size      Texts in the batch
+     * @param waitNanos How long the oldest text waited for the batch
+     */
+    public void recordEmbeddingBatch(String lane, int size, long waitNanos) {
+        EmbeddingBatchMeters meters = embeddingBatchMeters(lane);
+        meters.size().record(size);
+        meters.waitTime().record(waitNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Record how long one embedding request was queued before its batch was sent
+     *
+     * @param lane      Priority class of the request
+     * @param waitNanos Time from submission to the model call
+     */
+    public void recordEmbeddingQueueWait(String lane, long waitNanos) {
+        embeddingBatchMeters(lane).queueWait().record(waitNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Register the queue depth gauge of an embedding batcher lane
+     *
+     * @param lane  Priority class of the lane
+     * @param depth Requests currently queued in the lane
+     */
+    public void registerEmbeddingQueue(String lane, AtomicInteger depth) {
+        Gauge.builder("embedding.queue.depth", depth, AtomicInteger::get)
+                .description("Embedding requests queued for a model call")
+                .tag("lane", lane)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Record the end of the startup model warm-up (once per process)
+     *
+     * @param timeToReady Time from JVM start until the application was ready
+     * @param warmup      Time the warm-up itself took
+     */
+    public void recordModelReady(Duration timeToReady, Duration warmup) {
+        TimeGauge.builder("model.warmup.time_to_ready", timeToReady::toMillis, TimeUnit.MILLISECONDS)
+                .description("Time from JVM start until the model was warmed up and the application ready")
+                .register(meterRegistry);
+        TimeGauge.builder("model.warmup.duration", warmup::toMillis, TimeUnit.MILLISECONDS)
+                .description("Time the startup warm-up of the model took")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Record a failed ingestion and the stage it failed in
+     * (rare, so the counter is looked up per call)
+     */
+    public void recordIngestionFailure(String fileType, String stage, Throwable cause) {
+        meterRegistry.counter("ingestion.failures",
+                "type", fileType,
+                "stage", stage,
+                "exception", cause.getClass().getSimpleName()
+        ).increment();
+    }
+
+    private EmbeddingBatchMeters embeddingBatchMeters(String lane) {
+        EmbeddingBatchMeters meters = embeddingBatchMeters.get(lane);
+        if (meters == null) {
+            meters = embeddingBatchMeters.computeIfAbsent(lane, key -> new EmbeddingBatchMeters(
+                    DistributionSummary.builder("embedding.batch.size")
+                            .description("Texts per embedding model call")
+                            .tag("lane", key)
+                            .register(meterRegistry),
+                    Timer.builder("embedding.batch.wait")
+                            .description("Time the oldest text of a batch waited before the model call")
+                            .tag("lane", key)
+                            .register(meterRegistry),
+                    Timer.builder("embedding.queue.wait")
+                            .description("Time an embedding request was queued before its model call")
+                            .tag("lane", key)
+                            .register(meterRegistry)
+            ));
+        }
+        return meters;
+    }
+
+    private Counter rateLimitAllowedCounter(boolean isAuthenticated) {
+        return meterRegistry.counter("rate_limit.requests",
+                "status", "allowed",
+                "authenticated", String.valueOf(isAuthenticated)
+        );
+    }
+
+    /**
+     * Meters for a content type (only validated types reach here, so the map stays small)
+     */
+    private DocumentMeters documentMeters(String fileType) {
+        DocumentMeters meters = documentMeters.get(fileType);
+        if (meters != null) {
+            return meters;
+        }
+        return documentMeters.computeIfAbsent(fileType, type -> new DocumentMeters(
+                meterRegistry.counter("documents.uploaded", "type", type),
+                meterRegistry.summary("documents.size_bytes", "type", type),
+                meterRegistry.counter("ingestion.pages", "type", type),
+                meterRegistry.counter("ingestion.characters", "type", type),
+                meterRegistry.counter("ingestion.chunks", "type", type),
+                meterRegistry.summary("ingestion.chunk_size_chars", "type", type),
+                meterRegistry.counter("ingestion.embeddings", "type", type)
+        ));
     }
 }
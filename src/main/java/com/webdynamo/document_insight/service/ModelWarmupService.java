@@ -0,0 +1,138 @@
+package com.webdynamo.document_insight.service;
+
+import com.webdynamo.document_insight.service.EmbeddingService.Priority;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Warms the embedding model and prompt building up once the application has started.
+ * The first embedding after a deploy pays for session creation, native allocations and
+ * JIT compilation; running synthetic work first moves that cost off the first user.
+ * Until it has finished the modelWarmup health indicator keeps the readiness probe down.
+ *
+ * A failed attempt (e.g. the model server is not up yet) is retried after a delay.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ModelWarmupService {
+
+    /**
+     * Progress of the warm-up
+     */
+    public enum State {
+        WARMING,
+        READY,
+        DISABLED
+    }
+
+    private static final String QUERY = "What are the main findings of the quarterly report?";
+
+    private static final String CHUNK = "The quarterly report covers revenue, operating costs and the outlook "
+            + "for the next period. Revenue grew in every region, while operating costs stayed flat. ";
+
+    private final EmbeddingService embeddingService;
+    private final MetricsService metricsService;
+
+    @Value("${application.warmup.enabled:true}")
+    private boolean enabled;
+
+    // Synthetic queries embedded (and prompts built) before the application reports ready
+    @Value("${application.warmup.iterations:20}")
+    private int iterations;
+
+    @Value("${application.warmup.retry-delay:PT10S}")
+    private Duration retryDelay;
+
+    private volatile State state = State.WARMING;
+    private volatile String lastError;
+    private volatile Duration timeToReady;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            state = State.DISABLED;
+            log.info("Model warm-up disabled");
+            return;
+        }
+        Thread.ofPlatform().name("model-warmup").daemon(true).start(this::warmUpUntilReady);
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * Error of the last failed attempt, null if none failed
+     */
+    public String getLastError() {
+        return lastError;
+    }
+
+    /**
+     * Time from JVM start until warm-up finished, null until then
+     */
+    public Duration getTimeToReady() {
+        return timeToReady;
+    }
+
+    private void warmUpUntilReady() {
+        while (!warmUp()) {
+            try {
+                Thread.sleep(retryDelay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * One warm-up attempt
+     *
+     * @return true once the model answered every synthetic request
+     */
+    boolean warmUp() {
+        long start = System.nanoTime();
+        try {
+            List<Map<String, Object>> searchResults = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                searchResults.add(Map.of("content", CHUNK.repeat(4), "filename", "warmup-" + i + ".pdf"));
+            }
+
+            // Ingestion path: one batched call of chunk-sized texts
+            embeddingService.generateEmbeddings(List.of(CHUNK, CHUNK.repeat(2), CHUNK.repeat(4)));
+
+            // Query path: single embeddings through the interactive lane, plus both prompt builders
+            for (int i = 0; i < iterations; i++) {
+                embeddingService.generateEmbedding(QUERY + " " + i, Priority.INTERACTIVE);
+                RAGQueryService.buildPrompt(QUERY, RAGQueryService.buildContext(searchResults));
+                RAGQueryService.buildUserPrompt(QUERY, searchResults);
+            }
+        } catch (RuntimeException e) {
+            lastError = e.getMessage();
+            log.warn("Model warm-up failed, retrying in {}: {}", retryDelay, e.getMessage());
+            return false;
+        }
+
+        Duration warmup = Duration.ofNanos(System.nanoTime() - start);
+        timeToReady = Duration.ofMillis(ManagementFactory.getRuntimeMXBean().getUptime());
+        lastError = null;
+        state = State.READY;
+
+        metricsService.recordModelReady(timeToReady, warmup);
+        log.info("Model warm-up done in {} ms ({} iterations), ready {} ms after JVM start",
+                warmup.toMillis(), iterations, timeToReady.toMillis());
+        return true;
+    }
+}
@@ -3,6 +3,8 @@ package com.webdynamo.document_insight.service;
 import com.webdynamo.document_insight.dto.RAGResponse;
 import com.webdynamo.document_insight.model.DocumentChunk;
 import com.webdynamo.document_insight.model.User;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
 import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
@@ -10,14 +12,21 @@ import jakarta.validation.constraints.Size;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.metadata.Usage;
 import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
 import org.springframework.ai.chat.prompt.Prompt;
 import org.springframework.ai.chat.prompt.PromptTemplate;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
 import reactor.core.publisher.Flux;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Service
@@ -29,11 +38,22 @@ public class RAGQueryService {
     private final ChatClient.Builder chatClientBuilder;
     private final ChatModel chatModel;
     private final MetricsService metricsService;
+    private final RateLimitService rateLimitService;
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private final ObservationRegistry observationRegistry;
+
+    // Tag of the RAG latency timers (ollama locally, groq in production)
+    @Value("${application.ai.provider:ollama}")
+    private String provider;
 
     /**
      * Answer a question using RAG (Retrieval-Augmented Generation)
      */
     public String answerQuestion(String question, int contextChunks) {
+        return query(() -> doAnswerQuestion(question, contextChunks));
+    }
+
+    private String doAnswerQuestion(String question, int contextChunks) {
         log.info("Answering question: {}", question);
 
         // Step 1: Retrieve relevant chunks using vector search
@@ -46,19 +66,13 @@ public class RAGQueryService {
             return "I couldn't find any relevant information to answer your question.";
         }
 
-        // Step 2: Build context from search results
-        String context = buildContext(searchResults);
+        // Step 2 + 3: Build context from search results and create prompt with context and question
+        String promptText = stage(RagObservations.STAGE_CONTEXT)
+                .observe(() -> buildPrompt(question, buildContext(searchResults)));
         log.debug("Built context from {} chunks", searchResults.size());
 
-        // Step 3: Create prompt with context and question
-        String promptText = buildPrompt(question, context);
-
         // Step 4: Generate answer using Ollama
-        ChatClient chatClient = chatClientBuilder.build();
-        String answer = chatClient.prompt()
-                .user(promptText)
-                .call()
-                .content();
+        String answer = callChatClient(promptText);
 
         log.info("Generated answer of length: {}", answer.length());
         return answer;
@@ -68,6 +82,10 @@ public class RAGQueryService {
      * Answer question within a specific document
      */
     public String answerQuestionInDocument(Long documentId, String question, int contextChunks) {
+        return query(() -> doAnswerQuestionInDocument(documentId, question, contextChunks));
+    }
+
+    private String doAnswerQuestionInDocument(Long documentId, String question, int contextChunks) {
         log.info("Answering question in document {}: {}", documentId, question);
 
         // Search only in specific document
@@ -81,14 +99,38 @@ public class RAGQueryService {
             return "I couldn't find any relevant information in this document to answer your question.";
         }
 
-        String context = buildContext(searchResults);
-        String promptText = buildPrompt(question, context);
+        String promptText = stage(RagObservations.STAGE_CONTEXT)
+                .observe(() -> buildPrompt(question, buildContext(searchResults)));
 
+        return callChatClient(promptText);
+    }
+
+    /**
+     * Generate an answer through the chat client (timed as the llm stage)
+     */
+    private String callChatClient(String promptText) {
         ChatClient chatClient = chatClientBuilder.build();
-        String answer = chatClient.prompt()
-                .user(promptText)
-                .call()
-                .content();
+        ChatResponse response = stage(RagObservations.STAGE_LLM)
+                .observe(() -> chatClient.prompt()
+                        .user(promptText)
+                        .call()
+                        .chatResponse());
+        return answerOf(response, promptText);
+    }
+
+    /**
+     * Extract the answer and report the tokens the call used to the RAG rate limit.
+     * Falls back to an estimate from the text length when the model reports no usage.
+     */
+    private String answerOf(ChatResponse response, String promptText) {
+        String answer = response.getResult().getOutput().getContent();
+
+        Usage usage = response.getMetadata().getUsage();
+        Long totalTokens = usage != null ? usage.getTotalTokens() : null;
+        long tokensUsed = totalTokens != null && totalTokens > 0
+                ? totalTokens
+                : rateLimitService.estimateTokens(promptText.length() + answer.length());
+        rateLimitService.reportRagTokenUsage(tokensUsed);
 
         return answer;
     }
@@ -96,7 +138,7 @@ public class RAGQueryService {
     /**
      * Build context string from search results
      */
-    private String buildContext(List<Map<String, Object>> searchResults) {
+    static String buildContext(List<Map<String, Object>> searchResults) {
         StringBuilder context = new StringBuilder();
 
         for (int i = 0; i < searchResults.size(); i++) {
@@ -114,7 +156,7 @@ public class RAGQueryService {
     /**
      * Build prompt template for RAG
      */
-    private String buildPrompt(String question, String context) {
+    static String buildPrompt(String question, String context) {
         String template = """
             You are a helpful AI assistant that answers questions based on the provided context.
             Use ONLY the information from the context below to answer the question.
@@ -143,6 +185,10 @@ public class RAGQueryService {
      * Answer question using only user's documents
      */
     public RAGResponse answerQuestionForUser(String question, Long userId, int contextChunks) {
+        return query(() -> doAnswerQuestionForUser(question, userId, contextChunks));
+    }
+
+    private RAGResponse doAnswerQuestionForUser(String question, Long userId, int contextChunks) {
         log.info("RAG Query for user {}: {}", userId, question);
 
         // Search only user's documents
@@ -164,13 +210,31 @@ public class RAGQueryService {
                 ))
                 .toList();
 
-        // Build context from chunks
+        // Build context from chunks and prompt
+        String prompt = stage(RagObservations.STAGE_CONTEXT)
+                .observe(() -> buildUserPrompt(question, relevantChunks));
+
+        // Generate answer
+        ChatResponse response = stage(RagObservations.STAGE_LLM)
+                .observe(() -> chatModel.call(new Prompt(prompt)));
+        String answer = answerOf(response, prompt);
+
+        // Track metrics
+        metricsService.recordRagQuery(relevantChunks.size());
+
+        // RETURN BOTH ANSWER AND SOURCES
+        return new RAGResponse(answer, sources);
+    }
+
+    /**
+     * Build the prompt for a question over the user's documents
+     */
+    static String buildUserPrompt(String question, List<Map<String, Object>> relevantChunks) {
         String context = relevantChunks.stream()
                 .map(chunk -> (String) chunk.get("content"))
                 .collect(Collectors.joining("\n\n"));
 
-        // Build prompt
-        String prompt = String.format("""
+        return String.format("""
             You are a helpful AI assistant. Answer the question based ONLY on the provided context.
             
             Context:
@@ -180,46 +244,107 @@ public class RAGQueryService {
             
             Answer:
             """, context, question);
-
-        // Generate answer
-        String answer = chatModel.call(prompt);
-
-        // Track metrics
-        metricsService.recordRagQuery(relevantChunks.size());
-
-        // RETURN BOTH ANSWER AND SOURCES
-        return new RAGResponse(answer, sources);
     }
 
+    /**
+     * Answer a question within a specific document, streaming the answer as it is generated
+     */
     public Flux<String> generateAnswerStream(String query, Long documentId, User user) {
         log.info("Streaming RAG answer for user {} on document {}", user.getId(), documentId);
 
-        // Step 1: Search for relevant chunks in the document
-        List<Map<String, Object>> searchResults = vectorSearchService.searchInDocument(
-                documentId,
-                query,
-                7  // Get 7 context chunks
-        );
+        // The request observation stays open until the stream terminates
+        Observation observation = RagObservations.query(observationRegistry, provider, RagObservations.MODE_STREAM)
+                .start();
+        // Captured here: the stream fails on another thread
+        RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+
+        Observation.Scope scope = observation.openScope();
+        try {
+            // Step 1: Search for relevant chunks in the document
+            List<Map<String, Object>> searchResults = vectorSearchService.searchInDocument(
+                    documentId,
+                    query,
+                    7  // Get 7 context chunks
+            );
 
-        if (searchResults.isEmpty()) {
-            return Flux.just("I couldn't find relevant information in this document.");
+            if (searchResults.isEmpty()) {
+                observation.stop();
+                return Flux.just("I couldn't find relevant information in this document.");
+            }
+
+            // Step 2: Track metrics
+            metricsService.recordRagQuery(searchResults.size());
+
+            // Step 3 + 4: Build context and prompt
+            String promptText = stage(RagObservations.STAGE_CONTEXT)
+                    .observe(() -> buildPrompt(query, buildContext(searchResults)));
+
+            // Step 5: Stream response from Ollama
+            ChatClient chatClient = chatClientBuilder.build();
+
+            Flux<String> content = chatClient.prompt()
+                    .user(promptText)
+                    .stream()
+                    .content();  // Returns Flux<String>
+            return observeStream(content, observation)
+                    .doOnError(e -> concurrencyLimiter.reportFailure(requestAttributes));
+
+        } catch (RuntimeException e) {
+            observation.error(e);
+            observation.stop();
+            concurrencyLimiter.reportFailure();
+            throw e;
+        } finally {
+            scope.close();
         }
+    }
 
-        // Step 2: Track metrics
-        metricsService.recordRagQuery(searchResults.size());
-
-        // Step 3: Build context
-        String context = buildContext(searchResults);
-
-        // Step 4: Build prompt
-        String promptText = buildPrompt(query, context);
+    /**
+     * Time a streamed answer: time to first token, total generation time,
+     * and the end of the whole request once the stream terminates
+     */
+    private Flux<String> observeStream(Flux<String> content, Observation request) {
+        return Flux.defer(() -> {
+            Observation llm = RagObservations.stage(observationRegistry, RagObservations.STAGE_LLM,
+                    provider, RagObservations.MODE_STREAM).parentObservation(request).start();
+            Observation firstToken = RagObservations.stage(observationRegistry, RagObservations.STAGE_LLM_FIRST_TOKEN,
+                    provider, RagObservations.MODE_STREAM).parentObservation(request).start();
+            AtomicBoolean waitingForFirstToken = new AtomicBoolean(true);
+
+            return content
+                    .doOnNext(token -> {
+                        if (waitingForFirstToken.compareAndSet(true, false)) {
+                            firstToken.stop();
+                        }
+                    })
+                    .doOnError(e -> {
+                        llm.error(e);
+                        request.error(e);
+                    })
+                    .doFinally(signal -> {
+                        if (waitingForFirstToken.compareAndSet(true, false)) {
+                            firstToken.stop();
+                        }
+                        llm.stop();
+                        request.stop();
+                    });
+        });
+    }
 
-        // Step 5: Stream response from Ollama
-        ChatClient chatClient = chatClientBuilder.build();
+    /**
+     * Run a synchronous RAG query (timed as rag.query). A failure is reported to the
+     * concurrency limiter, since the controllers turn it into a 400.
+     */
+    private <T> T query(Supplier<T> work) {
+        try {
+            return RagObservations.query(observationRegistry, provider, RagObservations.MODE_SYNC).observe(work);
+        } catch (RuntimeException e) {
+            concurrencyLimiter.reportFailure();
+            throw e;
+        }
+    }
 
-        return chatClient.prompt()
-                .user(promptText)
-                .stream()
-                .content();  // Returns Flux<String>
+    private Observation stage(String stage) {
+        return RagObservations.stage(observationRegistry, stage, provider, RagObservations.MODE_SYNC);
     }
 }
@@ -0,0 +1,71 @@
+package com.webdynamo.document_insight.service;
+
+import io.micrometer.common.KeyValue;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+
+import java.util.Objects;
+
+/**
+ * Names and tags of the RAG latency observations.
+ * Each observation becomes a timer (rag_query_seconds / rag_stage_seconds, percentile histograms
+ * enabled in application.yaml) and, with tracing enabled, a span.
+ * Every observation carries the same tag keys so Prometheus sees one consistent series per name.
+ */
+final class RagObservations {
+
+    // Whole RAG request, parent of the stages below
+    static final String QUERY = "rag.query";
+    static final String STAGE = "rag.stage";
+
+    static final String STAGE_EMBED = "embed";
+    static final String STAGE_SEARCH = "search";
+    static final String STAGE_CONTEXT = "context";
+    static final String STAGE_LLM = "llm";
+    static final String STAGE_LLM_FIRST_TOKEN = "llm_first_token";
+    static final String STAGE_PERSIST = "persist";
+
+    // Blocking answer, streamed answer, or plain similarity search outside a RAG request
+    static final String MODE_SYNC = "sync";
+    static final String MODE_STREAM = "stream";
+    static final String MODE_SEARCH = "search";
+
+    private static final String TAG_STAGE = "stage";
+    private static final String TAG_PROVIDER = "provider";
+    private static final String TAG_MODE = "mode";
+
+    private RagObservations() {
+    }
+
+    /**
+     * Observation of a whole RAG request
+     */
+    static Observation query(ObservationRegistry registry, String provider, String mode) {
+        return Observation.createNotStarted(QUERY, registry)
+                .lowCardinalityKeyValue(TAG_STAGE, "total")
+                .lowCardinalityKeyValue(TAG_PROVIDER, Objects.requireNonNullElse(provider, "unknown"))
+                .lowCardinalityKeyValue(TAG_MODE, mode);
+    }
+
+    /**
+     * Observation of one stage. The mode is taken from the enclosing RAG request when
+     * there is one, so shared code such as vector search is attributed to the right mode.
+     *
+     * @param defaultMode Mode used when the stage runs outside a RAG request
+     */
+    static Observation stage(ObservationRegistry registry, String stage, String provider, String defaultMode) {
+        return Observation.createNotStarted(STAGE, registry)
+                .lowCardinalityKeyValue(TAG_STAGE, stage)
+                .lowCardinalityKeyValue(TAG_PROVIDER, Objects.requireNonNullElse(provider, "unknown"))
+                .lowCardinalityKeyValue(TAG_MODE, currentMode(registry, defaultMode));
+    }
+
+    private static String currentMode(ObservationRegistry registry, String defaultMode) {
+        Observation current = registry.getCurrentObservation();
+        if (current == null) {
+            return defaultMode;
+        }
+        KeyValue mode = current.getContextView().getLowCardinalityKeyValue(TAG_MODE);
+        return mode != null ? mode.getValue() : defaultMode;
+    }
+}
@@ -1,21 +1,39 @@
 package com.webdynamo.document_insight.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.webdynamo.document_insight.model.BucketType;
 import io.github.bucket4j.Bandwidth;
 import io.github.bucket4j.Bucket;
+import io.github.bucket4j.BucketConfiguration;
 import io.github.bucket4j.Refill;
+import io.github.bucket4j.distributed.proxy.ProxyManager;
+import io.github.bucket4j.distributed.proxy.optimization.DelayParameters;
+import io.github.bucket4j.distributed.proxy.optimization.Optimization;
+import io.github.bucket4j.distributed.proxy.optimization.Optimizations;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
 
 import java.time.Duration;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 @Service
+@RequiredArgsConstructor
 @Slf4j
 public class RateLimitService {
 
+    // Request attribute carrying the LLM tokens a RAG request actually used
+    public static final String RAG_TOKEN_USAGE_ATTRIBUTE = RateLimitService.class.getName() + ".ragTokenUsage";
+
+    private final MeterRegistry meterRegistry;
+
     @Value("${rate-limit.authenticated.capacity}")
     private int authenticatedCapacity;
 
@@ -52,49 +70,127 @@ public class RateLimitService {
     @Value("${rate-limit.rag.unauthenticated.refill-duration}")
     private Duration ragUnauthRefillDuration;
 
-    // Store buckets per user (in-memory)
-    private final Map<String, Bucket> bucketCache = new ConcurrentHashMap<>();
+    // RAG buckets are charged in LLM tokens. Capacities above count "standard" queries of this many tokens
+    @Value("${rate-limit.rag.cost.reference-tokens:2000}")
+    private long ragReferenceTokens;
+
+    // When disabled every RAG request is charged as one standard query
+    @Value("${rate-limit.rag.cost.enabled:true}")
+    private boolean ragCostEnabled;
+
+    @Value("${rate-limit.rag.cost.tokens-per-chunk:500}")
+    private long ragTokensPerChunk;
+
+    @Value("${rate-limit.rag.cost.prompt-overhead-tokens:100}")
+    private long ragPromptOverheadTokens;
+
+    @Value("${rate-limit.rag.cost.answer-tokens:500}")
+    private long ragAnswerTokens;
+
+    @Value("${rate-limit.rag.cost.chars-per-token:4}")
+    private int charsPerToken;
+
+    // Upper bound on buckets kept per store
+    @Value("${rate-limit.store.max-size:100000}")
+    private long storeMaxSize;
+
+    // Buckets untouched this long are dropped (never before they would have refilled completely)
+    @Value("${rate-limit.store.idle-expiry:PT10M}")
+    private Duration storeIdleExpiry;
+
+    // Shared PostgreSQL bucket state (rate-limit.mode=postgres); null keeps buckets in memory
+    @Autowired(required = false)
+    private ProxyManager<String> proxyManager;
+
+    // Distributed buckets consume locally and sync with the database once either threshold is reached,
+    // so most requests need no round trip (a node may overshoot by at most this many tokens)
+    @Value("${rate-limit.distributed.max-unsynchronized-tokens:5}")
+    private long maxUnsynchronizedTokens;
+
+    @Value("${rate-limit.distributed.max-unsynchronized-timeout:PT0.5S}")
+    private Duration maxUnsynchronizedTimeout;
+
+    // One bounded, idle-expiring store per bucket type, keyed by user id or client IP
+    // as they come off the request, so resolving a bucket builds no key strings
+    private Cache<Long, Bucket> userBuckets;
+    private Cache<String, Bucket> ipBuckets;
+    private Cache<Long, Bucket> ragUserBuckets;
+    private Cache<String, Bucket> ragIpBuckets;
+
+    @PostConstruct
+    public void init() {
+        log.info("Rate limit buckets kept {}", proxyManager == null ? "in memory" : "in PostgreSQL");
+
+        userBuckets = createStore("general", "user",
+                authenticatedCapacity, authenticatedRefillTokens, authenticatedRefillDuration);
+        ipBuckets = createStore("general", "ip",
+                unauthenticatedCapacity, unauthenticatedRefillTokens, unauthenticatedRefillDuration);
+        ragUserBuckets = createStore("rag", "user",
+                ragAuthCapacity * ragReferenceTokens, ragAuthRefillTokens * ragReferenceTokens, ragAuthRefillDuration);
+        ragIpBuckets = createStore("rag", "ip",
+                ragUnauthCapacity * ragReferenceTokens, ragUnauthRefillTokens * ragReferenceTokens, ragUnauthRefillDuration);
+    }
 
     /**
      * Get or create bucket for authenticated user
      */
     public Bucket resolveBucket(Long userId) {
-        String key = "user_" + userId;
-        return bucketCache.computeIfAbsent(key, k -> createAuthenticatedBucket());
+        return userBuckets.get(userId, k -> createAuthenticatedBucket("general:user:" + k));
     }
 
     /**
      * Get or create bucket for unauthenticated request (by IP)
      */
     public Bucket resolveBucket(String ipAddress) {
-        String key = "ip_" + ipAddress;
-        return bucketCache.computeIfAbsent(key, k -> createUnauthenticatedBucket());
+        return ipBuckets.get(ipAddress, k -> createUnauthenticatedBucket("general:ip:" + k));
     }
 
     /**
      * Create bucket for authenticated users
      */
-    private Bucket createAuthenticatedBucket() {
+    private Bucket createAuthenticatedBucket(String key) {
         Bandwidth limit = Bandwidth.classic(
                 authenticatedCapacity,
                 Refill.intervally(authenticatedRefillTokens, authenticatedRefillDuration)
         );
-        return Bucket.builder()
-                .addLimit(limit)
-                .build();
+        return createBucket(key, limit);
     }
 
     /**
      * Create bucket for unauthenticated users
      */
-    private Bucket createUnauthenticatedBucket() {
+    private Bucket createUnauthenticatedBucket(String key) {
         Bandwidth limit = Bandwidth.classic(
                 unauthenticatedCapacity,
                 Refill.intervally(unauthenticatedRefillTokens, unauthenticatedRefillDuration)
         );
-        return Bucket.builder()
+        return createBucket(key, limit);
+    }
+
+    /**
+     * Create an in-memory bucket, or a proxy to the shared PostgreSQL bucket in distributed mode.
+     * The proxy is cached in the stores below and reused, which keeps its locally
+     * pre-fetched tokens between requests.
+     *
+     * @param key   Key of the shared bucket (only used in distributed mode)
+     * @param limit Bucket limit
+     */
+    private Bucket createBucket(String key, Bandwidth limit) {
+        if (proxyManager == null) {
+            return Bucket.builder()
+                    .addLimit(limit)
+                    .build();
+        }
+
+        BucketConfiguration configuration = BucketConfiguration.builder()
                 .addLimit(limit)
                 .build();
+        Optimization delaying = Optimizations.delaying(
+                new DelayParameters(maxUnsynchronizedTokens, maxUnsynchronizedTimeout));
+
+        return proxyManager.builder()
+                .withOptimization(delaying)
+                .build(key, () -> configuration);
     }
 
     /**
@@ -132,37 +228,103 @@ public class RateLimitService {
     }
 
     /**
-     * Get or create RAG bucket for authenticated user
+     * Get or create RAG bucket for authenticated user (measured in LLM tokens)
      */
-    public Bucket getRAGBucket(String userId) {
-        String key = "rag:" + userId;
-        return bucketCache.computeIfAbsent(key, k -> {
+    public Bucket getRAGBucket(Long userId) {
+        return ragUserBuckets.get(userId, k -> {
             Bandwidth limit = Bandwidth.classic(
-                    ragAuthCapacity,
-                    Refill.intervally(ragAuthRefillTokens, ragAuthRefillDuration)
+                    ragAuthCapacity * ragReferenceTokens,
+                    Refill.intervally(ragAuthRefillTokens * ragReferenceTokens, ragAuthRefillDuration)
             );
-            return Bucket.builder()
-                    .addLimit(limit)
-                    .build();
+            return createBucket("rag:user:" + k, limit);
         });
     }
 
     /**
-     * Get or create RAG bucket for unauthenticated request
+     * Get or create RAG bucket for unauthenticated request (measured in LLM tokens)
      */
     public Bucket getUnauthenticatedRAGBucket(String ip) {
-        String key = "rag:unauth:" + ip;
-        return bucketCache.computeIfAbsent(key, k -> {
+        return ragIpBuckets.get(ip, k -> {
             Bandwidth limit = Bandwidth.classic(
-                    ragUnauthCapacity,  // 5 RAG queries per minute
-                    Refill.intervally(ragUnauthRefillTokens, ragUnauthRefillDuration)
+                    ragUnauthCapacity * ragReferenceTokens,  // 5 standard RAG queries per minute
+                    Refill.intervally(ragUnauthRefillTokens * ragReferenceTokens, ragUnauthRefillDuration)
             );
-            return Bucket.builder()
-                    .addLimit(limit)
-                    .build();
+            return createBucket("rag:ip:" + k, limit);
         });
     }
 
+    /**
+     * Estimate the LLM tokens a RAG request will use, reserved before it runs:
+     * prompt tokens for the retrieved chunks and the question, plus the expected answer.
+     * Never more than the bucket can hold, so a large request can always run eventually.
+     *
+     * @param contextChunks   Number of chunks retrieved into the prompt
+     * @param questionChars   Length of the question in characters
+     * @param isAuthenticated Whether the request is charged to a user bucket
+     * @return Tokens to reserve
+     */
+    public long estimateRagCost(int contextChunks, long questionChars, boolean isAuthenticated) {
+        if (!ragCostEnabled) {
+            return ragReferenceTokens;
+        }
+
+        long estimate = ragPromptOverheadTokens
+                + contextChunks * ragTokensPerChunk
+                + estimateTokens(questionChars)
+                + ragAnswerTokens;
+        return Math.max(1, Math.min(estimate, getRagCapacity(isAuthenticated)));
+    }
+
+    /**
+     * Settle a RAG reservation against the tokens the model actually used.
+     * Unused tokens are returned to the bucket; extra usage is taken even if it
+     * overdraws the bucket, which then delays the user's next requests.
+     *
+     * @param bucket          Bucket the reservation was taken from
+     * @param reservedTokens  Tokens reserved by {@link #estimateRagCost}
+     * @param actualTokens    Tokens reported by the model, 0 when it was not called
+     * @param isAuthenticated Whether the bucket belongs to a user
+     */
+    public void reconcileRagCost(Bucket bucket, long reservedTokens, long actualTokens, boolean isAuthenticated) {
+        if (!ragCostEnabled) {
+            return;
+        }
+
+        long actual = Math.max(0, Math.min(actualTokens, getRagCapacity(isAuthenticated)));
+        long difference = actual - reservedTokens;
+        if (difference > 0) {
+            bucket.consumeIgnoringRateLimits(difference);
+        } else if (difference < 0) {
+            bucket.addTokens(-difference);
+        }
+    }
+
+    /**
+     * Record the LLM tokens used while handling the current request, for the RAG rate limit
+     * to settle its reservation. Outside a web request this does nothing.
+     */
+    public void reportRagTokenUsage(long tokens) {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return;
+        }
+
+        Long previous = (Long) attributes.getAttribute(RAG_TOKEN_USAGE_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        long total = previous == null ? tokens : previous + tokens;
+        attributes.setAttribute(RAG_TOKEN_USAGE_ATTRIBUTE, total, RequestAttributes.SCOPE_REQUEST);
+    }
+
+    /**
+     * Rough token count of a text of the given length, used when the model reports no usage
+     */
+    public long estimateTokens(long chars) {
+        return (chars + charsPerToken - 1) / charsPerToken;
+    }
+
+    private long getRagCapacity(boolean isAuthenticated) {
+        return (isAuthenticated ? ragAuthCapacity : ragUnauthCapacity) * ragReferenceTokens;
+    }
+
     /**
      * Get retry-after duration in seconds for a given bucket type
      * This is the GENERIC method that all filters will use
@@ -184,4 +346,25 @@ public class RateLimitService {
 
         return duration.getSeconds();
     }
+
+    /**
+     * Create a bucket store and register its size, hit and eviction metrics.
+     * Expiring an idle bucket is only safe once it would have refilled completely,
+     * so the idle expiry is never shorter than that.
+     */
+    private <K> Cache<K, Bucket> createStore(String type, String keyType,
+                                             long capacity, long refillTokens, Duration refillDuration) {
+        long refillPeriods = (capacity + refillTokens - 1) / refillTokens;
+        Duration fullRefill = refillDuration.multipliedBy(refillPeriods);
+        Duration idleExpiry = storeIdleExpiry.compareTo(fullRefill) >= 0 ? storeIdleExpiry : fullRefill;
+
+        Cache<K, Bucket> store = Caffeine.newBuilder()
+                .maximumSize(storeMaxSize)
+                .expireAfterAccess(idleExpiry)
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, store, "rate_limit_buckets", "type", type, "key", keyType);
+        return store;
+    }
 }
@@ -0,0 +1,137 @@
+package com.webdynamo.document_insight.service;
+
+import com.webdynamo.document_insight.config.FileStorageConfig;
+import com.webdynamo.document_insight.repo.DocumentRepository;
+import com.webdynamo.document_insight.storage.BlobStore;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Background garbage collector for the content-addressed file store.
+ * A blob's reference count is the number of documents whose filePath points at it;
+ * blobs with no references that are older than the grace period are deleted.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StorageGarbageCollector {
+
+    // How many blob names are checked against the database per query
+    private static final int BATCH_SIZE = 500;
+
+    private final FileStorageService fileStorageService;
+    private final BlobStore blobStore;
+    private final FileStorageConfig fileStorageConfig;
+    private final DocumentRepository documentRepository;
+
+    /**
+     * Collect unreferenced blobs and stale staging files
+     */
+    @Scheduled(
+            initialDelayString = "${application.file-storage.gc.interval:PT1H}",
+            fixedDelayString = "${application.file-storage.gc.interval:PT1H}"
+    )
+    public void collectGarbage() {
+        if (!fileStorageService.isContentAddressedLayout()) {
+            return;
+        }
+
+        Instant cutoff = Instant.now().minus(fileStorageConfig.getGc().getGracePeriod());
+        log.info("Blob GC started (ignoring files modified after {})", cutoff);
+
+        int staleStaging = deleteStaleStagingFiles(cutoff);
+        int deletedBlobs = deleteUnreferencedBlobs(cutoff);
+
+        log.info("Blob GC finished: {} unreferenced blobs and {} stale staging files deleted",
+                deletedBlobs, staleStaging);
+    }
+
+    /**
+     * List the store and delete blobs that no document references
+     */
+    int deleteUnreferencedBlobs(Instant cutoff) {
+        int deleted = 0;
+
+        List<String> batch = new ArrayList<>(BATCH_SIZE);
+        try (Stream<BlobStore.BlobInfo> blobs = blobStore.list()) {
+            for (BlobStore.BlobInfo blob : (Iterable<BlobStore.BlobInfo>) blobs::iterator) {
+                if (!fileStorageService.isContentAddressedName(blob.key()) || !blob.lastModified().isBefore(cutoff)) {
+                    continue;
+                }
+
+                batch.add(blob.key());
+                if (batch.size() == BATCH_SIZE) {
+                    deleted += deleteIfUnreferenced(batch);
+                    batch.clear();
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            log.error("Blob GC failed while listing the blob store", e);
+        }
+
+        if (!batch.isEmpty()) {
+            deleted += deleteIfUnreferenced(batch);
+        }
+        return deleted;
+    }
+
+    /**
+     * Delete the blobs in a batch that have no referencing document
+     */
+    private int deleteIfUnreferenced(List<String> blobNames) {
+        Set<String> referenced = new HashSet<>(documentRepository.findReferencedFilePaths(blobNames));
+        int deleted = 0;
+
+        for (String blobName : blobNames) {
+            if (referenced.contains(blobName)) {
+                continue;
+            }
+            try {
+                blobStore.delete(blobName);
+                deleted++;
+                log.debug("Deleted unreferenced blob: {}", blobName);
+            } catch (IOException e) {
+                log.warn("Could not delete unreferenced blob: {}", blobName, e);
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * Delete staging files left behind by crashed uploads
+     */
+    private int deleteStaleStagingFiles(Instant cutoff) {
+        int deleted = 0;
+        try (Stream<Path> files = Files.list(fileStorageService.getStagingRoot())) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (isOlderThan(file, cutoff) && Files.deleteIfExists(file)) {
+                    deleted++;
+                }
+            }
+        } catch (IOException | UncheckedIOException e) {
+            log.warn("Could not clean staging directory", e);
+        }
+        return deleted;
+    }
+
+    private boolean isOlderThan(Path file, Instant cutoff) {
+        try {
+            return Files.isRegularFile(file) && Files.getLastModifiedTime(file).toInstant().isBefore(cutoff);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.webdynamo.document_insight.service;
+
+import com.webdynamo.document_insight.config.FileStorageConfig;
+import com.webdynamo.document_insight.model.Document;
+import com.webdynamo.document_insight.repo.DocumentRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Moves files stored in the flat layout (UUID_originalName) into the
+ * content-addressed layout and repoints their documents.
+ * Old and new names resolve through the same blob store, so the app keeps
+ * serving both while the migration runs.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StorageMigrationService implements ApplicationRunner {
+
+    private static final int PAGE_SIZE = 100;
+
+    private final FileStorageService fileStorageService;
+    private final FileStorageConfig fileStorageConfig;
+    private final DocumentRepository documentRepository;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (fileStorageConfig.isMigrateOnStartup() && fileStorageService.isContentAddressedLayout()) {
+            migrateFlatFiles();
+        }
+    }
+
+    /**
+     * Migrate every flat-layout document file
+     *
+     * @return Number of documents migrated
+     */
+    public int migrateFlatFiles() {
+        log.info("Migrating flat-layout files to content-addressed storage");
+
+        int migrated = 0;
+        long lastId = 0;
+        List<Document> page;
+
+        do {
+            page = documentRepository.findFlatStoredAfter(lastId, PageRequest.of(0, PAGE_SIZE));
+
+            for (Document document : page) {
+                lastId = document.getId();
+
+                if (!fileStorageService.exists(document.getFilePath())) {
+                    log.warn("Skipping document {}: file {} is missing", document.getId(), document.getFilePath());
+                    continue;
+                }
+
+                FileStorageService.StoredFile blob = fileStorageService.migrateToContentAddressed(document.getFilePath());
+                document.setFilePath(blob.filename());
+                document.setContentHash(blob.sha256());
+                documentRepository.save(document);
+                migrated++;
+            }
+        } while (page.size() == PAGE_SIZE);
+
+        log.info("Storage migration finished: {} documents migrated", migrated);
+        return migrated;
+    }
+}
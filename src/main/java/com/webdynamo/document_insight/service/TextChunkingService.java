@@ -1,8 +1,16 @@
 package com.webdynamo.document_insight.service;
 
+import com.webdynamo.document_insight.embedding.TextTokenizer;
+import com.webdynamo.document_insight.service.DocumentParserService.Block;
+import com.webdynamo.document_insight.service.DocumentParserService.BlockType;
+import com.webdynamo.document_insight.service.DocumentParserService.ParsedDocument;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.nio.CharBuffer;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -16,64 +24,421 @@ public class TextChunkingService {
     // Overlap between chunks (prevents context loss)
     private static final int CHUNK_OVERLAP = 200;
 
+    // Tokenizer of the embedding model; null chunks by characters
+    private final TextTokenizer tokenizer;
+
+    // Chunk size and overlap in tokens (token mode only)
+    private final int maxTokens;
+    private final int overlapTokens;
+
+    // Pack whole parsed blocks into chunks instead of sliding a window over the text
+    private final boolean structured;
+
+    /**
+     * Chunk by characters
+     */
+    public TextChunkingService() {
+        this(null, 0, 0, false);
+    }
+
+    /**
+     * Chunk by tokens when a tokenizer is configured (application.chunking.mode=tokens), else by characters.
+     * With application.chunking.strategy=structure, documents are chunked along their parsed blocks.
+     */
+    @Autowired
+    public TextChunkingService(
+            ObjectProvider<TextTokenizer> tokenizer,
+            @Value("${application.chunking.max-tokens:256}") int maxTokens,
+            @Value("${application.chunking.overlap-tokens:32}") int overlapTokens,
+            @Value("${application.chunking.strategy:window}") String strategy) {
+        this(tokenizer.getIfAvailable(), maxTokens, overlapTokens, "structure".equals(strategy));
+    }
+
+    TextChunkingService(TextTokenizer tokenizer, int maxTokens, int overlapTokens) {
+        this(tokenizer, maxTokens, overlapTokens, false);
+    }
+
+    TextChunkingService(TextTokenizer tokenizer, int maxTokens, int overlapTokens, boolean structured) {
+        if (tokenizer != null && (maxTokens <= 0 || overlapTokens < 0 || overlapTokens >= maxTokens)) {
+            throw new IllegalArgumentException("Invalid token chunking: max-tokens " + maxTokens
+                    + ", overlap-tokens " + overlapTokens);
+        }
+        this.tokenizer = tokenizer;
+        this.maxTokens = maxTokens;
+        this.overlapTokens = overlapTokens;
+        this.structured = structured;
+    }
+
+    /**
+     * A chunk and its size in tokens, counted while chunking so the chunk is not tokenized again
+     * (estimated like {@link #estimateTokenCount(String)} when chunking by characters)
+     */
+    public record Chunk(String text, int tokenCount) {
+    }
+
+    /**
+     * Split a parsed document into chunks: along its blocks with the structure strategy,
+     * otherwise (or when the parser found no blocks) like {@link #chunkText(String)}
+     */
+    public List<Chunk> chunkDocument(ParsedDocument document) {
+        if (!structured || document.blocks().isEmpty()) {
+            return countedChunks(document.text());
+        }
+
+        BlockPacker packer = new BlockPacker(document.text());
+        for (Block block : document.blocks()) {
+            packer.add(block);
+        }
+        List<Chunk> chunks = packer.finish();
+
+        log.info("Document chunked into {} chunks along {} blocks", chunks.size(), document.blocks().size());
+        return chunks;
+    }
+
+    /**
+     * A chunk as offsets into the chunked text (start inclusive, end exclusive), without copying it
+     */
+    public record ChunkSpan(int start, int end) {
+
+        public int length() {
+            return end - start;
+        }
+
+        /**
+         * The chunk as a read-only view over the source text (no copy)
+         */
+        public CharSequence view(CharSequence source) {
+            return CharBuffer.wrap(source, start, end);
+        }
+
+        /**
+         * The chunk text, copied out of the source
+         */
+        public String text(CharSequence source) {
+            return source.subSequence(start, end).toString();
+        }
+    }
+
     /**
      * Split text into chunks with overlap
      */
     public List<String> chunkText(String text) {
+        List<ChunkSpan> spans = chunkSpans(text);
+        List<String> chunks = new ArrayList<>(spans.size());
+        for (ChunkSpan span : spans) {
+            chunks.add(span.text(text));
+        }
+        return chunks;
+    }
+
+    /**
+     * Split text into chunks with overlap like {@link #chunkText(String)}, as offsets into the text.
+     * Nothing is copied; callers materialize a chunk (ChunkSpan.text) only when they need a String,
+     * e.g. to embed and store it.
+     */
+    public List<ChunkSpan> chunkSpans(CharSequence text) {
+        return spans(text, null);
+    }
+
+    // Chunks of the text with their token counts, as taken from the token windows
+    private List<Chunk> countedChunks(String text) {
+        List<Integer> tokenCounts = tokenizer != null ? new ArrayList<>() : null;
+        List<ChunkSpan> spans = spans(text, tokenCounts);
+
+        List<Chunk> chunks = new ArrayList<>(spans.size());
+        for (int i = 0; i < spans.size(); i++) {
+            String chunk = spans.get(i).text(text);
+            chunks.add(new Chunk(chunk, tokenCounts != null ? tokenCounts.get(i) : estimateTokenCount(chunk)));
+        }
+        return chunks;
+    }
+
+    // Chunk spans of the text; in token mode the token count of each is added to tokenCounts, if given
+    private List<ChunkSpan> spans(CharSequence text, List<Integer> tokenCounts) {
         if (text == null || text.isEmpty()) {
             return List.of();
         }
+        List<ChunkSpan> spans = tokenizer != null
+                ? tokenSpans(text.toString(), maxTokens, tokenCounts)
+                : characterSpans(text, 0, text.length(), CHUNK_SIZE);
+
+        log.info("Text chunked into {} chunks", spans.size());
+        return spans;
+    }
 
-        log.debug("Chunking text of length: {}", text.length());
+    /**
+     * Split text[from, to) into windows of chunkSize characters, overlapping by CHUNK_OVERLAP
+     */
+    private static List<ChunkSpan> characterSpans(CharSequence text, int from, int to, int chunkSize) {
+        log.debug("Chunking text of length: {}", to - from);
 
-        List<String> chunks = new ArrayList<>();
-        int start = 0;
+        List<ChunkSpan> spans = new ArrayList<>((to - from) / (chunkSize - CHUNK_OVERLAP) + 1);
+        int start = from;
 
-        while (start < text.length()) {
+        while (start < to) {
             // Calculate end position
-            int end = Math.min(start + CHUNK_SIZE, text.length());
+            int end = Math.min(start + chunkSize, to);
 
-            // Try to break at sentence boundary (period followed by space)
-            if (end < text.length()) {
-                int lastPeriod = text.lastIndexOf(". ", end);
-                if (lastPeriod > start + CHUNK_SIZE / 2) {
+            // Try to break at sentence boundary (period followed by space) in the second half
+            if (end < to) {
+                int lastPeriod = lastSentenceBreak(text, end, start + chunkSize / 2, to);
+                if (lastPeriod >= 0) {
                     // Found a good break point
                     end = lastPeriod + 1;
                 }
             }
 
-            // Extract chunk
-            String chunk = text.substring(start, end).trim();
+            addTrimmed(spans, text, start, end);
 
-            if (!chunk.isEmpty()) {
-                chunks.add(chunk);
-            }
-
-            // Move to next chunk with overlap
             // If we've reached the end, stop
-            if (end >= text.length()) {
+            if (end >= to) {
                 break;
             }
 
-            start = end - CHUNK_OVERLAP;
-            
-            // Safety: ensure start is always moving forward to avoid infinite loops
-            if (start <= chunks.size() * 0 && start < 0) { // Just a placeholder check
-                 start = end; 
+            // Move to next chunk with overlap, always forward
+            start = Math.max(end - CHUNK_OVERLAP, start + 1);
+        }
+
+        return spans;
+    }
+
+    /**
+     * Index of the last ". " starting at or before from and after floor, or -1.
+     * Only the second half of the window is scanned, not back to the start of the text.
+     */
+    private static int lastSentenceBreak(CharSequence text, int from, int floor, int to) {
+        for (int i = Math.min(from, to - 2); i > floor; i--) {
+            if (text.charAt(i) == '.' && text.charAt(i + 1) == ' ') {
+                return i;
             }
-            
-            // If the next start would be the same or before current start, force forward
-            // (Only happens if CHUNK_OVERLAP >= CHUNK_SIZE, which is impossible here)
         }
+        return -1;
+    }
 
-        log.info("Text chunked into {} chunks", chunks.size());
-        return chunks;
+    /**
+     * Split text into chunks of at most windowTokens tokens, overlapping by overlapTokens.
+     * The text is tokenized once; windows are cut on the token offsets, so no window is
+     * tokenized again and every chunk fits the model without truncation.
+     * The token count of each chunk is added to tokenCounts, if given.
+     */
+    private List<ChunkSpan> tokenSpans(String text, int windowTokens, List<Integer> tokenCounts) {
+        TextTokenizer.TokenSpans tokens = tokenizer.tokenize(text);
+        log.debug("Chunking text of length {} ({} tokens)", text.length(), tokens.size());
+
+        List<ChunkSpan> spans = new ArrayList<>();
+        int first = 0;
+
+        while (first < tokens.size()) {
+            int end = Math.min(first + windowTokens, tokens.size());
+
+            // Try to end the chunk after a sentence, if one ends in the second half of the window
+            if (end < tokens.size()) {
+                for (int last = end - 1; last >= first + windowTokens / 2; last--) {
+                    if (endsSentence(text, tokens, last)) {
+                        end = last + 1;
+                        break;
+                    }
+                }
+            }
+
+            // Chunk text runs from the first to the last token, so whitespace in between is kept
+            if (addTrimmed(spans, text, tokens.start(first), tokens.end(end - 1)) && tokenCounts != null) {
+                tokenCounts.add(end - first);
+            }
+
+            if (end >= tokens.size()) {
+                break;
+            }
+
+            // Always move forward, even if the sentence break made the chunk shorter than the overlap
+            first = Math.max(end - Math.min(overlapTokens, windowTokens / 2), first + 1);
+        }
+
+        return spans;
+    }
+
+    // Add text[start, end) without leading and trailing whitespace (as String.trim), unless nothing is left
+    private static boolean addTrimmed(List<ChunkSpan> spans, CharSequence text, int start, int end) {
+        while (start < end && text.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && text.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        if (end > start) {
+            spans.add(new ChunkSpan(start, end));
+            return true;
+        }
+        return false;
+    }
+
+    // Whether the token is sentence punctuation followed by whitespace (or fullwidth, which needs none)
+    private static boolean endsSentence(String text, TextTokenizer.TokenSpans tokens, int token) {
+        int end = tokens.end(token);
+        if (end == tokens.start(token)) {
+            return false;
+        }
+        char last = text.charAt(end - 1);
+        if (last == '。' || last == '！' || last == '？') {
+            return true;
+        }
+        return (last == '.' || last == '!' || last == '?')
+                && end < text.length() && Character.isWhitespace(text.charAt(end));
     }
 
     /**
-     * Estimate token count (rough approximation: 1 token ≈ 4 characters)
+     * Estimate token count: exact with a tokenizer, otherwise a rough approximation (1 token ≈ 4 characters)
      */
     public int estimateTokenCount(String text) {
+        if (tokenizer != null) {
+            return tokenizer.countTokens(text);
+        }
         return text.length() / 4;
     }
+
+    // Size of text[start, end) in the unit of the chunk budget (tokens, or characters without a tokenizer)
+    private int measure(String text, int start, int end) {
+        return tokenizer != null ? tokenizer.countTokens(text.substring(start, end)) : end - start;
+    }
+
+    /**
+     * Packs whole blocks into chunks of at most the chunk size, each prefixed with the
+     * breadcrumb of the headings it is under ("Guide > Installation > Linux").
+     * Headings start a new chunk, page breaks end a chunk that is at least half full, a block
+     * too large for a chunk of its own is split by the window chunker, and a table split across
+     * chunks repeats its first (header) row. Block text is copied straight from the document
+     * into the chunk being built. In token mode the sizes are token counts, so a chunk's token
+     * count is the sum of its parts.
+     */
+    private final class BlockPacker {
+
+        private final String text;
+        private final int budget;
+        private final List<Chunk> chunks = new ArrayList<>();
+
+        // Headings enclosing the current position, outermost first
+        private final List<Block> headings = new ArrayList<>();
+        private String breadcrumb = "";
+        private int breadcrumbSize;
+
+        private final StringBuilder current = new StringBuilder();
+        private int currentSize;
+
+        // First row of the table being packed (offsets into the text), null outside tables
+        private ChunkSpan tableHeader;
+        private int tableHeaderSize;
+
+        private BlockPacker(String text) {
+            this.text = text;
+            this.budget = tokenizer != null ? maxTokens : CHUNK_SIZE;
+        }
+
+        void add(Block block) {
+            switch (block.type()) {
+                case HEADING -> heading(block);
+                case PAGE_BREAK -> {
+                    if (currentSize >= budget / 2) {
+                        flush();
+                    }
+                }
+                default -> content(block);
+            }
+        }
+
+        List<Chunk> finish() {
+            flush();
+            return chunks;
+        }
+
+        private void heading(Block block) {
+            flush();
+            tableHeader = null;
+            headings.removeIf(enclosing -> enclosing.level() >= block.level());
+            headings.add(block);
+
+            breadcrumb = String.join(" > ", headings.stream()
+                    .map(heading -> text.substring(heading.start(), heading.end()).strip())
+                    .toList());
+            breadcrumbSize = measure(breadcrumb, 0, breadcrumb.length());
+            // Keep most of every chunk for content under deeply nested or very long headings
+            if (breadcrumbSize > budget / 4) {
+                breadcrumb = "";
+                breadcrumbSize = 0;
+            }
+        }
+
+        private void content(Block block) {
+            List<ChunkSpan> trimmed = new ArrayList<>(1);
+            addTrimmed(trimmed, text, block.start(), block.end());
+            if (trimmed.isEmpty()) {
+                return;
+            }
+            ChunkSpan content = trimmed.getFirst();
+            int size = measure(text, content.start(), content.end()) + separatorSize();
+            int available = budget - breadcrumbSize - separatorSize();
+
+            boolean row = block.type() == BlockType.TABLE_ROW;
+            if (!row) {
+                tableHeader = null;
+            }
+
+            if (size > available) {
+                // Too large for any chunk: split it on its own, under the same breadcrumb
+                flush();
+                List<Integer> pieceTokens = new ArrayList<>();
+                List<ChunkSpan> pieces = tokenizer != null
+                        ? shift(tokenSpans(content.text(text), available, pieceTokens), content.start())
+                        : characterSpans(text, content.start(), content.end(), available);
+                for (int i = 0; i < pieces.size(); i++) {
+                    append(pieces.get(i), tokenizer != null ? pieceTokens.get(i) : 0);
+                    flush();
+                }
+                return;
+            }
+
+            if (currentSize + size > available) {
+                flush();
+            }
+            if (row) {
+                if (tableHeader == null) {
+                    tableHeader = content;
+                    tableHeaderSize = size;
+                } else if (currentSize == 0 && tableHeaderSize + size <= available) {
+                    append(tableHeader, tableHeaderSize);
+                }
+            }
+            append(content, size);
+        }
+
+        private void append(ChunkSpan content, int size) {
+            if (!current.isEmpty()) {
+                current.append('\n');
+            }
+            current.append(text, content.start(), content.end());
+            currentSize += size;
+        }
+
+        private void flush() {
+            if (current.isEmpty()) {
+                return;
+            }
+            String chunk = breadcrumb.isEmpty() ? current.toString() : breadcrumb + "\n\n" + current;
+            int tokenCount = tokenizer != null ? breadcrumbSize + currentSize : estimateTokenCount(chunk);
+            chunks.add(new Chunk(chunk, tokenCount));
+            current.setLength(0);
+            currentSize = 0;
+        }
+
+        // Characters of the newlines between blocks and after the breadcrumb; whitespace is no token
+        private int separatorSize() {
+            return tokenizer != null ? 0 : 2;
+        }
+
+        // Spans of a block's own text moved to the block's position in the document
+        private static List<ChunkSpan> shift(List<ChunkSpan> spans, int offset) {
+            return spans.stream()
+                    .map(span -> new ChunkSpan(span.start() + offset, span.end() + offset))
+                    .toList();
+        }
+    }
 }
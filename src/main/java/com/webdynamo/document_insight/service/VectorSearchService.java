@@ -1,8 +1,11 @@
 package com.webdynamo.document_insight.service;
 
 import com.webdynamo.document_insight.repo.DocumentChunkRepository;
+import com.webdynamo.document_insight.service.ActiveEmbeddingModelService.ActiveModel;
+import io.micrometer.observation.ObservationRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
@@ -17,7 +20,13 @@ public class VectorSearchService {
 
     private final JdbcTemplate jdbcTemplate;
     private final EmbeddingService embeddingService;
+    private final ActiveEmbeddingModelService activeEmbeddingModelService;
     private final DocumentChunkRepository documentChunkRepository;
+    private final ObservationRegistry observationRegistry;
+
+    // Tag of the embed and search timers
+    @Value("${application.ai.provider:ollama}")
+    private String provider;
 
     /**
      * Search for similar chunks using vector similarity
@@ -26,10 +35,8 @@ public class VectorSearchService {
         log.info("Searching for similar chunks to: {}", query);
 
         // 1. Generate embedding for the query
-        float[] queryEmbedding = embeddingService.generateEmbedding(query);
-        String queryVector = embeddingService.embeddingToVector(queryEmbedding);
-
-        log.debug("Query embedding dimension: {}", queryEmbedding.length);
+        ActiveModel model = activeEmbeddingModelService.getSearchModel();
+        String queryVector = embedQuery(query, model);
 
         // 2. Use PostgreSQL to find similar vectors
         // Cast TEXT to vector and use cosine distance operator
@@ -41,19 +48,23 @@ public class VectorSearchService {
                 dc.token_count,
                 d.filename,
                 d.id as document_id,
-                1 - (dc.embedding::vector <=> ?::vector) as similarity
+                1 - (dc.embedding::vector(%1$d) <=> ?::vector(%1$d)) as similarity
             FROM document_chunks dc
             JOIN documents d ON dc.document_id = d.id
             WHERE dc.embedding IS NOT NULL
-            ORDER BY dc.embedding::vector <=> ?::vector
+              AND dc.embedding_model = ?
+              AND dc.embedding_dimension = %1$d
+              AND d.deleted_at IS NULL
+            ORDER BY dc.embedding::vector(%1$d) <=> ?::vector(%1$d)
             LIMIT ?
-            """;
+            """.formatted(model.dimension());
 
         // Execute query
-        List<Map<String, Object>> results = jdbcTemplate.queryForList(
+        List<Map<String, Object>> results = search(
                 sql,
                 queryVector,  // First placeholder
-                queryVector,  // Second placeholder (for ORDER BY)
+                model.modelId(),
+                queryVector,  // Second vector placeholder (for ORDER BY)
                 limit
         );
 
@@ -68,8 +79,8 @@ public class VectorSearchService {
         log.info("Searching in document {} for: {}", documentId, query);
 
         // Generate query embedding
-        float[] queryEmbedding = embeddingService.generateEmbedding(query);
-        String queryVector = embeddingService.embeddingToVector(queryEmbedding);
+        ActiveModel model = activeEmbeddingModelService.getSearchModel();
+        String queryVector = embedQuery(query, model);
 
         // Search only in specific document
         String sql = """
@@ -79,19 +90,23 @@ public class VectorSearchService {
                 dc.content,
                 dc.token_count,
                 d.filename,
-                1 - (dc.embedding::vector <=> ?::vector) as similarity
+                1 - (dc.embedding::vector(%1$d) <=> ?::vector(%1$d)) as similarity
             FROM document_chunks dc
             JOIN documents d ON dc.document_id = d.id
             WHERE dc.document_id = ?
+              AND d.deleted_at IS NULL
               AND dc.embedding IS NOT NULL
-            ORDER BY dc.embedding::vector <=> ?::vector
+              AND dc.embedding_model = ?
+              AND dc.embedding_dimension = %1$d
+            ORDER BY dc.embedding::vector(%1$d) <=> ?::vector(%1$d)
             LIMIT ?
-            """;
+            """.formatted(model.dimension());
 
-        List<Map<String, Object>> results = jdbcTemplate.queryForList(
+        List<Map<String, Object>> results = search(
                 sql,
                 queryVector,
                 documentId,
+                model.modelId(),
                 queryVector,
                 limit
         );
@@ -111,20 +126,24 @@ public class VectorSearchService {
         log.info("Paginated search: query='{}', page={}, size={}", query, page, size);
 
         // Generate query embedding
-        float[] queryEmbedding = embeddingService.generateEmbedding(query);
-        String queryVector = embeddingService.embeddingToVector(queryEmbedding);
+        ActiveModel model = activeEmbeddingModelService.getSearchModel();
+        String queryVector = embedQuery(query, model);
 
         // Calculate offset
         int offset = page * size;
 
         // Get total count
         String countSql = """
-        SELECT COUNT(*) 
-        FROM document_chunks 
-        WHERE embedding IS NOT NULL
-        """;
+        SELECT COUNT(*)
+        FROM document_chunks dc
+        JOIN documents d ON dc.document_id = d.id
+        WHERE dc.embedding IS NOT NULL
+          AND dc.embedding_model = ?
+          AND dc.embedding_dimension = %1$d
+          AND d.deleted_at IS NULL
+        """.formatted(model.dimension());
 
-        Integer totalElements = jdbcTemplate.queryForObject(countSql, Integer.class);
+        Integer totalElements = jdbcTemplate.queryForObject(countSql, Integer.class, model.modelId());
 
         // Get paginated results
         String sql = """
@@ -135,17 +154,21 @@ public class VectorSearchService {
             dc.token_count,
             d.filename,
             d.id as document_id,
-            1 - (dc.embedding::vector <=> ?::vector) as similarity
+            1 - (dc.embedding::vector(%1$d) <=> ?::vector(%1$d)) as similarity
         FROM document_chunks dc
         JOIN documents d ON dc.document_id = d.id
         WHERE dc.embedding IS NOT NULL
-        ORDER BY dc.embedding::vector <=> ?::vector
+          AND dc.embedding_model = ?
+          AND dc.embedding_dimension = %1$d
+          AND d.deleted_at IS NULL
+        ORDER BY dc.embedding::vector(%1$d) <=> ?::vector(%1$d)
         LIMIT ? OFFSET ?
-        """;
+        """.formatted(model.dimension());
 
-        List<Map<String, Object>> results = jdbcTemplate.queryForList(
+        List<Map<String, Object>> results = search(
                 sql,
                 queryVector,
+                model.modelId(),
                 queryVector,
                 size,
                 offset
@@ -176,8 +199,8 @@ public class VectorSearchService {
         log.info("Searching similar chunks for user: {} with query: {}", userId, query);
 
         // Generate query embedding
-        float[] queryEmbedding = embeddingService.generateEmbedding(query);
-        String queryVector = embeddingService.embeddingToVector(queryEmbedding);
+        ActiveModel model = activeEmbeddingModelService.getSearchModel();
+        String queryVector = embedQuery(query, model);
 
         // SQL query with userId filter (positional parameters)
         String sql = """
@@ -188,22 +211,26 @@ public class VectorSearchService {
             dc.content,
             dc.token_count,
             d.filename,
-            1 - (dc.embedding::vector <=> ?::vector) as similarity
+            1 - (dc.embedding::vector(%1$d) <=> ?::vector(%1$d)) as similarity
         FROM document_chunks dc
         JOIN documents d ON dc.document_id = d.id
         WHERE d.user_id = ?
+          AND d.deleted_at IS NULL
           AND dc.embedding IS NOT NULL
-        ORDER BY dc.embedding::vector <=> ?::vector
+          AND dc.embedding_model = ?
+          AND dc.embedding_dimension = %1$d
+        ORDER BY dc.embedding::vector(%1$d) <=> ?::vector(%1$d)
         LIMIT ?
-        """;
+        """.formatted(model.dimension());
 
         // Execute with positional parameters
-        List<Map<String, Object>> results = jdbcTemplate.queryForList(
+        List<Map<String, Object>> results = search(
                 sql,
                 queryVector,   // First ?
                 userId,        // Second ?
-                queryVector,   // Third ? (for ORDER BY)
-                limit          // Fourth ?
+                model.modelId(),  // Third ?
+                queryVector,   // Fourth ? (for ORDER BY)
+                limit          // Fifth ?
         );
 
         log.info("Found {} results for user: {}", results.size(), userId);
@@ -223,11 +250,9 @@ public class VectorSearchService {
                 userId, query, page, size);
 
         try {
-            // Generate embedding for query
-            float[] queryEmbedding = embeddingService.generateEmbedding(query);
-
-            // Convert to pgvector format using existing method
-            String queryVector = embeddingService.embeddingToVector(queryEmbedding);
+            // Generate embedding for query (pgvector format)
+            ActiveModel model = activeEmbeddingModelService.getSearchModel();
+            String queryVector = embedQuery(query, model);
 
             // Calculate pagination
             int offset = page * size;
@@ -242,23 +267,27 @@ public class VectorSearchService {
                 dc.token_count,
                 d.filename,
                 d.user_id,
-                1 - (dc.embedding::vector <=> ?::vector) as similarity
+                1 - (dc.embedding::vector(%1$d) <=> ?::vector(%1$d)) as similarity
             FROM document_chunks dc
             JOIN documents d ON dc.document_id = d.id
             WHERE d.user_id = ?
+              AND d.deleted_at IS NULL
               AND dc.embedding IS NOT NULL
-            ORDER BY dc.embedding::vector <=> ?::vector
+              AND dc.embedding_model = ?
+              AND dc.embedding_dimension = %1$d
+            ORDER BY dc.embedding::vector(%1$d) <=> ?::vector(%1$d)
             LIMIT ? OFFSET ?
-            """;
+            """.formatted(model.dimension());
 
             // Execute query (simpler than custom RowMapper)
-            List<Map<String, Object>> results = jdbcTemplate.queryForList(
+            List<Map<String, Object>> results = search(
                     sql,
                     queryVector,  // First ?
                     userId,       // Second ?
-                    queryVector,  // Third ? (ORDER BY)
-                    size,         // Fourth ?
-                    offset        // Fifth ?
+                    model.modelId(),  // Third ?
+                    queryVector,  // Fourth ? (ORDER BY)
+                    size,         // Fifth ?
+                    offset        // Sixth ?
             );
 
             // Get total count for user
@@ -267,10 +296,13 @@ public class VectorSearchService {
             FROM document_chunks dc
             JOIN documents d ON dc.document_id = d.id
             WHERE d.user_id = ?
+              AND d.deleted_at IS NULL
               AND dc.embedding IS NOT NULL
-            """;
+              AND dc.embedding_model = ?
+              AND dc.embedding_dimension = %1$d
+            """.formatted(model.dimension());
 
-            Integer totalElements = jdbcTemplate.queryForObject(countSql, Integer.class, userId);
+            Integer totalElements = jdbcTemplate.queryForObject(countSql, Integer.class, userId, model.modelId());
 
             // Build paginated response
             Map<String, Object> response = new HashMap<>();
@@ -290,4 +322,26 @@ public class VectorSearchService {
             throw new RuntimeException("Paginated search failed", e);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Embed a query with the model being searched and format it as a pgvector literal
+     * (timed as the embed stage). Only vectors of that model are compared, and the dimension
+     * must match the cast and predicate of the HNSW index (V5 migration) for the index to be used.
+     */
+    private String embedQuery(String query, ActiveModel model) {
+        return RagObservations.stage(observationRegistry, RagObservations.STAGE_EMBED, provider, RagObservations.MODE_SEARCH)
+                .observe(() -> {
+                    float[] queryEmbedding = activeEmbeddingModelService.embedQuery(query, model);
+                    log.debug("Query embedding dimension: {}", queryEmbedding.length);
+                    return embeddingService.embeddingToVector(queryEmbedding);
+                });
+    }
+
+    /**
+     * Run a similarity query (timed as the search stage)
+     */
+    private List<Map<String, Object>> search(String sql, Object... args) {
+        return RagObservations.stage(observationRegistry, RagObservations.STAGE_SEARCH, provider, RagObservations.MODE_SEARCH)
+                .observe(() -> jdbcTemplate.queryForList(sql, args));
+    }
+}
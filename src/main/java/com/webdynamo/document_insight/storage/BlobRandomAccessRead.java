@@ -0,0 +1,134 @@
+package com.webdynamo.document_insight.storage;
+
+import org.apache.pdfbox.io.RandomAccessRead;
+import org.apache.pdfbox.io.RandomAccessReadView;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * PDFBox random access over a blob, fetched in blocks with ranged reads.
+ * PDFs are read from the end (cross-reference table) and then jump around,
+ * so only the blocks that are actually needed are downloaded, and a small
+ * LRU cache keeps the working set without holding the whole file in memory.
+ */
+public class BlobRandomAccessRead implements RandomAccessRead {
+
+    private static final int BLOCK_SIZE = 64 * 1024;
+    private static final int CACHED_BLOCKS = 32;
+
+    private final BlobStore blobStore;
+    private final String key;
+    private final long length;
+    private final Map<Long, byte[]> blocks = new LinkedHashMap<>(CACHED_BLOCKS, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, byte[]> eldest) {
+            return size() > CACHED_BLOCKS;
+        }
+    };
+
+    private long position;
+    private boolean closed;
+
+    public BlobRandomAccessRead(BlobStore blobStore, String key) throws IOException {
+        this.blobStore = blobStore;
+        this.key = key;
+        this.length = blobStore.size(key);
+    }
+
+    @Override
+    public int read() throws IOException {
+        checkClosed();
+        if (position >= length) {
+            return -1;
+        }
+        byte[] block = block(position / BLOCK_SIZE);
+        return block[(int) (position++ % BLOCK_SIZE)] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int offset, int len) throws IOException {
+        checkClosed();
+        if (position >= length) {
+            return -1;
+        }
+        int total = 0;
+        while (total < len && position < length) {
+            byte[] block = block(position / BLOCK_SIZE);
+            int blockOffset = (int) (position % BLOCK_SIZE);
+            int n = Math.min(len - total, block.length - blockOffset);
+            System.arraycopy(block, blockOffset, b, offset + total, n);
+            total += n;
+            position += n;
+        }
+        return total;
+    }
+
+    @Override
+    public long getPosition() throws IOException {
+        checkClosed();
+        return position;
+    }
+
+    @Override
+    public void seek(long newPosition) throws IOException {
+        checkClosed();
+        if (newPosition < 0) {
+            throw new IOException("Invalid position " + newPosition);
+        }
+        this.position = Math.min(newPosition, length);
+    }
+
+    @Override
+    public long length() throws IOException {
+        checkClosed();
+        return length;
+    }
+
+    @Override
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public boolean isEOF() throws IOException {
+        checkClosed();
+        return position >= length;
+    }
+
+    @Override
+    public RandomAccessReadView createView(long startPosition, long streamLength) throws IOException {
+        checkClosed();
+        return new RandomAccessReadView(this, startPosition, streamLength);
+    }
+
+    @Override
+    public void close() {
+        blocks.clear();
+        closed = true;
+    }
+
+    private byte[] block(long index) throws IOException {
+        byte[] block = blocks.get(index);
+        if (block == null) {
+            long start = index * BLOCK_SIZE;
+            int size = (int) Math.min(BLOCK_SIZE, length - start);
+            try (InputStream in = blobStore.openRange(key, start, size)) {
+                block = in.readNBytes(size);
+            }
+            if (block.length != size) {
+                throw new IOException("Short read of blob " + key + " at offset " + start);
+            }
+            blocks.put(index, block);
+        }
+        return block;
+    }
+
+    private void checkClosed() throws IOException {
+        if (closed) {
+            throw new IOException("Blob " + key + " is already closed");
+        }
+    }
+}
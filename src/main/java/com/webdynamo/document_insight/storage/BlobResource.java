@@ -0,0 +1,48 @@
+package com.webdynamo.document_insight.storage;
+
+import org.springframework.core.io.AbstractResource;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Spring resource backed by a blob, so downloads stream from whichever backend is configured
+ */
+public class BlobResource extends AbstractResource {
+
+    private final BlobStore blobStore;
+    private final String key;
+    private final long size;
+
+    public BlobResource(BlobStore blobStore, String key, long size) {
+        this.blobStore = blobStore;
+        this.key = key;
+        this.size = size;
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        return blobStore.open(key);
+    }
+
+    @Override
+    public boolean exists() {
+        return true;
+    }
+
+    @Override
+    public long contentLength() {
+        // The default implementation would read the whole stream to count it
+        return size;
+    }
+
+    @Override
+    public String getFilename() {
+        return key.substring(key.lastIndexOf('/') + 1);
+    }
+
+    @Override
+    public String getDescription() {
+        return "Blob [" + key + "]";
+    }
+}
@@ -0,0 +1,64 @@
+package com.webdynamo.document_insight.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Storage backend for uploaded document files.
+ * Keys are relative, slash separated names such as "UUID_report.pdf" or "ab/cd/abcd...".
+ */
+public interface BlobStore {
+
+    /**
+     * Key and last modification time of a stored blob
+     */
+    record BlobInfo(String key, Instant lastModified) {
+    }
+
+    /**
+     * Move a fully written local file into the store. The source file is consumed.
+     */
+    void put(String key, Path source) throws IOException;
+
+    /**
+     * Rename a blob inside the store
+     */
+    void move(String sourceKey, String targetKey) throws IOException;
+
+    boolean exists(String key) throws IOException;
+
+    /**
+     * Size of a blob in bytes
+     */
+    long size(String key) throws IOException;
+
+    /**
+     * Refresh a blob's last modification time
+     */
+    void touch(String key) throws IOException;
+
+    InputStream open(String key) throws IOException;
+
+    /**
+     * Open a byte range of a blob without reading what comes before it
+     */
+    InputStream openRange(String key, long offset, long length) throws IOException;
+
+    void delete(String key) throws IOException;
+
+    /**
+     * All blobs in the store. The stream must be closed.
+     */
+    Stream<BlobInfo> list() throws IOException;
+
+    /**
+     * Local path of a blob, for backends that keep files on this machine
+     */
+    default Optional<Path> localPath(String key) {
+        return Optional.empty();
+    }
+}
@@ -0,0 +1,228 @@
+package com.webdynamo.document_insight.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompletedMultipartUpload;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CopyObjectRequest;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.MetadataDirective;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Blob store on an S3-compatible bucket, shared by every app node.
+ * Large files are sent as multipart uploads and reads can fetch byte ranges.
+ */
+@Slf4j
+public class S3BlobStore implements BlobStore {
+
+    private final S3Client s3;
+    private final String bucket;
+    private final String keyPrefix;
+    private final long partSize;
+
+    public S3BlobStore(S3Client s3, String bucket, String keyPrefix, long partSize) {
+        this.s3 = s3;
+        this.bucket = bucket;
+        this.keyPrefix = keyPrefix == null ? "" : keyPrefix;
+        this.partSize = partSize;
+        log.info("S3 blob store on bucket: {} (prefix '{}')", bucket, this.keyPrefix);
+    }
+
+    @Override
+    public void put(String key, Path source) throws IOException {
+        long size = Files.size(source);
+
+        try {
+            if (size <= partSize) {
+                s3.putObject(PutObjectRequest.builder().bucket(bucket).key(objectKey(key)).build(),
+                        RequestBody.fromFile(source));
+            } else {
+                putMultipart(objectKey(key), source, size);
+            }
+        } catch (S3Exception e) {
+            throw new IOException("Failed to upload blob: " + key, e);
+        }
+
+        Files.delete(source);
+    }
+
+    @Override
+    public void move(String sourceKey, String targetKey) throws IOException {
+        try {
+            s3.copyObject(CopyObjectRequest.builder()
+                    .sourceBucket(bucket).sourceKey(objectKey(sourceKey))
+                    .destinationBucket(bucket).destinationKey(objectKey(targetKey))
+                    .build());
+            s3.deleteObject(DeleteObjectRequest.builder().bucket(bucket).key(objectKey(sourceKey)).build());
+        } catch (S3Exception e) {
+            throw new IOException("Failed to move blob: " + sourceKey, e);
+        }
+    }
+
+    @Override
+    public boolean exists(String key) throws IOException {
+        try {
+            s3.headObject(HeadObjectRequest.builder().bucket(bucket).key(objectKey(key)).build());
+            return true;
+        } catch (S3Exception e) {
+            if (e.statusCode() == 404) {
+                return false;
+            }
+            throw new IOException("Failed to check blob: " + key, e);
+        }
+    }
+
+    @Override
+    public long size(String key) throws IOException {
+        try {
+            return s3.headObject(HeadObjectRequest.builder().bucket(bucket).key(objectKey(key)).build())
+                    .contentLength();
+        } catch (S3Exception e) {
+            if (e.statusCode() == 404) {
+                // Same as the filesystem store for a missing blob
+                throw new NoSuchFileException(key);
+            }
+            throw new IOException("Failed to read blob size: " + key, e);
+        }
+    }
+
+    @Override
+    public void touch(String key) throws IOException {
+        // S3 has no way to set the modification time; copying the object onto
+        // itself gives it a new one. S3 only allows that when the metadata is
+        // replaced, so the current metadata and headers are sent back unchanged.
+        try {
+            HeadObjectResponse head = s3.headObject(HeadObjectRequest.builder()
+                    .bucket(bucket).key(objectKey(key)).build());
+            s3.copyObject(CopyObjectRequest.builder()
+                    .sourceBucket(bucket).sourceKey(objectKey(key))
+                    .destinationBucket(bucket).destinationKey(objectKey(key))
+                    .metadataDirective(MetadataDirective.REPLACE)
+                    .metadata(head.metadata())
+                    .contentType(head.contentType())
+                    .contentDisposition(head.contentDisposition())
+                    .contentEncoding(head.contentEncoding())
+                    .contentLanguage(head.contentLanguage())
+                    .cacheControl(head.cacheControl())
+                    .build());
+        } catch (S3Exception e) {
+            throw new IOException("Failed to touch blob: " + key, e);
+        }
+    }
+
+    @Override
+    public InputStream open(String key) throws IOException {
+        try {
+            return s3.getObject(GetObjectRequest.builder().bucket(bucket).key(objectKey(key)).build());
+        } catch (S3Exception e) {
+            throw new IOException("Failed to open blob: " + key, e);
+        }
+    }
+
+    @Override
+    public InputStream openRange(String key, long offset, long length) throws IOException {
+        if (length <= 0) {
+            return InputStream.nullInputStream();
+        }
+        try {
+            return s3.getObject(GetObjectRequest.builder()
+                    .bucket(bucket)
+                    .key(objectKey(key))
+                    .range("bytes=" + offset + "-" + (offset + length - 1))
+                    .build());
+        } catch (S3Exception e) {
+            throw new IOException("Failed to open blob range: " + key, e);
+        }
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        try {
+            s3.deleteObject(DeleteObjectRequest.builder().bucket(bucket).key(objectKey(key)).build());
+        } catch (S3Exception e) {
+            throw new IOException("Failed to delete blob: " + key, e);
+        }
+    }
+
+    @Override
+    public Stream<BlobInfo> list() throws IOException {
+        try {
+            return s3.listObjectsV2Paginator(ListObjectsV2Request.builder().bucket(bucket).prefix(keyPrefix).build())
+                    .contents()
+                    .stream()
+                    .map(object -> new BlobInfo(object.key().substring(keyPrefix.length()), object.lastModified()));
+        } catch (S3Exception e) {
+            throw new IOException("Failed to list blobs", e);
+        }
+    }
+
+    /**
+     * Upload a large file in parts, one part in memory at a time.
+     * The upload is aborted on failure so no orphaned parts are left behind.
+     */
+    private void putMultipart(String objectKey, Path source, long size) throws IOException {
+        String uploadId = s3.createMultipartUpload(CreateMultipartUploadRequest.builder()
+                .bucket(bucket).key(objectKey).build()).uploadId();
+
+        try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+            List<CompletedPart> parts = new ArrayList<>();
+            ByteBuffer buffer = ByteBuffer.allocate((int) partSize);
+            int partNumber = 1;
+
+            for (long position = 0; position < size; position += partSize, partNumber++) {
+                buffer.clear();
+                buffer.limit((int) Math.min(partSize, size - position));
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer) == -1) {
+                        throw new EOFException("File shrank during upload: " + source);
+                    }
+                }
+                buffer.flip();
+
+                String eTag = s3.uploadPart(UploadPartRequest.builder()
+                                .bucket(bucket).key(objectKey).uploadId(uploadId).partNumber(partNumber).build(),
+                        RequestBody.fromByteBuffer(buffer)).eTag();
+                parts.add(CompletedPart.builder().partNumber(partNumber).eTag(eTag).build());
+            }
+
+            s3.completeMultipartUpload(CompleteMultipartUploadRequest.builder()
+                    .bucket(bucket).key(objectKey).uploadId(uploadId)
+                    .multipartUpload(CompletedMultipartUpload.builder().parts(parts).build())
+                    .build());
+            log.debug("Multipart upload of {} finished in {} parts", objectKey, parts.size());
+
+        } catch (IOException | RuntimeException e) {
+            s3.abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                    .bucket(bucket).key(objectKey).uploadId(uploadId).build());
+            throw e;
+        }
+    }
+
+    private String objectKey(String key) {
+        return keyPrefix + key;
+    }
+}
@@ -0,0 +1,11 @@
+-- Columns added to documents after the baseline: the SHA-256 of the stored content
+-- (content-addressed storage) and the tombstone of asynchronous deletes.
+-- Databases baselined at V1 still have the pre-Flyway documents table, hence IF NOT EXISTS.
+
+ALTER TABLE documents ADD COLUMN IF NOT EXISTS content_hash VARCHAR(64);
+ALTER TABLE documents ADD COLUMN IF NOT EXISTS deleted_at TIMESTAMP(6);
+
+-- Background purge of tombstoned documents
+CREATE INDEX IF NOT EXISTS idx_documents_deleted_at
+    ON documents (deleted_at)
+    WHERE deleted_at IS NOT NULL;
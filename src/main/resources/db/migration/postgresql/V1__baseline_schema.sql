@@ -0,0 +1,51 @@
+-- Baseline: the schema Hibernate's ddl-auto=update produced from the entities before
+-- Flyway was introduced. Existing databases are baselined at this version
+-- (spring.flyway.baseline-on-migrate) without running it, so it must match them exactly;
+-- every later column goes into a versioned migration.
+
+CREATE EXTENSION IF NOT EXISTS vector;
+
+CREATE TABLE IF NOT EXISTS users (
+    id          BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    email       VARCHAR(255) NOT NULL UNIQUE,
+    name        VARCHAR(255),
+    password    VARCHAR(255) NOT NULL,
+    role        VARCHAR(255) NOT NULL CHECK (role IN ('USER', 'ADMIN')),
+    created_at  TIMESTAMP(6)
+);
+
+CREATE TABLE IF NOT EXISTS documents (
+    id            BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    filename      VARCHAR(255) NOT NULL,
+    content_type  VARCHAR(255),
+    file_path     VARCHAR(255),
+    file_size     BIGINT,
+    uploaded_at   TIMESTAMP(6) NOT NULL,
+    user_id       BIGINT
+);
+
+CREATE TABLE IF NOT EXISTS document_chunks (
+    id           BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    document_id  BIGINT NOT NULL REFERENCES documents (id),
+    chunk_index  INTEGER NOT NULL,
+    content      TEXT NOT NULL,
+    embedding    TEXT,
+    token_count  INTEGER
+);
+
+CREATE TABLE IF NOT EXISTS conversation (
+    id          BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    user_id     BIGINT NOT NULL REFERENCES users (id),
+    title       VARCHAR(255),
+    created_at  TIMESTAMP(6),
+    updated_at  TIMESTAMP(6)
+);
+
+CREATE TABLE IF NOT EXISTS conversation_messages (
+    id               BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    conversation_id  BIGINT NOT NULL REFERENCES conversation (id),
+    type             VARCHAR(255) CHECK (type IN ('QUESTION', 'ANSWER')),
+    content          TEXT,
+    sources          JSONB,
+    created_at       TIMESTAMP(6)
+);
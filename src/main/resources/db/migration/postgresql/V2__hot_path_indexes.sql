@@ -0,0 +1,22 @@
+-- Indexes for the queries on every request path.
+-- Names are checked at startup by SchemaIndexVerifier.
+
+-- Chunk lookups in order, chunk counts and the per-document DELETE
+CREATE INDEX IF NOT EXISTS idx_document_chunks_document_id
+    ON document_chunks (document_id, chunk_index);
+
+-- Document listings, ownership checks, per-user search and quota sums
+CREATE INDEX IF NOT EXISTS idx_documents_user_id
+    ON documents (user_id);
+
+-- Blob garbage collector reference lookups
+CREATE INDEX IF NOT EXISTS idx_documents_file_path
+    ON documents (file_path);
+
+-- A user's conversations, most recently updated first
+CREATE INDEX IF NOT EXISTS idx_conversation_user_updated
+    ON conversation (user_id, updated_at DESC);
+
+-- Messages of a conversation in order
+CREATE INDEX IF NOT EXISTS idx_conversation_messages_conversation_created
+    ON conversation_messages (conversation_id, created_at);
@@ -0,0 +1,10 @@
+-- Shared Bucket4j state for rate-limit.mode=postgres (one row per bucket)
+CREATE TABLE IF NOT EXISTS rate_limit_buckets (
+    id          VARCHAR(255) PRIMARY KEY,
+    state       BYTEA,
+    expires_at  BIGINT
+);
+
+-- Expired bucket cleanup
+CREATE INDEX IF NOT EXISTS idx_rate_limit_buckets_expires_at
+    ON rate_limit_buckets (expires_at);
@@ -0,0 +1,43 @@
+-- Record which model produced each embedding, so vectors of different models
+-- (e.g. 768-dimensional nomic-embed-text and 384-dimensional all-MiniLM-L6-v2)
+-- are never compared, and chunks of a previous model can be re-embedded.
+
+ALTER TABLE document_chunks ADD COLUMN IF NOT EXISTS embedding_model VARCHAR(255);
+ALTER TABLE document_chunks ADD COLUMN IF NOT EXISTS embedding_dimension INTEGER;
+
+-- Existing embeddings of the configured dimension come from the model configured now.
+-- Vectors of any other dimension keep an unknown (NULL) model, so a re-embedding run replaces them.
+UPDATE document_chunks
+SET embedding_model = CASE WHEN vector_dims(embedding::vector) = ${embedding_dimension}
+                           THEN '${embedding_model}' END,
+    embedding_dimension = vector_dims(embedding::vector)
+WHERE embedding IS NOT NULL
+  AND embedding_model IS NULL;
+
+-- Approximate nearest neighbour index for similarity search.
+-- Embeddings are stored as TEXT, so the index is on the same cast expression the search
+-- queries use. An HNSW index needs a fixed dimension, which comes from
+-- application.embedding.dimension (768 for nomic-embed-text, 384 for all-MiniLM-L6-v2).
+-- Rows of another dimension cannot be cast to it, so the index only covers embeddings of
+-- the configured dimension (search queries repeat this predicate).
+CREATE INDEX IF NOT EXISTS idx_document_chunks_embedding_hnsw
+    ON document_chunks
+    USING hnsw ((embedding::vector(${embedding_dimension})) vector_cosine_ops)
+    WHERE embedding IS NOT NULL
+      AND embedding_dimension = ${embedding_dimension};
+
+-- Progress of re-embedding runs (admin-triggered, resumable from last_document_id)
+CREATE TABLE IF NOT EXISTS embedding_reindex_jobs (
+    id                BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    target_model      VARCHAR(255) NOT NULL,
+    target_dimension  INTEGER NOT NULL,
+    status            VARCHAR(255) NOT NULL CHECK (status IN ('RUNNING', 'COMPLETED', 'FAILED')),
+    last_document_id  BIGINT NOT NULL,
+    documents_done    BIGINT NOT NULL,
+    chunks_done       BIGINT NOT NULL,
+    chunks_total      BIGINT NOT NULL,
+    error             TEXT,
+    started_at        TIMESTAMP(6) NOT NULL,
+    updated_at        TIMESTAMP(6),
+    finished_at       TIMESTAMP(6)
+);
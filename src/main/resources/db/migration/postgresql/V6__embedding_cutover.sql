@@ -0,0 +1,40 @@
+-- Model whose vectors search compares (a single row). While a re-embedding run writes
+-- vectors of a new model next to the active ones (next_embedding), search keeps using
+-- the active model; the run then switches both in one transaction.
+CREATE TABLE IF NOT EXISTS embedding_state (
+    id                INTEGER PRIMARY KEY CHECK (id = 1),
+    active_model      VARCHAR(255) NOT NULL,
+    active_dimension  INTEGER NOT NULL,
+    updated_at        TIMESTAMP(6)
+);
+
+-- The stored vectors are active: those of the most common model, else the configured one
+INSERT INTO embedding_state (id, active_model, active_dimension, updated_at)
+SELECT 1,
+       COALESCE(stored.embedding_model, '${embedding_model}'),
+       COALESCE(stored.embedding_dimension, ${embedding_dimension}),
+       now()
+FROM (SELECT 1) AS single_row
+LEFT JOIN (
+    SELECT embedding_model, embedding_dimension
+    FROM document_chunks
+    WHERE embedding_model IS NOT NULL
+    GROUP BY embedding_model, embedding_dimension
+    ORDER BY COUNT(*) DESC
+    LIMIT 1
+) AS stored ON true
+ON CONFLICT (id) DO NOTHING;
+
+-- Vectors of the model being migrated to, promoted to embedding at the switch
+ALTER TABLE document_chunks ADD COLUMN IF NOT EXISTS next_embedding TEXT;
+ALTER TABLE document_chunks ADD COLUMN IF NOT EXISTS next_embedding_model VARCHAR(255);
+ALTER TABLE document_chunks ADD COLUMN IF NOT EXISTS next_embedding_dimension INTEGER;
+
+-- The instance working on a run, and when it last reported progress (stale claims are taken over)
+ALTER TABLE embedding_reindex_jobs ADD COLUMN IF NOT EXISTS owner VARCHAR(255);
+ALTER TABLE embedding_reindex_jobs ADD COLUMN IF NOT EXISTS heartbeat_at TIMESTAMP(6);
+
+-- At most one running run across all instances
+CREATE UNIQUE INDEX IF NOT EXISTS idx_embedding_reindex_jobs_running
+    ON embedding_reindex_jobs (status)
+    WHERE status = 'RUNNING';
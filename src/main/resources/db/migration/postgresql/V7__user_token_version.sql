@@ -0,0 +1,5 @@
+-- Version of a user's account as seen by access tokens. Tokens carry the version
+-- they were issued at (ver claim) and stop authenticating once it is bumped, so a
+-- changed email or role is not kept alive by principals built from token claims.
+
+ALTER TABLE users ADD COLUMN IF NOT EXISTS token_version INTEGER NOT NULL DEFAULT 0;
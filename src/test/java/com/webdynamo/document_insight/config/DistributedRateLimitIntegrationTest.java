@@ -0,0 +1,144 @@
+package com.webdynamo.document_insight.config;
+
+import com.webdynamo.document_insight.service.RateLimitService;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.distributed.proxy.ProxyManager;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Rate limiting with rate-limit.mode=postgres against the V4 rate_limit_buckets table.
+ * Skipped when Docker is not available.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class DistributedRateLimitIntegrationTest {
+
+    private static final int CAPACITY = 20;
+
+    // A node syncs with the table once it has consumed this many tokens locally
+    private static final long MAX_UNSYNCHRONIZED_TOKENS = 1;
+
+    @Container
+    private static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    private static DriverManagerDataSource dataSource;
+    private static JdbcTemplate jdbcTemplate;
+
+    private DistributedRateLimitConfig config;
+    private ProxyManager<String> proxyManager;
+
+    @BeforeAll
+    static void createSchema() {
+        dataSource = new DriverManagerDataSource(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword());
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        new ResourceDatabasePopulator(
+                new ClassPathResource("db/migration/postgresql/V4__rate_limit_buckets.sql")).execute(dataSource);
+    }
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM rate_limit_buckets");
+
+        config = new DistributedRateLimitConfig(jdbcTemplate);
+        ReflectionTestUtils.setField(config, "keepAfterRefill", Duration.ofMinutes(1));
+        proxyManager = config.rateLimitProxyManager(dataSource);
+    }
+
+    @Test
+    @DisplayName("Two instances should draw from one shared bucket")
+    void resolveBucket_TwoInstances_ShouldShareBucket() {
+        // --- ARRANGE ---
+        RateLimitService first = newRateLimitService();
+        RateLimitService second = newRateLimitService();
+        Bucket firstBucket = first.resolveBucket(1L);
+        Bucket secondBucket = second.resolveBucket(1L);
+
+        // --- ACT ---
+        // Alternate between the instances until both are limited
+        int allowed = 0;
+        boolean firstOpen = true;
+        boolean secondOpen = true;
+        while (firstOpen || secondOpen) {
+            if (firstOpen) {
+                firstOpen = first.tryConsume(firstBucket);
+                allowed += firstOpen ? 1 : 0;
+            }
+            if (secondOpen) {
+                secondOpen = second.tryConsume(secondBucket);
+                allowed += secondOpen ? 1 : 0;
+            }
+        }
+
+        // --- ASSERT ---
+        // Separate buckets would allow 2 * CAPACITY; each node may overshoot by its unsynchronized tokens
+        assertThat(allowed).isBetween(CAPACITY, CAPACITY + 2 * (int) MAX_UNSYNCHRONIZED_TOKENS);
+        assertThat(jdbcTemplate.queryForList("SELECT id FROM rate_limit_buckets", String.class))
+                .containsExactly("general:user:1");
+    }
+
+    @Test
+    @DisplayName("Cleanup should remove expired bucket rows only")
+    void removeExpiredBuckets_ShouldDeleteExpiredRows() {
+        // --- ARRANGE ---
+        long now = System.currentTimeMillis();
+        jdbcTemplate.update("INSERT INTO rate_limit_buckets (id, state, expires_at) VALUES (?, NULL, ?)",
+                "general:ip:10.0.0.1", now - 60_000);
+        jdbcTemplate.update("INSERT INTO rate_limit_buckets (id, state, expires_at) VALUES (?, NULL, ?)",
+                "general:ip:10.0.0.2", now + 60_000);
+
+        // A bucket in use is written with an expiry after its refill
+        RateLimitService service = newRateLimitService();
+        Bucket bucket = service.resolveBucket(1L);
+        assertThat(service.tryConsume(bucket)).isTrue();
+
+        // --- ACT ---
+        config.removeExpiredBuckets();
+
+        // --- ASSERT ---
+        List<String> remaining = jdbcTemplate.queryForList("SELECT id FROM rate_limit_buckets", String.class);
+        assertThat(remaining).containsExactlyInAnyOrder("general:ip:10.0.0.2", "general:user:1");
+    }
+
+    /**
+     * A RateLimitService as on one replica, sharing the proxy manager's table
+     */
+    private RateLimitService newRateLimitService() {
+        RateLimitService rateLimitService = new RateLimitService(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(rateLimitService, "authenticatedCapacity", CAPACITY);
+        ReflectionTestUtils.setField(rateLimitService, "authenticatedRefillTokens", CAPACITY);
+        ReflectionTestUtils.setField(rateLimitService, "authenticatedRefillDuration", Duration.ofMinutes(1));
+        ReflectionTestUtils.setField(rateLimitService, "unauthenticatedCapacity", 10);
+        ReflectionTestUtils.setField(rateLimitService, "unauthenticatedRefillTokens", 10);
+        ReflectionTestUtils.setField(rateLimitService, "unauthenticatedRefillDuration", Duration.ofMinutes(1));
+        ReflectionTestUtils.setField(rateLimitService, "ragAuthCapacity", 20);
+        ReflectionTestUtils.setField(rateLimitService, "ragAuthRefillTokens", 20);
+        ReflectionTestUtils.setField(rateLimitService, "ragAuthRefillDuration", Duration.ofMinutes(1));
+        ReflectionTestUtils.setField(rateLimitService, "ragUnauthCapacity", 5);
+        ReflectionTestUtils.setField(rateLimitService, "ragUnauthRefillTokens", 5);
+        ReflectionTestUtils.setField(rateLimitService, "ragUnauthRefillDuration", Duration.ofMinutes(1));
+        ReflectionTestUtils.setField(rateLimitService, "ragReferenceTokens", 2000L);
+        ReflectionTestUtils.setField(rateLimitService, "storeMaxSize", 1000L);
+        ReflectionTestUtils.setField(rateLimitService, "storeIdleExpiry", Duration.ofMinutes(10));
+        ReflectionTestUtils.setField(rateLimitService, "proxyManager", proxyManager);
+        ReflectionTestUtils.setField(rateLimitService, "maxUnsynchronizedTokens", MAX_UNSYNCHRONIZED_TOKENS);
+        ReflectionTestUtils.setField(rateLimitService, "maxUnsynchronizedTimeout", Duration.ofMillis(1));
+        rateLimitService.init();
+        return rateLimitService;
+    }
+}
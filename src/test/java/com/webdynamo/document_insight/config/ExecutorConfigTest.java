@@ -0,0 +1,131 @@
+package com.webdynamo.document_insight.config;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ExecutorConfigTest {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withUserConfiguration(ExecutorConfig.class);
+
+    @Test
+    @DisplayName("embeddingExecutor - Should run on named platform daemon threads by default")
+    void embeddingExecutor_Default_ShouldUsePlatformThreads() {
+        contextRunner.run(context -> {
+            // --- ARRANGE ---
+            ExecutorConfig executorConfig = context.getBean(ExecutorConfig.class);
+
+            // --- ACT ---
+            Thread worker = workerThread(executorConfig.embeddingExecutor());
+
+            // --- ASSERT ---
+            assertThat(executorConfig.isVirtualThreads()).isFalse();
+            assertThat(worker.isVirtual()).isFalse();
+            assertThat(worker.isDaemon()).isTrue();
+            assertThat(worker.getName()).startsWith("embed-");
+        });
+    }
+
+    @Test
+    @DisplayName("embeddingExecutor - Should run on named virtual threads when virtual threads are enabled")
+    void embeddingExecutor_VirtualThreadsEnabled_ShouldUseVirtualThreads() {
+        contextRunner
+                .withPropertyValues("spring.threads.virtual.enabled=true")
+                .run(context -> {
+                    // --- ARRANGE ---
+                    ExecutorConfig executorConfig = context.getBean(ExecutorConfig.class);
+
+                    // --- ACT ---
+                    Thread worker = workerThread(executorConfig.embeddingExecutor());
+
+                    // --- ASSERT ---
+                    assertThat(executorConfig.isVirtualThreads()).isTrue();
+                    assertThat(worker.isVirtual()).isTrue();
+                    assertThat(worker.getName()).startsWith("embed-");
+                });
+    }
+
+    @Test
+    @DisplayName("embeddingExecutor - Should not register an Executor bean that would replace Boot's task executor")
+    void embeddingExecutor_ShouldNotBeAnExecutorBean() {
+        contextRunner.run(context -> {
+            // --- ASSERT ---
+            assertThat(context).hasSingleBean(ExecutorConfig.class);
+            assertThat(context.getBeansOfType(Executor.class)).isEmpty();
+        });
+    }
+
+    @Test
+    @DisplayName("embeddingExecutor - Should queue work beyond the configured concurrency instead of rejecting it")
+    void embeddingExecutor_Saturated_ShouldQueue() {
+        contextRunner
+                .withPropertyValues("application.ingestion.embedding-concurrency=2")
+                .run(context -> {
+                    // --- ARRANGE ---
+                    Executor executor = context.getBean(ExecutorConfig.class).embeddingExecutor();
+                    CountDownLatch running = new CountDownLatch(2);
+                    CountDownLatch release = new CountDownLatch(1);
+                    AtomicInteger active = new AtomicInteger();
+                    AtomicInteger maxActive = new AtomicInteger();
+
+                    Runnable blockingCall = () -> {
+                        maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+                        running.countDown();
+                        try {
+                            release.await();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        } finally {
+                            active.decrementAndGet();
+                        }
+                    };
+
+                    // --- ACT ---
+                    CompletableFuture<?>[] calls = new CompletableFuture<?>[5];
+                    for (int i = 0; i < calls.length; i++) {
+                        calls[i] = CompletableFuture.runAsync(blockingCall, executor);
+                    }
+
+                    // --- ASSERT ---
+                    // Two workers busy, the other three calls wait in the queue
+                    assertThat(running.await(5, TimeUnit.SECONDS)).isTrue();
+                    Thread.sleep(50);
+                    assertThat(active.get()).isEqualTo(2);
+                    assertThat(calls).filteredOn(CompletableFuture::isDone).isEmpty();
+
+                    release.countDown();
+                    CompletableFuture.allOf(calls).get(5, TimeUnit.SECONDS);
+                    assertThat(calls).allMatch(call -> !call.isCompletedExceptionally());
+                    assertThat(maxActive.get()).isEqualTo(2);
+                });
+    }
+
+    @Test
+    @DisplayName("shutdown - Should stop the embedding executor when the context closes")
+    void shutdown_ContextClosed_ShouldStopExecutor() {
+        ExecutorService[] executor = new ExecutorService[1];
+
+        // --- ACT ---
+        contextRunner.run(context ->
+                executor[0] = (ExecutorService) context.getBean(ExecutorConfig.class).embeddingExecutor());
+
+        // --- ASSERT ---
+        assertThat(executor[0].isShutdown()).isTrue();
+    }
+
+    private static Thread workerThread(Executor executor) throws Exception {
+        CompletableFuture<Thread> worker = new CompletableFuture<>();
+        executor.execute(() -> worker.complete(Thread.currentThread()));
+        return worker.get(5, TimeUnit.SECONDS);
+    }
+}
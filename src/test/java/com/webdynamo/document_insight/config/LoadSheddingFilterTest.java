@@ -0,0 +1,59 @@
+package com.webdynamo.document_insight.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.webdynamo.document_insight.service.AdaptiveConcurrencyLimiter;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class LoadSheddingFilterTest {
+
+    private AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private LoadSheddingFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        concurrencyLimiter = mock(AdaptiveConcurrencyLimiter.class);
+        when(concurrencyLimiter.tryAcquire()).thenReturn(true);
+
+        filter = new LoadSheddingFilter(concurrencyLimiter, new ObjectMapper());
+    }
+
+    @Test
+    @DisplayName("Should count a RAG failure answered with 400 against the limit")
+    void doFilter_ReportedFailure_ShouldReleaseAsFailed() throws Exception {
+        // --- ACT ---
+        // The controller catches the model error and answers 400
+        filter.doFilter(askRequest(), new MockHttpServletResponse(), (req, res) -> {
+            req.setAttribute(AdaptiveConcurrencyLimiter.FAILED_ATTRIBUTE, Boolean.TRUE);
+            ((HttpServletResponse) res).setStatus(400);
+        });
+
+        // --- ASSERT ---
+        verify(concurrencyLimiter).release(anyLong(), eq(true));
+    }
+
+    @Test
+    @DisplayName("Should not count a plain client error against the limit")
+    void doFilter_ClientError_ShouldReleaseAsSucceeded() throws Exception {
+        // --- ACT ---
+        filter.doFilter(askRequest(), new MockHttpServletResponse(),
+                (req, res) -> ((HttpServletResponse) res).setStatus(400));
+
+        // --- ASSERT ---
+        verify(concurrencyLimiter).release(anyLong(), eq(false));
+    }
+
+    private static MockHttpServletRequest askRequest() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/documents/ask");
+        request.setParameter("question", "What is the policy?");
+        return request;
+    }
+}
@@ -0,0 +1,99 @@
+package com.webdynamo.document_insight.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.webdynamo.document_insight.service.MetricsService;
+import com.webdynamo.document_insight.service.RateLimitService;
+import io.github.bucket4j.Bucket;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class RAGRateLimitFilterTest {
+
+    private static final String IP = "203.0.113.7";
+
+    // Unauthenticated RAG bucket: 5 standard queries of 2000 tokens
+    private static final long CAPACITY = 5 * 2000;
+
+    private RateLimitService rateLimitService;
+    private RAGRateLimitFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        SecurityContextHolder.clearContext();
+
+        rateLimitService = new RateLimitService(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(rateLimitService, "authenticatedCapacity", 100);
+        ReflectionTestUtils.setField(rateLimitService, "authenticatedRefillTokens", 100);
+        ReflectionTestUtils.setField(rateLimitService, "authenticatedRefillDuration", Duration.ofMinutes(1));
+        ReflectionTestUtils.setField(rateLimitService, "unauthenticatedCapacity", 10);
+        ReflectionTestUtils.setField(rateLimitService, "unauthenticatedRefillTokens", 10);
+        ReflectionTestUtils.setField(rateLimitService, "unauthenticatedRefillDuration", Duration.ofMinutes(1));
+        ReflectionTestUtils.setField(rateLimitService, "ragAuthCapacity", 20);
+        ReflectionTestUtils.setField(rateLimitService, "ragAuthRefillTokens", 20);
+        ReflectionTestUtils.setField(rateLimitService, "ragAuthRefillDuration", Duration.ofMinutes(1));
+        ReflectionTestUtils.setField(rateLimitService, "ragUnauthCapacity", 5);
+        ReflectionTestUtils.setField(rateLimitService, "ragUnauthRefillTokens", 5);
+        ReflectionTestUtils.setField(rateLimitService, "ragUnauthRefillDuration", Duration.ofMinutes(1));
+        ReflectionTestUtils.setField(rateLimitService, "ragReferenceTokens", 2000L);
+        ReflectionTestUtils.setField(rateLimitService, "ragCostEnabled", true);
+        ReflectionTestUtils.setField(rateLimitService, "ragTokensPerChunk", 500L);
+        ReflectionTestUtils.setField(rateLimitService, "ragPromptOverheadTokens", 100L);
+        ReflectionTestUtils.setField(rateLimitService, "ragAnswerTokens", 500L);
+        ReflectionTestUtils.setField(rateLimitService, "charsPerToken", 4);
+        ReflectionTestUtils.setField(rateLimitService, "storeMaxSize", 1000L);
+        ReflectionTestUtils.setField(rateLimitService, "storeIdleExpiry", Duration.ofMinutes(10));
+        rateLimitService.init();
+
+        filter = new RAGRateLimitFilter(rateLimitService, mock(MetricsService.class), new ObjectMapper());
+    }
+
+    @Test
+    @DisplayName("Should refund the whole reservation when no chunks are found and the model is never called")
+    void doFilter_NoChunksFound_ShouldRefundReservation() throws Exception {
+        // --- ARRANGE ---
+        MockHttpServletRequest request = askRequest();
+        Bucket bucket = rateLimitService.getUnauthenticatedRAGBucket(IP);
+
+        // --- ACT ---
+        // The controller answers "not enough information" without reporting any LLM usage
+        filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> {
+            assertTrue(bucket.getAvailableTokens() < CAPACITY, "Reservation is held while the request runs");
+        });
+
+        // --- ASSERT ---
+        assertEquals(CAPACITY, bucket.getAvailableTokens());
+    }
+
+    @Test
+    @DisplayName("Should charge the usage the model reported")
+    void doFilter_UsageReported_ShouldChargeActualUsage() throws Exception {
+        // --- ARRANGE ---
+        MockHttpServletRequest request = askRequest();
+        Bucket bucket = rateLimitService.getUnauthenticatedRAGBucket(IP);
+
+        // --- ACT ---
+        filter.doFilter(request, new MockHttpServletResponse(), (req, res) ->
+                req.setAttribute(RateLimitService.RAG_TOKEN_USAGE_ATTRIBUTE, 1500L));
+
+        // --- ASSERT ---
+        assertEquals(CAPACITY - 1500, bucket.getAvailableTokens());
+    }
+
+    private static MockHttpServletRequest askRequest() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/documents/ask");
+        request.setRemoteAddr(IP);
+        request.setParameter("question", "What is the VAT rate?");
+        return request;
+    }
+}
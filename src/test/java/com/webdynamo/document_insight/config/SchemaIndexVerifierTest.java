@@ -0,0 +1,79 @@
+package com.webdynamo.document_insight.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.DefaultApplicationArguments;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class SchemaIndexVerifierTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private SchemaIndexVerifier verifier;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        verifier = new SchemaIndexVerifier(jdbcTemplate);
+    }
+
+    @Test
+    @DisplayName("Should start when every expected index exists")
+    void run_AllIndexesPresent_ShouldPass() {
+        // --- ARRANGE ---
+        database("PostgreSQL");
+        indexes(SchemaIndexVerifier.EXPECTED_INDEXES);
+
+        // --- ACT & ASSERT ---
+        assertThatCode(() -> verifier.run(new DefaultApplicationArguments()))
+                .doesNotThrowAnyException();
+    }
+
+    @Test
+    @DisplayName("Should fail startup naming the missing vector index")
+    void run_VectorIndexMissing_ShouldFail() {
+        // --- ARRANGE ---
+        database("PostgreSQL");
+        List<String> existing = new ArrayList<>(SchemaIndexVerifier.EXPECTED_INDEXES);
+        existing.remove("idx_document_chunks_embedding_hnsw");
+        indexes(existing);
+
+        // --- ACT & ASSERT ---
+        assertThatThrownBy(() -> verifier.run(new DefaultApplicationArguments()))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("[idx_document_chunks_embedding_hnsw]");
+    }
+
+    @Test
+    @DisplayName("Should skip the check on databases other than PostgreSQL")
+    void run_OtherDatabase_ShouldSkip() {
+        // --- ARRANGE ---
+        database("H2");
+
+        // --- ACT ---
+        verifier.run(new DefaultApplicationArguments());
+
+        // --- ASSERT ---
+        verify(jdbcTemplate, never()).queryForList(anyString(), eq(String.class));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void database(String productName) {
+        when(jdbcTemplate.execute(any(ConnectionCallback.class))).thenReturn(productName);
+    }
+
+    private void indexes(List<String> names) {
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class))).thenReturn(names);
+    }
+}
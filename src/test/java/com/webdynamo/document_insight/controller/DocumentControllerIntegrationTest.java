@@ -12,10 +12,16 @@ import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import io.github.bucket4j.Bucket;
+import reactor.core.publisher.Flux;
 
+import java.time.Duration;
 import java.util.Optional;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.verify;
@@ -48,12 +54,18 @@ class DocumentControllerIntegrationTest {
     
     @MockitoBean
     private JwtService jwtService;
+
+    @MockitoBean
+    private CachedUserDetailsService cachedUserDetailsService;
     
     @MockitoBean
     private RateLimitService rateLimitService;
     
     @MockitoBean
     private MetricsService metricsService;
+
+    @MockitoBean
+    private AdaptiveConcurrencyLimiter concurrencyLimiter;
     
     @MockitoBean
     private com.webdynamo.document_insight.repo.UserRepository userRepository;
@@ -71,6 +83,7 @@ class DocumentControllerIntegrationTest {
     void setUp() {
         // By default, allow all requests through the rate limiter in tests
         when(rateLimitService.tryConsume(any())).thenReturn(true);
+        when(concurrencyLimiter.tryAcquire()).thenReturn(true);
     }
 
     @Test
@@ -121,6 +134,40 @@ class DocumentControllerIntegrationTest {
                 .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isForbidden());
     }
+    @Test
+    @DisplayName("GET /api/documents/{id}/ask/stream - Should stream the answer as server-sent events")
+    @WithMockUser
+    void askStream_AsOwner_ShouldStreamAnswer() throws Exception {
+        // --- ARRANGE ---
+        User mockUser = new User();
+        mockUser.setId(1L);
+        mockUser.setEmail("test@example.com");
+
+        Document doc = new Document();
+        doc.setId(100L);
+        doc.setUserId(1L);
+
+        when(documentService.getDocumentById(100L)).thenReturn(Optional.of(doc));
+        when(rateLimitService.getRAGBucket(1L)).thenReturn(Bucket.builder()
+                .addLimit(limit -> limit.capacity(10_000).refillGreedy(10_000, Duration.ofMinutes(1)))
+                .build());
+        when(rateLimitService.estimateRagCost(anyInt(), anyLong(), anyBoolean())).thenReturn(1_000L);
+        when(ragQueryService.generateAnswerStream(eq("What is it?"), eq(100L), any(User.class)))
+                .thenReturn(Flux.just("Segment 1", "Segment 2"));
+
+        // --- ACT ---
+        MvcResult result = mockMvc.perform(get("/api/documents/100/ask/stream")
+                        .param("question", "What is it?")
+                        .with(user(mockUser)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // --- ASSERT ---
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().string("data:Segment 1\n\ndata:Segment 2\n\n"));
+    }
+
     @Test
     @DisplayName("GET /api/documents/conversations/{id} - Should return 400/403 for mismatched user")
     @WithMockUser
@@ -0,0 +1,113 @@
+package com.webdynamo.document_insight.embedding;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OnnxModelCacheTest {
+
+    private static final byte[] MODEL = "onnx model bytes".getBytes(StandardCharsets.UTF_8);
+
+    @TempDir
+    Path cacheDir;
+
+    private HttpServer server;
+    private final AtomicInteger downloads = new AtomicInteger();
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/model.onnx", exchange -> {
+            downloads.incrementAndGet();
+            exchange.sendResponseHeaders(200, MODEL.length);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(MODEL);
+            }
+        });
+        // Sends the headers, then stalls before the body
+        server.createContext("/stalled.onnx", exchange -> {
+            exchange.sendResponseHeaders(200, MODEL.length);
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.close();
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        server.stop(0);
+    }
+
+    @Test
+    @DisplayName("resolve - Should download a model once and reuse the cached copy")
+    void resolve_ShouldDownloadOnceThenHitCache() throws IOException {
+        // --- ARRANGE ---
+        OnnxModelCache cache = new OnnxModelCache(cacheDir);
+        String uri = url("/model.onnx");
+
+        // --- ACT ---
+        Path downloaded = cache.resolve(uri);
+        Path cached = cache.resolve(uri);
+
+        // --- ASSERT ---
+        assertEquals(downloaded, cached);
+        assertEquals("model.onnx", cached.getFileName().toString());
+        assertArrayEquals(MODEL, Files.readAllBytes(cached));
+        assertEquals(1, downloads.get());
+    }
+
+    @Test
+    @DisplayName("resolve - Should give up on a stalled download and leave no file behind")
+    void resolve_StalledDownload_ShouldTimeOut() throws IOException {
+        // --- ARRANGE ---
+        OnnxModelCache cache = new OnnxModelCache(cacheDir, Duration.ofSeconds(1), Duration.ofMillis(200));
+
+        // --- ACT ---
+        RuntimeException e = assertThrows(RuntimeException.class, () -> cache.resolve(url("/stalled.onnx")));
+
+        // --- ASSERT ---
+        assertTrue(e.getMessage().startsWith("Could not download model file"));
+        try (Stream<Path> files = Files.walk(cacheDir)) {
+            assertTrue(files.noneMatch(Files::isRegularFile), "no partial or cached file should remain");
+        }
+    }
+
+    @Test
+    @DisplayName("resolve - Should use local paths in place")
+    void resolve_LocalPath_ShouldNotCopy() {
+        // --- ARRANGE ---
+        OnnxModelCache cache = new OnnxModelCache(cacheDir);
+        Path local = cacheDir.resolve("local.onnx");
+
+        // --- ACT & ASSERT ---
+        assertEquals(local, cache.resolve(local.toString()));
+        assertEquals(local, cache.resolve(local.toUri().toString()));
+        assertEquals(0, downloads.get());
+    }
+
+    private String url(String path) {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + path;
+    }
+}
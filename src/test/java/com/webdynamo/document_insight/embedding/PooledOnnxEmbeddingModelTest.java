@@ -0,0 +1,37 @@
+package com.webdynamo.document_insight.embedding;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pooling of the model output; session checkout and return are covered by SessionPoolTest.
+ */
+class PooledOnnxEmbeddingModelTest {
+
+    @Test
+    @DisplayName("meanPooling - Should average only the unmasked tokens of each text")
+    void meanPooling_ShouldIgnorePadding() {
+        // --- ARRANGE ---
+        // Two texts padded to three tokens; the second has one real token
+        float[][][] tokenEmbeddings = {
+                {{1f, 2f}, {3f, 4f}, {100f, 100f}},
+                {{5f, 6f}, {100f, 100f}, {100f, 100f}}
+        };
+        long[][] attentionMask = {
+                {1, 1, 0},
+                {1, 0, 0}
+        };
+
+        // --- ACT ---
+        List<float[]> vectors = PooledOnnxEmbeddingModel.meanPooling(tokenEmbeddings, attentionMask);
+
+        // --- ASSERT ---
+        assertEquals(2, vectors.size());
+        assertArrayEquals(new float[]{2f, 3f}, vectors.get(0));
+        assertArrayEquals(new float[]{5f, 6f}, vectors.get(1));
+    }
+}
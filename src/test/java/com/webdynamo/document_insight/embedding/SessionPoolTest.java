@@ -0,0 +1,77 @@
+package com.webdynamo.document_insight.embedding;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SessionPoolTest {
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    @DisplayName("checkout - Should hand out each session once until it is released")
+    void checkout_ShouldHandOutFreeSessions() {
+        // --- ARRANGE ---
+        SessionPool<String> pool = new SessionPool<>(List.of("a", "b"), Duration.ofSeconds(1), meterRegistry);
+
+        // --- ACT ---
+        String first = pool.checkout();
+        String second = pool.checkout();
+
+        // --- ASSERT ---
+        assertNotEquals(first, second);
+        assertEquals(2, pool.inUse());
+        assertEquals(2.0, meterRegistry.get("embedding.onnx.sessions.in_use").gauge().value());
+
+        pool.release(first);
+        assertEquals(1, pool.inUse());
+        assertEquals(first, pool.checkout());
+    }
+
+    @Test
+    @DisplayName("checkout - Should time out when every session is checked out")
+    void checkout_PoolExhausted_ShouldTimeOut() {
+        // --- ARRANGE ---
+        SessionPool<String> pool = new SessionPool<>(List.of("a"), Duration.ofMillis(50), meterRegistry);
+        pool.checkout();
+
+        // --- ACT ---
+        RuntimeException e = assertThrows(RuntimeException.class, pool::checkout);
+
+        // --- ASSERT ---
+        assertTrue(e.getMessage().startsWith("No ONNX session free within"));
+        assertEquals(1.0, meterRegistry.get("embedding.onnx.checkout.timeouts").counter().count());
+        assertEquals(1, pool.inUse());
+    }
+
+    @Test
+    @DisplayName("checkout - A waiting batch should get the session released by another")
+    void checkout_ShouldWaitForRelease() throws Exception {
+        // --- ARRANGE ---
+        SessionPool<String> pool = new SessionPool<>(List.of("a"), Duration.ofSeconds(5), meterRegistry);
+        String session = pool.checkout();
+        CompletableFuture<String> waiting = CompletableFuture.supplyAsync(pool::checkout);
+
+        // --- ACT ---
+        Thread.sleep(50);
+        assertFalse(waiting.isDone());
+        pool.release(session);
+
+        // --- ASSERT ---
+        assertEquals("a", waiting.get(1, TimeUnit.SECONDS));
+        assertEquals(0.0, meterRegistry.get("embedding.onnx.checkout.timeouts").counter().count());
+    }
+}
@@ -14,7 +14,11 @@ import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
-@DataJpaTest
+@DataJpaTest(properties = {
+        // H2 has no Flyway scripts ({vendor} = h2); let Hibernate build the schema
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+})
 class ConversationRepositoryTest {
 
     @Autowired
@@ -7,13 +7,18 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
 
 import java.time.LocalDateTime;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
-@DataJpaTest // Focuses only on JPA components
+@DataJpaTest(properties = {
+        // H2 has no Flyway scripts ({vendor} = h2); let Hibernate build the schema
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+}) // Focuses only on JPA components
 class DocumentRepositoryTest {
 
     @Autowired
@@ -70,4 +75,58 @@ class DocumentRepositoryTest {
         assertThat(documentRepository.existsByFilename("unique.pdf")).isTrue();
         assertThat(documentRepository.existsByFilename("non-existent.pdf")).isFalse();
     }
+
+    @Test
+    @DisplayName("sumFileSizeByUserId - Should not count tombstoned documents")
+    void sumFileSizeByUserId_ShouldIgnoreDeletedDocuments() {
+        // --- ARRANGE ---
+        Document kept = new Document();
+        kept.setFilename("kept.pdf");
+        kept.setUserId(7L);
+        kept.setFileSize(300L);
+        kept.setUploadedAt(LocalDateTime.now());
+        documentRepository.save(kept);
+
+        Document deleted = new Document();
+        deleted.setFilename("deleted.pdf");
+        deleted.setUserId(7L);
+        deleted.setFileSize(500L);
+        deleted.setUploadedAt(LocalDateTime.now());
+        deleted.setDeletedAt(LocalDateTime.now());
+        documentRepository.save(deleted);
+
+        // --- ACT & ASSERT ---
+        assertThat(documentRepository.sumFileSizeByUserId(7L)).isEqualTo(300L);
+        assertThat(documentRepository.sumFileSizeByUserId(8L)).isZero();
+    }
+
+    @Test
+    @DisplayName("findByDeletedAtBefore - Should only return documents tombstoned before the cutoff")
+    void findByDeletedAtBefore_ShouldSkipLiveAndRecentlyDeleted() {
+        // --- ARRANGE ---
+        LocalDateTime now = LocalDateTime.now();
+        Document live = new Document();
+        live.setFilename("live.pdf");
+        live.setUploadedAt(now);
+        documentRepository.save(live);
+
+        Document recent = new Document();
+        recent.setFilename("recent.pdf");
+        recent.setUploadedAt(now);
+        recent.setDeletedAt(now.minusMinutes(5));
+        documentRepository.save(recent);
+
+        Document expired = new Document();
+        expired.setFilename("expired.pdf");
+        expired.setUploadedAt(now);
+        expired.setDeletedAt(now.minusDays(2));
+        documentRepository.save(expired);
+
+        // --- ACT ---
+        List<Document> result = documentRepository.findByDeletedAtBeforeOrderByDeletedAtAsc(
+                now.minusHours(1), PageRequest.of(0, 10));
+
+        // --- ASSERT ---
+        assertThat(result).extracting(Document::getFilename).containsExactly("expired.pdf");
+    }
 }
@@ -0,0 +1,89 @@
+package com.webdynamo.document_insight.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long SLOW = TimeUnit.SECONDS.toNanos(30);
+
+    private SimpleMeterRegistry meterRegistry;
+    private AdaptiveConcurrencyLimiter limiter;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        limiter = new AdaptiveConcurrencyLimiter(meterRegistry);
+
+        ReflectionTestUtils.setField(limiter, "initialLimit", 4);
+        ReflectionTestUtils.setField(limiter, "minLimit", 2);
+        ReflectionTestUtils.setField(limiter, "maxLimit", 10);
+        ReflectionTestUtils.setField(limiter, "latencyThreshold", Duration.ofSeconds(15));
+        ReflectionTestUtils.setField(limiter, "backoffRatio", 0.5);
+
+        limiter.init();
+    }
+
+    @Test
+    @DisplayName("Should shed requests above the limit and count them")
+    void tryAcquire_OverLimit_ShouldShed() {
+        // --- ACT ---
+        for (int i = 0; i < 4; i++) {
+            assertTrue(limiter.tryAcquire());
+        }
+        boolean fifth = limiter.tryAcquire();
+
+        // --- ASSERT ---
+        assertFalse(fifth);
+        assertEquals(4, limiter.getInFlight());
+        assertEquals(1.0, meterRegistry.get("rag.concurrency.shed").counter().count());
+        assertEquals(4.0, meterRegistry.get("rag.concurrency.in_flight").gauge().value());
+    }
+
+    @Test
+    @DisplayName("Should cut the limit on slow requests, but never below the minimum")
+    void release_Slow_ShouldBackOff() {
+        // --- ACT ---
+        limiter.tryAcquire();
+        limiter.release(SLOW, false);
+        int afterOne = limiter.getLimit();
+
+        limiter.tryAcquire();
+        limiter.release(SLOW, false);
+
+        // --- ASSERT ---
+        assertEquals(2, afterOne);
+        assertEquals(2, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    @DisplayName("Should grow the limit while it is in use and requests stay fast")
+    void release_FastAtLimit_ShouldGrow() {
+        // --- ACT ---
+        // Keep the limiter saturated for a few rounds of fast requests
+        for (int round = 0; round < 20; round++) {
+            int limit = limiter.getLimit();
+            for (int i = 0; i < limit; i++) {
+                limiter.tryAcquire();
+            }
+            for (int i = 0; i < limit; i++) {
+                limiter.release(FAST, false);
+            }
+        }
+
+        // --- ASSERT ---
+        assertTrue(limiter.getLimit() > 4);
+        assertTrue(limiter.getLimit() <= 10);
+        assertEquals(limiter.getLimit(), meterRegistry.get("rag.concurrency.limit").gauge().value());
+    }
+}
@@ -0,0 +1,81 @@
+package com.webdynamo.document_insight.service;
+
+import com.webdynamo.document_insight.model.User;
+import com.webdynamo.document_insight.repo.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CachedUserDetailsServiceTest {
+
+    @Mock
+    private UserDetailsService userDetailsService;
+    @Mock
+    private UserRepository userRepository;
+
+    @InjectMocks
+    private CachedUserDetailsService cachedUserDetailsService;
+
+    private User principal;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(cachedUserDetailsService, "ttl", Duration.ofMinutes(5));
+        ReflectionTestUtils.setField(cachedUserDetailsService, "maxSize", 100L);
+        cachedUserDetailsService.init();
+
+        principal = new User();
+        principal.setId(42L);
+        principal.setEmail("alice@example.com");
+        principal.setTokenVersion(1);
+    }
+
+    @Test
+    @DisplayName("isCurrent - Should accept a token at the current version and cache the lookup")
+    void isCurrent_SameVersion_ShouldBeTrue() {
+        // --- ARRANGE ---
+        when(userRepository.findTokenVersionById(42L)).thenReturn(Optional.of(1));
+
+        // --- ACT & ASSERT ---
+        assertThat(cachedUserDetailsService.isCurrent(principal)).isTrue();
+        assertThat(cachedUserDetailsService.isCurrent(principal)).isTrue();
+        verify(userRepository, times(1)).findTokenVersionById(42L);
+    }
+
+    @Test
+    @DisplayName("isCurrent - Should reject a token issued before the version was bumped")
+    void isCurrent_BumpedVersion_ShouldBeFalse() {
+        // --- ARRANGE ---
+        when(userRepository.findTokenVersionById(42L)).thenReturn(Optional.of(1), Optional.of(2));
+        assertThat(cachedUserDetailsService.isCurrent(principal)).isTrue();
+
+        // --- ACT ---
+        cachedUserDetailsService.evictTokenVersion(42L);
+
+        // --- ASSERT ---
+        assertThat(cachedUserDetailsService.isCurrent(principal)).isFalse();
+    }
+
+    @Test
+    @DisplayName("isCurrent - Should reject a token of a deleted user")
+    void isCurrent_UnknownUser_ShouldBeFalse() {
+        // --- ARRANGE ---
+        when(userRepository.findTokenVersionById(42L)).thenReturn(Optional.empty());
+
+        // --- ACT & ASSERT ---
+        assertThat(cachedUserDetailsService.isCurrent(principal)).isFalse();
+    }
+}
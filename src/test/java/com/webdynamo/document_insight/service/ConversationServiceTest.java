@@ -5,12 +5,14 @@ import com.webdynamo.document_insight.model.ConversationMessage;
 import com.webdynamo.document_insight.model.User;
 import com.webdynamo.document_insight.repo.ConversationMessageRepository;
 import com.webdynamo.document_insight.repo.ConversationRepository;
+import io.micrometer.observation.ObservationRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.util.ArrayList;
@@ -34,6 +36,9 @@ class ConversationServiceTest {
     @Mock
     private ConversationMessageRepository messageRepository;
 
+    @Spy
+    private ObservationRegistry observationRegistry = ObservationRegistry.NOOP;
+
     @InjectMocks
     private ConversationService conversationService;
 
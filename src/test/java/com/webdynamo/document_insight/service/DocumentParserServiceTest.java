@@ -0,0 +1,123 @@
+package com.webdynamo.document_insight.service;
+
+import com.webdynamo.document_insight.service.DocumentParserService.Block;
+import com.webdynamo.document_insight.service.DocumentParserService.BlockType;
+import com.webdynamo.document_insight.service.DocumentParserService.ParsedDocument;
+import org.apache.pdfbox.io.RandomAccessReadBuffer;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.apache.poi.xwpf.usermodel.XWPFTable;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DocumentParserServiceTest {
+
+    private static final String DOCX = "application/vnd.openxmlformats-officedocument.wordprocessingml.document";
+
+    private DocumentParserService parserService;
+
+    @BeforeEach
+    void setUp() {
+        parserService = new DocumentParserService();
+    }
+
+    @Test
+    @DisplayName("parse - DOCX headings, paragraphs, list items and table rows become blocks over the text")
+    void parse_Docx_ShouldReturnStructuralBlocks() throws IOException {
+        // --- ARRANGE ---
+        byte[] docx;
+        try (XWPFDocument document = new XWPFDocument(); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            XWPFParagraph heading = document.createParagraph();
+            heading.setStyle("Heading1");
+            heading.createRun().setText("Installation");
+
+            document.createParagraph().createRun().setText("Run the installer first.");
+
+            XWPFParagraph item = document.createParagraph();
+            item.setNumID(BigInteger.ONE);
+            item.createRun().setText("Download the package");
+
+            XWPFTable table = document.createTable(2, 2);
+            table.getRow(0).getCell(0).setText("Option");
+            table.getRow(0).getCell(1).setText("Default");
+            table.getRow(1).getCell(0).setText("port");
+            table.getRow(1).getCell(1).setText("8080");
+
+            document.write(out);
+            docx = out.toByteArray();
+        }
+
+        // --- ACT ---
+        ParsedDocument parsed = parserService.parse(new RandomAccessReadBuffer(docx), DOCX);
+
+        // --- ASSERT ---
+        List<Block> blocks = parsed.blocks();
+        assertEquals(List.of(BlockType.HEADING, BlockType.PARAGRAPH, BlockType.LIST_ITEM,
+                BlockType.TABLE_ROW, BlockType.TABLE_ROW), blocks.stream().map(Block::type).toList());
+        assertEquals(1, blocks.get(0).level());
+
+        // Offsets point into the extracted text
+        String text = parsed.text();
+        assertEquals("Installation", text.substring(blocks.get(0).start(), blocks.get(0).end()));
+        assertEquals("Run the installer first.", text.substring(blocks.get(1).start(), blocks.get(1).end()));
+        assertEquals("Download the package", text.substring(blocks.get(2).start(), blocks.get(2).end()));
+        assertEquals("Option | Default", text.substring(blocks.get(3).start(), blocks.get(3).end()));
+        assertEquals("port | 8080", text.substring(blocks.get(4).start(), blocks.get(4).end()));
+    }
+
+    @Test
+    @DisplayName("parse - PDF blocks should stay in line with the text after leading whitespace is trimmed")
+    void parse_PdfWithLeadingWhitespace_ShouldShiftBlocks() throws IOException {
+        // --- ARRANGE ---
+        byte[] pdf;
+        try (PDDocument document = new PDDocument(); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            PDPage page = new PDPage();
+            document.addPage(page);
+            try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+                content.beginText();
+                content.setFont(new PDType1Font(Standard14Fonts.FontName.HELVETICA), 12);
+                // A line of spaces before the first paragraph, trimmed from the text
+                content.newLineAtOffset(72, 700);
+                content.showText("    ");
+                content.newLineAtOffset(0, -40);
+                content.showText("First paragraph of the page.");
+                content.newLineAtOffset(0, -60);
+                content.showText("Second paragraph further down.");
+                content.endText();
+            }
+            document.save(out);
+            pdf = out.toByteArray();
+        }
+
+        // --- ACT ---
+        ParsedDocument parsed = parserService.parse(new RandomAccessReadBuffer(pdf), "application/pdf");
+
+        // --- ASSERT ---
+        String text = parsed.text();
+        assertTrue(text.startsWith("First paragraph"));
+        assertEquals(1, parsed.pages());
+
+        List<Block> paragraphs = parsed.blocks().stream()
+                .filter(block -> block.type() == BlockType.PARAGRAPH)
+                .toList();
+        assertEquals(2, paragraphs.size());
+        assertEquals(0, paragraphs.get(0).start());
+        assertEquals("First paragraph of the page.",
+                text.substring(paragraphs.get(0).start(), paragraphs.get(0).end()).strip());
+        assertEquals("Second paragraph further down.",
+                text.substring(paragraphs.get(1).start(), paragraphs.get(1).end()).strip());
+    }
+}
@@ -0,0 +1,114 @@
+package com.webdynamo.document_insight.service;
+
+import com.webdynamo.document_insight.model.Document;
+import com.webdynamo.document_insight.repo.DocumentRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DocumentPurgeServiceTest {
+
+    @Mock
+    private DocumentRepository documentRepository;
+    @Mock
+    private DocumentChunkService documentChunkService;
+    @Mock
+    private FileStorageService fileStorageService;
+
+    @InjectMocks
+    private DocumentPurgeService documentPurgeService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(documentPurgeService, "batchSize", 500);
+        ReflectionTestUtils.setField(documentPurgeService, "retention", Duration.ofHours(24));
+    }
+
+    @Test
+    @DisplayName("purgeDeletedDocuments - Should only select documents tombstoned before the retention window")
+    void purgeDeletedDocuments_ShouldQueryPastRetention() {
+        // --- ARRANGE ---
+        when(documentRepository.findByDeletedAtBeforeOrderByDeletedAtAsc(any(), any())).thenReturn(List.of());
+
+        // --- ACT ---
+        LocalDateTime before = LocalDateTime.now();
+        int purged = documentPurgeService.purgeDeletedDocuments();
+        LocalDateTime after = LocalDateTime.now();
+
+        // --- ASSERT ---
+        assertThat(purged).isZero();
+        ArgumentCaptor<LocalDateTime> cutoff = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(documentRepository).findByDeletedAtBeforeOrderByDeletedAtAsc(cutoff.capture(), any(Pageable.class));
+        assertThat(cutoff.getValue()).isBetween(before.minusHours(24), after.minusHours(24));
+        verifyNoInteractions(documentChunkService, fileStorageService);
+    }
+
+    @Test
+    @DisplayName("purgeDeletedDocuments - Should delete chunks, hand the file to storage and delete the row")
+    void purgeDeletedDocuments_ShouldPurgeExpiredDocuments() {
+        // --- ARRANGE ---
+        Document flat = tombstoned(1L, "uuid_report.pdf");
+        String blob = "ab/cd/" + "abcd".repeat(16);
+        Document shared = tombstoned(2L, blob);
+        when(documentRepository.findByDeletedAtBeforeOrderByDeletedAtAsc(any(), any())).thenReturn(List.of(flat, shared));
+        when(documentChunkService.deleteChunksInBatches(anyLong(), eq(500))).thenReturn(3L);
+
+        // --- ACT ---
+        int purged = documentPurgeService.purgeDeletedDocuments();
+
+        // --- ASSERT ---
+        assertThat(purged).isEqualTo(2);
+        verify(documentChunkService).deleteChunksInBatches(1L, 500);
+        verify(documentChunkService).deleteChunksInBatches(2L, 500);
+
+        // FileStorageService deletes flat files and leaves content-addressed blobs to the garbage collector
+        verify(fileStorageService).deleteFile("uuid_report.pdf");
+        verify(fileStorageService).deleteFile(blob);
+        verify(documentRepository).delete(flat);
+        verify(documentRepository).delete(shared);
+    }
+
+    @Test
+    @DisplayName("purgeDeletedDocuments - A failing document should be kept for the next run without stopping the others")
+    void purgeDeletedDocuments_FailureShouldNotStopOthers() {
+        // --- ARRANGE ---
+        Document failing = tombstoned(1L, "uuid_a.pdf");
+        Document ok = tombstoned(2L, "uuid_b.pdf");
+        when(documentRepository.findByDeletedAtBeforeOrderByDeletedAtAsc(any(), any())).thenReturn(List.of(failing, ok));
+        when(documentChunkService.deleteChunksInBatches(1L, 500)).thenThrow(new RuntimeException("Lock timeout"));
+        when(documentChunkService.deleteChunksInBatches(2L, 500)).thenReturn(0L);
+
+        // --- ACT ---
+        int purged = documentPurgeService.purgeDeletedDocuments();
+
+        // --- ASSERT ---
+        assertThat(purged).isEqualTo(1);
+        verify(fileStorageService, never()).deleteFile("uuid_a.pdf");
+        verify(documentRepository, never()).delete(failing);
+        verify(documentRepository).delete(ok);
+    }
+
+    private Document tombstoned(Long id, String filePath) {
+        Document document = new Document();
+        document.setId(id);
+        document.setFilePath(filePath);
+        document.setDeletedAt(LocalDateTime.now().minusDays(2));
+        return document;
+    }
+}
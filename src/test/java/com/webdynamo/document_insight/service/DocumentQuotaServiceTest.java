@@ -0,0 +1,119 @@
+package com.webdynamo.document_insight.service;
+
+import com.webdynamo.document_insight.exception.UploadLimitExceededException;
+import com.webdynamo.document_insight.model.Document;
+import com.webdynamo.document_insight.repo.DocumentRepository;
+import com.webdynamo.document_insight.repo.UserRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DocumentQuotaServiceTest {
+
+    @Mock
+    private DocumentRepository documentRepository;
+    @Mock
+    private UserRepository userRepository;
+    @Mock
+    private FileStorageService fileStorageService;
+
+    @InjectMocks
+    private DocumentQuotaService documentQuotaService;
+
+    private final Long userId = 1L;
+
+    @Test
+    @DisplayName("saveWithinQuota - Should lock the user's row before summing and saving")
+    void saveWithinQuota_WithinQuota_ShouldLockThenSave() {
+        // --- ARRANGE ---
+        Document document = document(200L);
+        when(fileStorageService.getUserQuota()).thenReturn(1000L);
+        when(documentRepository.sumFileSizeByUserId(userId)).thenReturn(800L);
+        when(documentRepository.save(document)).thenReturn(document);
+
+        // --- ACT ---
+        Document saved = documentQuotaService.saveWithinQuota(document);
+
+        // --- ASSERT ---
+        assertThat(saved).isSameAs(document);
+        InOrder inOrder = inOrder(userRepository, documentRepository);
+        inOrder.verify(userRepository).findForUpdate(userId);
+        inOrder.verify(documentRepository).sumFileSizeByUserId(userId);
+        inOrder.verify(documentRepository).save(document);
+    }
+
+    @Test
+    @DisplayName("saveWithinQuota - Should reject a stored file that no longer fits the quota")
+    void saveWithinQuota_OverQuota_ShouldReject() {
+        // --- ARRANGE ---
+        // Another upload was admitted while this one was streaming
+        when(fileStorageService.getUserQuota()).thenReturn(1000L);
+        when(documentRepository.sumFileSizeByUserId(userId)).thenReturn(900L);
+
+        // --- ACT & ASSERT ---
+        assertThatThrownBy(() -> documentQuotaService.saveWithinQuota(document(200L)))
+                .isInstanceOf(UploadLimitExceededException.class);
+
+        verify(userRepository).findForUpdate(userId);
+        verify(documentRepository, never()).save(any(Document.class));
+    }
+
+    @Test
+    @DisplayName("saveWithinQuota - Should save without locking when no quota is configured")
+    void saveWithinQuota_NoQuota_ShouldNotLock() {
+        // --- ARRANGE ---
+        Document document = document(200L);
+        when(fileStorageService.getUserQuota()).thenReturn(0L);
+        when(documentRepository.save(document)).thenReturn(document);
+
+        // --- ACT ---
+        documentQuotaService.saveWithinQuota(document);
+
+        // --- ASSERT ---
+        verify(userRepository, never()).findForUpdate(anyLong());
+        verify(documentRepository, never()).sumFileSizeByUserId(anyLong());
+    }
+
+    @Test
+    @DisplayName("remainingQuota - Should cap streaming at the unused quota without locking")
+    void remainingQuota_ShouldReturnUnusedBytes() {
+        // --- ARRANGE ---
+        when(fileStorageService.getUserQuota()).thenReturn(1000L);
+        when(documentRepository.sumFileSizeByUserId(userId)).thenReturn(400L);
+
+        // --- ACT & ASSERT ---
+        assertThat(documentQuotaService.remainingQuota(userId)).isEqualTo(600L);
+        verify(userRepository, never()).findForUpdate(anyLong());
+    }
+
+    @Test
+    @DisplayName("remainingQuota - Should reject when the quota is used up")
+    void remainingQuota_QuotaUsedUp_ShouldReject() {
+        // --- ARRANGE ---
+        when(fileStorageService.getUserQuota()).thenReturn(1000L);
+        when(documentRepository.sumFileSizeByUserId(userId)).thenReturn(1000L);
+
+        // --- ACT & ASSERT ---
+        assertThatThrownBy(() -> documentQuotaService.remainingQuota(userId))
+                .isInstanceOf(UploadLimitExceededException.class);
+    }
+
+    private Document document(long fileSize) {
+        Document document = new Document();
+        document.setFilename("test.pdf");
+        document.setUserId(userId);
+        document.setFileSize(fileSize);
+        return document;
+    }
+}
@@ -1,24 +1,31 @@
 package com.webdynamo.document_insight.service;
 
+import com.webdynamo.document_insight.exception.UploadLimitExceededException;
 import com.webdynamo.document_insight.model.Document;
 import com.webdynamo.document_insight.model.DocumentChunk;
-import com.webdynamo.document_insight.repo.DocumentChunkRepository;
 import com.webdynamo.document_insight.repo.DocumentRepository;
+import com.webdynamo.document_insight.service.ActiveEmbeddingModelService.ActiveModel;
+import io.micrometer.observation.ObservationRegistry;
+import org.apache.pdfbox.io.RandomAccessRead;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
 
-import java.nio.file.Path;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
@@ -28,6 +35,8 @@ class DocumentServiceTest {
     @Mock
     private DocumentRepository documentRepository;
     @Mock
+    private DocumentQuotaService documentQuotaService;
+    @Mock
     private DocumentChunkService documentChunkService;
     @Mock
     private FileStorageService fileStorageService;
@@ -36,9 +45,13 @@ class DocumentServiceTest {
     @Mock
     private TextChunkingService textChunkingService;
     @Mock
-    private DocumentChunkRepository documentChunkRepository;
-    @Mock
     private EmbeddingService embeddingService;
+    @Mock
+    private ActiveEmbeddingModelService activeEmbeddingModelService;
+    @Mock
+    private MetricsService metricsService;
+    @Spy
+    private ObservationRegistry observationRegistry = ObservationRegistry.NOOP;
 
     @InjectMocks
     private DocumentService documentService;
@@ -46,6 +59,9 @@ class DocumentServiceTest {
     private MockMultipartFile mockFile;
     private final Long userId = 1L;
 
+    // Chunks built by the last saveChunks call
+    private List<DocumentChunk> savedChunks;
+
     @BeforeEach
     void setUp() {
         mockFile = new MockMultipartFile(
@@ -58,9 +74,10 @@ class DocumentServiceTest {
     void uploadAndProcessDocument_ShouldSucceed() {
         // --- ARRANGE ---
         String storedFilename = "uuid-test.pdf";
-        Path mockPath = Path.of("uploads/" + storedFilename);
+        RandomAccessRead mockSource = mock(RandomAccessRead.class);
         String mockText = "Extracted text content from PDF";
-        List<String> mockChunks = List.of("Chunk 1", "Chunk 2");
+        List<TextChunkingService.Chunk> mockChunks = List.of(
+                new TextChunkingService.Chunk("Chunk 1", 3), new TextChunkingService.Chunk("Chunk 2", 4));
         float[] mockEmbedding = new float[]{0.1f, 0.2f};
         String mockVector = "[0.1, 0.2]";
 
@@ -69,12 +86,18 @@ class DocumentServiceTest {
         savedDoc.setFilename("test.pdf");
 
         when(fileStorageService.isValidFileType(anyString())).thenReturn(true);
-        when(fileStorageService.storeFile(any())).thenReturn(storedFilename);
-        when(fileStorageService.getFilePath(storedFilename)).thenReturn(mockPath);
-        when(documentRepository.save(any(Document.class))).thenReturn(savedDoc);
-        when(documentParserService.parseDocument(eq(mockPath), eq("application/pdf"))).thenReturn(mockText);
-        when(textChunkingService.chunkText(mockText)).thenReturn(mockChunks);
-        when(embeddingService.generateEmbedding(anyString())).thenReturn(mockEmbedding);
+        when(fileStorageService.getMaxFileSize()).thenReturn(10L * 1024 * 1024);
+        when(documentQuotaService.remainingQuota(userId)).thenReturn(Long.MAX_VALUE);
+        when(fileStorageService.store(any(), eq("test.pdf"), anyLong(), anyLong()))
+                .thenReturn(new FileStorageService.StoredFile(storedFilename, 17L, "abc123"));
+        when(fileStorageService.openRandomAccess(storedFilename)).thenReturn(mockSource);
+        when(documentQuotaService.saveWithinQuota(any(Document.class))).thenReturn(savedDoc);
+        saveChunksUnder(new ActiveModel("all-MiniLM-L6-v2", 2));
+        DocumentParserService.ParsedDocument parsed = new DocumentParserService.ParsedDocument(mockText, 1);
+        when(documentParserService.parse(eq(mockSource), eq("application/pdf"))).thenReturn(parsed);
+        when(textChunkingService.chunkDocument(parsed)).thenReturn(mockChunks);
+        when(embeddingService.generateEmbeddingAsync(anyString(), eq(EmbeddingService.Priority.INGESTION), eq("1")))
+                .thenReturn(CompletableFuture.completedFuture(mockEmbedding));
         when(embeddingService.embeddingToVector(mockEmbedding)).thenReturn(mockVector);
 
         // --- ACT ---
@@ -85,14 +108,148 @@ class DocumentServiceTest {
         assertThat(result.getId()).isEqualTo(10L);
 
         // Verify the orchestration steps
-        verify(fileStorageService).storeFile(mockFile);
-        verify(documentRepository).save(any(Document.class));
-        verify(documentParserService).parseDocument(mockPath, "application/pdf");
-        verify(textChunkingService).chunkText(mockText);
+        verify(fileStorageService).store(any(), eq("test.pdf"), eq(mockFile.getSize()), eq(10L * 1024 * 1024));
+        verify(documentQuotaService).saveWithinQuota(any(Document.class));
+        verify(documentParserService).parse(mockSource, "application/pdf");
+        verify(textChunkingService).chunkDocument(parsed);
         
         // Verify processing for each chunk
-        verify(embeddingService, times(2)).generateEmbedding(anyString());
-        verify(documentChunkRepository, times(2)).save(any(DocumentChunk.class));
+        verify(embeddingService, times(2)).generateEmbeddingAsync(anyString(), eq(EmbeddingService.Priority.INGESTION), eq("1"));
+        verify(documentChunkService).saveChunks(any());
+        assertThat(savedChunks).extracting(DocumentChunk::getDocument).containsOnly(savedDoc);
+
+        // Token counts come from the chunker, chunks are not tokenized again
+        assertThat(savedChunks).extracting(DocumentChunk::getTokenCount).containsExactly(3, 4);
+        verify(textChunkingService, never()).estimateTokenCount(anyString());
+
+        // Verify ingestion metrics
+        verify(metricsService).recordDocumentUpload("application/pdf", 17L);
+        verify(metricsService).recordDocumentParsed("application/pdf", 1, mockText.length());
+        verify(metricsService).recordEmbeddings("application/pdf", 2);
+        verify(metricsService, times(2)).recordChunk(eq("application/pdf"), anyInt());
+        verify(metricsService).recordIngestionFinished();
+    }
+
+    @Test
+    @DisplayName("uploadAndProcessDocument - Should keep previous model vectors searchable while migrating")
+    void uploadAndProcessDocument_WhileMigrating_ShouldStageConfiguredModelVectors() {
+        // --- ARRANGE ---
+        String storedFilename = "uuid-test.pdf";
+        RandomAccessRead mockSource = mock(RandomAccessRead.class);
+        float[] newEmbedding = new float[]{0.1f, 0.2f, 0.3f};
+        float[] previousEmbedding = new float[]{0.4f, 0.5f};
+        ActiveModel previous = new ActiveModel("nomic-embed-text", 2);
+
+        Document savedDoc = new Document();
+        savedDoc.setId(10L);
+
+        when(fileStorageService.isValidFileType(anyString())).thenReturn(true);
+        when(fileStorageService.getMaxFileSize()).thenReturn(10L * 1024 * 1024);
+        when(documentQuotaService.remainingQuota(userId)).thenReturn(Long.MAX_VALUE);
+        when(fileStorageService.store(any(), eq("test.pdf"), anyLong(), anyLong()))
+                .thenReturn(new FileStorageService.StoredFile(storedFilename, 17L, "abc123"));
+        when(fileStorageService.openRandomAccess(storedFilename)).thenReturn(mockSource);
+        when(documentQuotaService.saveWithinQuota(any(Document.class))).thenReturn(savedDoc);
+        DocumentParserService.ParsedDocument parsed = new DocumentParserService.ParsedDocument("text", 1);
+        when(documentParserService.parse(eq(mockSource), eq("application/pdf"))).thenReturn(parsed);
+        when(textChunkingService.chunkDocument(parsed)).thenReturn(List.of(new TextChunkingService.Chunk("Chunk 1", 3)));
+        when(embeddingService.generateEmbeddingAsync(anyString(), eq(EmbeddingService.Priority.INGESTION), eq("1")))
+                .thenReturn(CompletableFuture.completedFuture(newEmbedding));
+        when(embeddingService.getModelId()).thenReturn("all-MiniLM-L6-v2");
+        when(embeddingService.embeddingToVector(newEmbedding)).thenReturn("[0.1,0.2,0.3]");
+        when(embeddingService.embeddingToVector(previousEmbedding)).thenReturn("[0.4,0.5]");
+        when(activeEmbeddingModelService.getActiveModel()).thenReturn(previous);
+        when(activeEmbeddingModelService.isMigrating(previous)).thenReturn(true);
+        when(activeEmbeddingModelService.embedWithPrevious(List.of("Chunk 1"))).thenReturn(List.of(previousEmbedding));
+        saveChunksUnder(previous);
+
+        // --- ACT ---
+        documentService.uploadAndProcessDocument(mockFile, userId);
+
+        // --- ASSERT ---
+        assertThat(savedChunks).hasSize(1);
+        DocumentChunk chunk = savedChunks.get(0);
+        assertThat(chunk.getEmbedding()).isEqualTo("[0.4,0.5]");
+        assertThat(chunk.getEmbeddingModel()).isEqualTo("nomic-embed-text");
+        assertThat(chunk.getEmbeddingDimension()).isEqualTo(2);
+        assertThat(chunk.getNextEmbedding()).isEqualTo("[0.1,0.2,0.3]");
+        assertThat(chunk.getNextEmbeddingModel()).isEqualTo("all-MiniLM-L6-v2");
+        assertThat(chunk.getNextEmbeddingDimension()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("uploadAndProcessDocument - Should reject upload when user quota is used up")
+    void uploadAndProcessDocument_QuotaExceeded_ShouldReject() {
+        // --- ARRANGE ---
+        when(fileStorageService.isValidFileType(anyString())).thenReturn(true);
+        when(fileStorageService.getMaxFileSize()).thenReturn(10L * 1024 * 1024);
+        when(documentQuotaService.remainingQuota(userId))
+                .thenThrow(new UploadLimitExceededException("Storage quota exceeded for user: " + userId));
+
+        // --- ACT & ASSERT ---
+        assertThatThrownBy(() -> documentService.uploadAndProcessDocument(mockFile, userId))
+                .isInstanceOf(UploadLimitExceededException.class);
+
+        verify(fileStorageService, never()).store(any(), anyString(), anyLong(), anyLong());
+        verify(documentQuotaService, never()).saveWithinQuota(any(Document.class));
+        verify(metricsService).recordIngestionFailure(
+                eq("application/pdf"), eq("store"), any(UploadLimitExceededException.class));
+        verify(metricsService).recordIngestionFinished();
+    }
+
+    @Test
+    @DisplayName("uploadAndProcessDocument - Should delete the stored file when the quota re-check fails")
+    void uploadAndProcessDocument_QuotaExceededAfterStore_ShouldDeleteFile() {
+        // --- ARRANGE ---
+        when(fileStorageService.isValidFileType(anyString())).thenReturn(true);
+        when(fileStorageService.getMaxFileSize()).thenReturn(10L * 1024 * 1024);
+        when(documentQuotaService.remainingQuota(userId)).thenReturn(100L);
+        when(fileStorageService.store(any(), eq("test.pdf"), anyLong(), eq(100L)))
+                .thenReturn(new FileStorageService.StoredFile("uuid-test.pdf", 17L, "abc123"));
+        when(documentQuotaService.saveWithinQuota(any(Document.class)))
+                .thenThrow(new UploadLimitExceededException("Storage quota exceeded for user: " + userId));
+
+        // --- ACT & ASSERT ---
+        assertThatThrownBy(() -> documentService.uploadAndProcessDocument(mockFile, userId))
+                .isInstanceOf(UploadLimitExceededException.class);
+
+        verify(fileStorageService).deleteFile("uuid-test.pdf");
+        verify(documentParserService, never()).parse(any(), anyString());
+        verify(documentRepository, never()).delete(any(Document.class));
+        verify(metricsService).recordIngestionFailure(
+                eq("application/pdf"), eq("persist"), any(UploadLimitExceededException.class));
+    }
+
+    @Test
+    @DisplayName("uploadAndProcessDocument - Should remove the saved document and its file when embedding fails")
+    void uploadAndProcessDocument_EmbeddingFails_ShouldRemoveDocument() {
+        // --- ARRANGE ---
+        String storedFilename = "uuid-test.pdf";
+        RandomAccessRead mockSource = mock(RandomAccessRead.class);
+        Document savedDoc = new Document();
+        savedDoc.setId(10L);
+
+        when(fileStorageService.isValidFileType(anyString())).thenReturn(true);
+        when(fileStorageService.getMaxFileSize()).thenReturn(10L * 1024 * 1024);
+        when(documentQuotaService.remainingQuota(userId)).thenReturn(Long.MAX_VALUE);
+        when(fileStorageService.store(any(), eq("test.pdf"), anyLong(), anyLong()))
+                .thenReturn(new FileStorageService.StoredFile(storedFilename, 17L, "abc123"));
+        when(fileStorageService.openRandomAccess(storedFilename)).thenReturn(mockSource);
+        when(documentQuotaService.saveWithinQuota(any(Document.class))).thenReturn(savedDoc);
+        DocumentParserService.ParsedDocument parsed = new DocumentParserService.ParsedDocument("text", 1);
+        when(documentParserService.parse(eq(mockSource), eq("application/pdf"))).thenReturn(parsed);
+        when(textChunkingService.chunkDocument(parsed)).thenReturn(List.of(new TextChunkingService.Chunk("Chunk 1", 3)));
+        when(embeddingService.generateEmbeddingAsync(anyString(), eq(EmbeddingService.Priority.INGESTION), eq("1")))
+                .thenReturn(CompletableFuture.failedFuture(new RuntimeException("Model unavailable")));
+
+        // --- ACT & ASSERT ---
+        assertThatThrownBy(() -> documentService.uploadAndProcessDocument(mockFile, userId))
+                .hasMessage("Model unavailable");
+
+        verify(documentChunkService, never()).saveChunks(any());
+        verify(documentRepository).delete(savedDoc);
+        verify(fileStorageService).deleteFile(storedFilename);
+        verify(metricsService).recordIngestionFailure(eq("application/pdf"), eq("embed"), any(RuntimeException.class));
     }
 
     @Test
@@ -114,4 +271,41 @@ class DocumentServiceTest {
         verify(fileStorageService).deleteFile(doc.getFilePath());
         verify(documentRepository).delete(doc);
     }
+
+    @Test
+    @DisplayName("deleteDocument - Async delete should only tombstone the document")
+    void deleteDocument_AsyncDelete_ShouldTombstone() {
+        // --- ARRANGE ---
+        ReflectionTestUtils.setField(documentService, "asyncDelete", true);
+        Long docId = 100L;
+        Document doc = new Document();
+        doc.setId(docId);
+        doc.setFilePath("some/path/file.pdf");
+
+        when(documentRepository.findById(docId)).thenReturn(Optional.of(doc));
+
+        // --- ACT ---
+        documentService.deleteDocument(docId);
+
+        // --- ASSERT ---
+        assertThat(doc.getDeletedAt()).isNotNull();
+        verify(documentRepository).save(doc);
+        verify(documentChunkService, never()).deleteAllChunksForDocument(anyLong());
+        verify(fileStorageService, never()).deleteFile(anyString());
+        verify(documentRepository, never()).delete(any(Document.class));
+
+        // Hidden from reads straight away
+        assertThat(documentService.getDocumentById(docId)).isEmpty();
+    }
+
+    /**
+     * Build the chunks passed to saveChunks for the given locked model, as DocumentChunkService does
+     */
+    private void saveChunksUnder(ActiveModel locked) {
+        when(documentChunkService.saveChunks(any())).thenAnswer(invocation -> {
+            Function<ActiveModel, List<DocumentChunk>> chunksForModel = invocation.getArgument(0);
+            savedChunks = chunksForModel.apply(locked);
+            return savedChunks;
+        });
+    }
 }
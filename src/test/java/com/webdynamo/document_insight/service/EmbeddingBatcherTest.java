@@ -0,0 +1,214 @@
+package com.webdynamo.document_insight.service;
+
+import com.webdynamo.document_insight.service.EmbeddingBatcher.LaneSettings;
+import com.webdynamo.document_insight.service.EmbeddingService.Priority;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class EmbeddingBatcherTest {
+
+    private static final String TENANT = "1";
+
+    private EmbeddingModel embeddingModel;
+    private SimpleMeterRegistry meterRegistry;
+    private EmbeddingBatcher batcher;
+
+    // Texts of every model call, in call order
+    private final List<List<String>> calls = new CopyOnWriteArrayList<>();
+
+    // Held by the first model call until released, so later requests queue up behind it
+    private final CountDownLatch firstCallStarted = new CountDownLatch(1);
+    private final CountDownLatch releaseFirstCall = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() {
+        embeddingModel = mock(EmbeddingModel.class);
+        when(embeddingModel.call(any(EmbeddingRequest.class))).thenAnswer(invocation -> {
+            List<String> texts = invocation.<EmbeddingRequest>getArgument(0).getInstructions();
+            calls.add(texts);
+            if (calls.size() == 1) {
+                firstCallStarted.countDown();
+                releaseFirstCall.await(5, TimeUnit.SECONDS);
+            }
+
+            // Each embedding holds the length of its text, so results can be matched to callers
+            List<Embedding> embeddings = new ArrayList<>();
+            for (int i = 0; i < texts.size(); i++) {
+                embeddings.add(new Embedding(new float[]{texts.get(i).length()}, i));
+            }
+            return new EmbeddingResponse(embeddings);
+        });
+
+        meterRegistry = new SimpleMeterRegistry();
+        MetricsService metricsService = new MetricsService(meterRegistry);
+        metricsService.init();
+
+        batcher = new EmbeddingBatcher(embeddingModel, metricsService, Map.of(
+                Priority.INTERACTIVE, new LaneSettings(16, Duration.ZERO),
+                Priority.INGESTION, new LaneSettings(4, Duration.ZERO),
+                Priority.REINDEX, new LaneSettings(1, Duration.ofMinutes(1))
+        ), 1, Map.of("heavy", 2));
+    }
+
+    @AfterEach
+    void tearDown() {
+        releaseFirstCall.countDown();
+        batcher.stop();
+    }
+
+    @Test
+    @DisplayName("Should batch requests queued while the model is busy into one call, each caller getting its own result")
+    void submit_WhileModelBusy_ShouldBatch() throws Exception {
+        // --- ARRANGE ---
+        CompletableFuture<float[]> first = batcher.submit("a", Priority.INTERACTIVE, TENANT);
+        assertTrue(firstCallStarted.await(5, TimeUnit.SECONDS));
+
+        CompletableFuture<float[]> second = batcher.submit("bb", Priority.INTERACTIVE, TENANT);
+        CompletableFuture<float[]> third = batcher.submit("ccc", Priority.INTERACTIVE, TENANT);
+
+        // --- ACT ---
+        releaseFirstCall.countDown();
+
+        // --- ASSERT ---
+        assertEquals(1f, first.get(5, TimeUnit.SECONDS)[0]);
+        assertEquals(2f, second.get(5, TimeUnit.SECONDS)[0]);
+        assertEquals(3f, third.get(5, TimeUnit.SECONDS)[0]);
+        assertEquals(List.of(List.of("a"), List.of("bb", "ccc")), calls);
+        assertEquals(3.0, meterRegistry.get("embedding.batch.size").tag("lane", "interactive").summary().totalAmount());
+    }
+
+    @Test
+    @DisplayName("Should serve queued interactive requests before ingestion requests queued earlier")
+    void submit_InteractiveAndIngestion_ShouldServeInteractiveFirst() throws Exception {
+        // --- ARRANGE ---
+        CompletableFuture<float[]> chunk1 = batcher.submit("chunk-1", Priority.INGESTION, TENANT);
+        assertTrue(firstCallStarted.await(5, TimeUnit.SECONDS));
+
+        CompletableFuture<float[]> chunk2 = batcher.submit("chunk-2", Priority.INGESTION, TENANT);
+        CompletableFuture<float[]> chunk3 = batcher.submit("chunk-3", Priority.INGESTION, TENANT);
+        CompletableFuture<float[]> query = batcher.submit("query", Priority.INTERACTIVE, TENANT);
+
+        // --- ACT ---
+        releaseFirstCall.countDown();
+        CompletableFuture.allOf(chunk1, chunk2, chunk3, query).get(5, TimeUnit.SECONDS);
+
+        // --- ASSERT ---
+        assertEquals(List.of(
+                List.of("chunk-1"),
+                List.of("query"),
+                List.of("chunk-2", "chunk-3")
+        ), calls);
+    }
+
+    @Test
+    @DisplayName("Should share ingestion batches between users by weight, not by arrival order")
+    void submit_SeveralUsers_ShouldShareIngestionFairly() throws Exception {
+        // --- ARRANGE ---
+        CompletableFuture<float[]> blocker = batcher.submit("blocker", Priority.INGESTION, TENANT);
+        assertTrue(firstCallStarted.await(5, TimeUnit.SECONDS));
+
+        List<CompletableFuture<float[]>> results = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            results.add(batcher.submit("big-" + i, Priority.INGESTION, "big"));
+        }
+        for (int i = 0; i < 4; i++) {
+            results.add(batcher.submit("heavy-" + i, Priority.INGESTION, "heavy"));
+        }
+        results.add(batcher.submit("small-0", Priority.INGESTION, "small"));
+
+        // --- ACT ---
+        releaseFirstCall.countDown();
+        results.add(blocker);
+        CompletableFuture.allOf(results.toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+
+        // --- ASSERT ---
+        // One turn each per round, "heavy" (weight 2) taking two requests per turn
+        assertEquals(List.of(
+                List.of("blocker"),
+                List.of("big-0", "heavy-0", "heavy-1", "small-0"),
+                List.of("big-1", "heavy-2", "heavy-3", "big-2"),
+                List.of("big-3")
+        ), calls);
+    }
+
+    @Test
+    @DisplayName("Should run reindex requests only when no other lane is waiting, or once overdue")
+    void submit_Reindex_ShouldYieldToIngestion() throws Exception {
+        // --- ARRANGE ---
+        CompletableFuture<float[]> chunk1 = batcher.submit("chunk-1", Priority.INGESTION, TENANT);
+        assertTrue(firstCallStarted.await(5, TimeUnit.SECONDS));
+
+        CompletableFuture<float[]> reindex = batcher.submit("reindex", Priority.REINDEX, TENANT);
+        CompletableFuture<float[]> chunk2 = batcher.submit("chunk-2", Priority.INGESTION, TENANT);
+
+        // --- ACT ---
+        releaseFirstCall.countDown();
+        CompletableFuture.allOf(chunk1, chunk2, reindex).get(5, TimeUnit.SECONDS);
+
+        // --- ASSERT ---
+        assertEquals(List.of(
+                List.of("chunk-1"),
+                List.of("chunk-2"),
+                List.of("reindex")
+        ), calls);
+        assertEquals(0.0, meterRegistry.get("embedding.queue.depth").tag("lane", "reindex").gauge().value());
+    }
+
+    @Test
+    @DisplayName("Should fail every caller of a batch when the model call fails")
+    void submit_ModelFails_ShouldFailCallers() {
+        // --- ARRANGE ---
+        releaseFirstCall.countDown();
+        doThrow(new RuntimeException("Model unavailable")).when(embeddingModel).call(any(EmbeddingRequest.class));
+
+        // --- ACT ---
+        CompletableFuture<float[]> result = batcher.submit("text", Priority.INTERACTIVE, TENANT);
+
+        // --- ASSERT ---
+        CompletionException e = assertThrows(CompletionException.class, result::join);
+        assertEquals("Model unavailable", e.getCause().getMessage());
+    }
+
+    @Test
+    @DisplayName("Should fail the callers of a batch whose model call throws an Error, and keep serving later batches")
+    void submit_ModelThrowsError_ShouldFailCallersAndKeepRunning() throws Exception {
+        // --- ARRANGE ---
+        releaseFirstCall.countDown();
+        doThrow(new OutOfMemoryError("Native allocation failed"))
+                .doAnswer(invocation -> new EmbeddingResponse(List.of(new Embedding(new float[]{4f}, 0))))
+                .when(embeddingModel).call(any(EmbeddingRequest.class));
+
+        // --- ACT ---
+        CompletableFuture<float[]> failed = batcher.submit("text", Priority.INTERACTIVE, TENANT);
+        ExecutionException e = assertThrows(ExecutionException.class, () -> failed.get(5, TimeUnit.SECONDS));
+        CompletableFuture<float[]> next = batcher.submit("next", Priority.INTERACTIVE, TENANT);
+
+        // --- ASSERT ---
+        assertEquals("Native allocation failed", e.getCause().getMessage());
+        assertEquals(4f, next.get(5, TimeUnit.SECONDS)[0]);
+    }
+}
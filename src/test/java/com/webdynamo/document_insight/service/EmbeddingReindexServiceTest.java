@@ -0,0 +1,209 @@
+package com.webdynamo.document_insight.service;
+
+import com.webdynamo.document_insight.model.Document;
+import com.webdynamo.document_insight.model.DocumentChunk;
+import com.webdynamo.document_insight.model.EmbeddingReindexJob;
+import com.webdynamo.document_insight.repo.DocumentChunkRepository;
+import com.webdynamo.document_insight.repo.DocumentRepository;
+import com.webdynamo.document_insight.repo.EmbeddingReindexJobRepository;
+import com.webdynamo.document_insight.service.ActiveEmbeddingModelService.ActiveModel;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class EmbeddingReindexServiceTest {
+
+    private static final String MODEL = "all-MiniLM-L6-v2";
+    private static final ActiveModel TARGET = new ActiveModel(MODEL, 2);
+    private static final ActiveModel PREVIOUS = new ActiveModel("nomic-embed-text", 768);
+
+    @Mock
+    private EmbeddingReindexJobRepository jobRepository;
+    @Mock
+    private DocumentChunkRepository documentChunkRepository;
+    @Mock
+    private DocumentRepository documentRepository;
+    @Mock
+    private DocumentChunkService documentChunkService;
+    @Mock
+    private EmbeddingService embeddingService;
+    @Mock
+    private ActiveEmbeddingModelService activeEmbeddingModelService;
+
+    @InjectMocks
+    private EmbeddingReindexService reindexService;
+
+    private EmbeddingReindexJob job;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(reindexService, "documentsPerBatch", 10);
+        ReflectionTestUtils.setField(reindexService, "batchDelay", Duration.ZERO);
+        ReflectionTestUtils.setField(reindexService, "claimTimeout", Duration.ofMinutes(5));
+
+        job = new EmbeddingReindexJob();
+        job.setId(1L);
+        job.setTargetModel(MODEL);
+        job.setTargetDimension(2);
+        job.setStatus(EmbeddingReindexJob.Status.RUNNING);
+        job.setLastDocumentId(0L);
+        job.setDocumentsDone(0L);
+        job.setChunksDone(0L);
+        job.setChunksTotal(3L);
+        job.setStartedAt(LocalDateTime.now());
+
+        lenient().when(embeddingService.embeddingToVector(any())).thenReturn("[1.0,2.0]");
+        lenient().when(jobRepository.claim(eq(1L), anyString(), any(), any(), eq(EmbeddingReindexJob.Status.RUNNING)))
+                .thenReturn(1);
+        lenient().when(activeEmbeddingModelService.getActiveModel()).thenReturn(TARGET);
+    }
+
+    @Test
+    @DisplayName("run - Should re-embed every document in the reindex lane and complete the job")
+    void run_ShouldReembedDocumentsAndComplete() {
+        // --- ARRANGE ---
+        when(documentChunkRepository.findDocumentIdsToReembed(0L, MODEL, 10)).thenReturn(List.of(5L, 7L));
+        when(documentChunkRepository.findDocumentIdsToReembed(7L, MODEL, 10)).thenReturn(List.of());
+        when(documentRepository.findById(5L)).thenReturn(Optional.of(document(5L)));
+        when(documentRepository.findById(7L)).thenReturn(Optional.of(document(7L)));
+        when(documentChunkRepository.findByDocumentIdOrderByChunkIndexAsc(5L))
+                .thenReturn(List.of(chunk(50L), chunk(51L)));
+        when(documentChunkRepository.findByDocumentIdOrderByChunkIndexAsc(7L))
+                .thenReturn(List.of(chunk(70L)));
+        when(embeddingService.generateEmbeddingAsync(anyString(), eq(EmbeddingService.Priority.REINDEX), eq("1")))
+                .thenReturn(CompletableFuture.completedFuture(new float[]{1f, 2f}));
+
+        // --- ACT ---
+        reindexService.run(job);
+
+        // --- ASSERT ---
+        // Each document switches over in one call (one transaction)
+        verify(documentChunkService).replaceEmbeddings(List.of(50L, 51L), List.of("[1.0,2.0]", "[1.0,2.0]"), MODEL, 2);
+        verify(documentChunkService).replaceEmbeddings(List.of(70L), List.of("[1.0,2.0]"), MODEL, 2);
+
+        assertThat(job.getStatus()).isEqualTo(EmbeddingReindexJob.Status.COMPLETED);
+        assertThat(job.getDocumentsDone()).isEqualTo(2L);
+        assertThat(job.getChunksDone()).isEqualTo(3L);
+        assertThat(job.getLastDocumentId()).isEqualTo(7L);
+        assertThat(job.getFinishedAt()).isNotNull();
+    }
+
+    @Test
+    @DisplayName("run - Should fail the job without advancing past the document that failed")
+    void run_EmbeddingFails_ShouldFailResumably() {
+        // --- ARRANGE ---
+        when(documentChunkRepository.findDocumentIdsToReembed(0L, MODEL, 10)).thenReturn(List.of(5L));
+        when(documentRepository.findById(5L)).thenReturn(Optional.of(document(5L)));
+        when(documentChunkRepository.findByDocumentIdOrderByChunkIndexAsc(5L)).thenReturn(List.of(chunk(50L)));
+        when(embeddingService.generateEmbeddingAsync(anyString(), eq(EmbeddingService.Priority.REINDEX), eq("1")))
+                .thenReturn(CompletableFuture.failedFuture(new RuntimeException("Model unavailable")));
+
+        // --- ACT ---
+        reindexService.run(job);
+
+        // --- ASSERT ---
+        assertThat(job.getStatus()).isEqualTo(EmbeddingReindexJob.Status.FAILED);
+        assertThat(job.getError()).isEqualTo("Model unavailable");
+        assertThat(job.getLastDocumentId()).isEqualTo(0L);
+        verify(documentChunkService, never()).replaceEmbeddings(any(), any(), anyString(), anyInt());
+        verify(jobRepository).save(job);
+    }
+
+    @Test
+    @DisplayName("run - Should stage new vectors while search uses the previous model, then cut over")
+    void run_WhileMigrating_ShouldStageAndCutOver() {
+        // --- ARRANGE ---
+        when(activeEmbeddingModelService.getActiveModel()).thenReturn(PREVIOUS);
+        when(activeEmbeddingModelService.isMigrating(PREVIOUS)).thenReturn(true);
+        when(documentChunkRepository.findDocumentIdsToReembed(0L, MODEL, 10))
+                .thenReturn(List.of(5L), List.of(9L));
+        when(documentChunkRepository.findDocumentIdsToReembed(5L, MODEL, 10)).thenReturn(List.of());
+        when(documentChunkRepository.findDocumentIdsToReembed(9L, MODEL, 10)).thenReturn(List.of());
+        when(documentRepository.findById(anyLong())).thenAnswer(call -> Optional.of(document(call.getArgument(0))));
+        when(documentChunkRepository.findByDocumentIdOrderByChunkIndexAsc(5L)).thenReturn(List.of(chunk(50L)));
+        when(documentChunkRepository.findByDocumentIdOrderByChunkIndexAsc(9L)).thenReturn(List.of(chunk(90L)));
+        when(embeddingService.generateEmbeddingAsync(anyString(), eq(EmbeddingService.Priority.REINDEX), eq("1")))
+                .thenReturn(CompletableFuture.completedFuture(new float[]{1f, 2f}));
+        // Document 9 was uploaded by an instance still on the previous model during the first pass
+        when(activeEmbeddingModelService.cutOver(TARGET)).thenReturn(false, true);
+
+        // --- ACT ---
+        reindexService.run(job);
+
+        // --- ASSERT ---
+        verify(documentChunkRepository).clearNextEmbeddingsExcept(MODEL);
+        verify(documentChunkService).stageEmbeddings(List.of(50L), List.of("[1.0,2.0]"), MODEL, 2);
+        verify(documentChunkService).stageEmbeddings(List.of(90L), List.of("[1.0,2.0]"), MODEL, 2);
+        verify(documentChunkService, never()).replaceEmbeddings(any(), any(), anyString(), anyInt());
+        verify(activeEmbeddingModelService, times(2)).cutOver(TARGET);
+        assertThat(job.getStatus()).isEqualTo(EmbeddingReindexJob.Status.COMPLETED);
+    }
+
+    @Test
+    @DisplayName("run - Should stop without saving when another instance took the run over")
+    void run_ClaimLost_ShouldStop() {
+        // --- ARRANGE ---
+        when(documentChunkRepository.findDocumentIdsToReembed(0L, MODEL, 10)).thenReturn(List.of(5L));
+        when(jobRepository.claim(eq(1L), anyString(), any(), any(), eq(EmbeddingReindexJob.Status.RUNNING)))
+                .thenReturn(0);
+
+        // --- ACT ---
+        reindexService.run(job);
+
+        // --- ASSERT ---
+        verify(embeddingService, never()).generateEmbeddingAsync(anyString(), any(), anyString());
+        verify(jobRepository, never()).save(any());
+        assertThat(job.getStatus()).isEqualTo(EmbeddingReindexJob.Status.RUNNING);
+    }
+
+    @Test
+    @DisplayName("start - Should return a run another instance is working on without starting a worker")
+    void start_RunClaimedElsewhere_ShouldNotStartWorker() {
+        // --- ARRANGE ---
+        when(jobRepository.findFirstByOrderByIdDesc()).thenReturn(Optional.of(job));
+        when(activeEmbeddingModelService.getConfiguredModel()).thenReturn(TARGET);
+        when(jobRepository.claim(eq(1L), anyString(), any(), any(), eq(EmbeddingReindexJob.Status.RUNNING)))
+                .thenReturn(0);
+
+        // --- ACT ---
+        EmbeddingReindexJob result = reindexService.start();
+
+        // --- ASSERT ---
+        assertThat(result).isSameAs(job);
+        assertThat(reindexService.isRunning()).isFalse();
+        verify(jobRepository, never()).save(any());
+    }
+
+    private static Document document(Long id) {
+        Document document = new Document();
+        document.setId(id);
+        document.setUserId(1L);
+        return document;
+    }
+
+    private static DocumentChunk chunk(Long id) {
+        DocumentChunk chunk = new DocumentChunk();
+        chunk.setId(id);
+        chunk.setContent("chunk " + id);
+        return chunk;
+    }
+}
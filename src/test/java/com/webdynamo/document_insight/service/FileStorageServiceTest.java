@@ -0,0 +1,139 @@
+package com.webdynamo.document_insight.service;
+
+import com.webdynamo.document_insight.config.FileStorageConfig;
+import com.webdynamo.document_insight.exception.UploadLimitExceededException;
+import com.webdynamo.document_insight.storage.FileSystemBlobStore;
+import com.webdynamo.document_insight.storage.InMemoryBlobStore;
+import org.apache.pdfbox.io.RandomAccessRead;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FileStorageServiceTest {
+
+    @TempDir
+    Path uploadDir;
+
+    private FileStorageConfig config;
+    private FileStorageService fileStorageService;
+
+    @BeforeEach
+    void setUp() {
+        config = new FileStorageConfig();
+        config.setUploadDir(uploadDir.toString());
+
+        fileStorageService = new FileStorageService(config, new FileSystemBlobStore(uploadDir));
+        fileStorageService.init();
+    }
+
+    @Test
+    @DisplayName("store - Should write the stream to disk with its size and SHA-256")
+    void store_ShouldHashAndCountBytes() throws Exception {
+        // --- ARRANGE ---
+        byte[] content = "hello".getBytes(StandardCharsets.UTF_8);
+
+        // --- ACT ---
+        FileStorageService.StoredFile stored = fileStorageService.store(
+                new ByteArrayInputStream(content), "notes.txt", -1, 1024);
+
+        // --- ASSERT ---
+        assertThat(stored.size()).isEqualTo(5);
+        // sha256("hello")
+        assertThat(stored.sha256())
+                .isEqualTo("2cf24dba5fb0a30e26e83b2ac5b9e29e1b161e5c1fa7425e73043362938b9824");
+        assertThat(Files.readAllBytes(uploadDir.resolve(stored.filename()))).isEqualTo(content);
+        assertThat(stagingFiles()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("store - Should abort and clean up when the stream exceeds the limit")
+    void store_OverLimit_ShouldAbort() throws Exception {
+        // --- ARRANGE ---
+        byte[] content = new byte[2048];
+
+        // --- ACT & ASSERT ---
+        // No Content-Length, so the limit can only be detected while streaming
+        assertThatThrownBy(() -> fileStorageService.store(new ByteArrayInputStream(content), "big.txt", -1, 1024))
+                .isInstanceOf(UploadLimitExceededException.class);
+
+        assertThat(stagingFiles()).isEmpty();
+        try (Stream<Path> files = Files.list(uploadDir)) {
+            assertThat(files.filter(Files::isRegularFile)).isEmpty();
+        }
+    }
+
+    @Test
+    @DisplayName("store - Should reject early when the declared length is over the limit")
+    void store_DeclaredLengthOverLimit_ShouldRejectEarly() {
+        assertThatThrownBy(() -> fileStorageService.store(new ByteArrayInputStream(new byte[0]), "big.txt", 4096, 1024))
+                .isInstanceOf(UploadLimitExceededException.class);
+    }
+
+    @Test
+    @DisplayName("store - Content-addressed layout should shard by hash and deduplicate identical files")
+    void store_ContentAddressed_ShouldDeduplicate() throws Exception {
+        // --- ARRANGE ---
+        config.setLayout(FileStorageConfig.Layout.CONTENT_ADDRESSED);
+        byte[] content = "hello".getBytes(StandardCharsets.UTF_8);
+
+        // --- ACT ---
+        FileStorageService.StoredFile first = fileStorageService.store(
+                new ByteArrayInputStream(content), "a.txt", -1, 1024);
+        FileStorageService.StoredFile second = fileStorageService.store(
+                new ByteArrayInputStream(content), "b.txt", -1, 1024);
+
+        // --- ASSERT ---
+        assertThat(first.filename())
+                .isEqualTo("2c/f2/2cf24dba5fb0a30e26e83b2ac5b9e29e1b161e5c1fa7425e73043362938b9824");
+        assertThat(second.filename()).isEqualTo(first.filename());
+        assertThat(fileStorageService.isContentAddressedName(first.filename())).isTrue();
+        assertThat(Files.readAllBytes(uploadDir.resolve(first.filename()))).isEqualTo(content);
+        assertThat(stagingFiles()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("store - Should hand uploads to a remote blob store and read them back with ranged reads")
+    void store_RemoteBlobStore_ShouldReadBackThroughRanges() throws Exception {
+        // --- ARRANGE ---
+        InMemoryBlobStore blobStore = new InMemoryBlobStore();
+        FileStorageService remoteStorage = new FileStorageService(config, blobStore);
+        remoteStorage.init();
+
+        // Spans several 64KB read blocks
+        byte[] content = new byte[200_000];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) (i % 251);
+        }
+
+        // --- ACT ---
+        FileStorageService.StoredFile stored = remoteStorage.store(
+                new ByteArrayInputStream(content), "big.bin", content.length, 1_000_000);
+
+        byte[] tail = new byte[100];
+        try (RandomAccessRead source = remoteStorage.openRandomAccess(stored.filename())) {
+            source.seek(content.length - 100);
+            source.read(tail, 0, tail.length);
+        }
+
+        // --- ASSERT ---
+        assertThat(blobStore.getBytes(stored.filename())).isEqualTo(content);
+        assertThat(tail).isEqualTo(java.util.Arrays.copyOfRange(content, content.length - 100, content.length));
+        assertThat(stagingFiles()).isEmpty();
+    }
+
+    private java.util.List<Path> stagingFiles() throws Exception {
+        try (Stream<Path> files = Files.list(uploadDir.resolve(".staging"))) {
+            return files.toList();
+        }
+    }
+}
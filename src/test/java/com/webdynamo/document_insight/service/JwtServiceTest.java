@@ -0,0 +1,122 @@
+package com.webdynamo.document_insight.service;
+
+import com.webdynamo.document_insight.model.Role;
+import com.webdynamo.document_insight.model.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtServiceTest {
+
+    private JwtService jwtService;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        jwtService = new JwtService();
+
+        // @Value fields are set by hand to keep the test free of a Spring context
+        ReflectionTestUtils.setField(jwtService, "SECRET_KEY",
+                "mySecretKeyThatIsAtLeast256BitsLongForHS256AlgorithmSecurityRequirement");
+        ReflectionTestUtils.setField(jwtService, "jwtExpiration", 60_000L);
+        ReflectionTestUtils.setField(jwtService, "refreshExpiration", 120_000L);
+        ReflectionTestUtils.setField(jwtService, "verifiedTokenTtl", Duration.ofMinutes(1));
+        ReflectionTestUtils.setField(jwtService, "verifiedTokenCacheSize", 100L);
+        ReflectionTestUtils.setField(jwtService, "statelessPrincipal", true);
+        jwtService.init();
+
+        user = new User();
+        user.setId(42L);
+        user.setEmail("alice@example.com");
+        user.setName("Alice");
+    }
+
+    @Test
+    @DisplayName("verify - Should parse a valid token once into its email and expiry")
+    void verify_ValidToken_ShouldReturnClaims() {
+        // --- ARRANGE ---
+        String token = jwtService.generateToken(user);
+
+        // --- ACT ---
+        Optional<JwtService.VerifiedToken> verified = jwtService.verify(token);
+
+        // --- ASSERT ---
+        assertTrue(verified.isPresent());
+        assertEquals("alice@example.com", verified.get().email());
+        assertFalse(verified.get().isExpired());
+        // Second call is served from the cache and yields the same object
+        assertSame(verified.get(), jwtService.verify(token).orElseThrow());
+        assertTrue(jwtService.isTokenValid(token, user));
+    }
+
+    @Test
+    @DisplayName("verify - Should reject a token with a tampered signature")
+    void verify_TamperedToken_ShouldBeEmpty() {
+        // --- ARRANGE ---
+        String token = jwtService.generateToken(user);
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("AA") ? "BB" : "AA");
+
+        // --- ACT & ASSERT ---
+        assertTrue(jwtService.verify(tampered).isEmpty());
+        assertThrows(RuntimeException.class, () -> jwtService.extractEmail(tampered));
+    }
+
+    @Test
+    @DisplayName("verify - Should reject an expired token")
+    void verify_ExpiredToken_ShouldBeEmpty() {
+        // --- ARRANGE ---
+        ReflectionTestUtils.setField(jwtService, "jwtExpiration", -1_000L);
+        String token = jwtService.generateToken(user);
+
+        // --- ACT & ASSERT ---
+        assertTrue(jwtService.verify(token).isEmpty());
+        assertFalse(jwtService.isTokenValid(token, user));
+    }
+
+    @Test
+    @DisplayName("principalFrom - Should build the user from access token claims")
+    void principalFrom_AccessToken_ShouldCarryIdAndRole() {
+        // --- ARRANGE ---
+        String token = jwtService.generateToken(user);
+
+        // --- ACT ---
+        Optional<User> principal = jwtService.principalFrom(jwtService.verify(token).orElseThrow());
+
+        // --- ASSERT ---
+        assertTrue(principal.isPresent());
+        assertEquals(42L, principal.get().getId());
+        assertEquals("alice@example.com", principal.get().getEmail());
+        assertEquals("Alice", principal.get().getName());
+        assertEquals(Role.USER, principal.get().getRole());
+        assertEquals(0, principal.get().getTokenVersion());
+    }
+
+    @Test
+    @DisplayName("principalFrom - Should carry the token version the token was issued at")
+    void principalFrom_BumpedVersion_ShouldCarryIssuedVersion() {
+        // --- ARRANGE ---
+        String oldToken = jwtService.generateToken(user);
+        user.setTokenVersion(3);
+        String newToken = jwtService.generateToken(user);
+
+        // --- ACT & ASSERT ---
+        assertEquals(0, jwtService.principalFrom(jwtService.verify(oldToken).orElseThrow()).orElseThrow().getTokenVersion());
+        assertEquals(3, jwtService.principalFrom(jwtService.verify(newToken).orElseThrow()).orElseThrow().getTokenVersion());
+    }
+
+    @Test
+    @DisplayName("principalFrom - Refresh tokens carry no principal claims")
+    void principalFrom_RefreshToken_ShouldBeEmpty() {
+        // --- ARRANGE ---
+        String token = jwtService.generateRefreshToken(user);
+
+        // --- ACT & ASSERT ---
+        assertTrue(jwtService.principalFrom(jwtService.verify(token).orElseThrow()).isEmpty());
+    }
+}
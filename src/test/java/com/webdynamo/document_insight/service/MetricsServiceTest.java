@@ -0,0 +1,67 @@
+package com.webdynamo.document_insight.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MetricsServiceTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private MetricsService metricsService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        metricsService = new MetricsService(meterRegistry);
+        metricsService.init();
+    }
+
+    @Test
+    @DisplayName("recordRateLimitAllowed - Should increment the pre-registered counter")
+    void recordRateLimitAllowed_ShouldIncrementCounter() {
+        // --- ACT ---
+        metricsService.recordRateLimitAllowed(true);
+        metricsService.recordRateLimitAllowed(true);
+        metricsService.recordRateLimitAllowed(false);
+
+        // --- ASSERT ---
+        assertThat(meterRegistry.get("rate_limit.requests").tag("authenticated", "true").counter().count())
+                .isEqualTo(2);
+        assertThat(meterRegistry.get("rate_limit.requests").tag("authenticated", "false").counter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("recordRateLimitExceeded - Should group endpoints beyond the limit as 'other'")
+    void recordRateLimitExceeded_ManyEndpoints_ShouldStayBounded() {
+        // --- ACT ---
+        for (int i = 0; i < MetricsService.MAX_ENDPOINTS + 10; i++) {
+            metricsService.recordRateLimitExceeded(true, "/api/documents/" + i);
+        }
+        metricsService.recordRateLimitExceeded(true, "/api/documents/0");
+
+        // --- ASSERT ---
+        assertThat(meterRegistry.find("rate_limit.violations").counters()).hasSize(MetricsService.MAX_ENDPOINTS + 1);
+        assertThat(meterRegistry.get("rate_limit.violations").tag("endpoint", "/api/documents/0").counter().count())
+                .isEqualTo(2);
+        assertThat(meterRegistry.get("rate_limit.violations").tag("endpoint", MetricsService.OTHER_ENDPOINT)
+                .counter().count()).isEqualTo(10);
+    }
+
+    @Test
+    @DisplayName("recordChunk - Should record chunk count and size per content type")
+    void recordChunk_ShouldRecordPerType() {
+        // --- ACT ---
+        metricsService.recordChunk("application/pdf", 1200);
+        metricsService.recordChunk("application/pdf", 800);
+
+        // --- ASSERT ---
+        assertThat(meterRegistry.get("ingestion.chunks").tag("type", "application/pdf").counter().count())
+                .isEqualTo(2);
+        assertThat(meterRegistry.get("ingestion.chunk_size_chars").tag("type", "application/pdf").summary().mean())
+                .isEqualTo(1000);
+    }
+}
@@ -0,0 +1,86 @@
+package com.webdynamo.document_insight.service;
+
+import com.webdynamo.document_insight.config.ModelWarmupHealthIndicator;
+import com.webdynamo.document_insight.service.EmbeddingService.Priority;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ModelWarmupServiceTest {
+
+    private EmbeddingService embeddingService;
+    private SimpleMeterRegistry meterRegistry;
+    private ModelWarmupService warmupService;
+    private ModelWarmupHealthIndicator healthIndicator;
+
+    @BeforeEach
+    void setUp() {
+        embeddingService = mock(EmbeddingService.class);
+        meterRegistry = new SimpleMeterRegistry();
+        MetricsService metricsService = new MetricsService(meterRegistry);
+        metricsService.init();
+
+        warmupService = new ModelWarmupService(embeddingService, metricsService);
+        ReflectionTestUtils.setField(warmupService, "enabled", true);
+        ReflectionTestUtils.setField(warmupService, "iterations", 3);
+        ReflectionTestUtils.setField(warmupService, "retryDelay", Duration.ofSeconds(10));
+
+        healthIndicator = new ModelWarmupHealthIndicator(warmupService);
+    }
+
+    @Test
+    @DisplayName("Should report out of service until the warm-up has run")
+    void health_BeforeWarmup_ShouldBeOutOfService() {
+        // --- ACT & ASSERT ---
+        assertEquals(Status.OUT_OF_SERVICE, healthIndicator.health().getStatus());
+    }
+
+    @Test
+    @DisplayName("Should embed the synthetic queries, report up and record time to ready")
+    void warmUp_ModelAnswers_ShouldBecomeReady() {
+        // --- ARRANGE ---
+        when(embeddingService.generateEmbedding(anyString(), eq(Priority.INTERACTIVE))).thenReturn(new float[]{1f});
+
+        // --- ACT ---
+        boolean ready = warmupService.warmUp();
+
+        // --- ASSERT ---
+        assertTrue(ready);
+        verify(embeddingService, times(3)).generateEmbedding(anyString(), eq(Priority.INTERACTIVE));
+        verify(embeddingService).generateEmbeddings(anyList());
+        assertEquals(ModelWarmupService.State.READY, warmupService.getState());
+        assertEquals(Status.UP, healthIndicator.health().getStatus());
+        assertTrue(meterRegistry.get("model.warmup.time_to_ready").timeGauge().value() > 0);
+    }
+
+    @Test
+    @DisplayName("Should stay out of service and expose the error when the model fails")
+    void warmUp_ModelFails_ShouldStayOutOfService() {
+        // --- ARRANGE ---
+        when(embeddingService.generateEmbeddings(anyList())).thenThrow(new RuntimeException("Connection refused"));
+
+        // --- ACT ---
+        boolean ready = warmupService.warmUp();
+
+        // --- ASSERT ---
+        assertFalse(ready);
+        assertEquals(ModelWarmupService.State.WARMING, warmupService.getState());
+        assertEquals(Status.OUT_OF_SERVICE, healthIndicator.health().getStatus());
+        assertEquals("Connection refused", healthIndicator.health().getDetails().get("lastError"));
+        assertTrue(meterRegistry.find("model.warmup.time_to_ready").timeGauges().isEmpty());
+    }
+}
@@ -2,14 +2,23 @@ package com.webdynamo.document_insight.service;
 
 import com.webdynamo.document_insight.dto.RAGResponse;
 import com.webdynamo.document_insight.model.User;
+import io.micrometer.core.instrument.observation.DefaultMeterObservationHandler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.messages.AssistantMessage;
 import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
 import reactor.core.publisher.Flux;
 import reactor.test.StepVerifier;
 
@@ -17,6 +26,7 @@ import java.util.List;
 import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
@@ -31,10 +41,24 @@ class RAGQueryServiceTest {
     private ChatModel chatModel;
     @Mock
     private MetricsService metricsService;
+    @Mock
+    private RateLimitService rateLimitService;
+    @Mock
+    private AdaptiveConcurrencyLimiter concurrencyLimiter;
+    @Spy
+    private ObservationRegistry observationRegistry = ObservationRegistry.create();
 
     @InjectMocks
     private RAGQueryService ragQueryService;
 
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @BeforeEach
+    void setUp() {
+        // Record stage observations as timers so tests can check them
+        observationRegistry.observationConfig().observationHandler(new DefaultMeterObservationHandler(meterRegistry));
+    }
+
     @Test
     @DisplayName("answerQuestionForUser - Should return answer with sources")
     void answerQuestionForUser_ShouldSucceed() {
@@ -47,7 +71,10 @@ class RAGQueryServiceTest {
 
         when(vectorSearchService.searchSimilarChunksForUser(eq(question), eq(userId), anyInt()))
                 .thenReturn(mockChunks);
-        when(chatModel.call(anyString())).thenReturn("Processed Policy Answer");
+        when(chatModel.call(any(Prompt.class))).thenReturn(
+                new ChatResponse(List.of(new Generation(new AssistantMessage("Processed Policy Answer")))));
+        // The response carries no usage, so the cost is estimated from the text
+        when(rateLimitService.estimateTokens(anyLong())).thenReturn(42L);
 
         // --- ACT ---
         RAGResponse result = ragQueryService.answerQuestionForUser(question, userId, 5);
@@ -58,6 +85,29 @@ class RAGQueryServiceTest {
         assertThat(result.getSources().get(0).getFilename()).isEqualTo("manual.pdf");
         
         verify(metricsService).recordRagQuery(1);
+        verify(rateLimitService).reportRagTokenUsage(42L);
+
+        assertThat(meterRegistry.get("rag.query").tag("mode", "sync").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("rag.stage").tag("stage", "context").tag("mode", "sync").timer().count())
+                .isEqualTo(1);
+        assertThat(meterRegistry.get("rag.stage").tag("stage", "llm").tag("mode", "sync").timer().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("answerQuestionForUser - Should report a failed model call to the concurrency limiter")
+    void answerQuestionForUser_ModelFails_ShouldReportFailure() {
+        // --- ARRANGE ---
+        List<Map<String, Object>> mockChunks = List.of(
+                Map.of("content", "Policy details...", "filename", "manual.pdf", "similarity", 0.9, "document_id", 101L)
+        );
+        when(vectorSearchService.searchSimilarChunksForUser(anyString(), anyLong(), anyInt())).thenReturn(mockChunks);
+        when(chatModel.call(any(Prompt.class))).thenThrow(new RuntimeException("Read timed out"));
+
+        // --- ACT & ASSERT ---
+        assertThatThrownBy(() -> ragQueryService.answerQuestionForUser("What is the policy?", 1L, 5))
+                .hasMessage("Read timed out");
+        verify(concurrencyLimiter).reportFailure();
     }
 
     @Test
@@ -96,5 +146,8 @@ class RAGQueryServiceTest {
                 .verifyComplete();
 
         verify(metricsService).recordRagQuery(1);
+        assertThat(meterRegistry.get("rag.stage").tag("stage", "llm_first_token").tag("mode", "stream").timer().count())
+                .isEqualTo(1);
+        assertThat(meterRegistry.get("rag.query").tag("mode", "stream").timer().count()).isEqualTo(1);
     }
 }
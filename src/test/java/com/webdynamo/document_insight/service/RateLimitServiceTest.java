@@ -2,6 +2,7 @@ package com.webdynamo.document_insight.service;
 
 import com.webdynamo.document_insight.model.BucketType;
 import io.github.bucket4j.Bucket;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -17,7 +18,7 @@ class RateLimitServiceTest {
 
     @BeforeEach
     void setUp() {
-        rateLimitService = new RateLimitService();
+        rateLimitService = new RateLimitService(new SimpleMeterRegistry());
 
         // Since RateLimitService uses @Value on private fields, 
         // and we aren't loading the full Spring Context (to keep tests fast),
@@ -37,6 +38,19 @@ class RateLimitServiceTest {
         ReflectionTestUtils.setField(rateLimitService, "ragUnauthCapacity", 5);
         ReflectionTestUtils.setField(rateLimitService, "ragUnauthRefillTokens", 5);
         ReflectionTestUtils.setField(rateLimitService, "ragUnauthRefillDuration", Duration.ofMinutes(1));
+
+        ReflectionTestUtils.setField(rateLimitService, "ragReferenceTokens", 2000L);
+        ReflectionTestUtils.setField(rateLimitService, "ragCostEnabled", true);
+        ReflectionTestUtils.setField(rateLimitService, "ragTokensPerChunk", 500L);
+        ReflectionTestUtils.setField(rateLimitService, "ragPromptOverheadTokens", 100L);
+        ReflectionTestUtils.setField(rateLimitService, "ragAnswerTokens", 500L);
+        ReflectionTestUtils.setField(rateLimitService, "charsPerToken", 4);
+
+        ReflectionTestUtils.setField(rateLimitService, "storeMaxSize", 1000L);
+        ReflectionTestUtils.setField(rateLimitService, "storeIdleExpiry", Duration.ofMinutes(10));
+
+        // Bucket stores are built from the values above
+        rateLimitService.init();
     }
 
     @Test
@@ -72,4 +86,53 @@ class RateLimitServiceTest {
         // In setUp, we set ragAuthRefillDuration to 1 minute (60 seconds)
         assertEquals(60, seconds);
     }
+
+    @Test
+    @DisplayName("Should keep one bucket per user and separate general and RAG buckets")
+    void resolveBucket_SameUser_ShouldReuseBucket() {
+        // --- ACT ---
+        Bucket first = rateLimitService.resolveBucket(1L);
+        first.tryConsume(1);
+        Bucket second = rateLimitService.resolveBucket(1L);
+        Bucket rag = rateLimitService.getRAGBucket(1L);
+
+        // --- ASSERT ---
+        assertSame(first, second);
+        assertEquals(99, second.getAvailableTokens());
+        assertNotSame(first, rag);
+        // RAG buckets hold 20 standard queries worth of LLM tokens
+        assertEquals(20 * 2000, rag.getAvailableTokens());
+    }
+
+    @Test
+    @DisplayName("Should charge RAG requests by retrieved context and question size")
+    void estimateRagCost_ShouldScaleWithContext() {
+        // --- ACT ---
+        long small = rateLimitService.estimateRagCost(1, 40, true);
+        long large = rateLimitService.estimateRagCost(7, 400, true);
+        long capped = rateLimitService.estimateRagCost(10, 1_000_000, false);
+
+        // --- ASSERT ---
+        // overhead + chunks + question / 4 + expected answer
+        assertEquals(100 + 500 + 10 + 500, small);
+        assertEquals(100 + 3500 + 100 + 500, large);
+        // Never more than an unauthenticated bucket holds (5 x 2000)
+        assertEquals(10_000, capped);
+    }
+
+    @Test
+    @DisplayName("Should refund unused reservation and charge extra usage")
+    void reconcileRagCost_ShouldSettleAgainstActualUsage() {
+        // --- ARRANGE ---
+        Bucket bucket = rateLimitService.getRAGBucket(1L);
+        bucket.tryConsume(3000);
+
+        // --- ACT & ASSERT ---
+        rateLimitService.reconcileRagCost(bucket, 3000, 1000, true);
+        assertEquals(40_000 - 1000, bucket.getAvailableTokens());
+
+        bucket.tryConsume(1000);
+        rateLimitService.reconcileRagCost(bucket, 1000, 5000, true);
+        assertEquals(40_000 - 1000 - 5000, bucket.getAvailableTokens());
+    }
 }
@@ -0,0 +1,74 @@
+package com.webdynamo.document_insight.service;
+
+import com.webdynamo.document_insight.config.FileStorageConfig;
+import com.webdynamo.document_insight.repo.DocumentRepository;
+import com.webdynamo.document_insight.storage.InMemoryBlobStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class StorageGarbageCollectorTest {
+
+    private static final String REFERENCED =
+            "aa/aa/aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa";
+    private static final String ORPHANED =
+            "bb/bb/bbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbb";
+    private static final String FRESH =
+            "cc/cc/cccccccccccccccccccccccccccccccccccccccccccccccccccccccccccccccc";
+
+    @TempDir
+    Path uploadDir;
+
+    private InMemoryBlobStore blobStore;
+    private DocumentRepository documentRepository;
+    private StorageGarbageCollector garbageCollector;
+
+    @BeforeEach
+    void setUp() {
+        FileStorageConfig config = new FileStorageConfig();
+        config.setUploadDir(uploadDir.toString());
+        config.setLayout(FileStorageConfig.Layout.CONTENT_ADDRESSED);
+
+        blobStore = new InMemoryBlobStore();
+        documentRepository = mock(DocumentRepository.class);
+
+        FileStorageService fileStorageService = new FileStorageService(config, blobStore);
+        fileStorageService.init();
+        garbageCollector = new StorageGarbageCollector(fileStorageService, blobStore, config, documentRepository);
+    }
+
+    @Test
+    @DisplayName("collectGarbage - Should delete only old blobs that no document references")
+    void collectGarbage_ShouldDeleteUnreferencedBlobs() {
+        // --- ARRANGE ---
+        Instant old = Instant.now().minus(Duration.ofDays(1));
+        blobStore.putBytes(REFERENCED, new byte[]{1}, old);
+        blobStore.putBytes(ORPHANED, new byte[]{2}, old);
+        blobStore.putBytes(FRESH, new byte[]{3}, Instant.now());
+        blobStore.putBytes("1234_legacy.pdf", new byte[]{4}, old);
+
+        when(documentRepository.findReferencedFilePaths(anyCollection())).thenReturn(List.of(REFERENCED));
+
+        // --- ACT ---
+        garbageCollector.collectGarbage();
+
+        // --- ASSERT ---
+        assertThat(blobStore.exists(REFERENCED)).isTrue();
+        assertThat(blobStore.exists(ORPHANED)).isFalse();
+        // Inside the grace period: may belong to an upload that is still being committed
+        assertThat(blobStore.exists(FRESH)).isTrue();
+        // Flat-layout files are never collected
+        assertThat(blobStore.exists("1234_legacy.pdf")).isTrue();
+    }
+}
@@ -1,10 +1,14 @@
 package com.webdynamo.document_insight.service;
 
+import com.webdynamo.document_insight.embedding.TextTokenizer;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -65,4 +69,142 @@ class TextChunkingServiceTest {
         assertTrue(chunks.get(0).endsWith("."), "Chunk should end at the period, not split the 'B's");
         assertEquals(1951, chunks.get(0).length());
     }
+
+    @Test
+    @DisplayName("Should return the same chunks as offsets into the text")
+    void chunkSpans_MatchChunkText() {
+        // --- ARRANGE ---
+        String input = "  " + "Lorem ipsum dolor sit amet. ".repeat(300);
+
+        // --- ACT ---
+        List<String> chunks = chunkingService.chunkText(input);
+        List<TextChunkingService.ChunkSpan> spans = chunkingService.chunkSpans(input);
+
+        // --- ASSERT ---
+        assertEquals(chunks.size(), spans.size());
+        for (int i = 0; i < chunks.size(); i++) {
+            assertEquals(chunks.get(i), spans.get(i).view(input).toString());
+        }
+        assertEquals(2, spans.getFirst().start()); // leading whitespace trimmed by offset
+    }
+
+    @Test
+    @DisplayName("Token mode - Should cut chunks of max-tokens tokens with token overlap")
+    void chunkText_TokenMode_ExactTokenWindows() {
+        // --- ARRANGE ---
+        TextChunkingService tokenChunking = new TextChunkingService(new WordTokenizer(), 10, 3);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 25; i++) {
+            sb.append("w").append(i).append(' ');
+        }
+
+        // --- ACT ---
+        List<String> chunks = tokenChunking.chunkText(sb.toString());
+
+        // --- ASSERT ---
+        // Tokens 0-9, 7-16, 14-23, 21-24
+        assertEquals(4, chunks.size());
+        assertEquals("w0 w1 w2 w3 w4 w5 w6 w7 w8 w9", chunks.get(0));
+        assertTrue(chunks.get(1).startsWith("w7 "));
+        assertEquals(10, tokenChunking.estimateTokenCount(chunks.get(1)));
+        assertEquals("w21 w22 w23 w24", chunks.get(3));
+    }
+
+    @Test
+    @DisplayName("Token mode - chunkDocument should return the token count of every window")
+    void chunkDocument_TokenMode_CountsTokensOfWindows() {
+        // --- ARRANGE ---
+        TextChunkingService tokenChunking = new TextChunkingService(new WordTokenizer(), 10, 3);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 25; i++) {
+            sb.append("w").append(i).append(' ');
+        }
+        DocumentParserService.ParsedDocument document = new DocumentParserService.ParsedDocument(sb.toString(), 0);
+
+        // --- ACT ---
+        List<TextChunkingService.Chunk> chunks = tokenChunking.chunkDocument(document);
+
+        // --- ASSERT ---
+        // Tokens 0-9, 7-16, 14-23, 21-24
+        assertEquals(List.of(10, 10, 10, 4), chunks.stream().map(TextChunkingService.Chunk::tokenCount).toList());
+        assertEquals("w21 w22 w23 w24", chunks.get(3).text());
+    }
+
+    @Test
+    @DisplayName("Token mode - Should end a chunk after a sentence in the second half of the window")
+    void chunkText_TokenMode_SentenceBoundary() {
+        // --- ARRANGE ---
+        TextChunkingService tokenChunking = new TextChunkingService(new WordTokenizer(), 10, 2);
+        String input = "a b c d e f end. g h i j k l";
+
+        // --- ACT ---
+        List<String> chunks = tokenChunking.chunkText(input);
+
+        // --- ASSERT ---
+        assertEquals("a b c d e f end.", chunks.get(0));
+        assertTrue(chunks.get(1).startsWith("f end. g"));
+    }
+
+    @Test
+    @DisplayName("Structure - Should start a chunk per section and prefix the heading breadcrumb")
+    void chunkDocument_Structure_HeadingBreadcrumbs() {
+        // --- ARRANGE ---
+        TextChunkingService structureChunking = new TextChunkingService(null, 0, 0, true);
+        String text = "# Guide\n\nIntro paragraph.\n\n## Install\n\nRun the installer.\n- step one\n- step two\n";
+        DocumentParserService.ParsedDocument document =
+                new DocumentParserService.ParsedDocument(text, 0, DocumentParserService.textBlocks(text));
+
+        // --- ACT ---
+        List<TextChunkingService.Chunk> chunks = structureChunking.chunkDocument(document);
+
+        // --- ASSERT ---
+        assertEquals(List.of(
+                "Guide\n\nIntro paragraph.",
+                "Guide > Install\n\nRun the installer.\n- step one\n- step two"
+        ), chunks.stream().map(TextChunkingService.Chunk::text).toList());
+        // Estimated without a tokenizer
+        assertEquals(chunks.get(0).text().length() / 4, chunks.get(0).tokenCount());
+    }
+
+    @Test
+    @DisplayName("Structure - Should keep table rows whole and repeat the header row in every chunk")
+    void chunkDocument_Structure_TableSplitRepeatsHeader() {
+        // --- ARRANGE ---
+        // Every row is 5 tokens, so a chunk of 10 tokens holds the header and one row
+        TextChunkingService structureChunking = new TextChunkingService(new WordTokenizer(), 10, 2, true);
+        String text = "| Name | Qty |\n|---|---|\n| apple | 1 |\n| pear | 2 |\n| plum | 3 |\n";
+        DocumentParserService.ParsedDocument document =
+                new DocumentParserService.ParsedDocument(text, 0, DocumentParserService.textBlocks(text));
+
+        // --- ACT ---
+        List<TextChunkingService.Chunk> chunks = structureChunking.chunkDocument(document);
+
+        // --- ASSERT ---
+        assertEquals(List.of(
+                "| Name | Qty |\n| apple | 1 |",
+                "| Name | Qty |\n| pear | 2 |",
+                "| Name | Qty |\n| plum | 3 |"
+        ), chunks.stream().map(TextChunkingService.Chunk::text).toList());
+        // Header and row, counted while packing
+        assertEquals(List.of(10, 10, 10), chunks.stream().map(TextChunkingService.Chunk::tokenCount).toList());
+    }
+
+    /**
+     * Test tokenizer: every run of non-whitespace characters is one token
+     */
+    private static class WordTokenizer implements TextTokenizer {
+        private static final Pattern WORD = Pattern.compile("\\S+");
+
+        @Override
+        public TokenSpans tokenize(String text) {
+            List<int[]> spans = new ArrayList<>();
+            Matcher matcher = WORD.matcher(text);
+            while (matcher.find()) {
+                spans.add(new int[]{matcher.start(), matcher.end()});
+            }
+            return new TokenSpans(
+                    spans.stream().mapToInt(span -> span[0]).toArray(),
+                    spans.stream().mapToInt(span -> span[1]).toArray());
+        }
+    }
 }
@@ -0,0 +1,98 @@
+package com.webdynamo.document_insight.storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * In-process blob store for tests. Like a remote store it has no local paths,
+ * so code under test has to go through the streaming and ranged read API.
+ */
+public class InMemoryBlobStore implements BlobStore {
+
+    private record Blob(byte[] data, Instant lastModified) {
+    }
+
+    private final Map<String, Blob> blobs = new ConcurrentHashMap<>();
+
+    @Override
+    public void put(String key, Path source) throws IOException {
+        blobs.put(key, new Blob(Files.readAllBytes(source), Instant.now()));
+        Files.delete(source);
+    }
+
+    @Override
+    public void move(String sourceKey, String targetKey) throws IOException {
+        blobs.put(targetKey, get(sourceKey));
+        blobs.remove(sourceKey);
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return blobs.containsKey(key);
+    }
+
+    @Override
+    public long size(String key) throws IOException {
+        return get(key).data().length;
+    }
+
+    @Override
+    public void touch(String key) throws IOException {
+        blobs.put(key, new Blob(get(key).data(), Instant.now()));
+    }
+
+    @Override
+    public InputStream open(String key) throws IOException {
+        return new ByteArrayInputStream(get(key).data());
+    }
+
+    @Override
+    public InputStream openRange(String key, long offset, long length) throws IOException {
+        byte[] data = get(key).data();
+        int from = (int) Math.min(offset, data.length);
+        int to = (int) Math.min(offset + length, data.length);
+        return new ByteArrayInputStream(Arrays.copyOfRange(data, from, to));
+    }
+
+    @Override
+    public void delete(String key) {
+        blobs.remove(key);
+    }
+
+    @Override
+    public Stream<BlobInfo> list() {
+        List<BlobInfo> snapshot = blobs.entrySet().stream()
+                .map(entry -> new BlobInfo(entry.getKey(), entry.getValue().lastModified()))
+                .toList();
+        return snapshot.stream();
+    }
+
+    /**
+     * Store content directly with a given modification time
+     */
+    public void putBytes(String key, byte[] data, Instant lastModified) {
+        blobs.put(key, new Blob(data, lastModified));
+    }
+
+    public byte[] getBytes(String key) throws IOException {
+        return get(key).data();
+    }
+
+    private Blob get(String key) throws IOException {
+        Blob blob = blobs.get(key);
+        if (blob == null) {
+            throw new FileNotFoundException("No blob: " + key);
+        }
+        return blob;
+    }
+}
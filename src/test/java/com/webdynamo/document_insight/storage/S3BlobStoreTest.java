@@ -0,0 +1,255 @@
+package com.webdynamo.document_insight.storage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.http.AbortableInputStream;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CopyObjectRequest;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.MetadataDirective;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class S3BlobStoreTest {
+
+    private static final String BUCKET = "documents";
+    private static final String PREFIX = "blobs/";
+
+    // Small parts, so a few bytes already make a multipart upload
+    private static final long PART_SIZE = 5;
+
+    @TempDir
+    Path tempDir;
+
+    private S3Client s3;
+    private S3BlobStore store;
+
+    @BeforeEach
+    void setUp() {
+        s3 = mock(S3Client.class);
+        store = new S3BlobStore(s3, BUCKET, PREFIX, PART_SIZE);
+    }
+
+    @Test
+    @DisplayName("put - Should send a file up to the part size in one request")
+    void put_SmallFile_ShouldPutObject() throws IOException {
+        // --- ARRANGE ---
+        Path source = Files.writeString(tempDir.resolve("small"), "abc");
+
+        // --- ACT ---
+        store.put("ab/cd/small", source);
+
+        // --- ASSERT ---
+        ArgumentCaptor<PutObjectRequest> request = ArgumentCaptor.forClass(PutObjectRequest.class);
+        verify(s3).putObject(request.capture(), any(RequestBody.class));
+        assertThat(request.getValue().bucket()).isEqualTo(BUCKET);
+        assertThat(request.getValue().key()).isEqualTo("blobs/ab/cd/small");
+        verify(s3, never()).createMultipartUpload(any(CreateMultipartUploadRequest.class));
+        assertThat(source).doesNotExist();
+    }
+
+    @Test
+    @DisplayName("put - Should upload a large file in parts and complete the upload")
+    void put_LargeFile_ShouldUploadParts() throws IOException {
+        // --- ARRANGE ---
+        Path source = Files.writeString(tempDir.resolve("large"), "0123456789ab");
+        when(s3.createMultipartUpload(any(CreateMultipartUploadRequest.class)))
+                .thenReturn(CreateMultipartUploadResponse.builder().uploadId("upload-1").build());
+
+        List<String> partContents = new ArrayList<>();
+        when(s3.uploadPart(any(UploadPartRequest.class), any(RequestBody.class))).thenAnswer(invocation -> {
+            UploadPartRequest part = invocation.getArgument(0);
+            partContents.add(read(invocation.getArgument(1)));
+            return UploadPartResponse.builder().eTag("etag-" + part.partNumber()).build();
+        });
+
+        // --- ACT ---
+        store.put("large", source);
+
+        // --- ASSERT ---
+        assertThat(partContents).containsExactly("01234", "56789", "ab");
+
+        ArgumentCaptor<CompleteMultipartUploadRequest> complete = ArgumentCaptor.forClass(CompleteMultipartUploadRequest.class);
+        verify(s3).completeMultipartUpload(complete.capture());
+        assertThat(complete.getValue().key()).isEqualTo("blobs/large");
+        assertThat(complete.getValue().uploadId()).isEqualTo("upload-1");
+        assertThat(complete.getValue().multipartUpload().parts())
+                .extracting(CompletedPart::partNumber, CompletedPart::eTag)
+                .containsExactly(
+                        tuple(1, "etag-1"),
+                        tuple(2, "etag-2"),
+                        tuple(3, "etag-3"));
+
+        verify(s3, never()).abortMultipartUpload(any(AbortMultipartUploadRequest.class));
+        verify(s3, never()).putObject(any(PutObjectRequest.class), any(RequestBody.class));
+        assertThat(source).doesNotExist();
+    }
+
+    @Test
+    @DisplayName("put - Should abort the multipart upload when a part fails")
+    void put_PartFails_ShouldAbortUpload() throws IOException {
+        // --- ARRANGE ---
+        Path source = Files.writeString(tempDir.resolve("large"), "0123456789ab");
+        when(s3.createMultipartUpload(any(CreateMultipartUploadRequest.class)))
+                .thenReturn(CreateMultipartUploadResponse.builder().uploadId("upload-1").build());
+        when(s3.uploadPart(any(UploadPartRequest.class), any(RequestBody.class)))
+                .thenReturn(UploadPartResponse.builder().eTag("etag-1").build())
+                .thenThrow(s3Exception(500));
+
+        // --- ACT & ASSERT ---
+        assertThatThrownBy(() -> store.put("large", source))
+                .isInstanceOf(IOException.class)
+                .hasMessage("Failed to upload blob: large");
+
+        ArgumentCaptor<AbortMultipartUploadRequest> abort = ArgumentCaptor.forClass(AbortMultipartUploadRequest.class);
+        verify(s3).abortMultipartUpload(abort.capture());
+        assertThat(abort.getValue().key()).isEqualTo("blobs/large");
+        assertThat(abort.getValue().uploadId()).isEqualTo("upload-1");
+        verify(s3, never()).completeMultipartUpload(any(CompleteMultipartUploadRequest.class));
+
+        // The local file is kept for the caller to clean up or retry
+        assertThat(source).exists();
+    }
+
+    @Test
+    @DisplayName("exists - Should map 404 to false and other errors to IOException")
+    void exists_ShouldMapNotFound() throws IOException {
+        // --- ARRANGE ---
+        when(s3.headObject(any(HeadObjectRequest.class)))
+                .thenThrow(s3Exception(404))
+                .thenThrow(s3Exception(403))
+                .thenReturn(HeadObjectResponse.builder().contentLength(3L).build());
+
+        // --- ACT & ASSERT ---
+        assertThat(store.exists("missing")).isFalse();
+        assertThatThrownBy(() -> store.exists("forbidden"))
+                .isInstanceOf(IOException.class)
+                .hasMessage("Failed to check blob: forbidden");
+        assertThat(store.exists("present")).isTrue();
+    }
+
+    @Test
+    @DisplayName("size - Should report a missing blob like the filesystem store")
+    void size_ShouldMapNotFound() throws IOException {
+        // --- ARRANGE ---
+        when(s3.headObject(any(HeadObjectRequest.class)))
+                .thenReturn(HeadObjectResponse.builder().contentLength(42L).build())
+                .thenThrow(s3Exception(404))
+                .thenThrow(s3Exception(500));
+
+        // --- ACT & ASSERT ---
+        assertThat(store.size("present")).isEqualTo(42L);
+        assertThatThrownBy(() -> store.size("missing"))
+                .isInstanceOf(NoSuchFileException.class)
+                .hasMessage("missing");
+        assertThatThrownBy(() -> store.size("broken"))
+                .isInstanceOf(IOException.class)
+                .isNotInstanceOf(NoSuchFileException.class);
+    }
+
+    @Test
+    @DisplayName("openRange - Should request only the inclusive byte range")
+    void openRange_ShouldSendRangeHeader() throws IOException {
+        // --- ARRANGE ---
+        when(s3.getObject(any(GetObjectRequest.class))).thenReturn(new ResponseInputStream<>(
+                GetObjectResponse.builder().build(),
+                AbortableInputStream.create(new ByteArrayInputStream("range".getBytes(StandardCharsets.UTF_8)))));
+
+        // --- ACT ---
+        try (InputStream in = store.openRange("ab/cd/blob", 100, 5)) {
+            assertThat(new String(in.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo("range");
+        }
+
+        // --- ASSERT ---
+        ArgumentCaptor<GetObjectRequest> request = ArgumentCaptor.forClass(GetObjectRequest.class);
+        verify(s3).getObject(request.capture());
+        assertThat(request.getValue().key()).isEqualTo("blobs/ab/cd/blob");
+        assertThat(request.getValue().range()).isEqualTo("bytes=100-104");
+    }
+
+    @Test
+    @DisplayName("openRange - Should not call S3 for an empty range")
+    void openRange_EmptyRange_ShouldReturnEmptyStream() throws IOException {
+        // --- ACT ---
+        try (InputStream in = store.openRange("ab/cd/blob", 100, 0)) {
+            assertThat(in.read()).isEqualTo(-1);
+        }
+
+        // --- ASSERT ---
+        verifyNoInteractions(s3);
+    }
+
+    @Test
+    @DisplayName("touch - Should copy the object onto itself, keeping its metadata and headers")
+    void touch_ShouldCopyInPlace() throws IOException {
+        // --- ARRANGE ---
+        when(s3.headObject(any(HeadObjectRequest.class))).thenReturn(HeadObjectResponse.builder()
+                .metadata(Map.of("original-name", "report.pdf"))
+                .contentType("application/pdf")
+                .contentDisposition("attachment")
+                .cacheControl("no-cache")
+                .build());
+
+        // --- ACT ---
+        store.touch("ab/cd/blob");
+
+        // --- ASSERT ---
+        ArgumentCaptor<CopyObjectRequest> copy = ArgumentCaptor.forClass(CopyObjectRequest.class);
+        verify(s3).copyObject(copy.capture());
+        CopyObjectRequest request = copy.getValue();
+        assertThat(request.sourceBucket()).isEqualTo(BUCKET);
+        assertThat(request.destinationBucket()).isEqualTo(BUCKET);
+        assertThat(request.sourceKey()).isEqualTo("blobs/ab/cd/blob");
+        assertThat(request.destinationKey()).isEqualTo("blobs/ab/cd/blob");
+        assertThat(request.metadataDirective()).isEqualTo(MetadataDirective.REPLACE);
+        assertThat(request.metadata()).containsEntry("original-name", "report.pdf");
+        assertThat(request.contentType()).isEqualTo("application/pdf");
+        assertThat(request.contentDisposition()).isEqualTo("attachment");
+        assertThat(request.cacheControl()).isEqualTo("no-cache");
+    }
+
+    private static S3Exception s3Exception(int statusCode) {
+        return (S3Exception) S3Exception.builder().statusCode(statusCode).message("status " + statusCode).build();
+    }
+
+    private static String read(RequestBody body) {
+        try (InputStream in = body.contentStreamProvider().newStream()) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}